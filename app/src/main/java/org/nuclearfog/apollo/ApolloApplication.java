@@ -17,6 +17,10 @@ import androidx.core.app.NotificationManagerCompat;
 
 import org.nuclearfog.apollo.cache.ImageCache;
 import org.nuclearfog.apollo.player.AudioEffects;
+import org.nuclearfog.apollo.utils.PlaybackMetrics;
+import org.nuclearfog.apollo.utils.PlaylistIndex;
+import org.nuclearfog.apollo.utils.PreferenceUtils;
+import org.nuclearfog.apollo.utils.StrictModeAudit;
 
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -38,6 +42,16 @@ public class ApolloApplication extends Application {
 		super.onCreate();
 		// Turn off logging for jaudiotagger.
 		Logger.getLogger("org.jaudiotagger").setLevel(Level.OFF);
+		// record storage access on the UI thread if enabled
+		if (PreferenceUtils.getInstance(this).ioAuditEnabled()) {
+			StrictModeAudit.setEnabled(true);
+		}
+		// measure the playback path if enabled, the application is created in the UI and the playback process
+		if (PreferenceUtils.getInstance(this).playbackMetricsEnabled()) {
+			PlaybackMetrics.setEnabled(true);
+		}
+		// start loading the playlist directory in the background
+		PlaylistIndex.getInstance(this);
 	}
 
 	/**
@@ -0,0 +1,229 @@
+package org.nuclearfog.apollo.cache;
+
+import android.content.ContentUris;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import android.provider.MediaStore.Audio.Media;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import org.nuclearfog.apollo.BuildConfig;
+import org.nuclearfog.apollo.model.Album;
+import org.nuclearfog.apollo.utils.MusicUtils;
+import org.nuclearfog.apollo.utils.PlaybackMetrics;
+import org.nuclearfog.apollo.utils.TagReader;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Extracts album artwork embedded in the audio files and writes it into the image disk cache,
+ * so covers are available without the MediaStore album art or a download.
+ *
+ * @author nuclearfog
+ */
+public final class ArtworkScanner {
+
+	/**
+	 * max number of albums waiting for a scan, further albums are scanned when they are shown
+	 */
+	private static final int MAX_QUEUE = 64;
+
+	/**
+	 * max number of tracks of an album searched for artwork
+	 */
+	private static final int MAX_TRACKS = 3;
+
+	/**
+	 * max width and height of the decoded artwork
+	 */
+	private static final int MAX_IMAGE_SIZE = 1024;
+
+	/**
+	 * max number of albums remembered without embedded artwork
+	 */
+	private static final int MAX_MISSING = 512;
+
+	private static ArtworkScanner sInstance;
+
+	/**
+	 * executor used to scan albums in parallel
+	 */
+	private final ThreadPoolExecutor executor;
+
+	/**
+	 * IDs of albums without embedded artwork
+	 */
+	private final LruCache<Long, Boolean> missing = new LruCache<>(MAX_MISSING);
+
+	/**
+	 * IDs of albums waiting for a scan
+	 */
+	private final Set<Long> pending = new HashSet<>();
+
+	private final Context context;
+
+	/**
+	 * @param context application context
+	 */
+	private ArtworkScanner(Context context) {
+		this.context = context;
+		int threads = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+		executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(MAX_QUEUE));
+		executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * get singleton instance
+	 */
+	public static synchronized ArtworkScanner getInstance(Context context) {
+		if (sInstance == null) {
+			// use application context to avoid memory leak
+			sInstance = new ArtworkScanner(context.getApplicationContext());
+		}
+		return sInstance;
+	}
+
+	/**
+	 * scan albums in the background and add the embedded artwork to the disk cache.
+	 * Albums with cached artwork are skipped
+	 *
+	 * @param albums albums to scan
+	 */
+	public void scan(List<Album> albums) {
+		for (final Album album : albums) {
+			final String key = ImageFetcher.generateAlbumCacheKey(album.getName(), album.getArtist());
+			if (key == null || missing.get(album.getId()) != null)
+				continue;
+			synchronized (pending) {
+				if (!pending.add(album.getId()))
+					continue;
+			}
+			try {
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							ImageCache cache = ImageCache.getInstance(context);
+							if (!cache.isCached(key)) {
+								Bitmap artwork = getArtwork(album.getId());
+								if (artwork != null) {
+									cache.addBitmapToDiskCache(key, artwork);
+								}
+							}
+						} finally {
+							synchronized (pending) {
+								pending.remove(album.getId());
+							}
+						}
+					}
+				});
+			} catch (RejectedExecutionException exception) {
+				// queue is full, the album will be scanned when its artwork is loaded
+				synchronized (pending) {
+					pending.remove(album.getId());
+				}
+				break;
+			}
+		}
+	}
+
+	/**
+	 * get the embedded artwork of an album
+	 *
+	 * @param albumId ID of the album
+	 * @return decoded artwork or null if not found
+	 */
+	@Nullable
+	@WorkerThread
+	public Bitmap getArtwork(long albumId) {
+		if (albumId < 0 || missing.get(albumId) != null)
+			return null;
+		long[] trackIds = MusicUtils.getSongListForAlbum(context, albumId);
+		for (int i = 0; i < trackIds.length && i < MAX_TRACKS; i++) {
+			byte[] image = readArtwork(trackIds[i]);
+			if (image != null) {
+				Bitmap artwork = decode(image);
+				if (artwork != null) {
+					return artwork;
+				}
+			}
+		}
+		missing.put(albumId, Boolean.TRUE);
+		return null;
+	}
+
+	/**
+	 * read the embedded artwork of a track
+	 *
+	 * @param trackId ID of the track
+	 * @return encoded image or null if not found
+	 */
+	@Nullable
+	private byte[] readArtwork(long trackId) {
+		Uri uri = ContentUris.withAppendedId(Media.EXTERNAL_CONTENT_URI, trackId);
+		FileInputStream stream = null;
+		try {
+			ParcelFileDescriptor fileDescriptor = context.getContentResolver().openFileDescriptor(uri, "r");
+			if (fileDescriptor != null) {
+				stream = new ParcelFileDescriptor.AutoCloseInputStream(fileDescriptor);
+				return TagReader.read(stream.getChannel()).getArtwork();
+			}
+		} catch (IOException exception) {
+			if (BuildConfig.DEBUG) {
+				exception.printStackTrace();
+			}
+		} catch (RuntimeException exception) {
+			// thrown if the track was removed or is not accessible
+			if (BuildConfig.DEBUG) {
+				exception.printStackTrace();
+			}
+		} finally {
+			if (stream != null) {
+				try {
+					stream.close();
+				} catch (IOException exception) {
+					// ignore
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * decode and sample down an embedded image
+	 *
+	 * @param image encoded image
+	 * @return decoded image or null if the format is not supported
+	 */
+	@Nullable
+	private Bitmap decode(byte[] image) {
+		long start = PlaybackMetrics.begin(PlaybackMetrics.ARTWORK_DECODE);
+		try {
+			BitmapFactory.Options options = new BitmapFactory.Options();
+			options.inJustDecodeBounds = true;
+			BitmapFactory.decodeByteArray(image, 0, image.length, options);
+			if (options.outWidth <= 0 || options.outHeight <= 0)
+				return null;
+			options.inSampleSize = ImageFetcher.calculateInSampleSize(options, MAX_IMAGE_SIZE, MAX_IMAGE_SIZE);
+			options.inJustDecodeBounds = false;
+			return BitmapFactory.decodeByteArray(image, 0, image.length, options);
+		} catch (OutOfMemoryError error) {
+			ImageCache.getInstance(context).evictAll();
+			return null;
+		} finally {
+			PlaybackMetrics.end(PlaybackMetrics.ARTWORK_DECODE, start);
+		}
+	}
+}
@@ -30,6 +30,7 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import org.nuclearfog.apollo.BuildConfig;
+import org.nuclearfog.apollo.utils.PlaybackMetrics;
 
 import java.io.File;
 import java.io.FileDescriptor;
@@ -303,8 +304,20 @@ public final class ImageCache implements ComponentCallbacks2 {
 
 		// Add to memory cache
 		addBitmapToMemCache(data, bitmap);
-
 		// Add to disk cache
+		addBitmapToDiskCache(data, bitmap);
+	}
+
+	/**
+	 * Adds a new image to the disk cache only
+	 *
+	 * @param data   The key used to store the image
+	 * @param bitmap The {@link Bitmap} to cache
+	 */
+	public void addBitmapToDiskCache(String data, Bitmap bitmap) {
+		if (data == null || bitmap == null) {
+			return;
+		}
 		if (mDiskCache != null) {
 			String key = hashKeyForDisk(data);
 			OutputStream out = null;
@@ -405,7 +418,13 @@ public final class ImageCache implements ComponentCallbacks2 {
 				if (snapshot != null) {
 					inputStream = snapshot.getInputStream(DISK_CACHE_INDEX);
 					if (inputStream != null) {
-						Bitmap bitmap = BitmapFactory.decodeStream(inputStream);
+						long start = PlaybackMetrics.begin(PlaybackMetrics.ARTWORK_DISK_CACHE);
+						Bitmap bitmap;
+						try {
+							bitmap = BitmapFactory.decodeStream(inputStream);
+						} finally {
+							PlaybackMetrics.end(PlaybackMetrics.ARTWORK_DISK_CACHE, start);
+						}
 						if (bitmap != null) {
 							return bitmap;
 						}
@@ -431,6 +450,35 @@ public final class ImageCache implements ComponentCallbacks2 {
 		return null;
 	}
 
+	/**
+	 * check if an image is cached without decoding it
+	 *
+	 * @param data Unique identifier of the image
+	 * @return true if the image is in the memory or disk cache
+	 */
+	public boolean isCached(String data) {
+		if (data == null) {
+			return false;
+		}
+		if (getBitmapFromMemCache(data) != null) {
+			return true;
+		}
+		if (mDiskCache != null) {
+			try {
+				DiskLruCache.Snapshot snapshot = mDiskCache.get(hashKeyForDisk(data));
+				if (snapshot != null) {
+					snapshot.close();
+					return true;
+				}
+			} catch (IOException e) {
+				if (BuildConfig.DEBUG) {
+					e.printStackTrace();
+				}
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * Tries to return a cached image from memory cache before fetching from the
 	 * disk cache
@@ -466,6 +514,8 @@ public final class ImageCache implements ComponentCallbacks2 {
 		Bitmap cachedImage = getCachedBitmap(data);
 		if (cachedImage == null && id >= 0) {
 			cachedImage = getArtworkFromFile(context, id);
+			// keep the artwork in the disk cache, so the files don't need to be read again
+			addBitmapToDiskCache(data, cachedImage);
 		}
 		if (cachedImage != null) {
 			addBitmapToMemCache(data, cachedImage);
@@ -475,7 +525,8 @@ public final class ImageCache implements ComponentCallbacks2 {
 	}
 
 	/**
-	 * Used to fetch the artwork for an album locally from the user's device
+	 * Used to fetch the artwork for an album locally from the user's device.
+	 * The artwork embedded in the audio files is used first, then the artwork of the MediaStore
 	 *
 	 * @param context The {@link Context} to use
 	 * @return The artwork for an album
@@ -485,15 +536,24 @@ public final class ImageCache implements ComponentCallbacks2 {
 		if (albumId < 0) {
 			return null;
 		}
-		Bitmap artwork = null;
 		waitUntilUnpaused();
+		// prefer the artwork embedded in the audio files, MediaStore artwork is often missing or scaled down
+		Bitmap artwork = ArtworkScanner.getInstance(context).getArtwork(albumId);
+		if (artwork != null) {
+			return artwork;
+		}
 		try {
 			Uri uri = ContentUris.withAppendedId(mArtworkUri, albumId);
 
 			ParcelFileDescriptor fileDescr = context.getContentResolver().openFileDescriptor(uri, "r");
 			if (fileDescr != null) {
 				FileDescriptor fileDescriptor = fileDescr.getFileDescriptor();
-				artwork = BitmapFactory.decodeFileDescriptor(fileDescriptor);
+				long start = PlaybackMetrics.begin(PlaybackMetrics.ARTWORK_DECODE);
+				try {
+					artwork = BitmapFactory.decodeFileDescriptor(fileDescriptor);
+				} finally {
+					PlaybackMetrics.end(PlaybackMetrics.ARTWORK_DECODE, start);
+				}
 				fileDescr.close();
 			}
 		} catch (OutOfMemoryError e) {
@@ -24,10 +24,7 @@ import androidx.core.content.res.ResourcesCompat;
 
 import org.nuclearfog.apollo.BuildConfig;
 import org.nuclearfog.apollo.R;
-import org.nuclearfog.apollo.lastfm.Album;
-import org.nuclearfog.apollo.lastfm.Artist;
-import org.nuclearfog.apollo.lastfm.ImageSize;
-import org.nuclearfog.apollo.lastfm.MusicEntry;
+import org.nuclearfog.apollo.lastfm.MetadataCache;
 import org.nuclearfog.apollo.service.MusicPlaybackService;
 import org.nuclearfog.apollo.utils.MusicUtils;
 import org.nuclearfog.apollo.utils.PreferenceUtils;
@@ -66,10 +63,6 @@ public class ImageFetcher extends ImageWorker {
 	 */
 	private static final String ALBUM_ART_SUFFIX = "album";
 
-	private static final ImageSize[] QUALITY = {
-			ImageSize.MEGA, ImageSize.EXTRALARGE, ImageSize.LARGE,
-			ImageSize.MEDIUM, ImageSize.SMALL, ImageSize.UNKNOWN};
-
 	private static ImageFetcher sInstance = null;
 
 	/**
@@ -95,16 +88,6 @@ public class ImageFetcher extends ImageWorker {
 	}
 
 
-	private static String getBestImage(MusicEntry e) {
-		for (ImageSize q : QUALITY) {
-			String url = e.getImageURL(q);
-			if (url != null) {
-				return url;
-			}
-		}
-		return null;
-	}
-
 	/**
 	 * Download a {@link Bitmap} from a URL, write it to a disk and return the
 	 * File pointer. This implementation uses a simple disk cache.
@@ -276,23 +259,14 @@ public class ImageFetcher extends ImageWorker {
 		switch (imageType) {
 			case ARTIST:
 				if (!TextUtils.isEmpty(artistName) && PreferenceUtils.getInstance(mContext).downloadMissingArtistImages()) {
-					Artist artist = Artist.getInfo(getContext(), artistName);
-					if (artist != null) {
-						return getBestImage(artist);
-					}
+					return MetadataCache.getInstance(mContext).getArtistImageUrl(artistName);
 				}
 				break;
 
 			case ALBUM:
 				if (!TextUtils.isEmpty(artistName) && !TextUtils.isEmpty(albumName)
 						&& PreferenceUtils.getInstance(mContext).downloadMissingArtwork()) {
-					Artist correction = Artist.getCorrection(mContext, artistName);
-					if (correction != null) {
-						Album album = Album.getInfo(getContext(), correction.getName(), albumName);
-						if (album != null) {
-							return getBestImage(album);
-						}
-					}
+					return MetadataCache.getInstance(mContext).getAlbumImageUrl(artistName, albumName);
 				}
 				break;
 		}
@@ -35,6 +35,11 @@ public class Album extends MusicEntry {
 
 	protected final static ItemFactory<Album> FACTORY = new AlbumFactory();
 
+	/**
+	 * response fields used by the {@link AlbumFactory}
+	 */
+	static final String[] FIELDS = {"name", "url", "image", "artist/name"};
+
 	private String artist;
 
 	private Album() {
@@ -70,7 +75,7 @@ public class Album extends MusicEntry {
 		params.put("artist", artist);
 		params.put("album", albumOrMbid);
 		MapUtilities.nullSafePut(params, "username", username);
-		Result result = Caller.getInstance(context).call("album.getInfo", params);
+		Result result = Caller.getInstance(context).call("album.getInfo", params, FIELDS);
 		return ResponseBuilder.buildItem(result, Album.class);
 	}
 
@@ -39,6 +39,16 @@ public class Artist extends MusicEntry {
 
 	protected final static ItemFactory<Artist> FACTORY = new ArtistFactory();
 
+	/**
+	 * response fields used by the {@link ArtistFactory}
+	 */
+	static final String[] FIELDS = {"name", "url", "image"};
+
+	/**
+	 * response fields used to create an artist correction
+	 */
+	static final String[] CORRECTION_FIELDS = {"correction/artist/name", "correction/artist/url", "correction/artist/image"};
+
 	protected Artist(String name) {
 		super(name, null);
 	}
@@ -66,7 +76,7 @@ public class Artist extends MusicEntry {
 		if (locale != null && locale.getLanguage().length() != 0) {
 			mParams.put("lang", locale.getLanguage());
 		}
-		Result mResult = Caller.getInstance(context).call("artist.getInfo", mParams);
+		Result mResult = Caller.getInstance(context).call("artist.getInfo", mParams, FIELDS);
 		return ResponseBuilder.buildItem(mResult, Artist.class);
 	}
 
@@ -80,9 +90,24 @@ public class Artist extends MusicEntry {
 	 * @return a new {@link Artist}, or <code>null</code>
 	 */
 	public static Artist getCorrection(Context context, String artist) {
-		Result result;
 		try {
-			result = Caller.getInstance(context).call("artist.getCorrection", "artist", artist);
+			Map<String, String> params = StringUtilities.map("artist", artist);
+			Result result = Caller.getInstance(context).call("artist.getCorrection", params, CORRECTION_FIELDS);
+			return buildCorrection(result, artist);
+		} catch (Exception ignored) {
+			return null;
+		}
+	}
+
+	/**
+	 * create a corrected {@link Artist} from the result of an "artist.getCorrection" call
+	 *
+	 * @param result result of the call
+	 * @param artist The artist name to correct
+	 * @return a new {@link Artist}, or <code>null</code>
+	 */
+	static Artist buildCorrection(Result result, String artist) {
+		try {
 			if (!result.isSuccessful()) {
 				return null;
 			}
@@ -21,23 +21,23 @@
 
 package org.nuclearfog.apollo.lastfm;
 
-import android.annotation.SuppressLint;
 import android.content.Context;
+import android.util.Xml;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 
 import org.nuclearfog.apollo.BuildConfig;
-import org.nuclearfog.apollo.lastfm.Result.Status;
 import org.nuclearfog.apollo.utils.PreferenceUtils;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
+import org.xmlpull.v1.XmlPullParserException;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.net.HttpURLConnection;
 import java.net.Proxy;
 import java.net.URL;
 import java.util.Iterator;
@@ -45,11 +45,6 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.WeakHashMap;
 
-import javax.net.ssl.HttpsURLConnection;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-
 /**
  * The <code>Caller</code> class handles the low-level communication between the
  * client and last.fm.<br/>
@@ -90,6 +85,11 @@ public class Caller {
 	 */
 	private static final Caller mInstance = new Caller();
 
+	/**
+	 * URL of the web service
+	 */
+	private static String apiRoot = DEFAULT_API_ROOT;
+
 	/**
 	 * app preferences used to get API-key
 	 */
@@ -107,11 +107,32 @@ public class Caller {
 		return mInstance;
 	}
 
+	/**
+	 * set the URL of the web service, used to test against a local server
+	 *
+	 * @param url URL of the web service or null to use Last.fm
+	 */
+	@VisibleForTesting
+	static void setApiRoot(@Nullable String url) {
+		apiRoot = url != null ? url : DEFAULT_API_ROOT;
+	}
+
 
 	public Result call(String method, String... params) {
 		return call(method, StringUtilities.map(params));
 	}
 
+	/**
+	 * Performs the web-service call and parses the complete response
+	 *
+	 * @param method The method to call
+	 * @param params Parameters
+	 * @return the result of the operation
+	 */
+	public Result call(String method, Map<String, String> params) {
+		return call(method, params, null);
+	}
+
 	/**
 	 * Performs the web-service call. If the <code>session</code> parameter is
 	 * <code>non-null</code> then an authenticated call is made. If it's
@@ -121,9 +142,10 @@ public class Caller {
 	 *
 	 * @param method The method to call
 	 * @param params Parameters
+	 * @param fields paths of the response fields to parse (e.g. "artist/name") or null to parse the complete response
 	 * @return the result of the operation
 	 */
-	public Result call(String method, Map<String, String> params) {
+	public Result call(String method, Map<String, String> params, @Nullable String[] fields) {
 		params = new WeakHashMap<>(params);
 		InputStream inputStream;
 		Result lastResult;
@@ -135,7 +157,7 @@ public class Caller {
 			params.put(PARAM_API_KEY, LASTFM_API_KEY);
 		}
 		try {
-			HttpsURLConnection urlConnection = openPostConnection(method, params);
+			HttpURLConnection urlConnection = openPostConnection(method, params);
 			inputStream = getInputStreamFromConnection(urlConnection);
 			if (inputStream == null) {
 				lastResult = Result.createHttpErrorResult(urlConnection.getResponseCode(), urlConnection.getResponseMessage());
@@ -146,41 +168,48 @@ public class Caller {
 			return lastResult;
 		}
 		try {
-			lastResult = createResultFromInputStream(inputStream);
+			lastResult = new ResponseParser(fields).parse(Xml.newPullParser(), new BufferedInputStream(inputStream));
 		} catch (IOException ioEx) {
 			if (BuildConfig.DEBUG) {
 				ioEx.printStackTrace();
 			}
 			lastResult = new Result(ioEx.getLocalizedMessage());
-		} catch (SAXException saxEx) {
+		} catch (XmlPullParserException xmlEx) {
 			if (BuildConfig.DEBUG) {
-				saxEx.printStackTrace();
+				xmlEx.printStackTrace();
+			}
+			lastResult = new Result(xmlEx.getLocalizedMessage());
+		} finally {
+			// close the connection, the response may not be read completely
+			try {
+				inputStream.close();
+			} catch (IOException ioEx) {
+				// ignore
 			}
-			lastResult = new Result(saxEx.getLocalizedMessage());
 		}
 		return lastResult;
 	}
 
 	/**
-	 * Creates a new {@link HttpsURLConnection}, sets the proxy, if available,
+	 * Creates a new {@link HttpURLConnection}, sets the proxy, if available,
 	 * and sets the User-Agent property.
 	 *
 	 * @param url URL to connect to
 	 * @return a new connection.
 	 * @throws IOException if an I/O exception occurs.
 	 */
-	public HttpsURLConnection openConnection(String url) throws IOException {
+	public HttpURLConnection openConnection(String url) throws IOException {
 		URL u = new URL(url);
-		HttpsURLConnection urlConnection;
-		urlConnection = (HttpsURLConnection) u.openConnection();
+		HttpURLConnection urlConnection;
+		urlConnection = (HttpURLConnection) u.openConnection();
 		urlConnection.setRequestProperty("User-Agent", USER_AGENT);
 		urlConnection.setUseCaches(true);
 		return urlConnection;
 	}
 
 
-	private HttpsURLConnection openPostConnection(String method, Map<String, String> params) throws IOException {
-		HttpsURLConnection urlConnection = openConnection(DEFAULT_API_ROOT);
+	private HttpURLConnection openPostConnection(String method, Map<String, String> params) throws IOException {
+		HttpURLConnection urlConnection = openConnection(apiRoot);
 		urlConnection.setRequestMethod("POST");
 		urlConnection.setDoOutput(true);
 		urlConnection.setUseCaches(true);
@@ -193,49 +222,17 @@ public class Caller {
 	}
 
 
-	private InputStream getInputStreamFromConnection(HttpsURLConnection connection) throws IOException {
+	private InputStream getInputStreamFromConnection(HttpURLConnection connection) throws IOException {
 		int responseCode = connection.getResponseCode();
-		if (responseCode == HttpsURLConnection.HTTP_FORBIDDEN || responseCode == HttpsURLConnection.HTTP_BAD_REQUEST) {
+		if (responseCode == HttpURLConnection.HTTP_FORBIDDEN || responseCode == HttpURLConnection.HTTP_BAD_REQUEST) {
 			return connection.getErrorStream();
-		} else if (responseCode == HttpsURLConnection.HTTP_OK) {
+		} else if (responseCode == HttpURLConnection.HTTP_OK) {
 			return connection.getInputStream();
 		}
 		return null;
 	}
 
 
-	@SuppressLint("NewApi")
-	private Result createResultFromInputStream(InputStream inputStream) throws SAXException, IOException {
-		InputSource input = new InputSource(new InputStreamReader(inputStream));
-		Document document = newDocumentBuilder().parse(input);
-		Element root = document.getDocumentElement(); // lfm element
-		String statusString = root.getAttribute("status");
-		Status status = "ok".equals(statusString) ? Status.OK : Status.FAILED;
-		if (status == Status.FAILED) {
-			Element errorElement = (Element) root.getElementsByTagName("error").item(0);
-			int errorCode = Integer.parseInt(errorElement.getAttribute("code"));
-			String message = errorElement.getTextContent();
-			return Result.createRestErrorResult(errorCode, message);
-		} else {
-			return Result.createOkResult(document);
-		}
-	}
-
-
-	private DocumentBuilder newDocumentBuilder() {
-		try {
-			DocumentBuilderFactory builderFactory = DocumentBuilderFactory.newInstance();
-			return builderFactory.newDocumentBuilder();
-		} catch (ParserConfigurationException e) {
-			if (BuildConfig.DEBUG) {
-				e.printStackTrace();
-			}
-			// better never happens
-			throw new RuntimeException(e);
-		}
-	}
-
-
 	private String buildPostBody(String method, Map<String, String> params, String... strings) {
 		StringBuilder builder = new StringBuilder(100);
 		builder.append("method=");
@@ -21,30 +21,40 @@
 
 package org.nuclearfog.apollo.lastfm;
 
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
+import androidx.annotation.Nullable;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
- * <code>DomElement</code> wraps around an {@link Element} and provides
- * convenience methods.
+ * <code>DomElement</code> is a lightweight XML element created by the {@link ResponseParser}
+ * and provides convenience methods. It only contains the parts of a response which were selected for parsing.
  *
  * @author Janni Kovacs
  */
 public class DomElement {
 
-	private Element e;
+	private final String name;
+	private final Map<String, String> attributes = new HashMap<>(2);
+	private final List<DomElement> children = new ArrayList<>(4);
+	private final StringBuilder text = new StringBuilder();
 
 	/**
-	 * Creates a new wrapper around the given {@link Element}.
+	 * Creates a new empty element
 	 *
-	 * @param elem An w3c Element
+	 * @param name tag name of the element
 	 */
-	public DomElement(Element elem) {
-		e = elem;
+	DomElement(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * @return the tag name of the element
+	 */
+	public String getName() {
+		return name;
 	}
 
 	/**
@@ -54,20 +64,16 @@ public class DomElement {
 	 * @param name The attribute's name
 	 * @return Attribute value or <code>null</code>
 	 */
+	@Nullable
 	public String getAttribute(String name) {
-		return e.hasAttribute(name) ? e.getAttribute(name) : null;
+		return attributes.get(name);
 	}
 
 	/**
 	 * @return the text content of the element
 	 */
 	public String getText() {
-		// XXX e.getTextContent() doesn't exsist under Android (Lukasz
-		// Wisniewski)
-		// / getTextContent() is now available in at least Android 2.2 if not
-		// earlier, so we'll keep using that
-		// return e.hasChildNodes() ? e.getFirstChild().getNodeValue() : null;
-		return e.getTextContent();
+		return text.toString();
 	}
 
 	/**
@@ -78,32 +84,21 @@ public class DomElement {
 	 * given name
 	 */
 	public boolean hasChild(String name) {
-		NodeList list = e.getElementsByTagName(name);
-		for (int i = 0, j = list.getLength(); i < j; i++) {
-			Node item = list.item(i);
-			if (item.getParentNode() == e) {
-				return true;
-			}
-		}
-		return false;
+		return getChild(name) != null;
 	}
 
 	/**
 	 * Returns the child element with the given name or <code>null</code> if it
-	 * doesn't exist.
+	 * doesn't exist. "*" returns the first child element
 	 *
 	 * @param name The child's name
 	 * @return the child element or <code>null</code>
 	 */
+	@Nullable
 	public DomElement getChild(String name) {
-		NodeList list = e.getElementsByTagName(name);
-		if (list.getLength() == 0) {
-			return null;
-		}
-		for (int i = 0, j = list.getLength(); i < j; i++) {
-			Node item = list.item(i);
-			if (item.getParentNode() == e) {
-				return new DomElement((Element) item);
+		for (DomElement child : children) {
+			if (name.equals("*") || child.name.equals(name)) {
+				return child;
 			}
 		}
 		return null;
@@ -117,6 +112,7 @@ public class DomElement {
 	 * @param name The child's name
 	 * @return the child's text content or <code>null</code>
 	 */
+	@Nullable
 	public String getChildText(String name) {
 		DomElement child = getChild(name);
 		return child != null ? child.getText() : null;
@@ -130,13 +126,32 @@ public class DomElement {
 	 */
 	public List<DomElement> getChildren(String name) {
 		List<DomElement> l = new ArrayList<>();
-		NodeList list = e.getElementsByTagName(name);
-		for (int i = 0; i < list.getLength(); i++) {
-			Node node = list.item(i);
-			if (node.getParentNode() == e) {
-				l.add(new DomElement((Element) node));
+		for (DomElement child : children) {
+			if (child.name.equals(name)) {
+				l.add(child);
 			}
 		}
 		return l;
 	}
+
+	/**
+	 * add an attribute to this element
+	 */
+	void putAttribute(String name, String value) {
+		attributes.put(name, value);
+	}
+
+	/**
+	 * add a child element
+	 */
+	void addChild(DomElement child) {
+		children.add(child);
+	}
+
+	/**
+	 * append text to the text content of this element
+	 */
+	void appendText(String text) {
+		this.text.append(text);
+	}
 }
\ No newline at end of file
@@ -0,0 +1,398 @@
+package org.nuclearfog.apollo.lastfm;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import org.nuclearfog.apollo.BuildConfig;
+import org.nuclearfog.apollo.cache.LruCache;
+import org.nuclearfog.apollo.provider.LastFmStore;
+import org.nuclearfog.apollo.provider.LastFmStore.Entry;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Persistent cache for Last.fm metadata used to find artwork (artist corrections and image URLs).
+ * Every entry expires after a fixed time. Requests Last.fm could not answer are cached too and retried with an increasing delay.
+ * Identical requests running at the same time are merged into a single call.
+ *
+ * @author nuclearfog
+ */
+public class MetadataCache {
+
+	private static final String TAG = "MetadataCache";
+
+	/**
+	 * one hour in milliseconds
+	 */
+	private static final long HOUR = 3600000L;
+
+	/**
+	 * lifetime of an artist correction
+	 */
+	private static final long TTL_CORRECTION = 30 * 24 * HOUR;
+
+	/**
+	 * lifetime of an image URL
+	 */
+	private static final long TTL_IMAGE = 14 * 24 * HOUR;
+
+	/**
+	 * first retry delay if Last.fm has no information, doubled after every miss
+	 */
+	private static final long MISS_DELAY = 24 * HOUR;
+
+	/**
+	 * max retry delay if Last.fm has no information
+	 */
+	private static final long MISS_DELAY_MAX = 30 * 24 * HOUR;
+
+	/**
+	 * first retry delay after a network or server error, doubled after every error
+	 */
+	private static final long ERROR_DELAY = HOUR / 12;
+
+	/**
+	 * max retry delay after a network or server error
+	 */
+	private static final long ERROR_DELAY_MAX = 6 * HOUR;
+
+	/**
+	 * Last.fm error code if an artist or album could not be found
+	 */
+	private static final int ERROR_NOT_FOUND = 6;
+
+	/**
+	 * max number of entries in the memory cache
+	 */
+	private static final int MEMORY_SIZE = 256;
+
+	private static final String PREFIX_CORRECTION = "correction:";
+	private static final String PREFIX_ARTIST = "artist:";
+	private static final String PREFIX_ALBUM = "album:";
+
+	/**
+	 * image sizes sorted by quality
+	 */
+	private static final ImageSize[] QUALITY = {
+			ImageSize.MEGA, ImageSize.EXTRALARGE, ImageSize.LARGE,
+			ImageSize.MEDIUM, ImageSize.SMALL, ImageSize.UNKNOWN};
+
+	/**
+	 * thread used to clear the database
+	 */
+	private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor();
+
+	private static MetadataCache sInstance;
+
+	/**
+	 * memory cache of recently used entries
+	 */
+	private final LruCache<String, Entry> memoryCache = new LruCache<>(MEMORY_SIZE);
+
+	/**
+	 * requests currently running, mapped by key
+	 */
+	private final Map<String, FutureTask<Entry>> pending = new HashMap<>();
+
+	private final Context context;
+	private final LastFmStore store;
+
+	/**
+	 * true if expired entries were removed from the database
+	 */
+	private boolean trimmed = false;
+
+	/**
+	 * @param context application context
+	 */
+	private MetadataCache(Context context) {
+		this.context = context;
+		store = LastFmStore.getInstance(context);
+	}
+
+	/**
+	 * get singleton instance
+	 */
+	public static MetadataCache getInstance(Context context) {
+		if (sInstance == null) {
+			// use application context to avoid memory leak
+			sInstance = new MetadataCache(context.getApplicationContext());
+		}
+		return sInstance;
+	}
+
+	/**
+	 * get the corrected name of an artist
+	 *
+	 * @param artist artist name
+	 * @return corrected name or null if not available
+	 */
+	@Nullable
+	public String getCorrection(final String artist) {
+		return load(PREFIX_CORRECTION + normalize(artist), TTL_CORRECTION, new Request() {
+			@Override
+			public Result execute() {
+				Map<String, String> params = StringUtilities.map("artist", artist);
+				return Caller.getInstance(context).call("artist.getCorrection", params, Artist.CORRECTION_FIELDS);
+			}
+
+			@Override
+			public String parse(Result result) {
+				Artist correction = Artist.buildCorrection(result, artist);
+				return correction != null ? correction.getName() : null;
+			}
+		});
+	}
+
+	/**
+	 * get the URL of the best artist image
+	 *
+	 * @param artist artist name
+	 * @return image URL or null if not available
+	 */
+	@Nullable
+	public String getArtistImageUrl(final String artist) {
+		return load(PREFIX_ARTIST + normalize(artist), TTL_IMAGE, new Request() {
+			@Override
+			public Result execute() {
+				Map<String, String> params = new HashMap<>();
+				params.put("artist", artist);
+				String language = Locale.getDefault().getLanguage();
+				if (!language.isEmpty()) {
+					params.put("lang", language);
+				}
+				return Caller.getInstance(context).call("artist.getInfo", params, Artist.FIELDS);
+			}
+
+			@Override
+			public String parse(Result result) {
+				return getBestImage(ResponseBuilder.buildItem(result, Artist.class));
+			}
+		});
+	}
+
+	/**
+	 * get the URL of the best album image. The artist name is corrected first
+	 *
+	 * @param artist artist name of the album
+	 * @param album  album name
+	 * @return image URL or null if not available
+	 */
+	@Nullable
+	public String getAlbumImageUrl(String artist, final String album) {
+		final String correction = getCorrection(artist);
+		if (correction == null)
+			return null;
+		return load(PREFIX_ALBUM + normalize(correction) + '\n' + normalize(album), TTL_IMAGE, new Request() {
+			@Override
+			public Result execute() {
+				Map<String, String> params = new HashMap<>();
+				params.put("artist", correction);
+				params.put("album", album);
+				return Caller.getInstance(context).call("album.getInfo", params, Album.FIELDS);
+			}
+
+			@Override
+			public String parse(Result result) {
+				return getBestImage(ResponseBuilder.buildItem(result, Album.class));
+			}
+		});
+	}
+
+	/**
+	 * remove all cached entries, the database is cleared in the background
+	 *
+	 * @return task clearing the database
+	 */
+	public Future<?> clear() {
+		memoryCache.evictAll();
+		return EXECUTOR.submit(new Runnable() {
+			@Override
+			public void run() {
+				store.removeAll();
+			}
+		});
+	}
+
+	/**
+	 * get a cached value or run the request if there is no valid entry
+	 *
+	 * @param key     key of the entry
+	 * @param ttl     lifetime of a new entry
+	 * @param request request used to load the value
+	 * @return cached value or null if not available
+	 */
+	@Nullable
+	private String load(final String key, final long ttl, final Request request) {
+		Entry entry = getEntry(key);
+		if (entry != null && entry.expires > System.currentTimeMillis()) {
+			return entry.value;
+		}
+		// merge identical requests
+		FutureTask<Entry> task;
+		boolean owner = false;
+		synchronized (pending) {
+			task = pending.get(key);
+			if (task == null) {
+				task = new FutureTask<>(new Callable<Entry>() {
+					@Override
+					public Entry call() {
+						return refresh(key, ttl, request);
+					}
+				});
+				pending.put(key, task);
+				owner = true;
+			}
+		}
+		if (owner) {
+			try {
+				task.run();
+			} finally {
+				synchronized (pending) {
+					pending.remove(key);
+				}
+			}
+		}
+		try {
+			entry = task.get();
+			return entry != null ? entry.value : null;
+		} catch (Exception exception) {
+			if (BuildConfig.DEBUG) {
+				Log.w(TAG, "request failed: " + key, exception);
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * run a request and store the result
+	 *
+	 * @param key     key of the entry
+	 * @param ttl     lifetime of a new entry
+	 * @param request request used to load the value
+	 * @return new entry
+	 */
+	private Entry refresh(String key, long ttl, Request request) {
+		long now = System.currentTimeMillis();
+		// check again, the entry may be updated by a previous request
+		Entry previous = getEntry(key);
+		if (previous != null && previous.expires > now) {
+			return previous;
+		}
+		Entry entry;
+		Result result;
+		try {
+			result = request.execute();
+		} catch (RuntimeException exception) {
+			if (BuildConfig.DEBUG) {
+				exception.printStackTrace();
+			}
+			result = new Result(exception.getMessage());
+		}
+		int failures = previous != null ? previous.failures + 1 : 1;
+		if (result.isSuccessful() || result.errorCode == ERROR_NOT_FOUND) {
+			String value = result.isSuccessful() ? request.parse(result) : null;
+			if (value != null) {
+				entry = new Entry(value, now + ttl, 0);
+			} else {
+				// Last.fm has no information, try again later
+				entry = new Entry(null, now + getDelay(MISS_DELAY, MISS_DELAY_MAX, failures), failures);
+			}
+		} else {
+			// network or server error, keep the previous value if any
+			String value = previous != null ? previous.value : null;
+			entry = new Entry(value, now + getDelay(ERROR_DELAY, ERROR_DELAY_MAX, failures), failures);
+		}
+		memoryCache.put(key, entry);
+		store.putEntry(key, entry);
+		return entry;
+	}
+
+	/**
+	 * get an entry from the memory cache or the database
+	 *
+	 * @param key key of the entry
+	 * @return entry or null if not found
+	 */
+	@Nullable
+	private Entry getEntry(String key) {
+		Entry entry = memoryCache.get(key);
+		if (entry == null) {
+			synchronized (pending) {
+				if (!trimmed) {
+					// remove entries which could not be used any more
+					store.removeExpired(System.currentTimeMillis() - MISS_DELAY_MAX);
+					trimmed = true;
+				}
+			}
+			entry = store.getEntry(key);
+			if (entry != null) {
+				memoryCache.put(key, entry);
+			}
+		}
+		return entry;
+	}
+
+	/**
+	 * calculate the retry delay
+	 *
+	 * @param delay    first delay
+	 * @param maxDelay max delay
+	 * @param failures number of failed requests in a row
+	 * @return delay in milliseconds
+	 */
+	private static long getDelay(long delay, long maxDelay, int failures) {
+		return Math.min(delay << Math.min(failures - 1, 16), maxDelay);
+	}
+
+	/**
+	 * get the URL of the image with the best quality
+	 */
+	@Nullable
+	private static String getBestImage(@Nullable MusicEntry entry) {
+		if (entry != null) {
+			for (ImageSize q : QUALITY) {
+				String url = entry.getImageURL(q);
+				if (url != null && !url.isEmpty()) {
+					return url;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * normalize a name used as key
+	 */
+	private static String normalize(String name) {
+		return name.trim().toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * single Last.fm request
+	 */
+	private interface Request {
+
+		/**
+		 * call Last.fm
+		 */
+		Result execute();
+
+		/**
+		 * get the value to cache from a successful result
+		 *
+		 * @return value or null if the result contains no information
+		 */
+		@Nullable
+		String parse(Result result);
+	}
+}
@@ -0,0 +1,192 @@
+package org.nuclearfog.apollo.lastfm;
+
+import androidx.annotation.Nullable;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Streaming parser for Last.fm responses. Only the fields selected by the caller are added to the element tree,
+ * all other elements are skipped without creating objects. Parsing stops as soon as all selected fields were read.
+ *
+ * @author nuclearfog
+ */
+final class ResponseParser {
+
+	/**
+	 * selected fields of the content element, null to parse everything
+	 */
+	@Nullable
+	private final Field fields;
+
+	/**
+	 * @param fields paths of the fields to parse, relative to the content element (e.g. "artist/name"), or null to parse all fields
+	 */
+	ResponseParser(@Nullable String[] fields) {
+		if (fields != null) {
+			this.fields = new Field();
+			for (String path : fields) {
+				Field field = this.fields;
+				for (String name : path.split("/")) {
+					Field child = field.children.get(name);
+					if (child == null) {
+						child = new Field();
+						field.children.put(name, child);
+					}
+					field = child;
+				}
+			}
+		} else {
+			this.fields = null;
+		}
+	}
+
+	/**
+	 * parse a Last.fm response
+	 *
+	 * @param parser      new pull parser instance
+	 * @param inputStream response stream
+	 * @return result of the call
+	 */
+	Result parse(XmlPullParser parser, InputStream inputStream) throws XmlPullParserException, IOException {
+		parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, false);
+		parser.setInput(inputStream, null);
+		parser.nextTag();
+		parser.require(XmlPullParser.START_TAG, null, "lfm");
+		String status = parser.getAttributeValue(null, "status");
+		if (!"ok".equals(status)) {
+			// search for the error element
+			while (parser.next() != XmlPullParser.END_DOCUMENT) {
+				if (parser.getEventType() == XmlPullParser.START_TAG && parser.getName().equals("error")) {
+					String code = parser.getAttributeValue(null, "code");
+					String message = parser.nextText();
+					try {
+						return Result.createRestErrorResult(Integer.parseInt(code), message);
+					} catch (NumberFormatException exception) {
+						// missing or invalid error code
+						return new Result(message);
+					}
+				}
+			}
+			return new Result("missing error element");
+		}
+		DomElement root = new DomElement("lfm");
+		// first child element contains the response content
+		while (parser.next() != XmlPullParser.END_DOCUMENT) {
+			if (parser.getEventType() == XmlPullParser.START_TAG) {
+				DomElement content = createElement(parser);
+				root.addChild(content);
+				readContent(parser, content);
+				break;
+			} else if (parser.getEventType() == XmlPullParser.END_TAG) {
+				break;
+			}
+		}
+		return Result.createOkResult(root);
+	}
+
+	/**
+	 * read the child elements of the content element and stop when all selected fields were read
+	 */
+	private void readContent(XmlPullParser parser, DomElement content) throws XmlPullParserException, IOException {
+		if (fields == null) {
+			readElement(parser, content, null);
+			return;
+		}
+		Set<String> remaining = new HashSet<>(fields.children.keySet());
+		while (parser.next() != XmlPullParser.END_DOCUMENT) {
+			int type = parser.getEventType();
+			if (type == XmlPullParser.START_TAG) {
+				String name = parser.getName();
+				Field field = fields.children.get(name);
+				if (field != null) {
+					DomElement child = createElement(parser);
+					content.addChild(child);
+					readElement(parser, child, field);
+					remaining.remove(name);
+				} else if (remaining.isEmpty()) {
+					// all fields are read, skip the rest of the response
+					return;
+				} else {
+					skip(parser);
+				}
+			} else if (type == XmlPullParser.END_TAG) {
+				return;
+			} else if (type == XmlPullParser.TEXT) {
+				content.appendText(parser.getText());
+			}
+		}
+	}
+
+	/**
+	 * read the content of an element until its end tag
+	 *
+	 * @param element element to add the content to
+	 * @param field   selected child fields or null to read all children
+	 */
+	private void readElement(XmlPullParser parser, DomElement element, @Nullable Field field) throws XmlPullParserException, IOException {
+		while (parser.next() != XmlPullParser.END_DOCUMENT) {
+			int type = parser.getEventType();
+			if (type == XmlPullParser.START_TAG) {
+				Field childField = null;
+				if (field != null) {
+					childField = field.children.get(parser.getName());
+					if (childField == null) {
+						skip(parser);
+						continue;
+					}
+				}
+				DomElement child = createElement(parser);
+				element.addChild(child);
+				readElement(parser, child, childField);
+			} else if (type == XmlPullParser.END_TAG) {
+				return;
+			} else if (type == XmlPullParser.TEXT) {
+				element.appendText(parser.getText());
+			}
+		}
+	}
+
+	/**
+	 * create a new element with the attributes of the current start tag
+	 */
+	private static DomElement createElement(XmlPullParser parser) {
+		DomElement element = new DomElement(parser.getName());
+		for (int i = 0; i < parser.getAttributeCount(); i++) {
+			element.putAttribute(parser.getAttributeName(i), parser.getAttributeValue(i));
+		}
+		return element;
+	}
+
+	/**
+	 * skip the current element and all of its children
+	 */
+	private static void skip(XmlPullParser parser) throws XmlPullParserException, IOException {
+		int depth = 1;
+		while (depth > 0) {
+			int type = parser.next();
+			if (type == XmlPullParser.START_TAG) {
+				depth++;
+			} else if (type == XmlPullParser.END_TAG) {
+				depth--;
+			} else if (type == XmlPullParser.END_DOCUMENT) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * node of the selected field tree
+	 */
+	private static final class Field {
+
+		final Map<String, Field> children = new HashMap<>(4);
+	}
+}
@@ -23,7 +23,6 @@ package org.nuclearfog.apollo.lastfm;
 
 import androidx.annotation.NonNull;
 
-import org.w3c.dom.Document;
 
 /**
  * The <code>Result</code> class contains the response sent by the server, i.e.
@@ -38,11 +37,11 @@ public class Result {
 	protected String errorMessage = null;
 	protected int errorCode = -1;
 	protected int httpErrorCode = -1;
-	protected Document resultDocument;
+	protected DomElement resultElement;
 
-	protected Result(Document resultDocument) {
+	protected Result(DomElement resultElement) {
 		status = Status.OK;
-		this.resultDocument = resultDocument;
+		this.resultElement = resultElement;
 	}
 
 
@@ -51,8 +50,8 @@ public class Result {
 		this.errorMessage = errorMessage;
 	}
 
-	static Result createOkResult(Document resultDocument) {
-		return new Result(resultDocument);
+	static Result createOkResult(DomElement resultElement) {
+		return new Result(resultElement);
 	}
 
 	static Result createHttpErrorResult(int httpErrorCode, String errorMessage) {
@@ -82,7 +81,7 @@ public class Result {
 		if (!isSuccessful()) {
 			return null;
 		}
-		return new DomElement(resultDocument.getDocumentElement()).getChild("*");
+		return resultElement.getChild("*");
 	}
 
 	@NonNull
@@ -1,18 +1,14 @@
 package org.nuclearfog.apollo.loaders;
 
 import android.content.Context;
-import android.database.Cursor;
 
 import org.nuclearfog.apollo.model.Folder;
 import org.nuclearfog.apollo.provider.ExcludeStore;
 import org.nuclearfog.apollo.provider.ExcludeStore.Type;
-import org.nuclearfog.apollo.utils.CursorFactory;
+import org.nuclearfog.apollo.utils.FolderIndex;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
 
 /**
  * return all music folders from storage
@@ -34,28 +30,7 @@ public class FolderLoader extends WrappedAsyncTaskLoader<List<Folder>> {
 	 */
 	@Override
 	public List<Folder> loadInBackground() {
-		// init tree set to sort folder by name
-		Map<String, Folder> folderMap = new TreeMap<>();
 		Set<Long> excludedIds = exclude_db.getIds(Type.SONG);
-
-		Cursor cursor = CursorFactory.makeFolderCursor(getContext());
-		if (cursor != null) {
-			if (cursor.moveToFirst()) {
-				do {
-					String path = cursor.getString(0);
-					long songId = cursor.getLong(1);
-					boolean visible = !excludedIds.contains(songId);
-					Folder folder = new Folder(path, visible);
-
-					Folder entry = folderMap.get(folder.getName());
-					if (entry != null && entry.isVisible() && !folder.isVisible()) {
-						folderMap.remove(folder.getName());
-					}
-					folderMap.put(folder.getName(), folder);
-				} while (cursor.moveToNext());
-			}
-			cursor.close();
-		}
-		return new ArrayList<>(folderMap.values());
+		return FolderIndex.getInstance(getContext()).getFolders(excludedIds);
 	}
-}
\ No newline at end of file
+}
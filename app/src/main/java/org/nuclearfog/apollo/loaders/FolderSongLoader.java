@@ -1,10 +1,11 @@
 package org.nuclearfog.apollo.loaders;
 
 import android.content.Context;
-import android.database.Cursor;
 
 import org.nuclearfog.apollo.model.Song;
-import org.nuclearfog.apollo.utils.CursorFactory;
+import org.nuclearfog.apollo.utils.FolderIndex;
+import org.nuclearfog.apollo.utils.TrackResolver;
+import org.nuclearfog.apollo.utils.TrackResolver.Tracks;
 
 import java.util.LinkedList;
 import java.util.List;
@@ -33,27 +34,12 @@ public class FolderSongLoader extends WrappedAsyncTaskLoader<List<Song>> {
 	@Override
 	public List<Song> loadInBackground() {
 		List<Song> result = new LinkedList<>();
-		Cursor cursor = CursorFactory.makeFolderSongCursor(getContext(), folderName);
-		if (cursor != null) {
-			if (cursor.moveToFirst()) {
-				int idxName = folderName.length() + 1;
-				do {
-					String filename = cursor.getString(5);
-					// fetch only music files from the current folder
-					// sub folders will be skipped
-					if (filename.indexOf('/', idxName) < 0) {
-						long id = cursor.getLong(0);
-						String songTitle = cursor.getString(1);
-						String artistName = cursor.getString(2);
-						String albumTitle = cursor.getString(3);
-						long duration = cursor.getLong(4);
-						Song song = new Song(id, songTitle, artistName, albumTitle, duration);
-						result.add(song);
-					}
-				} while (cursor.moveToNext());
-			}
-			cursor.close();
+		long[] ids = FolderIndex.getInstance(getContext()).getTracks(folderName, false);
+		Tracks tracks = TrackResolver.resolve(getContext(), ids);
+		for (int i = 0; i < tracks.size(); i++) {
+			Song song = new Song(tracks.getId(i), tracks.getTitle(i), tracks.getArtist(i), tracks.getAlbum(i), tracks.getDuration(i));
+			result.add(song);
 		}
 		return result;
 	}
-}
\ No newline at end of file
+}
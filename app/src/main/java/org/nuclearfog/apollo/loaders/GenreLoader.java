@@ -12,20 +12,12 @@
 package org.nuclearfog.apollo.loaders;
 
 import android.content.Context;
-import android.database.Cursor;
 
 import org.nuclearfog.apollo.model.Genre;
 import org.nuclearfog.apollo.provider.ExcludeStore;
-import org.nuclearfog.apollo.utils.CursorFactory;
+import org.nuclearfog.apollo.utils.GenreIndex;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.TreeSet;
-import java.util.regex.Pattern;
 
 /**
  * Used to return the genres on a user's device.
@@ -34,11 +26,6 @@ import java.util.regex.Pattern;
  */
 public class GenreLoader extends WrappedAsyncTaskLoader<List<Genre>> {
 
-	/**
-	 * regex pattern to split genre group separated by
-	 */
-	private static final Pattern SEPARATOR = Pattern.compile("\\s*[,;|]\\s*");
-
 	private ExcludeStore exclude_db;
 
 	/**
@@ -56,50 +43,6 @@ public class GenreLoader extends WrappedAsyncTaskLoader<List<Genre>> {
 	 */
 	@Override
 	public List<Genre> loadInBackground() {
-		Set<Genre> result = new TreeSet<>();
-		Set<Long> excluded_ids = exclude_db.getIds(ExcludeStore.Type.GENRE);
-		// Create the Cursor
-		Cursor mCursor = CursorFactory.makeGenreCursor(getContext());
-		// Gather the data
-		if (mCursor != null) {
-			if (mCursor.moveToFirst()) {
-				HashMap<String, List<Long>> group = new HashMap<>();
-				do {
-					// get Column information
-					long id = mCursor.getLong(0);
-					String name = mCursor.getString(1);
-
-					// Split genre groups into single genre names
-					String[] genres = SEPARATOR.split(name);
-
-					// solve conflicts. add multiple genre IDs for the same genre name.
-					for (String genre : genres) {
-						List<Long> ids = group.get(genre);
-						if (ids == null) {
-							ids = new LinkedList<>();
-							group.put(genre, ids);
-						}
-						ids.add(id);
-					}
-				} while (mCursor.moveToNext());
-
-				// add all elements to sorted list
-				for (Map.Entry<String, List<Long>> entry : group.entrySet()) {
-					boolean visibility = true;
-					Long[] ids = entry.getValue().toArray(new Long[0]);
-					String name = entry.getKey();
-					for (long id : ids) {
-						if (excluded_ids.contains(id)) {
-							visibility = false;
-							break;
-						}
-					}
-					Genre genre = new Genre(ids, name, visibility);
-					result.add(genre);
-				}
-			}
-			mCursor.close();
-		}
-		return new ArrayList<>(result);
+		return GenreIndex.getInstance(getContext()).getGenres(exclude_db.getIds(ExcludeStore.Type.GENRE));
 	}
 }
\ No newline at end of file
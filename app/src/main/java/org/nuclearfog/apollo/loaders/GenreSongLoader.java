@@ -12,12 +12,12 @@
 package org.nuclearfog.apollo.loaders;
 
 import android.content.Context;
-import android.database.Cursor;
 
 import org.nuclearfog.apollo.model.Song;
-import org.nuclearfog.apollo.utils.CursorFactory;
+import org.nuclearfog.apollo.utils.GenreIndex;
+import org.nuclearfog.apollo.utils.TrackResolver;
+import org.nuclearfog.apollo.utils.TrackResolver.Tracks;
 
-import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -49,36 +49,13 @@ public class GenreSongLoader extends WrappedAsyncTaskLoader<List<Song>> {
 	@Override
 	public List<Song> loadInBackground() {
 		List<Song> result = new LinkedList<>();
-		for (long genreId : mGenreID) {
-			// Create the Cursor
-			if (genreId == 0)
-				continue;
-			Cursor mCursor = CursorFactory.makeGenreSongCursor(getContext(), genreId);
-			// Gather the data
-			if (mCursor != null) {
-				if (mCursor.moveToFirst()) {
-					do {
-						// Copy the song Id
-						long id = mCursor.getLong(0);
-						// Copy the song name
-						String songName = mCursor.getString(1);
-						// Copy the artist name
-						String artist = mCursor.getString(2);
-						// Copy the album name
-						String album = mCursor.getString(3);
-						// Copy the duration
-						long duration = mCursor.getLong(4);
-						// Create a new song
-						Song song = new Song(id, songName, artist, album, duration);
-						// Add everything up
-						result.add(song);
-					} while (mCursor.moveToNext());
-				}
-				mCursor.close();
-			}
+		// tracks are already sorted by song name
+		long[] ids = GenreIndex.getInstance(getContext()).getTracks(mGenreID);
+		Tracks tracks = TrackResolver.resolve(getContext(), ids);
+		for (int i = 0; i < tracks.size(); i++) {
+			Song song = new Song(tracks.getId(i), tracks.getTitle(i), tracks.getArtist(i), tracks.getAlbum(i), tracks.getDuration(i));
+			result.add(song);
 		}
-		// sort tracks by song name
-		Collections.sort(result);
 		return result;
 	}
 }
\ No newline at end of file
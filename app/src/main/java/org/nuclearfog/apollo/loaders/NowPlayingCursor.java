@@ -7,13 +7,9 @@ import android.content.Context;
 import android.database.AbstractCursor;
 import android.database.Cursor;
 
-import org.nuclearfog.apollo.BuildConfig;
-import org.nuclearfog.apollo.utils.CursorFactory;
 import org.nuclearfog.apollo.utils.MusicUtils;
-
-import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.List;
+import org.nuclearfog.apollo.utils.TrackResolver;
+import org.nuclearfog.apollo.utils.TrackResolver.Tracks;
 
 /**
  * A custom {@link Cursor} used to return the queue and allow for easy dragging
@@ -24,13 +20,10 @@ public class NowPlayingCursor extends AbstractCursor {
 
 	private Context mContext;
 
-	private final ArrayList<Long> mNowPlaying = new ArrayList<>();
-
-	private final List<Long> mCursorIndexes = new LinkedList<>();
-
-	private int mCurPos;
-
-	private Cursor cursor;
+	/**
+	 * resolved track information of the queue
+	 */
+	private Tracks mTracks;
 
 	/**
 	 * Constructor of <code>NowPlayingCursor</code>
@@ -47,7 +40,7 @@ public class NowPlayingCursor extends AbstractCursor {
 	 */
 	@Override
 	public int getCount() {
-		return mNowPlaying.size();
+		return mTracks.size();
 	}
 
 	/**
@@ -55,19 +48,7 @@ public class NowPlayingCursor extends AbstractCursor {
 	 */
 	@Override
 	public boolean onMove(int oldPosition, int newPosition) {
-		if (oldPosition == newPosition) {
-			return true;
-		}
-		if (mNowPlaying.isEmpty() || mCursorIndexes.isEmpty() || newPosition >= mNowPlaying.size()) {
-			return false;
-		}
-		long id = mNowPlaying.get(newPosition);
-		int cursorIndex = mCursorIndexes.indexOf(id);
-		if (cursorIndex < 0)
-			return false;
-		cursor.moveToPosition(cursorIndex);
-		mCurPos = newPosition;
-		return true;
+		return newPosition >= 0 && newPosition < mTracks.size();
 	}
 
 	/**
@@ -75,11 +56,25 @@ public class NowPlayingCursor extends AbstractCursor {
 	 */
 	@Override
 	public String getString(int column) {
-		try {
-			return cursor.getString(column);
-		} catch (Exception ignored) {
-			onChange(true);
-			return "";
+		int pos = getPosition();
+		switch (column) {
+			case 0:
+				return Long.toString(mTracks.getId(pos));
+
+			case 1:
+				return mTracks.getTitle(pos);
+
+			case 2:
+				return mTracks.getArtist(pos);
+
+			case 3:
+				return mTracks.getAlbum(pos);
+
+			case 4:
+				return Long.toString(mTracks.getDuration(pos));
+
+			default:
+				return "";
 		}
 	}
 
@@ -88,7 +83,7 @@ public class NowPlayingCursor extends AbstractCursor {
 	 */
 	@Override
 	public short getShort(int column) {
-		return cursor.getShort(column);
+		return (short) getLong(column);
 	}
 
 	/**
@@ -96,12 +91,7 @@ public class NowPlayingCursor extends AbstractCursor {
 	 */
 	@Override
 	public int getInt(int column) {
-		try {
-			return cursor.getInt(column);
-		} catch (Exception ignored) {
-			onChange(true);
-			return 0;
-		}
+		return (int) getLong(column);
 	}
 
 	/**
@@ -109,11 +99,16 @@ public class NowPlayingCursor extends AbstractCursor {
 	 */
 	@Override
 	public long getLong(int column) {
-		try {
-			return cursor.getLong(column);
-		} catch (Exception ignored) {
-			onChange(true);
-			return 0L;
+		int pos = getPosition();
+		switch (column) {
+			case 0:
+				return mTracks.getId(pos);
+
+			case 4:
+				return mTracks.getDuration(pos);
+
+			default:
+				return 0L;
 		}
 	}
 
@@ -122,7 +117,7 @@ public class NowPlayingCursor extends AbstractCursor {
 	 */
 	@Override
 	public float getFloat(int column) {
-		return cursor.getFloat(column);
+		return getLong(column);
 	}
 
 	/**
@@ -130,7 +125,7 @@ public class NowPlayingCursor extends AbstractCursor {
 	 */
 	@Override
 	public double getDouble(int column) {
-		return cursor.getDouble(column);
+		return getLong(column);
 	}
 
 	/**
@@ -138,7 +133,9 @@ public class NowPlayingCursor extends AbstractCursor {
 	 */
 	@Override
 	public int getType(int column) {
-		return cursor.getType(column);
+		if (column == 0 || column == 4)
+			return Cursor.FIELD_TYPE_INTEGER;
+		return Cursor.FIELD_TYPE_STRING;
 	}
 
 	/**
@@ -146,7 +143,7 @@ public class NowPlayingCursor extends AbstractCursor {
 	 */
 	@Override
 	public boolean isNull(int column) {
-		return cursor.isNull(column);
+		return getType(column) == Cursor.FIELD_TYPE_STRING && getString(column) == null;
 	}
 
 	/**
@@ -173,53 +170,25 @@ public class NowPlayingCursor extends AbstractCursor {
 		return true;
 	}
 
-	/**
-	 * {@inheritDoc}
-	 */
-	@Override
-	public void close() {
-		try {
-			if (cursor != null) {
-				cursor.close();
-				cursor = null;
-			}
-		} catch (Exception e) {
-			if (BuildConfig.DEBUG) {
-				e.printStackTrace();
-			}
-		}
-		super.close();
-	}
-
 	/**
 	 * Actually makes the queue
 	 */
 	private void makeNowPlayingCursor() {
-		getQueue();
-		if (mNowPlaying.isEmpty()) {
-			cursor = null;
-			return;
-		}
-		mCursorIndexes.clear();
-		cursor = CursorFactory.makeNowPlayingCursor(mContext, mNowPlaying);
-		if (cursor != null && cursor.moveToFirst()) {
-			do {
-				long id = cursor.getLong(0);
-				mCursorIndexes.add(id);
-			} while (cursor.moveToNext());
-		}
-		mCurPos = -1;
-		int removed = 0;
-		for (long trackId : mNowPlaying) {
-			int cursorIndex = mCursorIndexes.indexOf(trackId);
-			if (cursorIndex < 0) {
-				removed += MusicUtils.removeTrack(trackId);
+		long[] queue = MusicUtils.getQueue();
+		mTracks = TrackResolver.resolve(mContext, queue);
+		// remove tracks which don't exist anymore from the queue
+		if (mTracks.size() < queue.length) {
+			int removed = 0;
+			int index = 0;
+			for (long trackId : queue) {
+				if (index < mTracks.size() && mTracks.getId(index) == trackId) {
+					index++;
+				} else {
+					removed += MusicUtils.removeTrack(trackId);
+				}
 			}
-		}
-		if (removed > 0) {
-			getQueue();
-			if (mNowPlaying.isEmpty()) {
-				mCursorIndexes.clear();
+			if (removed > 0) {
+				mTracks = TrackResolver.resolve(mContext, MusicUtils.getQueue());
 			}
 		}
 	}
@@ -229,20 +198,9 @@ public class NowPlayingCursor extends AbstractCursor {
 	 */
 	public void removeItem(int which) {
 		if (MusicUtils.removeTracks(which)) {
-			mNowPlaying.remove(which);
-			onMove(-1, mCurPos);
-		}
-	}
-
-	/**
-	 * get queue from MusicUtils
-	 */
-	private void getQueue() {
-		long[] ids = MusicUtils.getQueue();
-		mNowPlaying.clear();
-		mNowPlaying.ensureCapacity(ids.length);
-		for (long id : ids) {
-			mNowPlaying.add(id);
+			int pos = getPosition();
+			makeNowPlayingCursor();
+			moveToPosition(Math.min(pos, mTracks.size() - 1));
 		}
 	}
-}
\ No newline at end of file
+}
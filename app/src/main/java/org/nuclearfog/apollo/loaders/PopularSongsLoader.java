@@ -4,7 +4,11 @@ import android.content.Context;
 import android.database.Cursor;
 
 import org.nuclearfog.apollo.model.Song;
+import org.nuclearfog.apollo.provider.PlayEventStore;
 import org.nuclearfog.apollo.utils.CursorFactory;
+import org.nuclearfog.apollo.utils.PreferenceUtils;
+import org.nuclearfog.apollo.utils.TrackResolver;
+import org.nuclearfog.apollo.utils.TrackResolver.Tracks;
 
 import java.util.LinkedList;
 import java.util.List;
@@ -16,6 +20,11 @@ import java.util.List;
  */
 public class PopularSongsLoader extends WrappedAsyncTaskLoader<List<Song>> {
 
+	/**
+	 * max number of tracks of a time based ranking
+	 */
+	private static final int LIMIT = 200;
+
 	/**
 	 *
 	 */
@@ -29,6 +38,17 @@ public class PopularSongsLoader extends WrappedAsyncTaskLoader<List<Song>> {
 	@Override
 	public List<Song> loadInBackground() {
 		List<Song> result = new LinkedList<>();
+		int ranking = PreferenceUtils.getInstance(getContext()).getPopularRanking();
+		if (ranking != PlayEventStore.RANK_ALL_TIME) {
+			// use aggregated play events
+			long[] ids = PlayEventStore.getInstance(getContext()).getTopTracks(ranking, LIMIT);
+			Tracks tracks = TrackResolver.resolve(getContext(), ids);
+			for (int i = 0; i < tracks.size(); i++) {
+				Song song = new Song(tracks.getId(i), tracks.getTitle(i), tracks.getArtist(i), tracks.getAlbum(i), tracks.getDuration(i));
+				result.add(song);
+			}
+			return result;
+		}
 		// Create the Cursor
 		Cursor mCursor = CursorFactory.makePopularCursor(getContext());
 		// Gather the data
@@ -14,12 +14,15 @@ package org.nuclearfog.apollo.loaders;
 import android.content.Context;
 import android.database.Cursor;
 
-import org.nuclearfog.apollo.model.Song;
+import androidx.annotation.Nullable;
+
+import org.nuclearfog.apollo.model.SectionIndex;
+import org.nuclearfog.apollo.model.SongList;
 import org.nuclearfog.apollo.provider.ExcludeStore;
 import org.nuclearfog.apollo.utils.CursorFactory;
+import org.nuclearfog.apollo.utils.PreferenceUtils;
+import org.nuclearfog.apollo.utils.SortOrder;
 
-import java.util.LinkedList;
-import java.util.List;
 import java.util.Set;
 
 
@@ -28,7 +31,12 @@ import java.util.Set;
  *
  * @author Andrew Neal (andrewdneal@gmail.com)
  */
-public class SongLoader extends WrappedAsyncTaskLoader<List<Song>> {
+public class SongLoader extends WrappedAsyncTaskLoader<SongList> {
+
+	/**
+	 * tracks longer than this number of minutes share a single fast scroll section
+	 */
+	private static final int MAX_DURATION_SECTION = 20;
 
 	private ExcludeStore exclude_db;
 
@@ -47,13 +55,17 @@ public class SongLoader extends WrappedAsyncTaskLoader<List<Song>> {
 	 * {@inheritDoc}
 	 */
 	@Override
-	public List<Song> loadInBackground() {
-		List<Song> result = new LinkedList<>();
+	public SongList loadInBackground() {
 		Set<Long> excludedIds = exclude_db.getIds(ExcludeStore.Type.SONG);
+		PreferenceUtils preferences = PreferenceUtils.getInstance(getContext());
+		boolean showHidden = preferences.showExcludedTracks();
+		String sortOrder = preferences.getSongSortOrder();
 		// Create the Cursor
 		Cursor mCursor = CursorFactory.makeTrackCursor(getContext());
 		// Gather the data
 		if (mCursor != null) {
+			SongList result = new SongList(mCursor.getCount());
+			SectionIndex sections = new SectionIndex(mCursor.getCount());
 			if (mCursor.moveToFirst()) {
 				do {
 					// Copy the song Id
@@ -68,14 +80,52 @@ public class SongLoader extends WrappedAsyncTaskLoader<List<Song>> {
 					long duration = mCursor.getLong(4);
 					// set visibility
 					boolean visible = !excludedIds.contains(id);
-					// Create a new song
-					Song song = new Song(id, songName, artist, album, duration, visible);
-					// Add everything up
-					result.add(song);
+					if (visible || showHidden) {
+						// Add the row without creating a song
+						result.add(id, songName, artist, album, duration, visible);
+						sections.add(id, getSectionLabel(sortOrder, mCursor));
+					}
 				} while (mCursor.moveToNext());
 			}
 			mCursor.close();
+			result.compact();
+			result.setSectionIndex(sections);
+			return result;
+		}
+		return new SongList();
+	}
+
+	/**
+	 * get the fast scroll section of a track, depending on the sort order
+	 *
+	 * @param sortOrder sort order of the tracks
+	 * @param cursor    cursor with track information
+	 * @return section label or null if the sort order has no sections
+	 */
+	@Nullable
+	private String getSectionLabel(String sortOrder, Cursor cursor) {
+		switch (sortOrder) {
+			case SortOrder.SongSortOrder.SONG_A_Z:
+			case SortOrder.SongSortOrder.SONG_Z_A:
+				return SectionIndex.getLetter(cursor.getString(1));
+
+			case SortOrder.SongSortOrder.SONG_ARTIST:
+				return SectionIndex.getLetter(cursor.getString(2));
+
+			case SortOrder.SongSortOrder.SONG_ALBUM:
+				return SectionIndex.getLetter(cursor.getString(3));
+
+			case SortOrder.SongSortOrder.SONG_YEAR:
+				int year = cursor.getInt(7);
+				return year > 0 ? Integer.toString(year) : SectionIndex.LABEL_OTHER;
+
+			case SortOrder.SongSortOrder.SONG_DURATION:
+				// one section per minute
+				long minutes = cursor.getLong(4) / 60000L;
+				return minutes < MAX_DURATION_SECTION ? minutes + ":00" : MAX_DURATION_SECTION + ":00+";
+
+			default:
+				return null;
 		}
-		return result;
 	}
 }
\ No newline at end of file
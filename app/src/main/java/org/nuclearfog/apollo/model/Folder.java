@@ -9,24 +9,24 @@ import androidx.annotation.NonNull;
  */
 public class Folder extends Music implements Comparable<Folder> {
 
-	private String name = "";
-	private String path = "";
+	private String name;
+	private String path;
+	private int songCount;
+	private long duration;
 
 	/**
-	 * @param path (absolute folder path)
+	 * @param path      absolute folder path
+	 * @param name      folder name
+	 * @param songCount number of tracks in this folder
+	 * @param duration  duration of all tracks in milliseconds
+	 * @param visible   visibility of the folder
 	 */
-	public Folder(String path, boolean visible) {
-		super(0L, "", visible);
-		int end = path.lastIndexOf("/");
-		if (end > 1) {
-			this.path = path.substring(0, end);
-			int start = path.lastIndexOf("/", end - 1);
-			if (start >= 0) {
-				name = path.substring(start + 1, end);
-			} else {
-				name = path.substring(end);
-			}
-		}
+	public Folder(String path, String name, int songCount, long duration, boolean visible) {
+		super(0L, name, visible);
+		this.path = path;
+		this.name = name;
+		this.songCount = songCount;
+		this.duration = duration;
 	}
 
 
@@ -39,8 +39,8 @@ public class Folder extends Music implements Comparable<Folder> {
 	@Override
 	public int compareTo(Folder folder) {
 		if (folder.getName().equals(getName()))
-			return folder.getPath().compareToIgnoreCase(getPath());
-		return folder.getName().compareToIgnoreCase(getName());
+			return getPath().compareToIgnoreCase(folder.getPath());
+		return getName().compareToIgnoreCase(folder.getName());
 	}
 
 	/**
@@ -53,6 +53,54 @@ public class Folder extends Music implements Comparable<Folder> {
 	}
 
 
+	/**
+	 * get number of tracks in this folder
+	 *
+	 * @return track count
+	 */
+	public int getSongCount() {
+		return songCount;
+	}
+
+	/**
+	 * get the duration of all tracks in this folder
+	 *
+	 * @return duration in milliseconds
+	 */
+	public long getDuration() {
+		return duration;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode() {
+		int prime = 31;
+		int result = 1;
+		result = prime * result + path.hashCode();
+		result = prime * result + songCount;
+		result = prime * result + (int) duration;
+		return result;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj instanceof Folder) {
+			Folder folder = (Folder) obj;
+			return songCount == folder.songCount && duration == folder.duration && path.equals(folder.path) && name.equals(folder.name);
+		}
+		return false;
+	}
+
+
 	@NonNull
 	@Override
 	public String toString() {
@@ -34,14 +34,9 @@ public class Genre extends Music implements Comparable<Genre> {
 	 * @param genre_name The genre name
 	 * @param visibility visibility of this genre
 	 */
-	public Genre(Long[] ids, String genre_name, boolean visibility) {
+	public Genre(long[] ids, String genre_name, boolean visibility) {
 		super(-1L, genre_name, visibility);
-		this.ids = new long[ids.length];
-		for (int i = 0; i < ids.length ; i++) {
-			if (ids[i] != null) {
-				this.ids[i] = ids[i];
-			}
-		}
+		this.ids = ids;
 	}
 
 	/**
@@ -84,13 +79,7 @@ public class Genre extends Music implements Comparable<Genre> {
 		}
 		if (obj instanceof Genre) {
 			Genre g = (Genre) obj;
-			if (g.ids.length == ids.length) {
-				for (int i = 0; i < ids.length; i++) {
-					if (g.ids[i] != ids[i])
-						return false;
-				}
-			}
-			return g.getName().equals(getName());
+			return Arrays.equals(g.ids, ids) && g.getName().equals(getName());
 		}
 		return false;
 	}
@@ -0,0 +1,180 @@
+package org.nuclearfog.apollo.model;
+
+import androidx.annotation.Nullable;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Section index of a sorted list, used for fast scrolling. Sections are created while the list is loaded,
+ * a new section starts whenever the label of a row differs from the label of the previous row.
+ * The index also maps item IDs to list positions.
+ *
+ * @author nuclearfog
+ */
+public class SectionIndex {
+
+	/**
+	 * label used for rows which don't start with a letter
+	 */
+	public static final String LABEL_OTHER = "#";
+
+	private String[] labels = new String[16];
+	private int[] starts = new int[16];
+	private int sectionCount = 0;
+
+	/**
+	 * hash table of item IDs, empty slots have the position -1
+	 */
+	private long[] keys;
+	private int[] positions;
+	private int mask;
+
+	/**
+	 * number of added rows
+	 */
+	private int size = 0;
+
+	/**
+	 * @param capacity expected number of rows
+	 */
+	public SectionIndex(int capacity) {
+		int tableSize = Integer.highestOneBit(Math.max(capacity, 8) * 2 - 1) << 1;
+		keys = new long[tableSize];
+		positions = new int[tableSize];
+		Arrays.fill(positions, -1);
+		mask = tableSize - 1;
+	}
+
+	/**
+	 * add the next row of the list
+	 *
+	 * @param id    ID of the item
+	 * @param label section label of the row or null to use no sections
+	 */
+	public void add(long id, @Nullable String label) {
+		if (label != null && (sectionCount == 0 || !labels[sectionCount - 1].equals(label))) {
+			if (sectionCount == labels.length) {
+				labels = Arrays.copyOf(labels, sectionCount * 2);
+				starts = Arrays.copyOf(starts, sectionCount * 2);
+			}
+			labels[sectionCount] = label;
+			starts[sectionCount] = size;
+			sectionCount++;
+		}
+		if (size * 2 >= keys.length) {
+			rehash(keys.length * 2);
+		}
+		put(id, size);
+		size++;
+	}
+
+	/**
+	 * @return labels of all sections
+	 */
+	public Object[] getSections() {
+		return Arrays.copyOf(labels, sectionCount, Object[].class);
+	}
+
+	/**
+	 * @param section index of the section
+	 * @return position of the first row of the section
+	 */
+	public int getPositionForSection(int section) {
+		if (sectionCount == 0)
+			return 0;
+		return starts[Math.max(0, Math.min(section, sectionCount - 1))];
+	}
+
+	/**
+	 * @param position position of the row
+	 * @return index of the section containing the row
+	 */
+	public int getSectionForPosition(int position) {
+		if (sectionCount == 0)
+			return 0;
+		int index = Arrays.binarySearch(starts, 0, sectionCount, position);
+		if (index < 0)
+			index = -index - 2;
+		return Math.max(index, 0);
+	}
+
+	/**
+	 * get the position of an item
+	 *
+	 * @param id ID of the item
+	 * @return position of the first row with this ID or -1 if not found
+	 */
+	public int getPosition(long id) {
+		for (int slot = hash(id); positions[slot] >= 0; slot = (slot + 1) & mask) {
+			if (keys[slot] == id) {
+				return positions[slot];
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * get the section label of a name, which is the first letter without accents
+	 *
+	 * @param name name of the item
+	 * @return upper case letter or {@link #LABEL_OTHER}
+	 */
+	public static String getLetter(@Nullable String name) {
+		if (name != null) {
+			for (int i = 0; i < name.length(); i++) {
+				char c = name.charAt(i);
+				if (Character.isLetter(c)) {
+					// remove accents, so 'É' is part of the 'E' section
+					String base = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+					return base.substring(0, 1).toUpperCase(Locale.getDefault());
+				}
+				if (Character.isDigit(c)) {
+					break;
+				}
+				// skip leading spaces and punctuation
+			}
+		}
+		return LABEL_OTHER;
+	}
+
+	/**
+	 * add an ID to the hash table, if not added yet
+	 */
+	private void put(long id, int position) {
+		int slot = hash(id);
+		while (positions[slot] >= 0) {
+			if (keys[slot] == id)
+				return;
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = id;
+		positions[slot] = position;
+	}
+
+	/**
+	 * grow the hash table
+	 */
+	private void rehash(int tableSize) {
+		long[] oldKeys = keys;
+		int[] oldPositions = positions;
+		keys = new long[tableSize];
+		positions = new int[tableSize];
+		Arrays.fill(positions, -1);
+		mask = tableSize - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldPositions[i] >= 0) {
+				put(oldKeys[i], oldPositions[i]);
+			}
+		}
+	}
+
+	/**
+	 * calculate the hash table slot of an ID
+	 */
+	private int hash(long id) {
+		long h = id * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & mask;
+	}
+}
@@ -0,0 +1,311 @@
+package org.nuclearfog.apollo.model;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Compact list of songs. Track information is stored column by column in primitive arrays, artist and album
+ * names are shared between rows. {@link Song} instances are only created when a row is accessed.
+ *
+ * @author nuclearfog
+ */
+public class SongList extends AbstractList<Song> implements RandomAccess {
+
+	private long[] ids;
+	private String[] names;
+	private String[] artists;
+	private String[] albums;
+	private long[] durations;
+	private boolean[] visible;
+	private int size = 0;
+
+	/**
+	 * section index of the rows or null if not available
+	 */
+	@Nullable
+	private SectionIndex sections;
+
+	/**
+	 * pool of artist and album names, only used while adding rows
+	 */
+	private Map<String, String> pool = new HashMap<>();
+
+	/**
+	 *
+	 */
+	public SongList() {
+		this(16);
+	}
+
+	/**
+	 * @param capacity initial capacity
+	 */
+	public SongList(int capacity) {
+		capacity = Math.max(capacity, 1);
+		ids = new long[capacity];
+		names = new String[capacity];
+		artists = new String[capacity];
+		albums = new String[capacity];
+		durations = new long[capacity];
+		visible = new boolean[capacity];
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Song get(int index) {
+		checkIndex(index);
+		return new Song(ids[index], names[index], artists[index], albums[index], durations[index], visible[index]);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Song set(int index, Song song) {
+		Song previous = get(index);
+		setRow(index, song.getId(), song.getName(), song.getArtist(), song.getAlbum(), song.durationMillis(), song.isVisible());
+		return previous;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void add(int index, Song song) {
+		if (index < 0 || index > size)
+			throw new IndexOutOfBoundsException("index=" + index + " size=" + size);
+		ensureCapacity(size + 1);
+		if (index < size) {
+			int count = size - index;
+			System.arraycopy(ids, index, ids, index + 1, count);
+			System.arraycopy(names, index, names, index + 1, count);
+			System.arraycopy(artists, index, artists, index + 1, count);
+			System.arraycopy(albums, index, albums, index + 1, count);
+			System.arraycopy(durations, index, durations, index + 1, count);
+			System.arraycopy(visible, index, visible, index + 1, count);
+		}
+		size++;
+		modCount++;
+		setRow(index, song.getId(), song.getName(), song.getArtist(), song.getAlbum(), song.durationMillis(), song.isVisible());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Song remove(int index) {
+		Song song = get(index);
+		int count = size - index - 1;
+		if (count > 0) {
+			System.arraycopy(ids, index + 1, ids, index, count);
+			System.arraycopy(names, index + 1, names, index, count);
+			System.arraycopy(artists, index + 1, artists, index, count);
+			System.arraycopy(albums, index + 1, albums, index, count);
+			System.arraycopy(durations, index + 1, durations, index, count);
+			System.arraycopy(visible, index + 1, visible, index, count);
+		}
+		size--;
+		modCount++;
+		// release references
+		names[size] = null;
+		artists[size] = null;
+		albums[size] = null;
+		return song;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean addAll(@NonNull Collection<? extends Song> collection) {
+		if (collection instanceof SongList) {
+			// copy columns without creating songs
+			SongList list = (SongList) collection;
+			int count = list.size;
+			ensureCapacity(size + count);
+			System.arraycopy(list.ids, 0, ids, size, count);
+			System.arraycopy(list.names, 0, names, size, count);
+			System.arraycopy(list.artists, 0, artists, size, count);
+			System.arraycopy(list.albums, 0, albums, size, count);
+			System.arraycopy(list.durations, 0, durations, size, count);
+			System.arraycopy(list.visible, 0, visible, size, count);
+			size += count;
+			modCount++;
+			return count > 0;
+		}
+		return super.addAll(collection);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void clear() {
+		Arrays.fill(names, 0, size, null);
+		Arrays.fill(artists, 0, size, null);
+		Arrays.fill(albums, 0, size, null);
+		size = 0;
+		modCount++;
+	}
+
+	/**
+	 * append a row without creating a {@link Song} instance
+	 *
+	 * @param id       track ID
+	 * @param name     track name
+	 * @param artist   artist name
+	 * @param album    album name
+	 * @param duration duration in milliseconds
+	 * @param visible  visibility of the track
+	 */
+	public void add(long id, String name, String artist, String album, long duration, boolean visible) {
+		ensureCapacity(size + 1);
+		size++;
+		modCount++;
+		setRow(size - 1, id, name, artist, album, duration, visible);
+	}
+
+	/**
+	 * get the track ID of a row without creating a {@link Song} instance
+	 *
+	 * @param index index of the row
+	 * @return track ID
+	 */
+	public long getId(int index) {
+		checkIndex(index);
+		return ids[index];
+	}
+
+	/**
+	 * get the visibility of a row without creating a {@link Song} instance
+	 *
+	 * @param index index of the row
+	 * @return true if the track is visible
+	 */
+	public boolean isVisible(int index) {
+		checkIndex(index);
+		return visible[index];
+	}
+
+	/**
+	 * set the section index of the rows, must be created in the same order as the rows
+	 *
+	 * @param sections section index or null to remove
+	 */
+	public void setSectionIndex(@Nullable SectionIndex sections) {
+		this.sections = sections;
+	}
+
+	/**
+	 * @return section index of the rows or null if not available
+	 */
+	@Nullable
+	public SectionIndex getSectionIndex() {
+		return sections;
+	}
+
+	/**
+	 * compare the rows of two lists without creating {@link Song} instances
+	 *
+	 * @param list list to compare
+	 * @return true if both lists contain the same rows
+	 */
+	public boolean contentEquals(SongList list) {
+		if (list == this)
+			return true;
+		if (list.size != size)
+			return false;
+		for (int i = 0; i < size; i++) {
+			if (ids[i] != list.ids[i] || durations[i] != list.durations[i] || visible[i] != list.visible[i]
+					|| !names[i].equals(list.names[i]) || !artists[i].equals(list.artists[i]) || !albums[i].equals(list.albums[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * release unused memory after all rows were added
+	 */
+	public void compact() {
+		pool = null;
+		if (ids.length > size) {
+			int capacity = Math.max(size, 1);
+			ids = Arrays.copyOf(ids, capacity);
+			names = Arrays.copyOf(names, capacity);
+			artists = Arrays.copyOf(artists, capacity);
+			albums = Arrays.copyOf(albums, capacity);
+			durations = Arrays.copyOf(durations, capacity);
+			visible = Arrays.copyOf(visible, capacity);
+		}
+	}
+
+	/**
+	 * write all columns of a row
+	 */
+	private void setRow(int index, long id, String name, String artist, String album, long duration, boolean visible) {
+		ids[index] = id;
+		names[index] = name != null ? name : "";
+		artists[index] = share(artist);
+		albums[index] = share(album);
+		durations[index] = duration;
+		this.visible[index] = visible;
+	}
+
+	/**
+	 * get a shared instance of an artist or album name
+	 */
+	private String share(String value) {
+		if (value == null)
+			return "";
+		if (pool == null)
+			pool = new HashMap<>();
+		String shared = pool.get(value);
+		if (shared == null) {
+			pool.put(value, value);
+			return value;
+		}
+		return shared;
+	}
+
+	/**
+	 * grow the columns if needed
+	 */
+	private void ensureCapacity(int capacity) {
+		if (ids.length < capacity) {
+			capacity = Math.max(capacity, ids.length * 2);
+			ids = Arrays.copyOf(ids, capacity);
+			names = Arrays.copyOf(names, capacity);
+			artists = Arrays.copyOf(artists, capacity);
+			albums = Arrays.copyOf(albums, capacity);
+			durations = Arrays.copyOf(durations, capacity);
+			visible = Arrays.copyOf(visible, capacity);
+		}
+	}
+
+	/**
+	 * check if an index is valid
+	 */
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("index=" + index + " size=" + size);
+		}
+	}
+}
@@ -11,6 +11,8 @@ import androidx.annotation.Nullable;
 import org.nuclearfog.apollo.BuildConfig;
 import org.nuclearfog.apollo.utils.PreferenceUtils;
 
+import java.util.Arrays;
+
 /**
  * Audio effect class providing methods to manage effects at realtime
  *
@@ -41,6 +43,16 @@ public final class AudioEffects {
 	 */
 	private static AudioEffects instance;
 
+	/**
+	 * current state of the effects, shared by all sessions
+	 */
+	private static EffectState state;
+
+	/**
+	 * cached center frequencies (Hz) and level range (mB) of the equalizer bands, these don't change between sessions
+	 */
+	private static int[] frequencies, range;
+
 	private Equalizer equalizer;
 	private BassBoost bassBooster;
 	private PresetReverb reverb;
@@ -49,7 +61,7 @@ public final class AudioEffects {
 	private int sessionId;
 
 	/**
-	 * get singleton instance
+	 * get singleton instance. The effects are reused as long as the session doesn't change
 	 *
 	 * @param context   context to get equalizer settings
 	 * @param sessionId current audio session ID
@@ -59,6 +71,8 @@ public final class AudioEffects {
 	public static AudioEffects getInstance(Context context, int sessionId) {
 		try {
 			if (instance == null || instance.sessionId != sessionId) {
+				// effects are bound to a session, release the effects of the old session first
+				release();
 				instance = new AudioEffects(context, sessionId);
 				if (BuildConfig.DEBUG) {
 					Log.d(TAG, "audio_session_id=" + sessionId);
@@ -87,6 +101,7 @@ public final class AudioEffects {
 					exception.printStackTrace();
 				}
 			}
+			instance = null;
 		}
 	}
 
@@ -99,21 +114,42 @@ public final class AudioEffects {
 		reverb = new PresetReverb(FX_PRIORITY, sessionId);
 		prefs = PreferenceUtils.getInstance(context);
 		this.sessionId = sessionId;
-		boolean active = prefs.isAudioFxEnabled();
-
-		equalizer.setEnabled(active);
-		bassBooster.setEnabled(active);
-		reverb.setEnabled(active);
-		if (active) {
-			setEffectValues();
+		if (frequencies == null) {
+			short bandCount = equalizer.getNumberOfBands();
+			short[] ranges = equalizer.getBandLevelRange();
+			int[] freq = new int[bandCount];
+			for (short i = 0; i < bandCount; i++) {
+				freq[i] = equalizer.getCenterFreq(i) / 1000;
+			}
+			range = new int[]{ranges[0], ranges[1]};
+			frequencies = freq;
+		}
+		if (state == null) {
+			state = new EffectState(prefs.isAudioFxEnabled(), prefs.getEqualizerBands(), prefs.getBassLevel(), prefs.getReverbLevel());
+			if (state.getBandCount() == 0) {
+				// no saved levels, use the levels of the equalizer
+				int[] bands = new int[frequencies.length];
+				for (short i = 0; i < bands.length; i++) {
+					bands[i] = equalizer.getBandLevel(i);
+				}
+				state = state.withBandLevels(bands);
+			}
 		}
+		apply(state);
+	}
+
+	/**
+	 * @return current state of the effects
+	 */
+	public EffectState getState() {
+		return state;
 	}
 
 	/**
 	 * @return true if audio FX is enabled
 	 */
 	public boolean isAudioFxEnabled() {
-		return prefs.isAudioFxEnabled();
+		return state.isEnabled();
 	}
 
 	/**
@@ -122,19 +158,9 @@ public final class AudioEffects {
 	 * @param enable true to enable all audio effects
 	 */
 	public void enableAudioFx(boolean enable) {
-		try {
-			equalizer.setEnabled(enable);
-			bassBooster.setEnabled(enable);
-			reverb.setEnabled(enable);
-			prefs.setAudioFxEnabled(enable);
-			if (enable) {
-				setEffectValues();
-			}
-		} catch (RuntimeException exception) {
-			if (BuildConfig.DEBUG) {
-				exception.printStackTrace();
-			}
-		}
+		state = state.withEnabled(enable);
+		prefs.setAudioFxEnabled(enable);
+		apply(state);
 	}
 
 	/**
@@ -143,15 +169,7 @@ public final class AudioEffects {
 	 * @return array with min and max limits
 	 */
 	public int[] getBandLevelRange() {
-		try {
-			short[] ranges = equalizer.getBandLevelRange();
-			return new int[]{ranges[0], ranges[1]};
-		} catch (RuntimeException exception) {
-			if (BuildConfig.DEBUG) {
-				exception.printStackTrace();
-			}
-		}
-		return new int[2];
+		return range.clone();
 	}
 
 	/**
@@ -160,40 +178,16 @@ public final class AudioEffects {
 	 * @return array of band frequencies, starting with the lowest frequency
 	 */
 	public int[] getBandFrequencies() {
-		try {
-			short bandCount = equalizer.getNumberOfBands();
-			int[] freq = new int[bandCount];
-			for (short i = 0; i < bandCount; i++) {
-				freq[i] = equalizer.getCenterFreq(i) / 1000;
-			}
-			return freq;
-		} catch (RuntimeException exception) {
-			if (BuildConfig.DEBUG) {
-				exception.printStackTrace();
-			}
-		}
-		return new int[0];
+		return frequencies.clone();
 	}
 
 	/**
 	 * get equalizer bands
 	 *
-	 * @return array of band levels and frequencies starting from the lowest equalizer frequency
+	 * @return array of band levels starting from the lowest equalizer frequency
 	 */
 	public int[] getBandLevel() {
-		try {
-			short bandCount = equalizer.getNumberOfBands();
-			int[] level = new int[bandCount];
-			for (short i = 0; i < bandCount; i++) {
-				level[i] = equalizer.getBandLevel(i);
-			}
-			return level;
-		} catch (RuntimeException exception) {
-			if (BuildConfig.DEBUG) {
-				exception.printStackTrace();
-			}
-		}
-		return new int[0];
+		return Arrays.copyOf(state.getBandLevels(), frequencies.length);
 	}
 
 	/**
@@ -203,19 +197,15 @@ public final class AudioEffects {
 	 * @param level level of the band
 	 */
 	public void setBandLevel(int band, int level) {
-		try {
-			// set single band level
-			equalizer.setBandLevel((short) band, (short) level);
-			// save all equalizer band levels
-			short bandCount = equalizer.getNumberOfBands();
-			int[] bands = new int[bandCount];
-			for (short i = 0; i < bandCount; i++) {
-				bands[i] = equalizer.getBandLevel(i);
-			}
-			prefs.setEqualizerBands(bands);
-		} catch (RuntimeException exception) {
-			if (BuildConfig.DEBUG) {
-				exception.printStackTrace();
+		if (band >= 0 && band < frequencies.length) {
+			state = state.withBandLevel(band, level);
+			prefs.setEqualizerBands(getBandLevel());
+			try {
+				equalizer.setProperties(state.toEqualizerSettings(frequencies.length));
+			} catch (RuntimeException exception) {
+				if (BuildConfig.DEBUG) {
+					exception.printStackTrace();
+				}
 			}
 		}
 	}
@@ -226,14 +216,7 @@ public final class AudioEffects {
 	 * @return bassbost strength value from 0 to 1000
 	 */
 	public int getBassLevel() {
-		try {
-			return bassBooster.getRoundedStrength();
-		} catch (RuntimeException exception) {
-			if (BuildConfig.DEBUG) {
-				exception.printStackTrace();
-			}
-		}
-		return 0;
+		return state.getBassLevel();
 	}
 
 	/**
@@ -242,9 +225,10 @@ public final class AudioEffects {
 	 * @param level bassbost strength value from 0 to 1000
 	 */
 	public void setBassLevel(int level) {
+		state = state.withBassLevel(level);
+		prefs.setBassLevel(level);
 		try {
-			bassBooster.setStrength((short) level);
-			prefs.setBassLevel(level);
+			bassBooster.setProperties(state.toBassBoostSettings());
 		} catch (RuntimeException exception) {
 			if (BuildConfig.DEBUG) {
 				exception.printStackTrace();
@@ -258,14 +242,7 @@ public final class AudioEffects {
 	 * @return reverb level
 	 */
 	public int getReverbLevel() {
-		try {
-			return reverb.getPreset();
-		} catch (RuntimeException exception) {
-			if (BuildConfig.DEBUG) {
-				exception.printStackTrace();
-			}
-		}
-		return 0;
+		return state.getReverbLevel();
 	}
 
 	/**
@@ -274,9 +251,10 @@ public final class AudioEffects {
 	 * @param level reverb level
 	 */
 	public void setReverbLevel(int level) {
+		state = state.withReverbLevel(level);
+		prefs.setReverbLevel(level);
 		try {
-			reverb.setPreset((short) level);
-			prefs.setReverbLevel(level);
+			reverb.setProperties(state.toReverbSettings());
 		} catch (RuntimeException exception) {
 			if (BuildConfig.DEBUG) {
 				exception.printStackTrace();
@@ -285,21 +263,20 @@ public final class AudioEffects {
 	}
 
 	/**
-	 * set saved values for audio effects
+	 * apply a state to all effects, one batch per effect
 	 */
-	private void setEffectValues() {
+	private void apply(EffectState state) {
 		try {
-			// setup audio effects
-			bassBooster.setStrength((short) prefs.getBassLevel());
-			reverb.setPreset((short) prefs.getReverbLevel());
-			int[] bandLevel = prefs.getEqualizerBands();
-			for (short i = 0; i < bandLevel.length; i++) {
-				equalizer.setBandLevel(i, (short) bandLevel[i]);
-			}
+			equalizer.setProperties(state.toEqualizerSettings(frequencies.length));
+			bassBooster.setProperties(state.toBassBoostSettings());
+			reverb.setProperties(state.toReverbSettings());
+			equalizer.setEnabled(state.isEnabled());
+			bassBooster.setEnabled(state.isEnabled());
+			reverb.setEnabled(state.isEnabled());
 		} catch (RuntimeException exception) {
 			if (BuildConfig.DEBUG) {
 				exception.printStackTrace();
 			}
 		}
 	}
-}
\ No newline at end of file
+}
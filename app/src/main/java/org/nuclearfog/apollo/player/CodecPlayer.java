@@ -0,0 +1,1047 @@
+package org.nuclearfog.apollo.player;
+
+import android.content.Context;
+import android.content.Intent;
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioManager;
+import android.media.AudioTrack;
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.media.audiofx.AudioEffect;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Process;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.nuclearfog.apollo.BuildConfig;
+import org.nuclearfog.apollo.player.dsp.DspChain;
+import org.nuclearfog.apollo.player.dsp.GainProcessor;
+import org.nuclearfog.apollo.provider.ReplayGainStore;
+import org.nuclearfog.apollo.service.MusicPlaybackService;
+import org.nuclearfog.apollo.utils.PlaybackMetrics;
+import org.nuclearfog.apollo.utils.PreferenceUtils;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+
+/**
+ * {@link MultiPlayer} implementation decoding tracks with {@link MediaCodec} into a ring buffer which is drained by an {@link AudioTrack}.
+ * The decoder thread continues with the next track at the end of the current track, so tracks with the same format are played without a gap.
+ * ReplayGain is applied to the decoded samples, so the gain changes exactly at the track boundary.
+ *
+ * @author nuclearfog
+ */
+public class CodecPlayer implements MultiPlayer {
+
+	/**
+	 * timeout used to wait for decoder buffers
+	 */
+	private static final long TIMEOUT_US = 5000L;
+
+	/**
+	 * number of frames written to the audio output at once
+	 */
+	private static final int CHUNK_FRAMES = 2048;
+
+	/**
+	 * min size of the buffer of the audio output in milliseconds
+	 */
+	private static final int TRACK_BUFFER_MS = 100;
+
+	/**
+	 * interval used to check the end of the playback in milliseconds
+	 */
+	private static final int DRAIN_INTERVAL_MS = 20;
+
+	/**
+	 * time waited for the end of the playback in addition to the duration of the remaining samples.
+	 * Some devices reset the playback head position after the output stopped, so the end of the samples is never reached
+	 */
+	private static final long DRAIN_TIMEOUT_MS = 1000L;
+
+	/**
+	 * number of frames added by the encoder at the start of a track, same as MediaFormat.KEY_ENCODER_DELAY added with API 30.
+	 * set by the extractor from the LAME header of MP3 files and the iTunSMPB tag of MP4 files
+	 */
+	private static final String KEY_ENCODER_DELAY = "encoder-delay";
+
+	/**
+	 * number of frames added by the encoder at the end of a track, same as MediaFormat.KEY_ENCODER_PADDING added with API 30
+	 */
+	private static final String KEY_ENCODER_PADDING = "encoder-padding";
+
+	private final WeakReference<MusicPlaybackService> mService;
+
+	/**
+	 * lock used for the player state, the decoders and the playback position
+	 */
+	private final Object mLock = new Object();
+
+	/**
+	 * lock held by the decoder thread while decoding and processing a block, so the decoders and the DSP chain are not changed meanwhile.
+	 * Must be taken before {@link #mWriteLock} and {@link #mLock}
+	 */
+	private final Object mDecodeLock = new Object();
+
+	/**
+	 * lock held while writing to the audio output, so no samples are written after a flush
+	 */
+	private final Object mWriteLock = new Object();
+
+	private final GainProcessor mGain = new GainProcessor();
+	private final DspChain mDsp = new DspChain(mGain);
+
+	/**
+	 * size of the ring buffer in milliseconds
+	 */
+	private final int mBufferMillis;
+
+	private Handler mHandler;
+
+	@Nullable
+	private AudioTrack mTrack;
+
+	@Nullable
+	private PcmRingBuffer mBuffer;
+
+	/**
+	 * decoder of the track currently played
+	 */
+	@Nullable
+	private Decoder mPlayback;
+
+	/**
+	 * decoder used by the decoder thread, equals {@link #mPlayback} except after a gapless transition which is not played yet
+	 */
+	@Nullable
+	private Decoder mDecoder;
+
+	/**
+	 * decoder of the next track
+	 */
+	@Nullable
+	private Decoder mNext;
+
+	private int mSessionId = 0;
+	private int mSampleRate = 0;
+	private int mChannels = 0;
+	private float mVolume = 1.0f;
+
+	private volatile int mGeneration = 0;
+	private boolean mIsInitialized = false;
+	private boolean mPlaying = false;
+	private boolean mReleased = false;
+	private boolean mDecodeEnded = false;
+	private boolean mOutputEnded = false;
+
+	/**
+	 * playback head position after the last flush
+	 */
+	private long mHeadBase = 0;
+
+	/**
+	 * number of samples written to the audio output since the last flush
+	 */
+	private long mSamplesWritten = 0;
+
+	/**
+	 * frame and time of the start of the current track
+	 */
+	private long mTrackStartFrame = 0, mTrackStartMs = 0;
+
+	/**
+	 * frame where the next track starts or -1 if the decoder didn't reach the next track yet
+	 */
+	private long mNextStartFrame = -1;
+
+	/**
+	 * Constructor of <code>CodecPlayer</code>
+	 */
+	public CodecPlayer(MusicPlaybackService service) {
+		mService = new WeakReference<>(service);
+		mBufferMillis = PreferenceUtils.getInstance(service).getPlayerBufferSize();
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+			AudioManager audioManager = (AudioManager) service.getSystemService(Context.AUDIO_SERVICE);
+			mSessionId = audioManager.generateAudioSessionId();
+		}
+		Thread decoderThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				runDecoder();
+			}
+		}, "CodecPlayer-decoder");
+		Thread outputThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				Process.setThreadPriority(Process.THREAD_PRIORITY_AUDIO);
+				runOutput();
+			}
+		}, "CodecPlayer-output");
+		decoderThread.start();
+		outputThread.start();
+	}
+
+
+	@Override
+	public void setDataSource(Uri uri) {
+		stop();
+		MusicPlaybackService musicService = mService.get();
+		if (musicService == null)
+			return;
+		Decoder decoder = openDecoder(musicService, uri);
+		if (decoder == null)
+			return;
+		synchronized (mDecodeLock) {
+			synchronized (mWriteLock) {
+				synchronized (mLock) {
+					if (mTrack == null || mSampleRate != decoder.sampleRate || mChannels != decoder.channels) {
+						// the format changed, create a new audio output
+						if (mTrack != null) {
+							mTrack.release();
+						}
+						mTrack = createTrack(decoder.sampleRate, decoder.channels);
+						if (mTrack == null) {
+							decoder.release();
+							return;
+						}
+						mSampleRate = decoder.sampleRate;
+						mChannels = decoder.channels;
+						mDsp.configure(mSampleRate, mChannels, CHUNK_FRAMES);
+						if (mBuffer != null) {
+							mBuffer.clear();
+						}
+						mBuffer = new PcmRingBuffer(Math.max(mSampleRate * mBufferMillis / 1000, CHUNK_FRAMES), mChannels);
+					}
+					mPlayback = decoder;
+					mDecoder = decoder;
+					mGain.setGain(decoder.gain);
+					mDsp.reset();
+					flushOutput(0L);
+					mIsInitialized = true;
+					mLock.notifyAll();
+				}
+			}
+		}
+		setVolume(mVolume);
+		Intent intent = new Intent(AudioEffect.ACTION_OPEN_AUDIO_EFFECT_CONTROL_SESSION);
+		intent.putExtra(AudioEffect.EXTRA_AUDIO_SESSION, getAudioSessionId());
+		intent.putExtra(AudioEffect.EXTRA_PACKAGE_NAME, MusicPlaybackService.APOLLO_PACKAGE_NAME);
+		musicService.sendBroadcast(intent);
+	}
+
+
+	@Override
+	public void setNextDataSource(@NonNull Uri uri) {
+		MusicPlaybackService musicService = mService.get();
+		if (musicService == null)
+			return;
+		Decoder decoder = openDecoder(musicService, uri);
+		if (decoder == null)
+			return;
+		replaceNext(decoder);
+	}
+
+
+	@Override
+	public void resetNextPlayer() {
+		replaceNext(null);
+	}
+
+
+	@Override
+	public void setHandler(Handler handler) {
+		mHandler = handler;
+	}
+
+
+	@Override
+	public boolean isInitialized() {
+		synchronized (mLock) {
+			return mIsInitialized;
+		}
+	}
+
+
+	@Override
+	public void start() {
+		boolean restart;
+		synchronized (mLock) {
+			restart = mOutputEnded;
+		}
+		// start from the beginning if the track has ended
+		if (restart) {
+			seek(0L);
+		}
+		synchronized (mLock) {
+			if (mIsInitialized && mTrack != null) {
+				mPlaying = true;
+				mTrack.play();
+				mLock.notifyAll();
+			}
+		}
+	}
+
+
+	@Override
+	public void stop() {
+		interruptOutput();
+		synchronized (mDecodeLock) {
+			synchronized (mWriteLock) {
+				synchronized (mLock) {
+					mIsInitialized = false;
+					mPlaying = false;
+					releaseDecoders();
+					flushOutput(0L);
+				}
+			}
+		}
+	}
+
+
+	@Override
+	public void release() {
+		stop();
+		synchronized (mLock) {
+			mReleased = true;
+			if (mBuffer != null) {
+				mBuffer.clear();
+			}
+			if (mTrack != null) {
+				mTrack.release();
+				mTrack = null;
+			}
+			mLock.notifyAll();
+		}
+	}
+
+
+	@Override
+	public void pause() {
+		synchronized (mLock) {
+			mPlaying = false;
+			if (mTrack != null) {
+				mTrack.pause();
+			}
+		}
+	}
+
+
+	@Override
+	public long duration() {
+		synchronized (mLock) {
+			if (mPlayback != null) {
+				return mPlayback.durationMs;
+			}
+			return 0L;
+		}
+	}
+
+
+	@Override
+	public long position() {
+		synchronized (mLock) {
+			if (!mIsInitialized || mSampleRate == 0)
+				return 0L;
+			long position = mTrackStartMs + (getPlayedFrames() - mTrackStartFrame) * 1000L / mSampleRate;
+			return Math.max(Math.min(position, duration()), 0L);
+		}
+	}
+
+
+	@Override
+	public void seek(long whereto) {
+		boolean playing = interruptOutput();
+		synchronized (mDecodeLock) {
+			synchronized (mWriteLock) {
+				synchronized (mLock) {
+					if (!mIsInitialized || mPlayback == null)
+						return;
+					try {
+						if (mDecoder != mPlayback && mDecoder != null) {
+							// the decoder already continued with the next track, use it again as next track
+							if (mNext != null) {
+								mNext.release();
+							}
+							mDecoder.seek(0L);
+							mNext = mDecoder;
+							mDecoder = mPlayback;
+							mGain.setGain(mPlayback.gain);
+						}
+						mPlayback.seek(whereto);
+					} catch (RuntimeException exception) {
+						if (BuildConfig.DEBUG) {
+							exception.printStackTrace();
+						}
+					}
+					mDsp.reset();
+					flushOutput(whereto);
+					if (playing && mTrack != null) {
+						mPlaying = true;
+						mTrack.play();
+					}
+					mLock.notifyAll();
+				}
+			}
+		}
+	}
+
+
+	@Override
+	public void setVolume(float vol) {
+		synchronized (mLock) {
+			mVolume = vol;
+			if (mTrack != null) {
+				if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+					mTrack.setVolume(vol);
+				} else {
+					mTrack.setStereoVolume(vol, vol);
+				}
+			}
+		}
+	}
+
+
+	@Override
+	public int getAudioSessionId() {
+		synchronized (mLock) {
+			return mSessionId;
+		}
+	}
+
+	/**
+	 * loop of the decoder thread, decodes the current track and writes the processed samples into the ring buffer.
+	 * Decoding and processing only holds {@link #mDecodeLock}, so the output thread is not blocked by the decoder
+	 */
+	private void runDecoder() {
+		try {
+			while (true) {
+				synchronized (mLock) {
+					while (!mReleased && (mDecoder == null || mDecodeEnded || mBuffer == null)) {
+						mLock.wait();
+					}
+					if (mReleased)
+						return;
+				}
+				PcmRingBuffer buffer;
+				Decoder decoder;
+				int generation;
+				short[] samples;
+				int length;
+				synchronized (mDecodeLock) {
+					synchronized (mLock) {
+						// the player may have been stopped while waiting for the decoder lock
+						if (mReleased || mDecoder == null || mDecodeEnded || mBuffer == null)
+							continue;
+						buffer = mBuffer;
+						decoder = mDecoder;
+						generation = buffer.getGeneration();
+					}
+					try {
+						length = decoder.decode();
+					} catch (RuntimeException exception) {
+						if (BuildConfig.DEBUG) {
+							exception.printStackTrace();
+						}
+						// end the track on a decoder error
+						length = -1;
+					}
+					samples = decoder.samples;
+					if (length > 0) {
+						mDsp.process(samples, 0, length / buffer.getChannels());
+					}
+				}
+				if (length < 0) {
+					synchronized (mLock) {
+						// ignore the end of the track if the player was flushed meanwhile
+						if (decoder != mDecoder || generation != buffer.getGeneration())
+							continue;
+						if (mNext != null) {
+							// continue with the next track without a gap
+							mDecoder = mNext;
+							mNext = null;
+							mNextStartFrame = buffer.getWritten() / mChannels;
+							mGain.setGain(mDecoder.gain);
+						} else {
+							mDecodeEnded = true;
+							buffer.setEndOfStream();
+						}
+					}
+				} else if (length > 0) {
+					buffer.write(samples, 0, length, generation);
+				}
+			}
+		} catch (InterruptedException exception) {
+			// player released
+		}
+	}
+
+	/**
+	 * loop of the output thread, writes the samples of the ring buffer into the audio output
+	 */
+	private void runOutput() {
+		short[] chunk = new short[CHUNK_FRAMES * 2];
+		try {
+			while (true) {
+				PcmRingBuffer buffer;
+				AudioTrack track;
+				int generation, bufferGeneration;
+				synchronized (mLock) {
+					while (!mReleased && (!mPlaying || !mIsInitialized || mOutputEnded || mBuffer == null || mTrack == null)) {
+						mLock.wait();
+					}
+					if (mReleased)
+						return;
+					buffer = mBuffer;
+					track = mTrack;
+					generation = mGeneration;
+					bufferGeneration = buffer.getGeneration();
+				}
+				try {
+					int count = buffer.read(chunk, 0, CHUNK_FRAMES * buffer.getChannels(), bufferGeneration);
+					if (count > 0) {
+						writeOutput(track, chunk, count, generation);
+					} else if (count < 0) {
+						drainOutput(track, generation);
+					}
+				} catch (RuntimeException exception) {
+					if (BuildConfig.DEBUG) {
+						exception.printStackTrace();
+					}
+					// end the track on an output error
+					endOutput(buffer, generation);
+				}
+			}
+		} catch (InterruptedException exception) {
+			// player released
+		}
+	}
+
+	/**
+	 * write samples to the audio output, waits while the playback is paused
+	 *
+	 * @param generation generation of the output, samples of an old generation are dropped
+	 */
+	private void writeOutput(AudioTrack track, short[] chunk, int count, int generation) throws InterruptedException {
+		int offset = 0;
+		while (offset < count) {
+			int written = 0;
+			synchronized (mWriteLock) {
+				boolean ready;
+				synchronized (mLock) {
+					if (mReleased || generation != mGeneration)
+						return;
+					ready = mPlaying;
+				}
+				// write only while playing, a paused output would block the writer
+				if (ready) {
+					written = track.write(chunk, offset, count - offset);
+				}
+			}
+			if (written < 0)
+				return;
+			offset += written;
+			synchronized (mLock) {
+				if (generation != mGeneration)
+					return;
+				mSamplesWritten += written;
+				checkTrackChange();
+				while (offset < count && !mPlaying && !mReleased && generation == mGeneration) {
+					mLock.wait();
+				}
+			}
+		}
+	}
+
+	/**
+	 * wait until all written samples are played and notify the service
+	 *
+	 * @param generation generation of the output
+	 */
+	private void drainOutput(AudioTrack track, int generation) throws InterruptedException {
+		synchronized (mLock) {
+			if (generation != mGeneration)
+				return;
+			// plays the remaining samples
+			track.stop();
+			long remainingFrames = Math.max(mSamplesWritten / mChannels - getPlayedFrames(), 0L);
+			long timeout = remainingFrames * 1000L / mSampleRate + DRAIN_TIMEOUT_MS;
+			long playedTime = 0L;
+			while (!mReleased && generation == mGeneration) {
+				checkTrackChange();
+				if (getPlayedFrames() >= mSamplesWritten / mChannels || playedTime >= timeout) {
+					// end the track at the end of the samples, or if the head position doesn't reach it
+					mOutputEnded = true;
+					if (mHandler != null) {
+						mHandler.sendEmptyMessage(MusicPlaybackService.MESSAGE_TRACK_ENDED);
+					}
+					return;
+				}
+				// the playback position doesn't change while paused
+				if (mPlaying) {
+					long time = SystemClock.elapsedRealtime();
+					mLock.wait(DRAIN_INTERVAL_MS);
+					playedTime += SystemClock.elapsedRealtime() - time;
+				} else {
+					mLock.wait();
+				}
+			}
+		}
+	}
+
+	/**
+	 * stop decoding and end the current track after an error of the audio output
+	 *
+	 * @param generation generation of the output
+	 */
+	private void endOutput(PcmRingBuffer buffer, int generation) {
+		synchronized (mLock) {
+			if (mReleased || generation != mGeneration || mOutputEnded)
+				return;
+			mDecodeEnded = true;
+			mOutputEnded = true;
+			// wake up a decoder waiting for space
+			buffer.clear();
+			if (mHandler != null) {
+				mHandler.sendEmptyMessage(MusicPlaybackService.MESSAGE_TRACK_ENDED);
+			}
+		}
+	}
+
+	/**
+	 * check if the playback reached the next track and notify the service
+	 * must be called with {@link #mLock}
+	 */
+	private void checkTrackChange() {
+		if (mNextStartFrame >= 0 && getPlayedFrames() >= mNextStartFrame) {
+			mTrackStartFrame = mNextStartFrame;
+			mTrackStartMs = 0L;
+			mNextStartFrame = -1;
+			if (mPlayback != null && mPlayback != mDecoder) {
+				mPlayback.release();
+			}
+			mPlayback = mDecoder;
+			if (mHandler != null) {
+				mHandler.sendEmptyMessage(MusicPlaybackService.MESSAGE_TRACK_WENT_TO_NEXT);
+			}
+		}
+	}
+
+	/**
+	 * replace the next track. If the decoder already continued with the old next track, its samples are removed
+	 * and the new track starts at the same position
+	 *
+	 * @param decoder decoder of the new next track or null to stop after the current track
+	 */
+	private void replaceNext(@Nullable Decoder decoder) {
+		if (!setNext(decoder)) {
+			// the old next track is already written to the audio output, decode the current track again from the current position
+			seek(position());
+			if (!setNext(decoder) && decoder != null) {
+				decoder.release();
+			}
+		}
+	}
+
+	/**
+	 * set the next track
+	 *
+	 * @param decoder decoder of the next track or null to stop after the current track
+	 * @return false if the decoder continued with the old next track and its samples were already written to the audio output
+	 */
+	private boolean setNext(@Nullable Decoder decoder) {
+		synchronized (mDecodeLock) {
+			synchronized (mLock) {
+				if (mNext != null) {
+					mNext.release();
+					mNext = null;
+				}
+				// tracks with a different format need a new audio output and are opened when the current track ends
+				boolean gapless = decoder != null && decoder.sampleRate == mSampleRate && decoder.channels == mChannels;
+				if (mDecoder != null && mDecoder != mPlayback && mBuffer != null && mNextStartFrame >= 0) {
+					// the decoder already continued with the old next track, remove its samples
+					if (mBuffer.truncate(mNextStartFrame * mChannels) < 0)
+						return false;
+					mDecoder.release();
+					if (gapless) {
+						mDecoder = decoder;
+						mGain.setGain(decoder.gain);
+						mDecodeEnded = false;
+					} else {
+						// end the playback at the end of the current track
+						mDecoder = mPlayback;
+						mNextStartFrame = -1;
+						mDecodeEnded = true;
+						mBuffer.setEndOfStream();
+						if (decoder != null) {
+							decoder.release();
+						}
+					}
+					mLock.notifyAll();
+				} else if (gapless && mDecoder != null && !mDecodeEnded) {
+					mNext = decoder;
+				} else if (decoder != null) {
+					decoder.release();
+				}
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * get the number of frames played since the last flush
+	 * must be called with {@link #mLock}
+	 */
+	private long getPlayedFrames() {
+		if (mTrack == null)
+			return 0L;
+		// the head position is an unsigned 32 bit value
+		return (mTrack.getPlaybackHeadPosition() - mHeadBase) & 0xFFFFFFFFL;
+	}
+
+	/**
+	 * pause the audio output, this also interrupts a blocking write of the output thread
+	 *
+	 * @return true if the player was playing
+	 */
+	private boolean interruptOutput() {
+		synchronized (mLock) {
+			boolean playing = mPlaying;
+			mPlaying = false;
+			if (mTrack != null) {
+				mTrack.pause();
+			}
+			return playing;
+		}
+	}
+
+	/**
+	 * remove all buffered samples and reset the playback position
+	 * must be called with {@link #mWriteLock} and {@link #mLock} while the output is paused
+	 *
+	 * @param position position of the next sample in milliseconds
+	 */
+	private void flushOutput(long position) {
+		mGeneration++;
+		if (mBuffer != null) {
+			mBuffer.clear();
+		}
+		if (mTrack != null) {
+			mTrack.flush();
+			mHeadBase = mTrack.getPlaybackHeadPosition();
+		}
+		mSamplesWritten = 0L;
+		mTrackStartFrame = 0L;
+		mTrackStartMs = position;
+		mNextStartFrame = -1;
+		mDecodeEnded = false;
+		mOutputEnded = false;
+	}
+
+	/**
+	 * release all decoders
+	 * must be called with {@link #mLock}
+	 */
+	private void releaseDecoders() {
+		if (mPlayback != null) {
+			mPlayback.release();
+		}
+		if (mDecoder != null && mDecoder != mPlayback) {
+			mDecoder.release();
+		}
+		if (mNext != null) {
+			mNext.release();
+		}
+		mPlayback = null;
+		mDecoder = null;
+		mNext = null;
+	}
+
+	/**
+	 * create an audio output for 16 bit PCM
+	 *
+	 * @return audio output or null if the format is not supported
+	 */
+	@Nullable
+	private AudioTrack createTrack(int sampleRate, int channels) {
+		int channelMask = channels == 1 ? AudioFormat.CHANNEL_OUT_MONO : AudioFormat.CHANNEL_OUT_STEREO;
+		int minSize = AudioTrack.getMinBufferSize(sampleRate, channelMask, AudioFormat.ENCODING_PCM_16BIT);
+		if (minSize <= 0)
+			return null;
+		int size = Math.max(minSize, sampleRate * channels * 2 * TRACK_BUFFER_MS / 1000);
+		try {
+			AudioTrack track;
+			if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+				AudioAttributes attr = new AudioAttributes.Builder()
+						.setContentType(AudioAttributes.CONTENT_TYPE_MUSIC)
+						.setUsage(AudioAttributes.USAGE_MEDIA).build();
+				AudioFormat format = new AudioFormat.Builder()
+						.setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+						.setSampleRate(sampleRate)
+						.setChannelMask(channelMask).build();
+				track = new AudioTrack(attr, format, size, AudioTrack.MODE_STREAM, mSessionId);
+			} else {
+				track = new AudioTrack(AudioManager.STREAM_MUSIC, sampleRate, channelMask, AudioFormat.ENCODING_PCM_16BIT, size, AudioTrack.MODE_STREAM, mSessionId);
+			}
+			if (track.getState() != AudioTrack.STATE_INITIALIZED) {
+				track.release();
+				return null;
+			}
+			// keep the session for all outputs, so audio effects stay attached
+			mSessionId = track.getAudioSessionId();
+			return track;
+		} catch (IllegalArgumentException exception) {
+			if (BuildConfig.DEBUG) {
+				exception.printStackTrace();
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * open a track and decode the first samples
+	 *
+	 * @return decoder or null if the track can't be played
+	 */
+	@Nullable
+	private Decoder openDecoder(MusicPlaybackService musicService, Uri uri) {
+		long start = PlaybackMetrics.begin(PlaybackMetrics.PREPARE);
+		try {
+			Decoder decoder = new Decoder(musicService.getApplicationContext(), uri);
+			int mode = PreferenceUtils.getInstance(musicService).getReplayGainMode();
+			decoder.gain = ReplayGainStore.getInstance(musicService).getVolume(uri, mode);
+			return decoder;
+		} catch (IOException exception) {
+			if (BuildConfig.DEBUG) {
+				exception.printStackTrace();
+			}
+			PlaybackMetrics.count(PlaybackMetrics.PREPARE_FAILED);
+			return null;
+		} finally {
+			PlaybackMetrics.end(PlaybackMetrics.PREPARE, start);
+		}
+	}
+
+	/**
+	 * Decoder of a single track, decodes the audio track of a file to 16 bit PCM
+	 */
+	private static final class Decoder {
+
+		private final MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+		private MediaExtractor extractor;
+		private MediaCodec codec;
+		private ByteBuffer[] inputs, outputs;
+
+		/**
+		 * buffer containing the last decoded samples
+		 */
+		short[] samples = new short[CHUNK_FRAMES * 2];
+
+		/**
+		 * samples held back until the next output buffer, so the padding at the end of the track can be dropped
+		 */
+		private short[] tail = {};
+
+		int sampleRate, channels;
+		long durationMs;
+		float gain = 1.0f;
+
+		private boolean inputDone = false;
+		private boolean outputDone = false;
+		private long skipUntilUs = 0L;
+		private int pending = 0;
+
+		/**
+		 * encoder delay and padding in frames
+		 */
+		private int delay = 0, padding = 0;
+
+		/**
+		 * number of frames to drop at the current position
+		 */
+		private int dropFrames = 0;
+
+		/**
+		 * number of samples in {@link #tail}
+		 */
+		private int held = 0;
+
+		/**
+		 * @throws IOException if the file has no supported audio track
+		 */
+		Decoder(Context context, Uri uri) throws IOException {
+			try {
+				extractor = new MediaExtractor();
+				extractor.setDataSource(context, uri, null);
+				MediaFormat format = null;
+				for (int i = 0; i < extractor.getTrackCount(); i++) {
+					MediaFormat trackFormat = extractor.getTrackFormat(i);
+					String mime = trackFormat.getString(MediaFormat.KEY_MIME);
+					if (mime != null && mime.startsWith("audio/")) {
+						extractor.selectTrack(i);
+						format = trackFormat;
+						break;
+					}
+				}
+				if (format == null)
+					throw new IOException("no audio track found: " + uri);
+				sampleRate = format.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+				channels = format.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+				if (format.containsKey(MediaFormat.KEY_DURATION)) {
+					durationMs = format.getLong(MediaFormat.KEY_DURATION) / 1000L;
+				}
+				// encoder delay and padding are trimmed by the decoder, the codec gets a format without them so they aren't trimmed twice
+				if (format.containsKey(KEY_ENCODER_DELAY)) {
+					delay = Math.max(format.getInteger(KEY_ENCODER_DELAY), 0);
+					format.setInteger(KEY_ENCODER_DELAY, 0);
+				}
+				if (format.containsKey(KEY_ENCODER_PADDING)) {
+					padding = Math.max(format.getInteger(KEY_ENCODER_PADDING), 0);
+					format.setInteger(KEY_ENCODER_PADDING, 0);
+				}
+				dropFrames = delay;
+				codec = MediaCodec.createDecoderByType(format.getString(MediaFormat.KEY_MIME));
+				codec.configure(format, null, null, 0);
+				codec.start();
+				inputs = codec.getInputBuffers();
+				outputs = codec.getOutputBuffers();
+				// decode until the output format is known
+				while (pending == 0 && !outputDone) {
+					pending = Math.max(decode(), 0);
+				}
+			} catch (IOException exception) {
+				release();
+				throw exception;
+			} catch (RuntimeException exception) {
+				release();
+				throw new IOException(exception);
+			}
+			if (channels < 1 || channels > 2) {
+				release();
+				throw new IOException("unsupported channel count: " + channels);
+			}
+		}
+
+		/**
+		 * decode the next samples into {@link #samples}, the encoder delay and padding are dropped
+		 *
+		 * @return number of decoded samples, 0 if no samples are available yet or -1 at the end of the track
+		 */
+		int decode() {
+			if (pending > 0) {
+				int length = pending;
+				pending = 0;
+				return length;
+			}
+			if (outputDone)
+				return -1;
+			while (!inputDone) {
+				int index = codec.dequeueInputBuffer(0L);
+				if (index < 0)
+					break;
+				int size = extractor.readSampleData(inputs[index], 0);
+				if (size < 0) {
+					codec.queueInputBuffer(index, 0, 0, 0L, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+					inputDone = true;
+				} else {
+					codec.queueInputBuffer(index, 0, size, extractor.getSampleTime(), 0);
+					extractor.advance();
+				}
+			}
+			int index = codec.dequeueOutputBuffer(info, TIMEOUT_US);
+			if (index >= 0) {
+				int length = 0;
+				if (info.size > 0 && info.presentationTimeUs >= skipUntilUs) {
+					ByteBuffer output = outputs[index];
+					output.position(info.offset);
+					output.limit(info.offset + info.size);
+					ShortBuffer pcm = output.order(ByteOrder.nativeOrder()).asShortBuffer();
+					if (dropFrames > 0) {
+						// drop the encoder delay
+						int drop = Math.min(dropFrames * channels, pcm.remaining());
+						pcm.position(pcm.position() + drop);
+						dropFrames -= drop / channels;
+					}
+					length = pcm.remaining();
+					if (samples.length < held + length) {
+						samples = new short[held + length];
+					}
+					// continue after the samples held back from the last buffer
+					System.arraycopy(tail, 0, samples, 0, held);
+					pcm.get(samples, held, length);
+					length += held;
+					held = 0;
+				}
+				codec.releaseOutputBuffer(index, false);
+				if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+					outputDone = true;
+				}
+				if (outputDone) {
+					// drop the encoder padding
+					length = Math.max(length - padding * channels, 0);
+					if (length == 0) {
+						return -1;
+					}
+				} else if (padding > 0 && length > 0) {
+					// hold back the last samples until the end of the track is known
+					held = Math.min(padding * channels, length);
+					if (tail.length < held) {
+						tail = new short[held];
+					}
+					length -= held;
+					System.arraycopy(samples, length, tail, 0, held);
+				}
+				return length;
+			} else if (index == MediaCodec.INFO_OUTPUT_BUFFERS_CHANGED) {
+				outputs = codec.getOutputBuffers();
+			} else if (index == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+				MediaFormat format = codec.getOutputFormat();
+				sampleRate = format.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+				channels = format.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+			}
+			return 0;
+		}
+
+		/**
+		 * seek to a position, samples before the position are skipped
+		 *
+		 * @param position position in milliseconds
+		 */
+		void seek(long position) {
+			extractor.seekTo(position * 1000L, MediaExtractor.SEEK_TO_PREVIOUS_SYNC);
+			codec.flush();
+			skipUntilUs = position * 1000L;
+			inputDone = false;
+			outputDone = false;
+			pending = 0;
+			held = 0;
+			// the encoder delay is part of the first samples only
+			dropFrames = position == 0L ? delay : 0;
+		}
+
+		/**
+		 * release the codec and the file
+		 */
+		void release() {
+			if (codec != null) {
+				try {
+					codec.stop();
+				} catch (IllegalStateException exception) {
+					// codec not started
+				}
+				codec.release();
+			}
+			if (extractor != null) {
+				extractor.release();
+			}
+		}
+	}
+}
@@ -0,0 +1,149 @@
+package org.nuclearfog.apollo.player;
+
+import android.media.audiofx.BassBoost;
+import android.media.audiofx.Equalizer;
+import android.media.audiofx.PresetReverb;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * Immutable state of all audio effects. Every change creates a new state, which is applied to the effects in one batch.
+ *
+ * @author nuclearfog
+ */
+public final class EffectState {
+
+	private final boolean enabled;
+	private final int[] bands;
+	private final int bassLevel;
+	private final int reverbLevel;
+
+	/**
+	 * @param enabled     true if the effects are enabled
+	 * @param bands       equalizer band levels in mB starting with the lowest frequency
+	 * @param bassLevel   bass boost strength from 0 to 1000
+	 * @param reverbLevel reverb preset
+	 */
+	public EffectState(boolean enabled, int[] bands, int bassLevel, int reverbLevel) {
+		this.enabled = enabled;
+		this.bands = bands.clone();
+		this.bassLevel = bassLevel;
+		this.reverbLevel = reverbLevel;
+	}
+
+	/**
+	 * @return true if the effects are enabled
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * @return equalizer band levels in mB starting with the lowest frequency
+	 */
+	public int[] getBandLevels() {
+		return bands.clone();
+	}
+
+	/**
+	 * @return number of stored equalizer bands
+	 */
+	public int getBandCount() {
+		return bands.length;
+	}
+
+	/**
+	 * @return bass boost strength from 0 to 1000
+	 */
+	public int getBassLevel() {
+		return bassLevel;
+	}
+
+	/**
+	 * @return reverb preset
+	 */
+	public int getReverbLevel() {
+		return reverbLevel;
+	}
+
+	/**
+	 * @return copy of this state with the effects enabled or disabled
+	 */
+	@NonNull
+	public EffectState withEnabled(boolean enabled) {
+		return new EffectState(enabled, bands, bassLevel, reverbLevel);
+	}
+
+	/**
+	 * @return copy of this state with all equalizer band levels replaced
+	 */
+	@NonNull
+	public EffectState withBandLevels(int[] bands) {
+		return new EffectState(enabled, bands, bassLevel, reverbLevel);
+	}
+
+	/**
+	 * @param band  index of the band
+	 * @param level new level of the band in mB
+	 * @return copy of this state with a changed band level
+	 */
+	@NonNull
+	public EffectState withBandLevel(int band, int level) {
+		int[] bands = Arrays.copyOf(this.bands, Math.max(this.bands.length, band + 1));
+		bands[band] = level;
+		return new EffectState(enabled, bands, bassLevel, reverbLevel);
+	}
+
+	/**
+	 * @return copy of this state with a changed bass boost strength
+	 */
+	@NonNull
+	public EffectState withBassLevel(int bassLevel) {
+		return new EffectState(enabled, bands, bassLevel, reverbLevel);
+	}
+
+	/**
+	 * @return copy of this state with a changed reverb preset
+	 */
+	@NonNull
+	public EffectState withReverbLevel(int reverbLevel) {
+		return new EffectState(enabled, bands, bassLevel, reverbLevel);
+	}
+
+	/**
+	 * create equalizer settings containing all band levels
+	 *
+	 * @param bandCount number of bands supported by the equalizer
+	 */
+	Equalizer.Settings toEqualizerSettings(int bandCount) {
+		Equalizer.Settings settings = new Equalizer.Settings();
+		// no preset, use the band levels
+		settings.curPreset = -1;
+		settings.numBands = (short) bandCount;
+		settings.bandLevels = new short[bandCount];
+		for (int i = 0; i < bandCount && i < bands.length; i++) {
+			settings.bandLevels[i] = (short) bands[i];
+		}
+		return settings;
+	}
+
+	/**
+	 * create bass boost settings
+	 */
+	BassBoost.Settings toBassBoostSettings() {
+		BassBoost.Settings settings = new BassBoost.Settings();
+		settings.strength = (short) bassLevel;
+		return settings;
+	}
+
+	/**
+	 * create reverb settings
+	 */
+	PresetReverb.Settings toReverbSettings() {
+		PresetReverb.Settings settings = new PresetReverb.Settings();
+		settings.preset = (short) reverbLevel;
+		return settings;
+	}
+}
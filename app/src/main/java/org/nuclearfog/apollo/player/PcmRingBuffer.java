@@ -0,0 +1,151 @@
+package org.nuclearfog.apollo.player;
+
+/**
+ * Blocking ring buffer of 16 bit PCM samples between the decoder and the audio output of {@link CodecPlayer}.
+ * Clearing the buffer starts a new generation, readers and writers of an old generation return immediately.
+ *
+ * @author nuclearfog
+ */
+final class PcmRingBuffer {
+
+	private final short[] data;
+	private final int channels;
+
+	private int readIndex = 0;
+	private int size = 0;
+	private long written = 0;
+	private int generation = 0;
+	private boolean endOfStream = false;
+
+	/**
+	 * @param frames   max number of frames
+	 * @param channels number of interleaved channels
+	 */
+	PcmRingBuffer(int frames, int channels) {
+		data = new short[frames * channels];
+		this.channels = channels;
+	}
+
+	/**
+	 * @return number of interleaved channels
+	 */
+	int getChannels() {
+		return channels;
+	}
+
+	/**
+	 * @return current generation
+	 */
+	synchronized int getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * @return number of samples written since the buffer was cleared
+	 */
+	synchronized long getWritten() {
+		return written;
+	}
+
+	/**
+	 * remove all samples and wake up all waiting threads
+	 *
+	 * @return new generation
+	 */
+	synchronized int clear() {
+		readIndex = 0;
+		size = 0;
+		written = 0;
+		endOfStream = false;
+		generation++;
+		notifyAll();
+		return generation;
+	}
+
+	/**
+	 * remove the samples written after a position, if none of them was read yet. This starts a new generation,
+	 * so a writer of the removed samples returns immediately
+	 *
+	 * @param position number of samples written since the buffer was cleared, samples written after it are removed
+	 * @return new generation or -1 if samples after the position were already read
+	 */
+	synchronized int truncate(long position) {
+		long removed = written - position;
+		if (removed < 0 || removed > size)
+			return -1;
+		size -= (int) removed;
+		written = position;
+		endOfStream = false;
+		generation++;
+		notifyAll();
+		return generation;
+	}
+
+	/**
+	 * mark the end of the stream, readers get the remaining samples and then the end of the stream
+	 */
+	synchronized void setEndOfStream() {
+		endOfStream = true;
+		notifyAll();
+	}
+
+	/**
+	 * write samples, waits until there is enough space
+	 *
+	 * @param src        interleaved samples
+	 * @param offset     index of the first sample
+	 * @param length     number of samples
+	 * @param generation generation of the writer
+	 * @return true if all samples are written, false if the buffer was cleared
+	 */
+	synchronized boolean write(short[] src, int offset, int length, int generation) throws InterruptedException {
+		while (length > 0) {
+			while (size == data.length && this.generation == generation) {
+				wait();
+			}
+			if (this.generation != generation)
+				return false;
+			int writeIndex = (readIndex + size) % data.length;
+			int count = Math.min(length, Math.min(data.length - size, data.length - writeIndex));
+			System.arraycopy(src, offset, data, writeIndex, count);
+			size += count;
+			written += count;
+			offset += count;
+			length -= count;
+			notifyAll();
+		}
+		return true;
+	}
+
+	/**
+	 * read whole frames, waits until samples are available
+	 *
+	 * @param dst        buffer to copy the samples
+	 * @param offset     index of the first sample of the destination buffer
+	 * @param length     max number of samples to read
+	 * @param generation generation of the reader
+	 * @return number of samples read, 0 if the buffer was cleared or -1 at the end of the stream
+	 */
+	synchronized int read(short[] dst, int offset, int length, int generation) throws InterruptedException {
+		while (size < channels && !endOfStream && this.generation == generation) {
+			wait();
+		}
+		if (this.generation != generation)
+			return 0;
+		if (size < channels)
+			return -1;
+		// don't split frames
+		int available = Math.min(length, size);
+		available -= available % channels;
+		int count = 0;
+		while (count < available) {
+			int part = Math.min(available - count, data.length - readIndex);
+			System.arraycopy(data, readIndex, dst, offset + count, part);
+			readIndex = (readIndex + part) % data.length;
+			size -= part;
+			count += part;
+		}
+		notifyAll();
+		return count;
+	}
+}
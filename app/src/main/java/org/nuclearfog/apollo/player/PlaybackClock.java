@@ -0,0 +1,155 @@
+package org.nuclearfog.apollo.player;
+
+import android.content.Intent;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Snapshot of the playback position at a given time. The current position is calculated from the snapshot,
+ * so clients don't need to ask the playback service for the position while a track plays steadily.
+ * A new snapshot is only needed when the playback state, the track or the position changes.
+ *
+ * @author nuclearfog
+ */
+public final class PlaybackClock {
+
+	/**
+	 * clock used if there is no information from the playback service
+	 */
+	public static final PlaybackClock EMPTY = new PlaybackClock(-1L, -1L, 0L, 1.0f, false);
+
+	private static final String EXTRA_POSITION = "clock_position";
+	private static final String EXTRA_DURATION = "clock_duration";
+	private static final String EXTRA_TIMESTAMP = "clock_timestamp";
+	private static final String EXTRA_SPEED = "clock_speed";
+	private static final String EXTRA_PLAYING = "clock_playing";
+
+	private final long position;
+	private final long duration;
+	private final long timestamp;
+	private final float speed;
+	private final boolean playing;
+
+	/**
+	 * @param position  playback position in milliseconds at the time of the snapshot
+	 * @param duration  duration of the current track in milliseconds
+	 * @param timestamp time of the snapshot, see {@link SystemClock#elapsedRealtime()}
+	 * @param speed     playback speed
+	 * @param playing   true if the track is playing
+	 */
+	public PlaybackClock(long position, long duration, long timestamp, float speed, boolean playing) {
+		this.position = position;
+		this.duration = duration;
+		this.timestamp = timestamp;
+		this.speed = speed;
+		this.playing = playing;
+	}
+
+	/**
+	 * create a snapshot of the current time
+	 *
+	 * @param position playback position in milliseconds
+	 * @param duration duration of the current track in milliseconds
+	 * @param playing  true if the track is playing
+	 */
+	public PlaybackClock(long position, long duration, boolean playing) {
+		this(position, duration, SystemClock.elapsedRealtime(), 1.0f, playing);
+	}
+
+	/**
+	 * get the playback clock attached to a broadcast of the playback service
+	 *
+	 * @return playback clock or null if not attached
+	 */
+	@Nullable
+	public static PlaybackClock fromIntent(Intent intent) {
+		if (!intent.hasExtra(EXTRA_TIMESTAMP))
+			return null;
+		long position = intent.getLongExtra(EXTRA_POSITION, -1L);
+		long duration = intent.getLongExtra(EXTRA_DURATION, -1L);
+		long timestamp = intent.getLongExtra(EXTRA_TIMESTAMP, 0L);
+		float speed = intent.getFloatExtra(EXTRA_SPEED, 1.0f);
+		boolean playing = intent.getBooleanExtra(EXTRA_PLAYING, false);
+		return new PlaybackClock(position, duration, timestamp, speed, playing);
+	}
+
+	/**
+	 * create a playback clock from an array created by {@link #toArray()}
+	 */
+	@NonNull
+	public static PlaybackClock fromArray(@Nullable long[] values) {
+		if (values == null || values.length < 5)
+			return EMPTY;
+		return new PlaybackClock(values[0], values[1], values[2], Float.intBitsToFloat((int) values[3]), values[4] != 0);
+	}
+
+	/**
+	 * attach this playback clock to a broadcast
+	 */
+	public void writeTo(Intent intent) {
+		intent.putExtra(EXTRA_POSITION, position);
+		intent.putExtra(EXTRA_DURATION, duration);
+		intent.putExtra(EXTRA_TIMESTAMP, timestamp);
+		intent.putExtra(EXTRA_SPEED, speed);
+		intent.putExtra(EXTRA_PLAYING, playing);
+	}
+
+	/**
+	 * convert this playback clock to an array, used to send it to clients
+	 */
+	@NonNull
+	public long[] toArray() {
+		return new long[]{position, duration, timestamp, Float.floatToIntBits(speed), playing ? 1L : 0L};
+	}
+
+	/**
+	 * get the current playback position
+	 *
+	 * @return position in milliseconds or -1 if there is no track
+	 */
+	public long getPosition() {
+		if (!playing || position < 0L)
+			return position;
+		long result = position + (long) ((SystemClock.elapsedRealtime() - timestamp) * speed);
+		if (duration > 0L && result > duration)
+			return duration;
+		return result;
+	}
+
+	/**
+	 * @return playback position in milliseconds at the time of the snapshot
+	 */
+	public long getSnapshotPosition() {
+		return position;
+	}
+
+	/**
+	 * @return time of the snapshot, see {@link SystemClock#elapsedRealtime()}
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * @return duration of the current track in milliseconds or -1 if there is no track
+	 */
+	public long getDuration() {
+		return duration;
+	}
+
+	/**
+	 * @return playback speed
+	 */
+	public float getSpeed() {
+		return speed;
+	}
+
+	/**
+	 * @return true if the track is playing
+	 */
+	public boolean isPlaying() {
+		return playing;
+	}
+}
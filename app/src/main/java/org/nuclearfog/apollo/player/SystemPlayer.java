@@ -0,0 +1,266 @@
+package org.nuclearfog.apollo.player;
+
+import android.content.Intent;
+import android.media.AudioAttributes;
+import android.media.AudioManager;
+import android.media.MediaPlayer;
+import android.media.MediaPlayer.OnCompletionListener;
+import android.media.MediaPlayer.OnErrorListener;
+import android.media.audiofx.AudioEffect;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Handler;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.nuclearfog.apollo.BuildConfig;
+import org.nuclearfog.apollo.provider.ReplayGainStore;
+import org.nuclearfog.apollo.service.MusicPlaybackService;
+import org.nuclearfog.apollo.utils.PlaybackMetrics;
+import org.nuclearfog.apollo.utils.PreferenceUtils;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * {@link MultiPlayer} implementation containing two MediaPlayer to switch fast tracks
+ */
+public class SystemPlayer implements MultiPlayer, OnErrorListener, OnCompletionListener {
+
+	private final WeakReference<MusicPlaybackService> mService;
+
+	private Handler mHandler;
+
+	private MediaPlayer mCurrentMediaPlayer;
+
+	@Nullable
+	private MediaPlayer mNextMediaPlayer;
+
+	private boolean mIsInitialized = false;
+
+	/**
+	 * volume set by the service, used for fading
+	 */
+	private float mVolume = 1.0f;
+
+	/**
+	 * ReplayGain volume factors of the current and the next player
+	 */
+	private float mCurrentGain = 1.0f, mNextGain = 1.0f;
+
+	/**
+	 * Constructor of <code>SystemPlayer</code>
+	 */
+	public SystemPlayer(MusicPlaybackService service) {
+		mService = new WeakReference<>(service);
+		mCurrentMediaPlayer = createPlayer();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean onError(MediaPlayer mp, int what, int extra) {
+		if (what == MediaPlayer.MEDIA_ERROR_SERVER_DIED) {
+			mIsInitialized = false;
+			mCurrentMediaPlayer.reset();
+			mHandler.sendMessageDelayed(mHandler.obtainMessage(MusicPlaybackService.MESSAGE_SERVER_DIED), 2000);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void onCompletion(MediaPlayer mp) {
+		if (mp == mCurrentMediaPlayer && mNextMediaPlayer != null) {
+			// switch to next player
+			mCurrentMediaPlayer.release();
+			mCurrentMediaPlayer = mNextMediaPlayer;
+			mCurrentGain = mNextGain;
+			mNextMediaPlayer = null;
+			//
+			mHandler.sendEmptyMessage(MusicPlaybackService.MESSAGE_TRACK_WENT_TO_NEXT);
+		} else {
+			mHandler.sendEmptyMessage(MusicPlaybackService.MESSAGE_TRACK_ENDED);
+		}
+	}
+
+	@Override
+	public void setDataSource(Uri uri) {
+		mIsInitialized = setDataSourceImpl(mCurrentMediaPlayer, uri);
+		if (mIsInitialized) {
+			mCurrentGain = getGain(uri);
+			setVolume(mVolume);
+			resetNextPlayer();
+		}
+	}
+
+	@Override
+	public void setNextDataSource(@NonNull Uri uri) {
+		try {
+			mNextMediaPlayer = createPlayer();
+			mNextMediaPlayer.setAudioSessionId(getAudioSessionId());
+			if (setDataSourceImpl(mNextMediaPlayer, uri)) {
+				// apply the gain before the next player starts
+				mNextGain = getGain(uri);
+				mNextMediaPlayer.setVolume(mVolume * mNextGain, mVolume * mNextGain);
+				// prepare next player
+				mCurrentMediaPlayer.setNextMediaPlayer(mNextMediaPlayer);
+			} else {
+				// an error occured, reset next player
+				resetNextPlayer();
+			}
+		} catch (Exception err) {
+			if (BuildConfig.DEBUG) {
+				err.printStackTrace();
+			}
+		}
+	}
+
+	@Override
+	public void resetNextPlayer() {
+		try {
+			mCurrentMediaPlayer.setNextMediaPlayer(null);
+			if (mNextMediaPlayer != null) {
+				mNextMediaPlayer.release();
+				mNextMediaPlayer = null;
+			}
+		} catch (Exception err) {
+			if (BuildConfig.DEBUG) {
+				err.printStackTrace();
+			}
+		}
+	}
+
+	@Override
+	public void setHandler(Handler handler) {
+		mHandler = handler;
+	}
+
+	@Override
+	public boolean isInitialized() {
+		return mIsInitialized;
+	}
+
+	@Override
+	public void start() {
+		mCurrentMediaPlayer.start();
+	}
+
+	@Override
+	public void stop() {
+		mCurrentMediaPlayer.reset();
+		mIsInitialized = false;
+	}
+
+	@Override
+	public void release() {
+		stop();
+		mCurrentMediaPlayer.release();
+	}
+
+	@Override
+	public void pause() {
+		mCurrentMediaPlayer.pause();
+	}
+
+	@Override
+	public long duration() {
+		return mCurrentMediaPlayer.getDuration();
+	}
+
+	@Override
+	public long position() {
+		return mCurrentMediaPlayer.getCurrentPosition();
+	}
+
+	@Override
+	public void seek(long whereto) {
+		mCurrentMediaPlayer.seekTo((int) whereto);
+	}
+
+	@Override
+	public void setVolume(float vol) {
+		mVolume = vol;
+		mCurrentMediaPlayer.setVolume(vol * mCurrentGain, vol * mCurrentGain);
+		if (mNextMediaPlayer != null) {
+			mNextMediaPlayer.setVolume(vol * mNextGain, vol * mNextGain);
+		}
+	}
+
+	@Override
+	public int getAudioSessionId() {
+		return mCurrentMediaPlayer.getAudioSessionId();
+	}
+
+	/**
+	 * get the ReplayGain volume factor of a track
+	 *
+	 * @param uri content uri of the track
+	 * @return volume factor or 1 if not available
+	 */
+	private float getGain(Uri uri) {
+		MusicPlaybackService musicService = mService.get();
+		if (musicService != null) {
+			int mode = PreferenceUtils.getInstance(musicService).getReplayGainMode();
+			return ReplayGainStore.getInstance(musicService).getVolume(uri, mode);
+		}
+		return 1.0f;
+	}
+
+	/**
+	 * create and configure MediaPlayer instance
+	 *
+	 * @return player
+	 */
+	private MediaPlayer createPlayer() {
+		MediaPlayer player = new MediaPlayer();
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+			AudioAttributes attr = new AudioAttributes.Builder()
+					.setContentType(AudioAttributes.CONTENT_TYPE_MUSIC)
+					.setUsage(AudioAttributes.USAGE_MEDIA).build();
+			player.setAudioAttributes(attr);
+		}
+		return player;
+	}
+
+	/**
+	 * @param player The {@link MediaPlayer} to use
+	 * @param uri   The path of the file, or the http/rtsp URL of the stream
+	 *               you want to play
+	 * @return True if the <code>player</code> has been prepared and is
+	 * ready to play, false otherwise
+	 */
+	private boolean setDataSourceImpl(MediaPlayer player, @NonNull Uri uri) {
+		MusicPlaybackService musicService = mService.get();
+		if (musicService != null) {
+			long start = PlaybackMetrics.begin(PlaybackMetrics.PREPARE);
+			try {
+				player.reset();
+				player.setOnPreparedListener(null);
+				player.setDataSource(musicService.getApplicationContext(), uri);
+				player.setAudioStreamType(AudioManager.STREAM_MUSIC);
+				player.prepare();
+			} catch (Exception err) {
+				if (BuildConfig.DEBUG) {
+					err.printStackTrace();
+				}
+				PlaybackMetrics.count(PlaybackMetrics.PREPARE_FAILED);
+				return false;
+			} finally {
+				PlaybackMetrics.end(PlaybackMetrics.PREPARE, start);
+			}
+			player.setOnCompletionListener(this);
+			player.setOnErrorListener(this);
+			Intent intent = new Intent(AudioEffect.ACTION_OPEN_AUDIO_EFFECT_CONTROL_SESSION);
+			intent.putExtra(AudioEffect.EXTRA_AUDIO_SESSION, getAudioSessionId());
+			intent.putExtra(AudioEffect.EXTRA_PACKAGE_NAME, MusicPlaybackService.APOLLO_PACKAGE_NAME);
+			musicService.sendBroadcast(intent);
+			return true;
+		}
+		return false;
+	}
+}
\ No newline at end of file
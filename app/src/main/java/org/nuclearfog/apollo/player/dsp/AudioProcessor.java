@@ -0,0 +1,33 @@
+package org.nuclearfog.apollo.player.dsp;
+
+/**
+ * Processing step of a {@link DspChain}. Processors work in place on interleaved float PCM samples in the range of -1 to 1.
+ * All buffers are allocated in {@link #configure(int, int)}, {@link #process(float[], int, int)} must not allocate memory.
+ * Parameters may be changed from other threads, changes are applied with the next block.
+ *
+ * @author nuclearfog
+ */
+public interface AudioProcessor {
+
+	/**
+	 * prepare the processor for a new audio format, resets the processor
+	 *
+	 * @param sampleRate sample rate in Hz
+	 * @param channels   number of interleaved channels
+	 */
+	void configure(int sampleRate, int channels);
+
+	/**
+	 * process a block of samples in place
+	 *
+	 * @param buffer interleaved samples
+	 * @param offset index of the first sample
+	 * @param frames number of frames (samples per channel)
+	 */
+	void process(float[] buffer, int offset, int frames);
+
+	/**
+	 * clear the internal state, used after seeking or switching tracks
+	 */
+	void reset();
+}
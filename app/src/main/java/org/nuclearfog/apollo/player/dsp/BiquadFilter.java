@@ -0,0 +1,265 @@
+package org.nuclearfog.apollo.player.dsp;
+
+/**
+ * Second order IIR filter (biquad) with peaking and shelving responses, coefficients from the
+ * "Audio EQ Cookbook" by Robert Bristow-Johnson. Uses the transposed direct form II with a state per channel.
+ * Parameter changes crossfade from the previous filter to the new filter, so changing the gain or enabling the filter doesn't click.
+ *
+ * @author nuclearfog
+ */
+public final class BiquadFilter implements AudioProcessor {
+
+	/**
+	 * peaking filter, boosts or cuts around the center frequency
+	 */
+	public static final int PEAKING = 0;
+
+	/**
+	 * low shelf filter, boosts or cuts below the corner frequency
+	 */
+	public static final int LOW_SHELF = 1;
+
+	/**
+	 * high shelf filter, boosts or cuts above the corner frequency
+	 */
+	public static final int HIGH_SHELF = 2;
+
+	/**
+	 * duration of the crossfade after a parameter change in milliseconds
+	 */
+	private static final int FADE_MILLIS = 10;
+
+	private final int type;
+
+	private volatile double frequency, gain, q;
+	private volatile boolean changed = true;
+
+	private int sampleRate = 44100;
+	private int channels = 0;
+	private double b0, b1, b2, a1, a2;
+	private double[] z1 = {}, z2 = {};
+	private boolean bypass = true;
+	private boolean flat = true;
+
+	/**
+	 * coefficients and state of the previous filter, used while crossfading
+	 */
+	private double pb0, pb1, pb2, pa1, pa2;
+	private double[] pz1 = {}, pz2 = {};
+
+	/**
+	 * length and position of the crossfade in frames
+	 */
+	private int fadeFrames = 1, fadePosition = 1;
+
+	/**
+	 * @param type      filter type {@link #PEAKING,#LOW_SHELF,#HIGH_SHELF}
+	 * @param frequency center or corner frequency in Hz
+	 * @param gain      gain in dB
+	 * @param q         quality factor, higher values for a narrower band
+	 */
+	public BiquadFilter(int type, double frequency, double gain, double q) {
+		this.type = type;
+		this.frequency = frequency;
+		this.gain = gain;
+		this.q = q;
+	}
+
+
+	@Override
+	public void configure(int sampleRate, int channels) {
+		this.sampleRate = sampleRate;
+		this.channels = channels;
+		z1 = new double[channels];
+		z2 = new double[channels];
+		pz1 = new double[channels];
+		pz2 = new double[channels];
+		fadeFrames = Math.max(sampleRate * FADE_MILLIS / 1000, 1);
+		// a new format starts without a crossfade
+		changed = false;
+		updateCoefficients();
+		bypass = flat;
+		fadePosition = fadeFrames;
+	}
+
+
+	@Override
+	public void process(float[] buffer, int offset, int frames) {
+		if (changed) {
+			changed = false;
+			startFade();
+		}
+		if (bypass)
+			return;
+		if (fadePosition < fadeFrames) {
+			processFade(buffer, offset, frames);
+			return;
+		}
+		int end = offset + frames * channels;
+		for (int c = 0; c < channels; c++) {
+			double s1 = z1[c];
+			double s2 = z2[c];
+			for (int i = offset + c; i < end; i += channels) {
+				double in = buffer[i];
+				double out = b0 * in + s1;
+				s1 = b1 * in - a1 * out + s2;
+				s2 = b2 * in - a2 * out;
+				buffer[i] = (float) out;
+			}
+			z1[c] = s1;
+			z2[c] = s2;
+		}
+	}
+
+
+	@Override
+	public void reset() {
+		for (int c = 0; c < channels; c++) {
+			z1[c] = 0.0;
+			z2[c] = 0.0;
+			pz1[c] = 0.0;
+			pz2[c] = 0.0;
+		}
+	}
+
+	/**
+	 * set the gain of the filter
+	 *
+	 * @param gain gain in dB
+	 */
+	public void setGain(double gain) {
+		this.gain = gain;
+		changed = true;
+	}
+
+	/**
+	 * set the frequency of the filter
+	 *
+	 * @param frequency center or corner frequency in Hz
+	 */
+	public void setFrequency(double frequency) {
+		this.frequency = frequency;
+		changed = true;
+	}
+
+	/**
+	 * @return gain in dB
+	 */
+	public double getGain() {
+		return gain;
+	}
+
+	/**
+	 * keep the current filter and start a crossfade to a filter with the new parameters
+	 */
+	private void startFade() {
+		if (bypass) {
+			// fade from the unfiltered signal
+			pb0 = 1.0;
+			pb1 = pb2 = pa1 = pa2 = 0.0;
+			reset();
+		} else {
+			pb0 = b0;
+			pb1 = b1;
+			pb2 = b2;
+			pa1 = a1;
+			pa2 = a2;
+			System.arraycopy(z1, 0, pz1, 0, channels);
+			System.arraycopy(z2, 0, pz2, 0, channels);
+		}
+		updateCoefficients();
+		bypass = false;
+		fadePosition = 0;
+	}
+
+	/**
+	 * process a block with the previous and the new filter and crossfade linearly between both outputs
+	 */
+	private void processFade(float[] buffer, int offset, int frames) {
+		int end = offset + frames * channels;
+		for (int c = 0; c < channels; c++) {
+			double s1 = z1[c];
+			double s2 = z2[c];
+			double p1 = pz1[c];
+			double p2 = pz2[c];
+			int position = fadePosition;
+			for (int i = offset + c; i < end; i += channels) {
+				double in = buffer[i];
+				double out = b0 * in + s1;
+				s1 = b1 * in - a1 * out + s2;
+				s2 = b2 * in - a2 * out;
+				double prev = pb0 * in + p1;
+				p1 = pb1 * in - pa1 * prev + p2;
+				p2 = pb2 * in - pa2 * prev;
+				double mix = Math.min((double) position / fadeFrames, 1.0);
+				buffer[i] = (float) (prev + (out - prev) * mix);
+				position++;
+			}
+			z1[c] = s1;
+			z2[c] = s2;
+			pz1[c] = p1;
+			pz2[c] = p2;
+		}
+		fadePosition += frames;
+		if (fadePosition >= fadeFrames && flat) {
+			// the new filter doesn't change the signal
+			bypass = true;
+			reset();
+		}
+	}
+
+	/**
+	 * calculate the normalized filter coefficients, a flat filter passes the signal unchanged
+	 */
+	private void updateCoefficients() {
+		double gain = this.gain;
+		flat = Math.abs(gain) < 0.01;
+		if (flat) {
+			b0 = 1.0;
+			b1 = b2 = a1 = a2 = 0.0;
+			return;
+		}
+		double freq = Math.min(Math.max(frequency, 10.0), sampleRate * 0.49);
+		double a = Math.pow(10.0, gain / 40.0);
+		double w0 = 2.0 * Math.PI * freq / sampleRate;
+		double cos = Math.cos(w0);
+		double alpha = Math.sin(w0) / (2.0 * q);
+		double nb0, nb1, nb2, na0, na1, na2;
+		switch (type) {
+			case LOW_SHELF:
+				double ls = 2.0 * Math.sqrt(a) * alpha;
+				nb0 = a * ((a + 1.0) - (a - 1.0) * cos + ls);
+				nb1 = 2.0 * a * ((a - 1.0) - (a + 1.0) * cos);
+				nb2 = a * ((a + 1.0) - (a - 1.0) * cos - ls);
+				na0 = (a + 1.0) + (a - 1.0) * cos + ls;
+				na1 = -2.0 * ((a - 1.0) + (a + 1.0) * cos);
+				na2 = (a + 1.0) + (a - 1.0) * cos - ls;
+				break;
+
+			case HIGH_SHELF:
+				double hs = 2.0 * Math.sqrt(a) * alpha;
+				nb0 = a * ((a + 1.0) + (a - 1.0) * cos + hs);
+				nb1 = -2.0 * a * ((a - 1.0) + (a + 1.0) * cos);
+				nb2 = a * ((a + 1.0) + (a - 1.0) * cos - hs);
+				na0 = (a + 1.0) - (a - 1.0) * cos + hs;
+				na1 = 2.0 * ((a - 1.0) - (a + 1.0) * cos);
+				na2 = (a + 1.0) - (a - 1.0) * cos - hs;
+				break;
+
+			default:
+			case PEAKING:
+				nb0 = 1.0 + alpha * a;
+				nb1 = -2.0 * cos;
+				nb2 = 1.0 - alpha * a;
+				na0 = 1.0 + alpha / a;
+				na1 = -2.0 * cos;
+				na2 = 1.0 - alpha / a;
+				break;
+		}
+		b0 = nb0 / na0;
+		b1 = nb1 / na0;
+		b2 = nb2 / na0;
+		a1 = na1 / na0;
+		a2 = na2 / na0;
+	}
+}
@@ -0,0 +1,103 @@
+package org.nuclearfog.apollo.player.dsp;
+
+/**
+ * Equal power crossfade between two streams with the same format.
+ * The fade curve is calculated once in the constructor.
+ *
+ * @author nuclearfog
+ */
+public final class Crossfader {
+
+	/**
+	 * number of entries of the fade curve
+	 */
+	private static final int CURVE_SIZE = 1024;
+
+	private final float[] fadeIn = new float[CURVE_SIZE + 1];
+	private final float[] fadeOut = new float[CURVE_SIZE + 1];
+
+	private int sampleRate = 44100;
+	private int channels = 0;
+	private int length = 0;
+	private int position = 0;
+
+	public Crossfader() {
+		for (int i = 0; i <= CURVE_SIZE; i++) {
+			double angle = 0.5 * Math.PI * i / CURVE_SIZE;
+			fadeIn[i] = (float) Math.sin(angle);
+			fadeOut[i] = (float) Math.cos(angle);
+		}
+	}
+
+	/**
+	 * set the audio format of both streams
+	 *
+	 * @param sampleRate sample rate in Hz
+	 * @param channels   number of interleaved channels
+	 */
+	public void configure(int sampleRate, int channels) {
+		this.sampleRate = sampleRate;
+		this.channels = channels;
+		length = 0;
+		position = 0;
+	}
+
+	/**
+	 * start a new crossfade
+	 *
+	 * @param duration duration of the crossfade in milliseconds
+	 */
+	public void start(int duration) {
+		length = Math.max((int) ((long) sampleRate * duration / 1000L), 1);
+		position = 0;
+	}
+
+	/**
+	 * stop the current crossfade
+	 */
+	public void stop() {
+		length = 0;
+		position = 0;
+	}
+
+	/**
+	 * @return true if a crossfade is running
+	 */
+	public boolean isActive() {
+		return length > 0 && position < length;
+	}
+
+	/**
+	 * @return true if the last crossfade reached the end, the outgoing stream can be released
+	 */
+	public boolean isFinished() {
+		return length > 0 && position >= length;
+	}
+
+	/**
+	 * mix a block of both streams into the output. Frames after the end of the crossfade are copied from the incoming stream.
+	 *
+	 * @param outgoing samples of the stream fading out
+	 * @param incoming samples of the stream fading in
+	 * @param output   buffer to write the mix, may be one of the input buffers
+	 * @param offset   index of the first sample in all buffers
+	 * @param frames   number of frames to mix
+	 */
+	public void mix(float[] outgoing, float[] incoming, float[] output, int offset, int frames) {
+		int index = offset;
+		for (int frame = 0; frame < frames; frame++) {
+			float gainOut = 0.0f;
+			float gainIn = 1.0f;
+			if (position < length) {
+				int pos = (int) ((long) position * CURVE_SIZE / length);
+				gainOut = fadeOut[pos];
+				gainIn = fadeIn[pos];
+				position++;
+			}
+			for (int c = 0; c < channels; c++) {
+				output[index] = outgoing[index] * gainOut + incoming[index] * gainIn;
+				index++;
+			}
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package org.nuclearfog.apollo.player.dsp;
+
+/**
+ * Chain of {@link AudioProcessor} used to process decoded PCM data before it is written to the audio output.
+ * The conversion buffer is allocated in {@link #configure(int, int, int)} so processing a block doesn't allocate memory.
+ * This class has no Android dependencies and can be used in plain JVM tests.
+ *
+ * @author nuclearfog
+ */
+public final class DspChain {
+
+	/**
+	 * scale factor between 16 bit PCM and float samples
+	 */
+	private static final float PCM_16_SCALE = 32768.0f;
+
+	private final AudioProcessor[] processors;
+
+	private float[] buffer = {};
+	private int channels = 0;
+
+	/**
+	 * @param processors processors in the order they are applied
+	 */
+	public DspChain(AudioProcessor... processors) {
+		this.processors = processors.clone();
+	}
+
+	/**
+	 * prepare the chain for a new audio format
+	 *
+	 * @param sampleRate sample rate in Hz
+	 * @param channels   number of interleaved channels
+	 * @param maxFrames  max number of frames of a single block
+	 */
+	public void configure(int sampleRate, int channels, int maxFrames) {
+		this.channels = channels;
+		if (buffer.length < maxFrames * channels) {
+			buffer = new float[maxFrames * channels];
+		}
+		for (AudioProcessor processor : processors) {
+			processor.configure(sampleRate, channels);
+		}
+	}
+
+	/**
+	 * process a block of float samples in place
+	 *
+	 * @param samples interleaved samples
+	 * @param offset  index of the first sample
+	 * @param frames  number of frames
+	 */
+	public void process(float[] samples, int offset, int frames) {
+		for (AudioProcessor processor : processors) {
+			processor.process(samples, offset, frames);
+		}
+	}
+
+	/**
+	 * process a block of 16 bit PCM samples in place. Blocks larger than the configured size are processed in parts.
+	 *
+	 * @param pcm    interleaved 16 bit samples
+	 * @param offset index of the first sample
+	 * @param frames number of frames
+	 */
+	public void process(short[] pcm, int offset, int frames) {
+		int maxFrames = channels > 0 ? buffer.length / channels : 0;
+		while (frames > 0 && maxFrames > 0) {
+			int count = Math.min(frames, maxFrames);
+			int samples = count * channels;
+			for (int i = 0; i < samples; i++) {
+				buffer[i] = pcm[offset + i] / PCM_16_SCALE;
+			}
+			process(buffer, 0, count);
+			for (int i = 0; i < samples; i++) {
+				float sample = buffer[i] * PCM_16_SCALE;
+				if (sample > Short.MAX_VALUE) {
+					pcm[offset + i] = Short.MAX_VALUE;
+				} else if (sample < Short.MIN_VALUE) {
+					pcm[offset + i] = Short.MIN_VALUE;
+				} else {
+					pcm[offset + i] = (short) sample;
+				}
+			}
+			offset += samples;
+			frames -= count;
+		}
+	}
+
+	/**
+	 * clear the state of all processors, used after seeking or switching tracks
+	 */
+	public void reset() {
+		for (AudioProcessor processor : processors) {
+			processor.reset();
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package org.nuclearfog.apollo.player.dsp;
+
+/**
+ * Applies a gain to all channels, used as preamp and for loudness normalization.
+ * Gain changes are ramped over a few milliseconds to avoid clicks.
+ *
+ * @author nuclearfog
+ */
+public final class GainProcessor implements AudioProcessor {
+
+	/**
+	 * duration of a gain change in milliseconds
+	 */
+	private static final int RAMP_MILLIS = 20;
+
+	private volatile float target = 1.0f;
+
+	private float current = 1.0f;
+	private float rampTarget = 1.0f;
+	private float step = 0.0f;
+	private int channels = 0;
+	private int rampFrames = 1;
+
+
+	@Override
+	public void configure(int sampleRate, int channels) {
+		this.channels = channels;
+		rampFrames = Math.max(sampleRate * RAMP_MILLIS / 1000, 1);
+		current = target;
+		rampTarget = target;
+		step = 0.0f;
+	}
+
+
+	@Override
+	public void process(float[] buffer, int offset, int frames) {
+		float target = this.target;
+		if (current == target) {
+			if (target != 1.0f) {
+				int end = offset + frames * channels;
+				for (int i = offset; i < end; i++) {
+					buffer[i] *= target;
+				}
+			}
+			return;
+		}
+		if (rampTarget != target) {
+			// new target, calculate the ramp
+			rampTarget = target;
+			step = (target - current) / rampFrames;
+		}
+		int index = offset;
+		for (int frame = 0; frame < frames; frame++) {
+			if (current != target) {
+				current += step;
+				if ((step > 0.0f && current >= target) || (step < 0.0f && current <= target)) {
+					current = target;
+					step = 0.0f;
+				}
+			}
+			for (int c = 0; c < channels; c++) {
+				buffer[index++] *= current;
+			}
+		}
+	}
+
+
+	@Override
+	public void reset() {
+		current = target;
+		rampTarget = target;
+		step = 0.0f;
+	}
+
+	/**
+	 * set the gain as linear factor
+	 *
+	 * @param gain volume factor, 1 to leave the signal unchanged
+	 */
+	public void setGain(float gain) {
+		target = Math.max(gain, 0.0f);
+	}
+
+	/**
+	 * set the gain in dB
+	 *
+	 * @param decibel gain in dB, 0 to leave the signal unchanged
+	 */
+	public void setGainDecibel(float decibel) {
+		setGain((float) Math.pow(10.0, decibel / 20.0));
+	}
+}
@@ -0,0 +1,71 @@
+package org.nuclearfog.apollo.player.dsp;
+
+/**
+ * Peak limiter keeping the signal below a threshold, so gains added by the equalizer or the preamp don't clip.
+ * The gain reduction follows peaks immediately and recovers with the release time.
+ *
+ * @author nuclearfog
+ */
+public final class Limiter implements AudioProcessor {
+
+	/**
+	 * release time of the gain reduction in milliseconds
+	 */
+	private static final int RELEASE_MILLIS = 150;
+
+	private volatile float threshold;
+
+	private float envelope = 0.0f;
+	private float release = 0.0f;
+	private int channels = 0;
+
+	/**
+	 * @param threshold max amplitude of the output, between 0 and 1
+	 */
+	public Limiter(float threshold) {
+		this.threshold = threshold;
+	}
+
+
+	@Override
+	public void configure(int sampleRate, int channels) {
+		this.channels = channels;
+		release = (float) Math.exp(-1.0 / (sampleRate * RELEASE_MILLIS / 1000.0));
+		envelope = 0.0f;
+	}
+
+
+	@Override
+	public void process(float[] buffer, int offset, int frames) {
+		float threshold = this.threshold;
+		int index = offset;
+		for (int frame = 0; frame < frames; frame++) {
+			// peak of all channels
+			float peak = 0.0f;
+			for (int c = 0; c < channels; c++) {
+				peak = Math.max(peak, Math.abs(buffer[index + c]));
+			}
+			envelope = peak > envelope ? peak : envelope * release + peak * (1.0f - release);
+			if (envelope > threshold) {
+				float gain = threshold / envelope;
+				for (int c = 0; c < channels; c++) {
+					buffer[index + c] *= gain;
+				}
+			}
+			index += channels;
+		}
+	}
+
+
+	@Override
+	public void reset() {
+		envelope = 0.0f;
+	}
+
+	/**
+	 * @param threshold max amplitude of the output, between 0 and 1
+	 */
+	public void setThreshold(float threshold) {
+		this.threshold = threshold;
+	}
+}
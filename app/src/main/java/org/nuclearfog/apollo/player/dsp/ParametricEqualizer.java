@@ -0,0 +1,85 @@
+package org.nuclearfog.apollo.player.dsp;
+
+/**
+ * Equalizer with a fixed number of bands. The lowest band is a low shelf, the highest band a high shelf
+ * and all bands between are peaking filters.
+ *
+ * @author nuclearfog
+ */
+public final class ParametricEqualizer implements AudioProcessor {
+
+	/**
+	 * quality factor of the bands, wide enough for bands about two octaves apart
+	 */
+	private static final double BAND_Q = 0.9;
+
+	private final BiquadFilter[] filters;
+
+	/**
+	 * @param frequencies center frequencies of the bands in Hz, starting with the lowest frequency
+	 */
+	public ParametricEqualizer(int[] frequencies) {
+		filters = new BiquadFilter[frequencies.length];
+		for (int i = 0; i < frequencies.length; i++) {
+			int type = BiquadFilter.PEAKING;
+			if (frequencies.length > 2 && i == 0) {
+				type = BiquadFilter.LOW_SHELF;
+			} else if (frequencies.length > 2 && i == frequencies.length - 1) {
+				type = BiquadFilter.HIGH_SHELF;
+			}
+			filters[i] = new BiquadFilter(type, frequencies[i], 0.0, BAND_Q);
+		}
+	}
+
+
+	@Override
+	public void configure(int sampleRate, int channels) {
+		for (BiquadFilter filter : filters) {
+			filter.configure(sampleRate, channels);
+		}
+	}
+
+
+	@Override
+	public void process(float[] buffer, int offset, int frames) {
+		for (BiquadFilter filter : filters) {
+			filter.process(buffer, offset, frames);
+		}
+	}
+
+
+	@Override
+	public void reset() {
+		for (BiquadFilter filter : filters) {
+			filter.reset();
+		}
+	}
+
+	/**
+	 * @return number of bands
+	 */
+	public int getBandCount() {
+		return filters.length;
+	}
+
+	/**
+	 * set the level of a band
+	 *
+	 * @param band  index of the band
+	 * @param level level in mB, the unit used by the platform equalizer
+	 */
+	public void setBandLevel(int band, int level) {
+		filters[band].setGain(level / 100.0);
+	}
+
+	/**
+	 * set the levels of all bands
+	 *
+	 * @param levels levels in mB starting with the lowest band, missing bands are set to 0
+	 */
+	public void setBandLevels(int[] levels) {
+		for (int i = 0; i < filters.length; i++) {
+			filters[i].setGain(i < levels.length ? levels[i] / 100.0 : 0.0);
+		}
+	}
+}
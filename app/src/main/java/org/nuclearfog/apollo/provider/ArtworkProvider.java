@@ -0,0 +1,129 @@
+package org.nuclearfog.apollo.provider;
+
+import android.content.ContentProvider;
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.ParcelFileDescriptor;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.nuclearfog.apollo.BuildConfig;
+import org.nuclearfog.apollo.cache.ImageCache;
+
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Read-only provider serving the album artwork to other apps like media browser clients (e.g. car or watch apps),
+ * which can't read the artwork of the MediaStore. Clients need a permission granted with {@link Context#grantUriPermission}
+ *
+ * @author nuclearfog
+ */
+public class ArtworkProvider extends ContentProvider implements ContentProvider.PipeDataWriter<Bitmap> {
+
+	/**
+	 * base uri of the album artwork
+	 */
+	public static final Uri CONTENT_URI = Uri.parse("content://" + BuildConfig.APPLICATION_ID + ".artwork");
+
+	private static final String MIME_TYPE = "image/jpeg";
+
+	/**
+	 * quality of the compressed artwork
+	 */
+	private static final int QUALITY = 90;
+
+	/**
+	 * get the uri of an album artwork
+	 *
+	 * @param albumId ID of the album
+	 */
+	public static Uri getAlbumArtUri(long albumId) {
+		return ContentUris.withAppendedId(CONTENT_URI, albumId);
+	}
+
+
+	@Override
+	public boolean onCreate() {
+		return true;
+	}
+
+
+	@Nullable
+	@Override
+	public ParcelFileDescriptor openFile(@NonNull Uri uri, @NonNull String mode) throws FileNotFoundException {
+		Context context = getContext();
+		if (context == null || !"r".equals(mode))
+			throw new FileNotFoundException("read only: " + uri);
+		long albumId;
+		try {
+			albumId = ContentUris.parseId(uri);
+		} catch (NumberFormatException exception) {
+			throw new FileNotFoundException("invalid album ID: " + uri);
+		}
+		Bitmap artwork = ImageCache.getInstance(context).getArtworkFromFile(context, albumId);
+		if (artwork == null)
+			throw new FileNotFoundException("no artwork found: " + uri);
+		return openPipeHelper(uri, MIME_TYPE, null, artwork, this);
+	}
+
+
+	@Override
+	public void writeDataToPipe(@NonNull ParcelFileDescriptor output, @NonNull Uri uri, @NonNull String mimeType, @Nullable Bundle opts, @Nullable Bitmap artwork) {
+		if (artwork == null)
+			return;
+		OutputStream stream = new FileOutputStream(output.getFileDescriptor());
+		try {
+			artwork.compress(Bitmap.CompressFormat.JPEG, QUALITY, stream);
+		} finally {
+			try {
+				stream.close();
+			} catch (IOException exception) {
+				if (BuildConfig.DEBUG) {
+					exception.printStackTrace();
+				}
+			}
+		}
+	}
+
+
+	@Nullable
+	@Override
+	public String getType(@NonNull Uri uri) {
+		return MIME_TYPE;
+	}
+
+
+	@Nullable
+	@Override
+	public Cursor query(@NonNull Uri uri, @Nullable String[] projection, @Nullable String selection, @Nullable String[] selectionArgs, @Nullable String sortOrder) {
+		return null;
+	}
+
+
+	@Nullable
+	@Override
+	public Uri insert(@NonNull Uri uri, @Nullable ContentValues values) {
+		return null;
+	}
+
+
+	@Override
+	public int delete(@NonNull Uri uri, @Nullable String selection, @Nullable String[] selectionArgs) {
+		return 0;
+	}
+
+
+	@Override
+	public int update(@NonNull Uri uri, @Nullable ContentValues values, @Nullable String selection, @Nullable String[] selectionArgs) {
+		return 0;
+	}
+}
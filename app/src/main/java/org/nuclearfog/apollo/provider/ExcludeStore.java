@@ -5,6 +5,9 @@ import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.net.Uri;
+
+import org.nuclearfog.apollo.BuildConfig;
 
 import java.util.Set;
 import java.util.TreeSet;
@@ -14,6 +17,11 @@ import java.util.TreeSet;
  */
 public class ExcludeStore extends SQLiteOpenHelper {
 
+	/**
+	 * uri notified after the exclude list changed, can be observed from any process with a {@link android.database.ContentObserver}
+	 */
+	public static final Uri CONTENT_URI = Uri.parse("content://" + BuildConfig.APPLICATION_ID + ".exclude");
+
 	/**
 	 * database filename
 	 */
@@ -39,11 +47,14 @@ public class ExcludeStore extends SQLiteOpenHelper {
 
 	private static ExcludeStore sInstance;
 
+	private Context context;
+
 	/**
 	 *
 	 */
 	private ExcludeStore(Context context) {
 		super(context, DB_NAME, null, VERSION);
+		this.context = context;
 	}
 
 	/**
@@ -86,6 +97,7 @@ public class ExcludeStore extends SQLiteOpenHelper {
 			database.setTransactionSuccessful();
 			database.endTransaction();
 		}
+		context.getContentResolver().notifyChange(CONTENT_URI, null);
 	}
 
 	/**
@@ -101,6 +113,7 @@ public class ExcludeStore extends SQLiteOpenHelper {
 			database.setTransactionSuccessful();
 			database.endTransaction();
 		}
+		context.getContentResolver().notifyChange(CONTENT_URI, null);
 	}
 
 	/**
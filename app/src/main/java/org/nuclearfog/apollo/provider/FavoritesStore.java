@@ -15,19 +15,37 @@ import static android.database.sqlite.SQLiteDatabase.CONFLICT_REPLACE;
 
 import android.content.ContentValues;
 import android.content.Context;
+import android.database.ContentObserver;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.net.Uri;
 
 import androidx.annotation.NonNull;
 
+import org.nuclearfog.apollo.BuildConfig;
 import org.nuclearfog.apollo.model.Song;
 
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 /**
+ * Database of the favorite tracks. The IDs of all favorites are kept in memory, so checking a track doesn't access the database.
+ * Changes are applied to the memory first and written to the database in the background, one transaction per change
+ * and in the same order as they were made. Every process reloads the IDs after another process changed the favorites.
+ *
  * @author Andrew Neal (andrewdneal@gmail.com)
  */
 public class FavoritesStore extends SQLiteOpenHelper {
 
+	/**
+	 * uri notified after the favorites changed, can be observed from any process with a {@link ContentObserver}
+	 */
+	public static final Uri CONTENT_URI = Uri.parse("content://" + BuildConfig.APPLICATION_ID + ".favorites");
+
 	/**
 	 * column projection of favorite table
 	 */
@@ -39,6 +57,11 @@ public class FavoritesStore extends SQLiteOpenHelper {
 			FavoriteColumns.PLAYCOUNT
 	};
 
+	/**
+	 * column projection used to load the favorite IDs
+	 */
+	private static final String[] ID_COLUMNS = {FavoriteColumns.ID};
+
 	/**
 	 * query to create favorite table
 	 */
@@ -65,16 +88,39 @@ public class FavoritesStore extends SQLiteOpenHelper {
 	 */
 	private static final int VERSION = 2;
 
+	/**
+	 * thread used to load the favorites and to write all changes in order
+	 */
+	private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor();
+
 	/**
 	 * singleton instance
 	 */
 	private static FavoritesStore sInstance;
 
 	/**
-	 *
+	 * lock used to change the favorite IDs and to queue the database writes in the same order
 	 */
 	private final Object LOCK = new Object();
 
+	/**
+	 * released after the favorite IDs are loaded
+	 */
+	private final CountDownLatch loaded = new CountDownLatch(1);
+
+	/**
+	 * IDs of all favorite tracks, replaced on every change
+	 */
+	private volatile IdSet favorites = IdSet.EMPTY;
+
+	/**
+	 * number of queued database writes, guarded by {@link #LOCK}
+	 */
+	private int pendingWrites = 0;
+
+	private Context context;
+	private ContentObserver observer;
+
 
 	/**
 	 * Constructor of <code>FavoritesStore</code>
@@ -83,6 +129,33 @@ public class FavoritesStore extends SQLiteOpenHelper {
 	 */
 	private FavoritesStore(Context context) {
 		super(context, DB_NAME, null, VERSION);
+		this.context = context;
+		observer = new ContentObserver(null) {
+			@Override
+			public void onChange(boolean selfChange) {
+				EXECUTOR.execute(new Runnable() {
+					@Override
+					public void run() {
+						reload();
+					}
+				});
+			}
+		};
+		context.getContentResolver().registerContentObserver(CONTENT_URI, false, observer);
+		EXECUTOR.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					favorites = loadIds();
+				} catch (RuntimeException exception) {
+					if (BuildConfig.DEBUG) {
+						exception.printStackTrace();
+					}
+				} finally {
+					loaded.countDown();
+				}
+			}
+		});
 	}
 
 	/**
@@ -120,13 +193,11 @@ public class FavoritesStore extends SQLiteOpenHelper {
 	 * @param mSong song instance
 	 */
 	public void addSongId(@NonNull Song mSong) {
-		synchronized (LOCK) {
-			addSongId(mSong.getId(), mSong.getName(), mSong.getAlbum(), mSong.getArtist(), mSong.durationMillis());
-		}
+		addSongId(mSong.getId(), mSong.getName(), mSong.getAlbum(), mSong.getArtist(), mSong.durationMillis());
 	}
 
 	/**
-	 * Used to store song IDs in our database
+	 * Used to store song IDs in our database. If the song is already a favorite, the play count is increased
 	 *
 	 * @param songId     The album's ID
 	 * @param songName   The song name
@@ -134,25 +205,25 @@ public class FavoritesStore extends SQLiteOpenHelper {
 	 * @param artistName The artist name
 	 * @param duration   Track duration in milliseconds
 	 */
-	public void addSongId(long songId, String songName, String albumName, String artistName, long duration) {
-		synchronized (LOCK) {
-			if (songId > 0 && songName != null && albumName != null && artistName != null) {
-				// increment by 1
-				long playCount = getPlayCount(songId) + 1;
-				SQLiteDatabase database = getWritableDatabase();
-				ContentValues values = new ContentValues(6);
-				database.beginTransaction();
-
-				values.put(FavoriteColumns.ID, songId);
-				values.put(FavoriteColumns.SONGNAME, songName);
-				values.put(FavoriteColumns.ALBUMNAME, albumName);
-				values.put(FavoriteColumns.ARTISTNAME, artistName);
-				values.put(FavoriteColumns.PLAYCOUNT, playCount);
-				values.put(FavoriteColumns.DURATION, duration);
-
-				database.insertWithOnConflict(FavoriteColumns.NAME, null, values, CONFLICT_REPLACE);
-				database.setTransactionSuccessful();
-				database.endTransaction();
+	public void addSongId(final long songId, final String songName, final String albumName, final String artistName, final long duration) {
+		if (songId > 0 && songName != null && albumName != null && artistName != null) {
+			synchronized (LOCK) {
+				favorites = getFavorites().add(songId);
+				queueWrite(new Writer() {
+					@Override
+					protected void write(SQLiteDatabase database) {
+						// increment by 1
+						long playCount = getPlayCount(database, songId) + 1;
+						ContentValues values = new ContentValues(6);
+						values.put(FavoriteColumns.ID, songId);
+						values.put(FavoriteColumns.SONGNAME, songName);
+						values.put(FavoriteColumns.ALBUMNAME, albumName);
+						values.put(FavoriteColumns.ARTISTNAME, artistName);
+						values.put(FavoriteColumns.PLAYCOUNT, playCount);
+						values.put(FavoriteColumns.DURATION, duration);
+						database.insertWithOnConflict(FavoriteColumns.NAME, null, values, CONFLICT_REPLACE);
+					}
+				});
 			}
 		}
 	}
@@ -164,17 +235,7 @@ public class FavoritesStore extends SQLiteOpenHelper {
 	 * @return true if track is favorite
 	 */
 	public boolean exists(long trackId) {
-		synchronized (LOCK) {
-			String[] args = {String.valueOf(trackId)};
-			SQLiteDatabase database = getReadableDatabase();
-			Cursor cursor = database.query(FavoriteColumns.NAME, null, FAVORITE_SELECT, args, null, null, null, "1");
-			boolean result = false;
-			if (cursor != null) {
-				result = cursor.moveToFirst();
-				cursor.close();
-			}
-			return result;
-		}
+		return getFavorites().contains(trackId);
 	}
 
 	/**
@@ -183,34 +244,279 @@ public class FavoritesStore extends SQLiteOpenHelper {
 	 * @param songId track ID
 	 */
 	public void removeItem(long songId) {
+		removeItems(new long[]{songId});
+	}
+
+	/**
+	 * remove multiple songs from favorits in a single transaction
+	 *
+	 * @param songIds track IDs
+	 */
+	public void removeItems(long[] songIds) {
+		final long[] ids = songIds.clone();
 		synchronized (LOCK) {
-			String[] args = {Long.toString(songId)};
-			SQLiteDatabase database = getWritableDatabase();
-			database.delete(FavoriteColumns.NAME, FAVORITE_SELECT, args);
+			favorites = getFavorites().remove(ids);
+			queueWrite(new Writer() {
+				@Override
+				protected void write(SQLiteDatabase database) {
+					SQLiteStatement statement = database.compileStatement("DELETE FROM " + FavoriteColumns.NAME + " WHERE " + FAVORITE_SELECT);
+					try {
+						for (long songId : ids) {
+							statement.bindLong(1, songId);
+							statement.executeUpdateDelete();
+						}
+					} finally {
+						statement.close();
+					}
+				}
+			});
 		}
 	}
 
+	/**
+	 * wait until all queued changes are written to the database. Used before reading the favorite table
+	 * and before the process may be stopped
+	 */
+	public void awaitWrites() {
+		final CountDownLatch done = new CountDownLatch(1);
+		EXECUTOR.execute(new Runnable() {
+			@Override
+			public void run() {
+				done.countDown();
+			}
+		});
+		try {
+			done.await();
+		} catch (InterruptedException exception) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * get the current favorite IDs, waits only if the IDs are not loaded yet
+	 */
+	private IdSet getFavorites() {
+		if (loaded.getCount() > 0) {
+			try {
+				loaded.await();
+			} catch (InterruptedException exception) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		return favorites;
+	}
+
+	/**
+	 * queue a database write, called while holding {@link #LOCK}
+	 */
+	private void queueWrite(Writer writer) {
+		pendingWrites++;
+		EXECUTOR.execute(writer);
+	}
+
+	/**
+	 * load the favorite IDs again after another process changed the favorites
+	 */
+	private void reload() {
+		try {
+			IdSet ids = loadIds();
+			synchronized (LOCK) {
+				// changes of this process which are not written yet would be lost,
+				// the other process reloads after they are written
+				if (pendingWrites == 0) {
+					favorites = ids;
+				}
+			}
+		} catch (RuntimeException exception) {
+			if (BuildConfig.DEBUG) {
+				exception.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * load the IDs of all favorite tracks from the database
+	 */
+	private IdSet loadIds() {
+		SQLiteDatabase database = getReadableDatabase();
+		Cursor cursor = database.query(FavoriteColumns.NAME, ID_COLUMNS, null, null, null, null, null);
+		long[] ids = {};
+		if (cursor != null) {
+			ids = new long[cursor.getCount()];
+			int size = 0;
+			if (cursor.moveToFirst()) {
+				do {
+					ids[size++] = cursor.getLong(0);
+				} while (cursor.moveToNext() && size < ids.length);
+			}
+			cursor.close();
+		}
+		return new IdSet(ids);
+	}
+
 	/**
 	 * Used to retrieve how often a favorited track was played
 	 *
-	 * @param songId The song Id to reference
+	 * @param database database to read from
+	 * @param songId   The song Id to reference
 	 * @return The play count for a song
 	 */
-	private long getPlayCount(long songId) {
-		synchronized (LOCK) {
-			long result = 0;
-			if (songId >= 0) {
-				String[] having = {Long.toString(songId)};
-				SQLiteDatabase database = getReadableDatabase();
-				Cursor cursor = database.query(FavoriteColumns.NAME, FAV_COLUMNS, FAVORITE_SELECT, having, null, null, null, null);
-				if (cursor != null) {
-					if (cursor.moveToFirst()) {
-						result = cursor.getLong(4);
-					}
-					cursor.close();
+	private long getPlayCount(SQLiteDatabase database, long songId) {
+		long result = 0;
+		if (songId >= 0) {
+			String[] having = {Long.toString(songId)};
+			Cursor cursor = database.query(FavoriteColumns.NAME, FAV_COLUMNS, FAVORITE_SELECT, having, null, null, null, null);
+			if (cursor != null) {
+				if (cursor.moveToFirst()) {
+					result = cursor.getLong(4);
 				}
+				cursor.close();
 			}
-			return result;
+		}
+		return result;
+	}
+
+	/**
+	 * database write running in its own transaction
+	 */
+	private abstract class Writer implements Runnable {
+
+		@Override
+		public final void run() {
+			try {
+				SQLiteDatabase database = getWritableDatabase();
+				database.beginTransaction();
+				try {
+					write(database);
+					database.setTransactionSuccessful();
+				} finally {
+					database.endTransaction();
+				}
+			} catch (RuntimeException exception) {
+				if (BuildConfig.DEBUG) {
+					exception.printStackTrace();
+				}
+			} finally {
+				synchronized (LOCK) {
+					pendingWrites--;
+				}
+			}
+			// let other processes reload the favorites, this process is not notified
+			context.getContentResolver().notifyChange(CONTENT_URI, observer);
+		}
+
+		/**
+		 * write the change, called inside the transaction
+		 */
+		protected abstract void write(SQLiteDatabase database);
+	}
+
+	/**
+	 * immutable hash set of track IDs using open addressing. Track IDs are always positive, 0 marks an empty slot
+	 */
+	private static final class IdSet {
+
+		static final IdSet EMPTY = new IdSet(new long[0]);
+
+		private final long[] keys;
+		private final int size;
+
+		/**
+		 * @param ids track IDs, may contain duplicates
+		 */
+		IdSet(long[] ids) {
+			int tableSize = 16;
+			while (tableSize < ids.length * 2) {
+				tableSize <<= 1;
+			}
+			keys = new long[tableSize];
+			int count = 0;
+			for (long id : ids) {
+				if (id > 0 && insert(id)) {
+					count++;
+				}
+			}
+			size = count;
+		}
+
+		/**
+		 * @return true if the set contains the ID
+		 */
+		boolean contains(long id) {
+			if (id <= 0)
+				return false;
+			int mask = keys.length - 1;
+			for (int slot = hash(id); keys[slot] != 0; slot = (slot + 1) & mask) {
+				if (keys[slot] == id) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * @return new set containing the ID or this set if the ID is already added
+		 */
+		IdSet add(long id) {
+			if (contains(id))
+				return this;
+			long[] ids = Arrays.copyOf(toArray(), size + 1);
+			ids[size] = id;
+			return new IdSet(ids);
+		}
+
+		/**
+		 * @return new set without the IDs
+		 */
+		IdSet remove(long[] removed) {
+			IdSet removedIds = new IdSet(removed);
+			long[] ids = toArray();
+			int count = 0;
+			for (long id : ids) {
+				if (!removedIds.contains(id)) {
+					ids[count++] = id;
+				}
+			}
+			return count == size ? this : new IdSet(Arrays.copyOf(ids, count));
+		}
+
+		/**
+		 * @return all IDs of the set
+		 */
+		private long[] toArray() {
+			long[] ids = new long[size];
+			int count = 0;
+			for (long key : keys) {
+				if (key != 0) {
+					ids[count++] = key;
+				}
+			}
+			return ids;
+		}
+
+		/**
+		 * add an ID to the table
+		 *
+		 * @return true if the ID was added, false if it already exists
+		 */
+		private boolean insert(long id) {
+			int mask = keys.length - 1;
+			int slot = hash(id);
+			while (keys[slot] != 0) {
+				if (keys[slot] == id)
+					return false;
+				slot = (slot + 1) & mask;
+			}
+			keys[slot] = id;
+			return true;
+		}
+
+		/**
+		 * calculate the table slot of an ID
+		 */
+		private int hash(long id) {
+			long hash = id * 0x9E3779B97F4A7C15L;
+			return (int) (hash ^ (hash >>> 32)) & (keys.length - 1);
 		}
 	}
 
@@ -0,0 +1,213 @@
+package org.nuclearfog.apollo.provider;
+
+import static android.database.sqlite.SQLiteDatabase.CONFLICT_REPLACE;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import androidx.annotation.Nullable;
+
+/**
+ * database for cached Last.fm metadata like artist corrections and image URLs.
+ * Every entry has an expiration time. Entries without value mark requests Last.fm could not answer
+ *
+ * @author nuclearfog
+ */
+public class LastFmStore extends SQLiteOpenHelper {
+
+	/**
+	 * column projection of the metadata table
+	 */
+	private static final String[] METADATA_COLUMNS = {
+			MetadataColumns.VALUE,
+			MetadataColumns.EXPIRES,
+			MetadataColumns.FAILURES
+	};
+
+	/**
+	 * query to create metadata table
+	 */
+	private static final String METADATA_TABLE = "CREATE TABLE IF NOT EXISTS " + MetadataColumns.NAME + " ("
+			+ MetadataColumns.KEY + " TEXT PRIMARY KEY,"
+			+ MetadataColumns.VALUE + " TEXT,"
+			+ MetadataColumns.EXPIRES + " LONG NOT NULL,"
+			+ MetadataColumns.FAILURES + " INTEGER NOT NULL);";
+
+	/**
+	 * condition to find an entry by key
+	 */
+	private static final String KEY_SELECT = MetadataColumns.KEY + "=?";
+
+	/**
+	 * condition to find expired entries
+	 */
+	private static final String EXPIRED_SELECT = MetadataColumns.EXPIRES + "<?";
+
+	/**
+	 * database filename
+	 */
+	public static final String DB_NAME = "lastfm.db";
+
+	/**
+	 * database version
+	 */
+	private static final int VERSION = 1;
+
+	/**
+	 * singleton instance
+	 */
+	private static LastFmStore singleton;
+
+	/**
+	 *
+	 */
+	private final Object LOCK = new Object();
+
+	/**
+	 *
+	 */
+	private LastFmStore(Context context) {
+		super(context, DB_NAME, null, VERSION);
+	}
+
+	/**
+	 * create singleton instance
+	 *
+	 * @return singleton instance of this class
+	 */
+	public static LastFmStore getInstance(Context context) {
+		if (singleton == null) {
+			singleton = new LastFmStore(context.getApplicationContext());
+		}
+		return singleton;
+	}
+
+
+	@Override
+	public void onCreate(SQLiteDatabase db) {
+		db.execSQL(METADATA_TABLE);
+	}
+
+
+	@Override
+	public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+		db.execSQL("DROP TABLE IF EXISTS " + MetadataColumns.NAME);
+		onCreate(db);
+	}
+
+	/**
+	 * get a cached entry
+	 *
+	 * @param key key of the entry
+	 * @return cached entry or null if not found
+	 */
+	@Nullable
+	public Entry getEntry(String key) {
+		synchronized (LOCK) {
+			Entry result = null;
+			String[] args = {key};
+			SQLiteDatabase database = getReadableDatabase();
+			Cursor cursor = database.query(MetadataColumns.NAME, METADATA_COLUMNS, KEY_SELECT, args, null, null, null, null);
+			if (cursor != null) {
+				if (cursor.moveToFirst()) {
+					result = new Entry(cursor.getString(0), cursor.getLong(1), cursor.getInt(2));
+				}
+				cursor.close();
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * add or replace an entry
+	 *
+	 * @param key   key of the entry
+	 * @param entry entry to store
+	 */
+	public void putEntry(String key, Entry entry) {
+		synchronized (LOCK) {
+			SQLiteDatabase database = getWritableDatabase();
+			ContentValues values = new ContentValues(4);
+			values.put(MetadataColumns.KEY, key);
+			values.put(MetadataColumns.VALUE, entry.value);
+			values.put(MetadataColumns.EXPIRES, entry.expires);
+			values.put(MetadataColumns.FAILURES, entry.failures);
+			database.insertWithOnConflict(MetadataColumns.NAME, null, values, CONFLICT_REPLACE);
+		}
+	}
+
+	/**
+	 * remove all entries expired before a given time
+	 *
+	 * @param time time in milliseconds
+	 */
+	public void removeExpired(long time) {
+		synchronized (LOCK) {
+			String[] args = {Long.toString(time)};
+			SQLiteDatabase database = getWritableDatabase();
+			database.delete(MetadataColumns.NAME, EXPIRED_SELECT, args);
+		}
+	}
+
+	/**
+	 * remove all entries
+	 */
+	public void removeAll() {
+		synchronized (LOCK) {
+			SQLiteDatabase database = getWritableDatabase();
+			database.delete(MetadataColumns.NAME, null, null);
+		}
+	}
+
+	/**
+	 * single cached metadata entry
+	 */
+	public static final class Entry {
+
+		/**
+		 * cached value or null if Last.fm has no information
+		 */
+		@Nullable
+		public final String value;
+
+		/**
+		 * expiration time in milliseconds
+		 */
+		public final long expires;
+
+		/**
+		 * number of failed requests in a row
+		 */
+		public final int failures;
+
+		public Entry(@Nullable String value, long expires, int failures) {
+			this.value = value;
+			this.expires = expires;
+			this.failures = failures;
+		}
+	}
+
+	/**
+	 * columns of the metadata table
+	 */
+	public interface MetadataColumns {
+
+		/* Table name */
+		String NAME = "metadata";
+
+		/* request key column */
+		String KEY = "key";
+
+		/* cached value column */
+		String VALUE = "value";
+
+		/* expiration time column */
+		String EXPIRES = "expires";
+
+		/* failure count column */
+		String FAILURES = "failures";
+	}
+}
@@ -0,0 +1,627 @@
+package org.nuclearfog.apollo.provider;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+
+import androidx.annotation.NonNull;
+
+import org.nuclearfog.apollo.BuildConfig;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * database for play events. Every played track is appended to an event table in batches.
+ * Events are rolled up in the background into daily, weekly and all-time aggregates, so rankings only read the aggregates.
+ * Old events and buckets are removed after their retention time.
+ *
+ * @author nuclearfog
+ */
+public class PlayEventStore extends SQLiteOpenHelper {
+
+	/**
+	 * rank tracks by all plays
+	 */
+	public static final int RANK_ALL_TIME = 0;
+
+	/**
+	 * rank tracks by plays of the last 7 days
+	 */
+	public static final int RANK_WEEK = 1;
+
+	/**
+	 * rank tracks by plays of the last 30 days
+	 */
+	public static final int RANK_MONTH = 2;
+
+	/**
+	 * rank tracks by plays of the last 52 weeks
+	 */
+	public static final int RANK_YEAR = 3;
+
+	/**
+	 * rank tracks by plays decaying over time
+	 */
+	public static final int RANK_TRENDING = 4;
+
+	/**
+	 * one day in milliseconds
+	 */
+	private static final long DAY = 86400000L;
+
+	/**
+	 * one week in milliseconds
+	 */
+	private static final long WEEK = 7 * DAY;
+
+	/**
+	 * half-life of the decayed play count
+	 */
+	private static final long HALF_LIFE = 14 * DAY;
+
+	/**
+	 * reference time of the decayed play count, used to keep the values in range
+	 */
+	private static final long SCORE_EPOCH = 1700000000000L;
+
+	/**
+	 * retention time of rolled up events
+	 */
+	private static final long EVENT_RETENTION = 30 * DAY;
+
+	/**
+	 * retention time of daily buckets
+	 */
+	private static final long DAY_RETENTION = 90 * DAY;
+
+	/**
+	 * retention time of weekly buckets
+	 */
+	private static final long WEEK_RETENTION = 104 * WEEK;
+
+	/**
+	 * number of events written at once
+	 */
+	private static final int BATCH_SIZE = 16;
+
+	/**
+	 * bucket types
+	 */
+	private static final int BUCKET_DAY = 0;
+	private static final int BUCKET_WEEK = 1;
+	private static final int BUCKET_ALL = 2;
+
+	/**
+	 * query to create the event table
+	 */
+	private static final String EVENT_TABLE = "CREATE TABLE IF NOT EXISTS " + EventColumns.NAME + " ("
+			+ EventColumns.ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
+			+ EventColumns.TRACK + " LONG NOT NULL,"
+			+ EventColumns.TIME + " LONG NOT NULL,"
+			+ EventColumns.FRACTION + " REAL NOT NULL);";
+
+	/**
+	 * query to create the aggregate table
+	 */
+	private static final String BUCKET_TABLE = "CREATE TABLE IF NOT EXISTS " + BucketColumns.NAME + " ("
+			+ BucketColumns.TRACK + " LONG NOT NULL,"
+			+ BucketColumns.TYPE + " INTEGER NOT NULL,"
+			+ BucketColumns.START + " LONG NOT NULL,"
+			+ BucketColumns.PLAYS + " REAL NOT NULL,"
+			+ BucketColumns.SCORE + " REAL NOT NULL,"
+			+ "PRIMARY KEY(" + BucketColumns.TRACK + "," + BucketColumns.TYPE + "," + BucketColumns.START + "));";
+
+	/**
+	 * query to create the index used by rankings
+	 */
+	private static final String BUCKET_INDEX = "CREATE INDEX IF NOT EXISTS bucket_range ON " + BucketColumns.NAME
+			+ "(" + BucketColumns.TYPE + "," + BucketColumns.START + ");";
+
+	/**
+	 * query to create the table containing the ID of the last rolled up event
+	 */
+	private static final String STATE_TABLE = "CREATE TABLE IF NOT EXISTS " + StateColumns.NAME + " ("
+			+ StateColumns.LAST_EVENT + " LONG NOT NULL);";
+
+	/**
+	 * create a bucket if not exists
+	 */
+	private static final String BUCKET_CREATE = "INSERT OR IGNORE INTO " + BucketColumns.NAME + " VALUES(?,?,?,0,0)";
+
+	/**
+	 * add plays to a bucket
+	 */
+	private static final String BUCKET_UPDATE = "UPDATE " + BucketColumns.NAME + " SET " + BucketColumns.PLAYS + "=" + BucketColumns.PLAYS + "+?,"
+			+ BucketColumns.SCORE + "=" + BucketColumns.SCORE + "+? WHERE " + BucketColumns.TRACK + "=? AND " + BucketColumns.TYPE + "=? AND "
+			+ BucketColumns.START + "=?";
+
+	/**
+	 * select events which are not rolled up
+	 */
+	private static final String EVENT_SELECT_NEW = EventColumns.ID + ">?";
+
+	/**
+	 * select old events which are rolled up
+	 */
+	private static final String EVENT_SELECT_OLD = EventColumns.ID + "<=? AND " + EventColumns.TIME + "<?";
+
+	/**
+	 * select old buckets of a type
+	 */
+	private static final String BUCKET_SELECT_OLD = BucketColumns.TYPE + "=? AND " + BucketColumns.START + "<?";
+
+	/**
+	 * select track
+	 */
+	private static final String EVENT_SELECT_TRACK = EventColumns.TRACK + "=?";
+	private static final String BUCKET_SELECT_TRACK = BucketColumns.TRACK + "=?";
+
+	/**
+	 * query to rank tracks by the plays of all buckets of a type starting after a given time
+	 */
+	private static final String RANK_WINDOW = "SELECT " + BucketColumns.TRACK + ",SUM(" + BucketColumns.PLAYS + ") AS total FROM " + BucketColumns.NAME
+			+ " WHERE " + BucketColumns.TYPE + "=? AND " + BucketColumns.START + ">=? GROUP BY " + BucketColumns.TRACK
+			+ " ORDER BY total DESC LIMIT %d";
+
+	/**
+	 * query to rank tracks by a column of the all-time buckets
+	 */
+	private static final String RANK_ALL = "SELECT " + BucketColumns.TRACK + " FROM " + BucketColumns.NAME + " WHERE " + BucketColumns.TYPE
+			+ "=" + BUCKET_ALL + " ORDER BY %s DESC LIMIT %d";
+
+	/**
+	 * database filename
+	 */
+	public static final String DB_NAME = "playevents.db";
+
+	/**
+	 * database version
+	 */
+	private static final int VERSION = 1;
+
+	/**
+	 * thread used to write events and roll them up
+	 */
+	private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor();
+
+	/**
+	 * singleton instance
+	 */
+	private static PlayEventStore singleton;
+
+	/**
+	 *
+	 */
+	private final Object LOCK = new Object();
+
+	/**
+	 * lock used for the pending events
+	 */
+	private final Object EVENT_LOCK = new Object();
+
+	/**
+	 * events not written yet
+	 */
+	private List<Event> pending = new ArrayList<>(BATCH_SIZE);
+
+	/**
+	 * time of the last removal of old entries
+	 */
+	private long lastCompaction = 0L;
+
+	/**
+	 *
+	 */
+	private PlayEventStore(Context context) {
+		super(context, DB_NAME, null, VERSION);
+	}
+
+	/**
+	 * create singleton instance
+	 *
+	 * @return singleton instance of this class
+	 */
+	public static PlayEventStore getInstance(Context context) {
+		if (singleton == null) {
+			singleton = new PlayEventStore(context.getApplicationContext());
+		}
+		return singleton;
+	}
+
+
+	@Override
+	public void onCreate(SQLiteDatabase db) {
+		db.execSQL(EVENT_TABLE);
+		db.execSQL(BUCKET_TABLE);
+		db.execSQL(BUCKET_INDEX);
+		db.execSQL(STATE_TABLE);
+	}
+
+
+	@Override
+	public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+		db.execSQL("DROP TABLE IF EXISTS " + EventColumns.NAME);
+		db.execSQL("DROP TABLE IF EXISTS " + BucketColumns.NAME);
+		db.execSQL("DROP TABLE IF EXISTS " + StateColumns.NAME);
+		onCreate(db);
+	}
+
+	/**
+	 * add a play event. Events are written when a batch is full or {@link #flush()} is called
+	 *
+	 * @param trackId  ID of the played track
+	 * @param time     time of the event in milliseconds
+	 * @param fraction listened fraction of the track, between 0 and 1
+	 */
+	public void addEvent(long trackId, long time, float fraction) {
+		boolean full;
+		synchronized (EVENT_LOCK) {
+			pending.add(new Event(trackId, time, Math.max(Math.min(fraction, 1.0f), 0.0f)));
+			full = pending.size() >= BATCH_SIZE;
+		}
+		if (full) {
+			flush();
+		}
+	}
+
+	/**
+	 * write all pending events and update the aggregates in the background
+	 */
+	public void flush() {
+		final List<Event> events;
+		synchronized (EVENT_LOCK) {
+			if (pending.isEmpty())
+				return;
+			events = pending;
+			pending = new ArrayList<>(BATCH_SIZE);
+		}
+		EXECUTOR.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					writeEvents(events);
+					rollup();
+					compact();
+				} catch (RuntimeException exception) {
+					if (BuildConfig.DEBUG) {
+						exception.printStackTrace();
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * get the most played tracks
+	 *
+	 * @param ranking ranking to use {@link #RANK_ALL_TIME#RANK_WEEK#RANK_MONTH#RANK_YEAR#RANK_TRENDING}
+	 * @param limit   max number of tracks
+	 * @return track IDs sorted by rank
+	 */
+	@NonNull
+	public long[] getTopTracks(int ranking, int limit) {
+		synchronized (LOCK) {
+			SQLiteDatabase database = getReadableDatabase();
+			Cursor cursor;
+			long now = System.currentTimeMillis();
+			if (ranking == RANK_WEEK || ranking == RANK_MONTH) {
+				long start = getBucketStart(now, DAY) - (ranking == RANK_WEEK ? 6 : 29) * DAY;
+				String[] args = {Integer.toString(BUCKET_DAY), Long.toString(start)};
+				cursor = database.rawQuery(String.format(Locale.US, RANK_WINDOW, limit), args);
+			} else if (ranking == RANK_YEAR) {
+				long start = getBucketStart(now, WEEK) - 51 * WEEK;
+				String[] args = {Integer.toString(BUCKET_WEEK), Long.toString(start)};
+				cursor = database.rawQuery(String.format(Locale.US, RANK_WINDOW, limit), args);
+			} else {
+				String column = ranking == RANK_TRENDING ? BucketColumns.SCORE : BucketColumns.PLAYS;
+				cursor = database.rawQuery(String.format(Locale.US, RANK_ALL, column, limit), null);
+			}
+			long[] result = new long[cursor.getCount()];
+			for (int i = 0; cursor.moveToNext() && i < result.length; i++) {
+				result[i] = cursor.getLong(0);
+			}
+			cursor.close();
+			return result;
+		}
+	}
+
+	/**
+	 * remove all events and aggregates of a track
+	 *
+	 * @param trackId ID of the track
+	 */
+	public void removeItem(long trackId) {
+		synchronized (LOCK) {
+			String[] args = {Long.toString(trackId)};
+			SQLiteDatabase database = getWritableDatabase();
+			database.beginTransaction();
+			database.delete(EventColumns.NAME, EVENT_SELECT_TRACK, args);
+			database.delete(BucketColumns.NAME, BUCKET_SELECT_TRACK, args);
+			database.setTransactionSuccessful();
+			database.endTransaction();
+		}
+	}
+
+	/**
+	 * remove all events and aggregates of multiple tracks in a single transaction
+	 *
+	 * @param trackIds IDs of the tracks to remove
+	 */
+	public void removeItems(long[] trackIds) {
+		synchronized (LOCK) {
+			SQLiteDatabase database = getWritableDatabase();
+			SQLiteStatement events = database.compileStatement("DELETE FROM " + EventColumns.NAME + " WHERE " + EVENT_SELECT_TRACK);
+			SQLiteStatement buckets = database.compileStatement("DELETE FROM " + BucketColumns.NAME + " WHERE " + BUCKET_SELECT_TRACK);
+			database.beginTransaction();
+			try {
+				for (long trackId : trackIds) {
+					events.bindLong(1, trackId);
+					events.executeUpdateDelete();
+					buckets.bindLong(1, trackId);
+					buckets.executeUpdateDelete();
+				}
+				database.setTransactionSuccessful();
+			} finally {
+				database.endTransaction();
+				events.close();
+				buckets.close();
+			}
+		}
+	}
+
+	/**
+	 * remove all events and aggregates
+	 */
+	public void removeAll() {
+		synchronized (EVENT_LOCK) {
+			pending.clear();
+		}
+		synchronized (LOCK) {
+			SQLiteDatabase database = getWritableDatabase();
+			database.beginTransaction();
+			database.delete(EventColumns.NAME, null, null);
+			database.delete(BucketColumns.NAME, null, null);
+			database.setTransactionSuccessful();
+			database.endTransaction();
+		}
+	}
+
+	/**
+	 * append events to the event table
+	 */
+	private void writeEvents(List<Event> events) {
+		synchronized (LOCK) {
+			SQLiteDatabase database = getWritableDatabase();
+			database.beginTransaction();
+			ContentValues values = new ContentValues(3);
+			for (Event event : events) {
+				values.put(EventColumns.TRACK, event.trackId);
+				values.put(EventColumns.TIME, event.time);
+				values.put(EventColumns.FRACTION, event.fraction);
+				database.insert(EventColumns.NAME, null, values);
+			}
+			database.setTransactionSuccessful();
+			database.endTransaction();
+		}
+	}
+
+	/**
+	 * add all new events to the aggregates
+	 */
+	private void rollup() {
+		synchronized (LOCK) {
+			SQLiteDatabase database = getWritableDatabase();
+			long lastEvent = getLastEvent(database);
+			// sum new events per bucket
+			Map<Bucket, double[]> buckets = new HashMap<>();
+			String[] columns = {EventColumns.ID, EventColumns.TRACK, EventColumns.TIME, EventColumns.FRACTION};
+			String[] args = {Long.toString(lastEvent)};
+			Cursor cursor = database.query(EventColumns.NAME, columns, EVENT_SELECT_NEW, args, null, null, null);
+			while (cursor.moveToNext()) {
+				lastEvent = Math.max(lastEvent, cursor.getLong(0));
+				long trackId = cursor.getLong(1);
+				long time = cursor.getLong(2);
+				double fraction = cursor.getDouble(3);
+				// score is the play count decayed to a fixed point in time. Its order equals the order of the play count decayed to any later time
+				double score = fraction * Math.pow(2.0, (time - SCORE_EPOCH) / (double) HALF_LIFE);
+				addToBucket(buckets, new Bucket(trackId, BUCKET_DAY, getBucketStart(time, DAY)), fraction, score);
+				addToBucket(buckets, new Bucket(trackId, BUCKET_WEEK, getBucketStart(time, WEEK)), fraction, score);
+				addToBucket(buckets, new Bucket(trackId, BUCKET_ALL, 0L), fraction, score);
+			}
+			cursor.close();
+			if (buckets.isEmpty())
+				return;
+			database.beginTransaction();
+			SQLiteStatement create = database.compileStatement(BUCKET_CREATE);
+			SQLiteStatement update = database.compileStatement(BUCKET_UPDATE);
+			for (Map.Entry<Bucket, double[]> entry : buckets.entrySet()) {
+				Bucket bucket = entry.getKey();
+				create.bindLong(1, bucket.trackId);
+				create.bindLong(2, bucket.type);
+				create.bindLong(3, bucket.start);
+				create.executeInsert();
+				update.bindDouble(1, entry.getValue()[0]);
+				update.bindDouble(2, entry.getValue()[1]);
+				update.bindLong(3, bucket.trackId);
+				update.bindLong(4, bucket.type);
+				update.bindLong(5, bucket.start);
+				update.executeUpdateDelete();
+			}
+			ContentValues values = new ContentValues(1);
+			values.put(StateColumns.LAST_EVENT, lastEvent);
+			database.delete(StateColumns.NAME, null, null);
+			database.insert(StateColumns.NAME, null, values);
+			database.setTransactionSuccessful();
+			database.endTransaction();
+		}
+	}
+
+	/**
+	 * remove events and buckets older than their retention time. Runs once a day at most
+	 */
+	private void compact() {
+		long now = System.currentTimeMillis();
+		if (now - lastCompaction < DAY)
+			return;
+		lastCompaction = now;
+		synchronized (LOCK) {
+			SQLiteDatabase database = getWritableDatabase();
+			database.beginTransaction();
+			// only remove events which are already rolled up
+			String[] eventArgs = {Long.toString(getLastEvent(database)), Long.toString(now - EVENT_RETENTION)};
+			database.delete(EventColumns.NAME, EVENT_SELECT_OLD, eventArgs);
+			String[] dayArgs = {Integer.toString(BUCKET_DAY), Long.toString(now - DAY_RETENTION)};
+			database.delete(BucketColumns.NAME, BUCKET_SELECT_OLD, dayArgs);
+			String[] weekArgs = {Integer.toString(BUCKET_WEEK), Long.toString(now - WEEK_RETENTION)};
+			database.delete(BucketColumns.NAME, BUCKET_SELECT_OLD, weekArgs);
+			database.setTransactionSuccessful();
+			database.endTransaction();
+		}
+	}
+
+	/**
+	 * get the ID of the last rolled up event
+	 */
+	private long getLastEvent(SQLiteDatabase database) {
+		long result = 0L;
+		Cursor cursor = database.query(StateColumns.NAME, new String[]{StateColumns.LAST_EVENT}, null, null, null, null, null);
+		if (cursor.moveToFirst()) {
+			result = cursor.getLong(0);
+		}
+		cursor.close();
+		return result;
+	}
+
+	/**
+	 * add plays to a bucket
+	 */
+	private static void addToBucket(Map<Bucket, double[]> buckets, Bucket bucket, double plays, double score) {
+		double[] values = buckets.get(bucket);
+		if (values == null) {
+			values = new double[2];
+			buckets.put(bucket, values);
+		}
+		values[0] += plays;
+		values[1] += score;
+	}
+
+	/**
+	 * get the start time of the bucket containing a time
+	 */
+	private static long getBucketStart(long time, long length) {
+		return time - time % length;
+	}
+
+	/**
+	 * single play event
+	 */
+	private static final class Event {
+
+		final long trackId;
+		final long time;
+		final float fraction;
+
+		Event(long trackId, long time, float fraction) {
+			this.trackId = trackId;
+			this.time = time;
+			this.fraction = fraction;
+		}
+	}
+
+	/**
+	 * key of an aggregate bucket
+	 */
+	private static final class Bucket {
+
+		final long trackId;
+		final int type;
+		final long start;
+
+		Bucket(long trackId, int type, long start) {
+			this.trackId = trackId;
+			this.type = type;
+			this.start = start;
+		}
+
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Bucket))
+				return false;
+			Bucket bucket = (Bucket) obj;
+			return bucket.trackId == trackId && bucket.type == type && bucket.start == start;
+		}
+
+
+		@Override
+		public int hashCode() {
+			return (int) (trackId ^ (trackId >>> 32) ^ start ^ (start >>> 32)) * 31 + type;
+		}
+	}
+
+	/**
+	 * columns of the event table
+	 */
+	public interface EventColumns {
+
+		/* Table name */
+		String NAME = "events";
+
+		/* event ID column */
+		String ID = "id";
+
+		/* track ID column */
+		String TRACK = "trackid";
+
+		/* event time column */
+		String TIME = "time";
+
+		/* listened fraction column */
+		String FRACTION = "fraction";
+	}
+
+	/**
+	 * columns of the aggregate table
+	 */
+	public interface BucketColumns {
+
+		/* Table name */
+		String NAME = "buckets";
+
+		/* track ID column */
+		String TRACK = "trackid";
+
+		/* bucket type column */
+		String TYPE = "type";
+
+		/* bucket start time column */
+		String START = "start";
+
+		/* sum of the listened fractions column */
+		String PLAYS = "plays";
+
+		/* decayed play count column */
+		String SCORE = "score";
+	}
+
+	/**
+	 * columns of the rollup state table
+	 */
+	public interface StateColumns {
+
+		/* Table name */
+		String NAME = "rollup_state";
+
+		/* ID of the last rolled up event */
+		String LAST_EVENT = "last_event";
+	}
+}
@@ -7,6 +7,7 @@ import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 
 /**
  * database for popular tracks with the information how often a track was played
@@ -139,6 +140,29 @@ public class PopularStore extends SQLiteOpenHelper {
 		}
 	}
 
+	/**
+	 * remove multiple tracks from most played database in a single transaction
+	 *
+	 * @param trackIds IDs of the tracks to remove
+	 */
+	public void removeItems(long[] trackIds) {
+		synchronized (LOCK) {
+			SQLiteDatabase database = getWritableDatabase();
+			SQLiteStatement statement = database.compileStatement("DELETE FROM " + PopularColumns.NAME + " WHERE " + TRACK_SELECT);
+			database.beginTransaction();
+			try {
+				for (long trackId : trackIds) {
+					statement.bindLong(1, trackId);
+					statement.executeUpdateDelete();
+				}
+				database.setTransactionSuccessful();
+			} finally {
+				database.endTransaction();
+				statement.close();
+			}
+		}
+	}
+
 	/**
 	 * remove all popular tracks from playlist
 	 */
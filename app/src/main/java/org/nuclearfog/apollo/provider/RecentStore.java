@@ -16,6 +16,7 @@ import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 import android.text.TextUtils;
 
 import androidx.annotation.Nullable;
@@ -199,6 +200,29 @@ public class RecentStore extends SQLiteOpenHelper {
 		}
 	}
 
+	/**
+	 * remove multiple albums from history in a single transaction
+	 *
+	 * @param albumIds IDs of the albums to remove
+	 */
+	public void removeItems(long[] albumIds) {
+		synchronized (LOCK) {
+			SQLiteDatabase database = getWritableDatabase();
+			SQLiteStatement statement = database.compileStatement("DELETE FROM " + RecentStoreColumns.NAME + " WHERE " + RECENT_SELECT_ID);
+			database.beginTransaction();
+			try {
+				for (long albumId : albumIds) {
+					statement.bindLong(1, albumId);
+					statement.executeUpdateDelete();
+				}
+				database.setTransactionSuccessful();
+			} finally {
+				database.endTransaction();
+				statement.close();
+			}
+		}
+	}
+
 	/**
 	 * table columns of recent played tracks
 	 */
@@ -0,0 +1,432 @@
+package org.nuclearfog.apollo.provider;
+
+import static android.database.sqlite.SQLiteDatabase.CONFLICT_REPLACE;
+
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import android.provider.MediaStore.Audio.Media;
+
+import androidx.annotation.Nullable;
+
+import org.nuclearfog.apollo.BuildConfig;
+import org.nuclearfog.apollo.utils.TagReader;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Table of the ReplayGain values of all scanned tracks. The values are read from the embedded tags in the background,
+ * so the gain of a track is available before it is played.
+ *
+ * @author nuclearfog
+ */
+public class ReplayGainStore extends SQLiteOpenHelper {
+
+	/**
+	 * normalization disabled
+	 */
+	public static final int MODE_OFF = 0;
+
+	/**
+	 * use the track gain, album gain if not available
+	 */
+	public static final int MODE_TRACK = 1;
+
+	/**
+	 * use the album gain, track gain if not available
+	 */
+	public static final int MODE_ALBUM = 2;
+
+	/**
+	 * column projection of the gain table
+	 */
+	private static final String[] GAIN_COLUMNS = {
+			GainColumns.TRACK_GAIN,
+			GainColumns.ALBUM_GAIN,
+			GainColumns.TRACK_PEAK,
+			GainColumns.ALBUM_PEAK
+	};
+
+	/**
+	 * column projection used to find scanned tracks
+	 */
+	private static final String[] ID_COLUMNS = {GainColumns.ID};
+
+	/**
+	 * query to create the gain table, missing values are stored as NULL
+	 */
+	private static final String GAIN_TABLE = "CREATE TABLE IF NOT EXISTS " + GainColumns.NAME + " ("
+			+ GainColumns.ID + " LONG PRIMARY KEY,"
+			+ GainColumns.TRACK_GAIN + " REAL,"
+			+ GainColumns.ALBUM_GAIN + " REAL,"
+			+ GainColumns.TRACK_PEAK + " REAL,"
+			+ GainColumns.ALBUM_PEAK + " REAL);";
+
+	/**
+	 * condition to find a track in the gain table
+	 */
+	private static final String TRACK_SELECT = GainColumns.ID + "=?";
+
+	/**
+	 * database filename
+	 */
+	private static final String DB_NAME = "replaygain.db";
+
+	/**
+	 * database version
+	 */
+	private static final int VERSION = 1;
+
+	/**
+	 * max number of tracks stored in a single transaction
+	 */
+	private static final int BATCH_SIZE = 32;
+
+	/**
+	 * max number of IDs used in a single query, below the SQLite limit of bound arguments
+	 */
+	private static final int MAX_ARGS = 500;
+
+	/**
+	 * thread used to scan the tracks
+	 */
+	private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor();
+
+	/**
+	 * singleton instance
+	 */
+	private static ReplayGainStore singleton;
+
+	/**
+	 *
+	 */
+	private final Object LOCK = new Object();
+
+	private final Context context;
+
+	/**
+	 *
+	 */
+	private ReplayGainStore(Context context) {
+		super(context, DB_NAME, null, VERSION);
+		this.context = context;
+	}
+
+	/**
+	 * create singleton instance
+	 *
+	 * @return singleton instance of this class
+	 */
+	public static ReplayGainStore getInstance(Context context) {
+		if (singleton == null) {
+			singleton = new ReplayGainStore(context.getApplicationContext());
+		}
+		return singleton;
+	}
+
+
+	@Override
+	public void onCreate(SQLiteDatabase db) {
+		db.execSQL(GAIN_TABLE);
+	}
+
+
+	@Override
+	public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+		db.execSQL("DROP TABLE IF EXISTS " + GainColumns.NAME);
+		onCreate(db);
+	}
+
+	/**
+	 * get the volume factor of a track. Tracks not scanned yet are scanned in the background and played without normalization
+	 *
+	 * @param trackId ID of the track
+	 * @param mode    normalization mode {@link #MODE_OFF,#MODE_TRACK,#MODE_ALBUM}
+	 * @return volume factor between 0 and 1
+	 */
+	public float getVolume(long trackId, int mode) {
+		if (mode == MODE_OFF)
+			return 1.0f;
+		float[] values = null;
+		try {
+			values = getValues(trackId);
+		} catch (RuntimeException exception) {
+			if (BuildConfig.DEBUG) {
+				exception.printStackTrace();
+			}
+		}
+		if (values == null) {
+			scan(new long[]{trackId});
+			return 1.0f;
+		}
+		float gain = mode == MODE_ALBUM ? values[1] : values[0];
+		float peak = mode == MODE_ALBUM ? values[3] : values[2];
+		if (Float.isNaN(gain)) {
+			// use the other gain if the preferred one is missing
+			gain = mode == MODE_ALBUM ? values[0] : values[1];
+			peak = mode == MODE_ALBUM ? values[2] : values[3];
+		}
+		if (Float.isNaN(gain))
+			return 1.0f;
+		float volume = (float) Math.pow(10.0, gain / 20.0);
+		// prevent clipping
+		if (peak > 0.0f) {
+			volume = Math.min(volume, 1.0f / peak);
+		}
+		// the player volume can only lower the level
+		return Math.max(Math.min(volume, 1.0f), 0.0f);
+	}
+
+	/**
+	 * get the volume factor of a track
+	 *
+	 * @param uri  content uri of the track
+	 * @param mode normalization mode {@link #MODE_OFF,#MODE_TRACK,#MODE_ALBUM}
+	 * @return volume factor between 0 and 1, 1 if the uri doesn't belong to a track of the MediaStore
+	 */
+	public float getVolume(Uri uri, int mode) {
+		if (mode != MODE_OFF && uri.toString().startsWith(Media.EXTERNAL_CONTENT_URI.toString())) {
+			try {
+				long id = ContentUris.parseId(uri);
+				if (id >= 0) {
+					return getVolume(id, mode);
+				}
+			} catch (NumberFormatException exception) {
+				// not a track ID
+			}
+		}
+		return 1.0f;
+	}
+
+	/**
+	 * read the gains of tracks not scanned yet in the background
+	 *
+	 * @param trackIds IDs of the tracks
+	 */
+	public void scan(long[] trackIds) {
+		final long[] ids = trackIds.clone();
+		EXECUTOR.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					Set<Long> scanned = getScannedIds(ids);
+					long[] batchIds = new long[BATCH_SIZE];
+					TagReader.Tags[] batchTags = new TagReader.Tags[BATCH_SIZE];
+					int count = 0;
+					for (long id : ids) {
+						if (scanned.add(id)) {
+							TagReader.Tags tags = readTags(id);
+							if (tags != null) {
+								batchIds[count] = id;
+								batchTags[count] = tags;
+								count++;
+								if (count == BATCH_SIZE) {
+									setValues(batchIds, batchTags, count);
+									count = 0;
+								}
+							}
+						}
+					}
+					if (count > 0) {
+						setValues(batchIds, batchTags, count);
+					}
+				} catch (RuntimeException exception) {
+					if (BuildConfig.DEBUG) {
+						exception.printStackTrace();
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * remove multiple tracks in a single transaction
+	 *
+	 * @param trackIds IDs of the tracks to remove
+	 */
+	public void removeItems(long[] trackIds) {
+		synchronized (LOCK) {
+			SQLiteDatabase database = getWritableDatabase();
+			SQLiteStatement statement = database.compileStatement("DELETE FROM " + GainColumns.NAME + " WHERE " + TRACK_SELECT);
+			database.beginTransaction();
+			try {
+				for (long trackId : trackIds) {
+					statement.bindLong(1, trackId);
+					statement.executeUpdateDelete();
+				}
+				database.setTransactionSuccessful();
+			} finally {
+				database.endTransaction();
+				statement.close();
+			}
+		}
+	}
+
+	/**
+	 * get the stored values of a track
+	 *
+	 * @return track gain, album gain, track peak and album peak, NaN if a value is missing. null if the track is not scanned yet
+	 */
+	@Nullable
+	private float[] getValues(long trackId) {
+		synchronized (LOCK) {
+			String[] args = {Long.toString(trackId)};
+			SQLiteDatabase database = getReadableDatabase();
+			Cursor cursor = database.query(GainColumns.NAME, GAIN_COLUMNS, TRACK_SELECT, args, null, null, null, "1");
+			float[] result = null;
+			if (cursor != null) {
+				if (cursor.moveToFirst()) {
+					result = new float[GAIN_COLUMNS.length];
+					for (int i = 0; i < result.length; i++) {
+						result[i] = cursor.isNull(i) ? Float.NaN : cursor.getFloat(i);
+					}
+				}
+				cursor.close();
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * store the values of multiple tracks in a single transaction.
+	 * Tracks without ReplayGain tags are stored too, so they are not scanned again
+	 *
+	 * @param trackIds IDs of the tracks
+	 * @param tags     tags of the tracks
+	 * @param count    number of tracks to store
+	 */
+	private void setValues(long[] trackIds, TagReader.Tags[] tags, int count) {
+		synchronized (LOCK) {
+			SQLiteDatabase database = getWritableDatabase();
+			database.beginTransaction();
+			try {
+				for (int i = 0; i < count; i++) {
+					ContentValues values = new ContentValues(5);
+					values.put(GainColumns.ID, trackIds[i]);
+					putValue(values, GainColumns.TRACK_GAIN, tags[i].getTrackGain());
+					putValue(values, GainColumns.ALBUM_GAIN, tags[i].getAlbumGain());
+					putValue(values, GainColumns.TRACK_PEAK, tags[i].getTrackPeak());
+					putValue(values, GainColumns.ALBUM_PEAK, tags[i].getAlbumPeak());
+					database.insertWithOnConflict(GainColumns.NAME, null, values, CONFLICT_REPLACE);
+				}
+				database.setTransactionSuccessful();
+			} finally {
+				database.endTransaction();
+			}
+		}
+	}
+
+	/**
+	 * get the tracks which are already scanned
+	 *
+	 * @param trackIds IDs of the tracks to check
+	 * @return IDs of the scanned tracks
+	 */
+	private Set<Long> getScannedIds(long[] trackIds) {
+		Set<Long> result = new HashSet<>();
+		synchronized (LOCK) {
+			SQLiteDatabase database = getReadableDatabase();
+			for (int start = 0; start < trackIds.length; start += MAX_ARGS) {
+				int end = Math.min(start + MAX_ARGS, trackIds.length);
+				String[] args = new String[end - start];
+				StringBuilder selection = new StringBuilder(GainColumns.ID).append(" IN (");
+				for (int i = start; i < end; i++) {
+					args[i - start] = Long.toString(trackIds[i]);
+					selection.append(i > start ? ",?" : "?");
+				}
+				selection.append(')');
+				Cursor cursor = database.query(GainColumns.NAME, ID_COLUMNS, selection.toString(), args, null, null, null);
+				if (cursor != null) {
+					if (cursor.moveToFirst()) {
+						do {
+							result.add(cursor.getLong(0));
+						} while (cursor.moveToNext());
+					}
+					cursor.close();
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * read the tags of a track, embedded pictures are skipped
+	 *
+	 * @return tags or null if the track is not accessible
+	 */
+	@Nullable
+	private TagReader.Tags readTags(long trackId) {
+		FileInputStream stream = null;
+		try {
+			ParcelFileDescriptor fileDescriptor = context.getContentResolver().openFileDescriptor(ContentUris.withAppendedId(Media.EXTERNAL_CONTENT_URI, trackId), "r");
+			if (fileDescriptor != null) {
+				stream = new ParcelFileDescriptor.AutoCloseInputStream(fileDescriptor);
+				return TagReader.read(stream.getChannel(), false);
+			}
+		} catch (IOException exception) {
+			if (BuildConfig.DEBUG) {
+				exception.printStackTrace();
+			}
+		} catch (RuntimeException exception) {
+			// thrown if the track was removed or is not accessible
+			if (BuildConfig.DEBUG) {
+				exception.printStackTrace();
+			}
+		} finally {
+			if (stream != null) {
+				try {
+					stream.close();
+				} catch (IOException exception) {
+					// ignore
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * add a value or NULL if missing
+	 */
+	private static void putValue(ContentValues values, String column, float value) {
+		if (Float.isNaN(value)) {
+			values.putNull(column);
+		} else {
+			values.put(column, value);
+		}
+	}
+
+	/**
+	 * columns of the gain table
+	 */
+	public interface GainColumns {
+
+		/* Table name */
+		String NAME = "gains";
+
+		/* Song IDs column */
+		String ID = "songid";
+
+		/* gain of the track in dB */
+		String TRACK_GAIN = "track_gain";
+
+		/* gain of the album in dB */
+		String ALBUM_GAIN = "album_gain";
+
+		/* peak amplitude of the track */
+		String TRACK_PEAK = "track_peak";
+
+		/* peak amplitude of the album */
+		String ALBUM_PEAK = "album_peak";
+	}
+}
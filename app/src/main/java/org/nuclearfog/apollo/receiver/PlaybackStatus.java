@@ -4,7 +4,9 @@ import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 
+import org.nuclearfog.apollo.player.PlaybackClock;
 import org.nuclearfog.apollo.service.MusicPlaybackService;
+import org.nuclearfog.apollo.utils.MusicUtils;
 
 import java.lang.ref.WeakReference;
 
@@ -33,6 +35,8 @@ public class PlaybackStatus extends BroadcastReceiver {
 	public void onReceive(Context context, Intent intent) {
 		String action = intent.getAction();
 		PlayStatusListener callback = mReference.get();
+		// update playback position before notifying the listener
+		MusicUtils.setPlaybackClock(PlaybackClock.fromIntent(intent));
 
 		if (action != null && callback != null) {
 			switch (action) {
@@ -0,0 +1,508 @@
+package org.nuclearfog.apollo.service;
+
+import android.content.Context;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.MediaStore.Audio.Media;
+import android.provider.MediaStore.Audio.Playlists;
+import android.support.v4.media.MediaBrowserCompat;
+import android.support.v4.media.MediaBrowserCompat.MediaItem;
+import android.support.v4.media.MediaDescriptionCompat;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.media.MediaBrowserServiceCompat.Result;
+
+import org.nuclearfog.apollo.BuildConfig;
+import org.nuclearfog.apollo.R;
+import org.nuclearfog.apollo.cache.LruCache;
+import org.nuclearfog.apollo.model.Folder;
+import org.nuclearfog.apollo.model.Genre;
+import org.nuclearfog.apollo.provider.ArtworkProvider;
+import org.nuclearfog.apollo.provider.ExcludeStore;
+import org.nuclearfog.apollo.provider.ExcludeStore.Type;
+import org.nuclearfog.apollo.utils.CursorFactory;
+import org.nuclearfog.apollo.utils.FolderIndex;
+import org.nuclearfog.apollo.utils.GenreIndex;
+import org.nuclearfog.apollo.utils.TrackResolver;
+import org.nuclearfog.apollo.utils.TrackResolver.Tracks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Browse tree of the media library used by {@link MusicPlaybackService} to serve media browser clients (e.g. car or watch apps).
+ * Child lists are loaded in the background and cached as compact nodes until the MediaStore or the exclude list changes,
+ * so paging through a large list queries the library only once.
+ * <p>
+ * Media IDs of browsable items have the form "type:ID", media IDs of playable items are "parentID|trackID".
+ *
+ * @author nuclearfog
+ */
+class MediaBrowserTree {
+
+	private static final String TAG = "MediaBrowserTree";
+
+	private static final String ARTISTS = "artists";
+	private static final String ALBUMS = "albums";
+	private static final String GENRES = "genres";
+	private static final String PLAYLISTS = "playlists";
+	private static final String FOLDERS = "folders";
+	private static final String RECENT = "recent";
+	private static final String POPULAR = "popular";
+
+	private static final String ARTIST = "artist:";
+	private static final String ALBUM = "album:";
+	private static final String GENRE = "genre:";
+	private static final String PLAYLIST = "playlist:";
+	private static final String FOLDER = "folder:";
+
+	/**
+	 * separator between the parent ID and the track ID of a playable item
+	 */
+	private static final char TRACK_SEPARATOR = '|';
+
+	/**
+	 * categories of the root node
+	 */
+	private static final String[] CATEGORIES = {ARTISTS, ALBUMS, GENRES, PLAYLISTS, FOLDERS, RECENT, POPULAR};
+
+	/**
+	 * titles of the categories
+	 */
+	private static final int[] CATEGORY_TITLES = {
+			R.string.page_artists, R.string.page_albums, R.string.page_genres, R.string.page_playlists,
+			R.string.page_folders, R.string.page_recent, R.string.playlist_most_played
+	};
+
+	/**
+	 * max number of cached nodes
+	 */
+	private static final int MAX_NODES = 32;
+
+	/**
+	 * delay used to notify clients after the library changed, so a media scan doesn't notify clients for every track
+	 */
+	private static final long NOTIFY_DELAY_MS = 1000L;
+
+	/**
+	 * executor used to load nodes, one after another
+	 */
+	private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+	/**
+	 * cached nodes, mapped by parent ID
+	 */
+	private final LruCache<String, Node> cache = new LruCache<>(MAX_NODES);
+
+	/**
+	 * IDs of the nodes sent to clients since the last change of the library
+	 */
+	private final Set<String> loadedIds = new HashSet<>();
+
+	private final Handler handler = new Handler(Looper.getMainLooper());
+
+	private MusicPlaybackService service;
+	private ContentObserver observer;
+	private Runnable notifyTask;
+
+	/**
+	 * incremented when the library changes, nodes loaded before the change are not cached
+	 */
+	private int version = 0;
+
+	/**
+	 * @param service service used to load the library and to start playback
+	 */
+	MediaBrowserTree(MusicPlaybackService service) {
+		this.service = service;
+		notifyTask = new Runnable() {
+			@Override
+			public void run() {
+				notifyClients();
+			}
+		};
+		observer = new ContentObserver(null) {
+			@Override
+			public void onChange(boolean selfChange) {
+				synchronized (MediaBrowserTree.this) {
+					version++;
+					cache.evictAll();
+				}
+				handler.removeCallbacks(notifyTask);
+				handler.postDelayed(notifyTask, NOTIFY_DELAY_MS);
+			}
+		};
+		service.getContentResolver().registerContentObserver(Media.EXTERNAL_CONTENT_URI, true, observer);
+		service.getContentResolver().registerContentObserver(Playlists.EXTERNAL_CONTENT_URI, true, observer);
+		service.getContentResolver().registerContentObserver(ExcludeStore.CONTENT_URI, false, observer);
+	}
+
+	/**
+	 * send a page of the child list of a node. Cached nodes are sent directly, other nodes are loaded in the background
+	 *
+	 * @param parentId media ID of the parent node
+	 * @param result   result used to send the child list
+	 * @param options  paging options or null to send all children
+	 */
+	void loadChildren(@NonNull final String parentId, @NonNull final Result<List<MediaItem>> result, @Nullable Bundle options) {
+		int page = -1;
+		int pageSize = -1;
+		if (options != null) {
+			page = options.getInt(MediaBrowserCompat.EXTRA_PAGE, -1);
+			pageSize = options.getInt(MediaBrowserCompat.EXTRA_PAGE_SIZE, -1);
+		}
+		synchronized (loadedIds) {
+			loadedIds.add(parentId);
+		}
+		Node node = cache.get(parentId);
+		if (node != null) {
+			result.sendResult(node.getItems(page, pageSize));
+		} else {
+			final int finalPage = page;
+			final int finalPageSize = pageSize;
+			result.detach();
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					Node node = getNode(parentId);
+					result.sendResult(node != null ? node.getItems(finalPage, finalPageSize) : null);
+				}
+			});
+		}
+	}
+
+	/**
+	 * start playback of a playable item. The tracks of the parent node are used as the new queue.
+	 * The node is loaded in the background, playback is started on the player thread of the service
+	 *
+	 * @param mediaId media ID of the playable item
+	 */
+	void playFromMediaId(@NonNull final String mediaId) {
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				int separator = mediaId.lastIndexOf(TRACK_SEPARATOR);
+				if (separator > 0) {
+					try {
+						long trackId = Long.parseLong(mediaId.substring(separator + 1));
+						Node node = getNode(mediaId.substring(0, separator));
+						if (node != null && node.tracks != null) {
+							int position = 0;
+							for (int i = 0; i < node.tracks.length; i++) {
+								if (node.tracks[i] == trackId) {
+									position = i;
+									break;
+								}
+							}
+							final long[] tracks = node.tracks;
+							final int finalPosition = position;
+							service.post(new Runnable() {
+								@Override
+								public void run() {
+									service.open(tracks, finalPosition);
+									service.play();
+								}
+							});
+						}
+					} catch (NumberFormatException exception) {
+						if (BuildConfig.DEBUG) {
+							Log.w(TAG, "invalid media ID: " + mediaId);
+						}
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * stop observing the MediaStore and release all cached nodes
+	 */
+	void release() {
+		service.getContentResolver().unregisterContentObserver(observer);
+		handler.removeCallbacks(notifyTask);
+		executor.shutdownNow();
+		cache.evictAll();
+	}
+
+	/**
+	 * get a node from the cache or load it from the library
+	 *
+	 * @param parentId media ID of the node
+	 * @return node or null if the media ID is invalid
+	 */
+	@Nullable
+	private Node getNode(String parentId) {
+		Node node;
+		int loadVersion;
+		synchronized (this) {
+			node = cache.get(parentId);
+			loadVersion = version;
+		}
+		if (node == null) {
+			try {
+				node = loadNode(parentId);
+			} catch (Exception exception) {
+				// thrown if the media ID is invalid or if the library is not accessible
+				if (BuildConfig.DEBUG) {
+					exception.printStackTrace();
+				}
+			}
+			// recent and popular tracks change with every played track, so they are always loaded again
+			if (node != null && !RECENT.equals(parentId) && !POPULAR.equals(parentId)) {
+				synchronized (this) {
+					// don't cache a node loaded before the library changed
+					if (loadVersion == version) {
+						cache.put(parentId, node);
+					}
+				}
+			}
+		}
+		return node;
+	}
+
+	/**
+	 * notify connected clients that the nodes they loaded changed, the clients load them again
+	 */
+	private void notifyClients() {
+		String[] parentIds;
+		synchronized (loadedIds) {
+			parentIds = loadedIds.toArray(new String[0]);
+			loadedIds.clear();
+		}
+		for (String parentId : parentIds) {
+			service.notifyChildrenChanged(parentId);
+		}
+	}
+
+	/**
+	 * load the children of a node from the library
+	 */
+	@Nullable
+	private Node loadNode(String parentId) {
+		Context context = service;
+		ExcludeStore excludeStore = ExcludeStore.getInstance(context);
+		if (parentId.equals(MusicPlaybackService.MEDIA_ID_ROOT)) {
+			Node node = new Node(null, CATEGORIES.length);
+			for (int i = 0; i < CATEGORIES.length; i++) {
+				node.add(CATEGORIES[i], context.getString(CATEGORY_TITLES[i]), null, 0L);
+			}
+			return node;
+		}
+		if (parentId.equals(ARTISTS)) {
+			Set<Long> excluded = excludeStore.getIds(Type.ARTIST);
+			Cursor cursor = CursorFactory.makeArtistCursor(context);
+			Node node = new Node(null, cursor != null ? cursor.getCount() : 0);
+			if (cursor != null) {
+				if (cursor.moveToFirst()) {
+					do {
+						long id = cursor.getLong(0);
+						if (!excluded.contains(id)) {
+							node.add(ARTIST + id, cursor.getString(1), null, 0L);
+						}
+					} while (cursor.moveToNext());
+				}
+				cursor.close();
+			}
+			return node;
+		}
+		if (parentId.equals(ALBUMS) || parentId.equals(RECENT)) {
+			// the recent album table uses the same column order for ID, name and artist
+			Set<Long> excluded = excludeStore.getIds(Type.ALBUM);
+			Cursor cursor = parentId.equals(ALBUMS) ? CursorFactory.makeAlbumCursor(context) : CursorFactory.makeRecentCursor(context);
+			Node node = new Node(null, cursor != null ? cursor.getCount() : 0);
+			if (cursor != null) {
+				if (cursor.moveToFirst()) {
+					do {
+						long id = cursor.getLong(0);
+						if (!excluded.contains(id)) {
+							node.add(ALBUM + id, cursor.getString(1), cursor.getString(2), id);
+						}
+					} while (cursor.moveToNext());
+				}
+				cursor.close();
+			}
+			return node;
+		}
+		if (parentId.equals(GENRES)) {
+			List<Genre> genres = GenreIndex.getInstance(context).getGenres(excludeStore.getIds(Type.GENRE));
+			Node node = new Node(null, genres.size());
+			for (Genre genre : genres) {
+				StringBuilder mediaId = new StringBuilder(GENRE);
+				for (long id : genre.getGenreIds()) {
+					if (mediaId.length() > GENRE.length())
+						mediaId.append(',');
+					mediaId.append(id);
+				}
+				node.add(mediaId.toString(), genre.getName(), null, 0L);
+			}
+			return node;
+		}
+		if (parentId.equals(PLAYLISTS)) {
+			Cursor cursor = CursorFactory.makePlaylistCursor(context);
+			Node node = new Node(null, cursor != null ? cursor.getCount() : 0);
+			if (cursor != null) {
+				if (cursor.moveToFirst()) {
+					do {
+						node.add(PLAYLIST + cursor.getLong(0), cursor.getString(1), null, 0L);
+					} while (cursor.moveToNext());
+				}
+				cursor.close();
+			}
+			return node;
+		}
+		if (parentId.equals(FOLDERS)) {
+			List<Folder> folders = FolderIndex.getInstance(context).getFolders(excludeStore.getIds(Type.SONG));
+			Node node = new Node(null, folders.size());
+			for (Folder folder : folders) {
+				node.add(FOLDER + folder.getPath(), folder.getName(), folder.getPath(), 0L);
+			}
+			return node;
+		}
+		// nodes with playable tracks
+		long[] trackIds;
+		if (parentId.equals(POPULAR)) {
+			trackIds = getIds(CursorFactory.makePopularCursor(context));
+		} else if (parentId.startsWith(ARTIST)) {
+			long artistId = Long.parseLong(parentId.substring(ARTIST.length()));
+			trackIds = getIds(CursorFactory.makeArtistSongCursor(context, artistId));
+		} else if (parentId.startsWith(ALBUM)) {
+			long albumId = Long.parseLong(parentId.substring(ALBUM.length()));
+			trackIds = getIds(CursorFactory.makeAlbumSongCursor(context, albumId));
+		} else if (parentId.startsWith(PLAYLIST)) {
+			long playlistId = Long.parseLong(parentId.substring(PLAYLIST.length()));
+			trackIds = getIds(CursorFactory.makePlaylistSongCursor(context, playlistId));
+		} else if (parentId.startsWith(GENRE)) {
+			String[] ids = parentId.substring(GENRE.length()).split(",");
+			long[] genreIds = new long[ids.length];
+			for (int i = 0; i < ids.length; i++) {
+				genreIds[i] = Long.parseLong(ids[i]);
+			}
+			trackIds = GenreIndex.getInstance(context).getTracks(genreIds);
+		} else if (parentId.startsWith(FOLDER)) {
+			trackIds = FolderIndex.getInstance(context).getTracks(parentId.substring(FOLDER.length()), false);
+		} else {
+			return null;
+		}
+		Set<Long> excluded = excludeStore.getIds(Type.SONG);
+		Tracks tracks = TrackResolver.resolve(context, trackIds);
+		Node node = new Node(new long[tracks.size()], tracks.size());
+		int count = 0;
+		for (int i = 0; i < tracks.size(); i++) {
+			long trackId = tracks.getId(i);
+			if (!excluded.contains(trackId)) {
+				node.tracks[count++] = trackId;
+				node.add(parentId + TRACK_SEPARATOR + trackId, tracks.getTitle(i), tracks.getArtist(i), tracks.getAlbumId(i));
+			}
+		}
+		node.tracks = Arrays.copyOf(node.tracks, count);
+		if (BuildConfig.DEBUG) {
+			Log.d(TAG, parentId + ": " + count + " tracks");
+		}
+		return node;
+	}
+
+	/**
+	 * read the IDs of the first column and close the cursor
+	 */
+	private static long[] getIds(@Nullable Cursor cursor) {
+		if (cursor == null)
+			return new long[0];
+		long[] ids = new long[cursor.getCount()];
+		int count = 0;
+		if (cursor.moveToFirst()) {
+			do {
+				ids[count++] = cursor.getLong(0);
+			} while (cursor.moveToNext() && count < ids.length);
+		}
+		cursor.close();
+		return Arrays.copyOf(ids, count);
+	}
+
+	/**
+	 * child list of a browse node, stored column by column.
+	 * {@link MediaItem} instances are only created for the requested page
+	 */
+	private static final class Node {
+
+		/**
+		 * track IDs of the playable children in list order or null if the children are browsable
+		 */
+		@Nullable
+		long[] tracks;
+
+		private String[] mediaIds;
+		private String[] titles;
+		private String[] subtitles;
+		private long[] albumIds;
+		private int size = 0;
+
+		/**
+		 * @param tracks   array used for the track IDs of playable children or null if the children are browsable
+		 * @param capacity expected number of children
+		 */
+		Node(@Nullable long[] tracks, int capacity) {
+			this.tracks = tracks;
+			mediaIds = new String[capacity];
+			titles = new String[capacity];
+			subtitles = new String[capacity];
+			albumIds = new long[capacity];
+		}
+
+		/**
+		 * add a child item
+		 *
+		 * @param albumId ID of the album used for the artwork or 0 to use no artwork
+		 */
+		void add(String mediaId, String title, @Nullable String subtitle, long albumId) {
+			if (size == mediaIds.length) {
+				int capacity = Math.max(size * 2, 16);
+				mediaIds = Arrays.copyOf(mediaIds, capacity);
+				titles = Arrays.copyOf(titles, capacity);
+				subtitles = Arrays.copyOf(subtitles, capacity);
+				albumIds = Arrays.copyOf(albumIds, capacity);
+			}
+			mediaIds[size] = mediaId;
+			titles[size] = title;
+			subtitles[size] = subtitle;
+			albumIds[size] = albumId;
+			size++;
+		}
+
+		/**
+		 * create media items of a page
+		 *
+		 * @param page     index of the page or -1 to get all items
+		 * @param pageSize number of items of a page
+		 * @return media items of the page, empty if the page is out of range
+		 */
+		List<MediaItem> getItems(int page, int pageSize) {
+			int start = 0;
+			int end = size;
+			if (page >= 0 && pageSize > 0) {
+				start = (int) Math.min((long) page * pageSize, size);
+				end = Math.min(start + pageSize, size);
+			}
+			int flags = tracks != null ? MediaItem.FLAG_PLAYABLE : MediaItem.FLAG_BROWSABLE;
+			List<MediaItem> items = new ArrayList<>(end - start);
+			for (int i = start; i < end; i++) {
+				MediaDescriptionCompat.Builder description = new MediaDescriptionCompat.Builder();
+				description.setMediaId(mediaIds[i]).setTitle(titles[i]).setSubtitle(subtitles[i]);
+				if (albumIds[i] > 0L) {
+					description.setIconUri(ArtworkProvider.getAlbumArtUri(albumIds[i]));
+				}
+				items.add(new MediaItem(description.build(), flags));
+			}
+			return items;
+		}
+	}
+}
@@ -47,24 +47,29 @@ import org.nuclearfog.apollo.BuildConfig;
 import org.nuclearfog.apollo.NotificationHelper;
 import org.nuclearfog.apollo.cache.ImageCache;
 import org.nuclearfog.apollo.cache.ImageFetcher;
+import org.nuclearfog.apollo.player.CodecPlayer;
 import org.nuclearfog.apollo.player.MultiPlayer;
 import org.nuclearfog.apollo.player.MusicPlayerHandler;
+import org.nuclearfog.apollo.player.PlaybackClock;
+import org.nuclearfog.apollo.player.SystemPlayer;
+import org.nuclearfog.apollo.provider.ArtworkProvider;
 import org.nuclearfog.apollo.provider.FavoritesStore;
+import org.nuclearfog.apollo.provider.PlayEventStore;
 import org.nuclearfog.apollo.provider.PopularStore;
 import org.nuclearfog.apollo.provider.RecentStore;
+import org.nuclearfog.apollo.provider.ReplayGainStore;
 import org.nuclearfog.apollo.receiver.UnmountBroadcastReceiver;
 import org.nuclearfog.apollo.receiver.WidgetBroadcastReceiver;
 import org.nuclearfog.apollo.utils.CursorFactory;
 import org.nuclearfog.apollo.utils.MusicUtils;
+import org.nuclearfog.apollo.utils.PlaybackMetrics;
 import org.nuclearfog.apollo.utils.PreferenceUtils;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Random;
-import java.util.Set;
-import java.util.TreeSet;
 
 /**
  * A background {@link Service} used to keep music playing between activities
@@ -267,9 +272,9 @@ public class MusicPlaybackService extends MediaBrowserServiceCompat implements O
 	 */
 	private static final int MAX_HISTORY_SIZE = 100;
 	/**
-	 *
+	 * media ID of the root node of the browse tree
 	 */
-	private static final String MEDIA_ID_ROOT = "apollo_root";
+	static final String MEDIA_ID_ROOT = "apollo_root";
 	/**
 	 * Keeps a mapping of the track history
 	 */
@@ -279,26 +284,21 @@ public class MusicPlaybackService extends MediaBrowserServiceCompat implements O
 	 */
 	private LinkedList<Long> mPlayList = new LinkedList<>();
 	/**
-	 * the values of this list points on indexes of {@link #mPlayList} which are randomly shuffled.
-	 * after finishing this list, the values will be shuffled again.
-	 */
-	private ArrayList<Integer> mNormalShuffleList = new ArrayList<>();
-	/**
-	 * current shuffle list contaning track ID's
+	 * random generator of positions in {@link #mPlayList}, used for queue shuffle
 	 */
-	private ArrayList<Long> mAutoShuffleList = new ArrayList<>();
-
-	private LinkedList<Integer> mHistoryOfNumbers = new LinkedList<>();
-
-	private Set<Integer> mPreviousNumbers = new TreeSet<>();
+	private Shuffler mShuffler = new Shuffler(System.nanoTime(), MAX_HISTORY_SIZE);
 	/**
-	 * random generator used for shuffle
+	 * pool of all tracks used for party shuffle
 	 */
-	private Random mRandom = new Random();
+	private ShufflePool mShufflePool;
 	/**
 	 * Service stub
 	 */
 	private IBinder mBinder = new ServiceStub(this);
+	/**
+	 * browse tree used by media browser clients
+	 */
+	private MediaBrowserTree mBrowserTree;
 	/**
 	 * app wide settings
 	 */
@@ -347,6 +347,10 @@ public class MusicPlaybackService extends MediaBrowserServiceCompat implements O
 	 * most played tracks database
 	 */
 	private PopularStore mPopularCache;
+	/**
+	 * play event database
+	 */
+	private PlayEventStore mPlayEvents;
 	/**
 	 * Alarm intent for removing the notification when nothing is playing
 	 * for some time
@@ -378,6 +382,19 @@ public class MusicPlaybackService extends MediaBrowserServiceCompat implements O
 	 * Used to know if something should be playing or not
 	 */
 	private boolean mIsSupposedToBePlaying = false;
+
+	/**
+	 * last playback clock sent to the clients
+	 */
+	private volatile PlaybackClock mClock = PlaybackClock.EMPTY;
+	/**
+	 * ID of the track of the current play event
+	 */
+	private long mEventTrackId = -1L;
+	/**
+	 * listened time of the current play event in milliseconds
+	 */
+	private long mEventListenTime = 0L;
 	/**
 	 * Used to indicate if the queue can be saved
 	 */
@@ -394,11 +411,9 @@ public class MusicPlaybackService extends MediaBrowserServiceCompat implements O
 	private int mServiceStartId = -1;
 	private int mShuffleMode = SHUFFLE_NONE;
 	private int mRepeatMode = REPEAT_ALL;
-	private int mShuffleIndex = -1;
 	private int mPlayPos = -1;
 	private int mNextPlayPos = -1;
 	private int mMediaMountedCount = 0;
-	private int mPrevious = 0;
 
 	/**
 	 * {@inheritDoc}
@@ -455,6 +470,9 @@ public class MusicPlaybackService extends MediaBrowserServiceCompat implements O
 		mRecentsCache = RecentStore.getInstance(this);
 		mFavoritesCache = FavoritesStore.getInstance(this);
 		mPopularCache = PopularStore.getInstance(this);
+		mPlayEvents = PlayEventStore.getInstance(this);
+		mShufflePool = new ShufflePool(this);
+		mBrowserTree = new MediaBrowserTree(this);
 		// Initialize the image fetcher
 		mImageFetcher = ImageFetcher.getInstance(this);
 		// Initialize the image cache
@@ -477,7 +495,11 @@ public class MusicPlaybackService extends MediaBrowserServiceCompat implements O
 		mPlayerHandler = new MusicPlayerHandler(this, thread.getLooper());
 
 		// Initialize the media player
-		mPlayer = new MultiPlayer(this);
+		if (PreferenceUtils.getInstance(this).getPlayerBackend() == MultiPlayer.BACKEND_MEDIACODEC) {
+			mPlayer = new CodecPlayer(this);
+		} else {
+			mPlayer = new SystemPlayer(this);
+		}
 		mPlayer.setHandler(mPlayerHandler);
 
 		// init media session
@@ -532,6 +554,17 @@ public class MusicPlaybackService extends MediaBrowserServiceCompat implements O
 		notifyChange(CHANGED_META);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+		super.dump(fd, writer, args);
+		// print the playback metrics with "adb shell dumpsys activity service MusicPlaybackService"
+		writer.print(PlaybackMetrics.getReport("playback service"));
+		writer.flush();
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -544,6 +577,8 @@ public class MusicPlaybackService extends MediaBrowserServiceCompat implements O
 		sendBroadcast(audioEffectsIntent);
 		// remove any pending alarms
 		mAlarmManager.cancel(mShutdownIntent);
+		// record the play event of the current track
+		finishPlayEvent();
 		// Release the player
 		mPlayer.release();
 		// release player callbacks
@@ -552,6 +587,14 @@ public class MusicPlaybackService extends MediaBrowserServiceCompat implements O
 		mPlayerHandler.removeCallbacksAndMessages(null);
 		// Close the cursor
 		closeCursor();
+		// stop observing party shuffle tracks
+		mShufflePool.release();
+		// release the browse tree
+		mBrowserTree.release();
+		// write pending play events
+		mPlayEvents.flush();
+		// write pending favorite changes before the process is stopped
+		mFavoritesCache.awaitWrites();
 		// Unregister the mount listener
 		unregisterReceiver(mUnmountReceiver);
 		unregisterReceiver(mIntentReceiver);
@@ -564,13 +607,23 @@ public class MusicPlaybackService extends MediaBrowserServiceCompat implements O
 	@Nullable
 	@Override
 	public BrowserRoot onGetRoot(@NonNull String clientPackageName, int clientUid, @Nullable @org.jetbrains.annotations.Nullable Bundle rootHints) {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+			// let the client load the artwork of the media items
+			grantUriPermission(clientPackageName, ArtworkProvider.CONTENT_URI, Intent.FLAG_GRANT_READ_URI_PERMISSION | Intent.FLAG_GRANT_PREFIX_URI_PERMISSION);
+		}
 		return new BrowserRoot(MEDIA_ID_ROOT, null);
 	}
 
 
 	@Override
 	public void onLoadChildren(@NonNull String parentId, @NonNull Result<List<MediaBrowserCompat.MediaItem>> result) {
-		result.sendResult(null);
+		mBrowserTree.loadChildren(parentId, result, null);
+	}
+
+
+	@Override
+	public void onLoadChildren(@NonNull String parentId, @NonNull Result<List<MediaBrowserCompat.MediaItem>> result, @NonNull Bundle options) {
+		mBrowserTree.loadChildren(parentId, result, options);
 	}
 
 	/**
@@ -915,6 +968,10 @@ public class MusicPlaybackService extends MediaBrowserServiceCompat implements O
 			} else if (position > mPlayer.duration()) {
 				position = mPlayer.duration();
 			}
+			if (position == 0L) {
+				// the track is played again
+				finishPlayEvent();
+			}
 			mPlayer.seek(position);
 			notifyChange(CHANGED_POSITION);
 			setPlaybackState(isPlaying());
@@ -937,6 +994,7 @@ public class MusicPlaybackService extends MediaBrowserServiceCompat implements O
 				long id = getTrackId();
 				if (id != -1L) {
 					mPlayList.addFirst(id);
+					mShuffler.insert(0, 1);
 					mPlayPos = 0;
 				}
 			}
@@ -969,7 +1027,12 @@ public class MusicPlaybackService extends MediaBrowserServiceCompat implements O
 	 * notify if track chages
 	 */
 	public synchronized void onWentToNext() {
+		// the next track may have the same ID
+		finishPlayEvent();
 		mPlayPos = mNextPlayPos;
+		if (mShuffleMode == SHUFFLE_NORMAL) {
+			mShuffler.markDrawn(mPlayPos);
+		}
 		if (mCursor != null) {
 			mCursor.close();
 		}
@@ -1025,7 +1088,14 @@ public class MusicPlaybackService extends MediaBrowserServiceCompat implements O
 	 * Notify the change-receivers that something has changed.
 	 */
 	synchronized void notifyChange(String what) {
-		if (!what.equals(CHANGED_POSITION)) {
+		long start = PlaybackMetrics.begin(PlaybackMetrics.NOTIFY_CHANGE);
+		PlaybackClock clock = updatePlaybackClock();
+		if (what.equals(CHANGED_POSITION)) {
+			// only send the new playback clock
+			Intent intent = new Intent(what);
+			clock.writeTo(intent);
+			sendBroadcast(intent);
+		} else {
 			long audioId = getAudioId();
 			long albumId = getAlbumId();
 			String albumName = getAlbumName();
@@ -1039,6 +1109,7 @@ public class MusicPlaybackService extends MediaBrowserServiceCompat implements O
 			intent.putExtra("track", trackName);
 			intent.putExtra("playing", isPlaying());
 			intent.putExtra("isfavorite", isFavorite());
+			clock.writeTo(intent);
 			sendBroadcast(intent);
 
 			Intent musicIntent = new Intent(intent);
@@ -1051,6 +1122,7 @@ public class MusicPlaybackService extends MediaBrowserServiceCompat implements O
 					mFavoritesCache.addSongId(audioId, trackName, albumName, artistName, getDurationMillis());
 				}
 				mPopularCache.addSongId(audioId, trackName, albumName, artistName, getDurationMillis());
+				mShufflePool.onPlayed(audioId, albumId);
 				// Add the track to the recently played list.
 				String songCount = MusicUtils.getSongCountForAlbum(this, albumId);
 				String release = MusicUtils.getReleaseDateForAlbum(this, albumId);
@@ -1062,6 +1134,10 @@ public class MusicPlaybackService extends MediaBrowserServiceCompat implements O
 
 			} else if (what.equals(CHANGED_QUEUE)) {
 				saveQueue(true);
+				// read the gains of new tracks before they are played
+				if (settings.getReplayGainMode() != ReplayGainStore.MODE_OFF) {
+					ReplayGainStore.getInstance(this).scan(getQueue());
+				}
 				if (isPlaying()) {
 					setNextTrack();
 				}
@@ -1070,6 +1146,7 @@ public class MusicPlaybackService extends MediaBrowserServiceCompat implements O
 			}
 			mIntentReceiver.updateWidgets(this, what);
 		}
+		PlaybackMetrics.end(PlaybackMetrics.NOTIFY_CHANGE, start);
 	}
 
 	/**
@@ -1129,8 +1206,9 @@ public class MusicPlaybackService extends MediaBrowserServiceCompat implements O
 			}
 			// setup queue shuffle
 			else if (mShuffleMode == SHUFFLE_NORMAL) {
-				if (makeNormalShuffleList()) {
-					mPlayPos = 0;
+				if (!mPlayList.isEmpty()) {
+					mShuffler.reset(mPlayList.size());
+					mPlayPos = mShuffler.next();
 					openCurrentAndNext();
 					play();
 					notifyChange(CHANGED_META);
@@ -1229,6 +1307,39 @@ public class MusicPlaybackService extends MediaBrowserServiceCompat implements O
 		return numremoved;
 	}
 
+	/**
+	 * Removes all instances of multiple tracks from the queue. The queue is only saved once
+	 *
+	 * @param ids IDs of the tracks to remove
+	 * @return how many instances of the tracks were removed
+	 */
+	synchronized int removeTracks(long[] ids) {
+		long[] sorted = Arrays.copyOf(ids, ids.length);
+		Arrays.sort(sorted);
+		// mark queue positions to remove
+		boolean[] remove = new boolean[mPlayList.size()];
+		int pos = 0;
+		for (long trackId : mPlayList) {
+			remove[pos++] = Arrays.binarySearch(sorted, trackId) >= 0;
+		}
+		// remove ranges of tracks, starting at the end so the positions before stay valid
+		int numremoved = 0;
+		for (int last = remove.length - 1; last >= 0; last--) {
+			if (remove[last]) {
+				int first = last;
+				while (first > 0 && remove[first - 1]) {
+					first--;
+				}
+				numremoved += removeTracksInternal(first, last);
+				last = first;
+			}
+		}
+		if (numremoved > 0) {
+			notifyChange(CHANGED_QUEUE);
+		}
+		return numremoved;
+	}
+
 	/**
 	 * Returns the current position in time of the currenttrack
 	 *
@@ -1241,6 +1352,15 @@ public class MusicPlaybackService extends MediaBrowserServiceCompat implements O
 		return -1L;
 	}
 
+	/**
+	 * Returns the last playback clock sent to the clients
+	 *
+	 * @return playback clock used to calculate the playback position
+	 */
+	PlaybackClock getPlaybackClock() {
+		return mClock;
+	}
+
 	/**
 	 * Returns the full duration of the current track
 	 *
@@ -1289,6 +1409,26 @@ public class MusicPlaybackService extends MediaBrowserServiceCompat implements O
 		notifyChange(CHANGED_REPEATMODE);
 	}
 
+	/**
+	 * start playback of an item of the browse tree
+	 *
+	 * @param mediaId media ID of a playable item
+	 */
+	void playFromMediaId(String mediaId) {
+		if (mediaId != null) {
+			mBrowserTree.playFromMediaId(mediaId);
+		}
+	}
+
+	/**
+	 * run a task on the player thread, used by components working on background threads to control playback
+	 *
+	 * @param task task to run
+	 */
+	void post(Runnable task) {
+		mPlayerHandler.post(task);
+	}
+
 	/**
 	 * Opens a list for playback
 	 *
@@ -1300,8 +1440,6 @@ public class MusicPlaybackService extends MediaBrowserServiceCompat implements O
 			mShuffleMode = SHUFFLE_NORMAL;
 		}
 		long oldId = getAudioId();
-		mPlayPos = position >= 0 ? position : nextInt(mPlayList.size() - 1);
-
 		boolean newlist = true;
 		if (mPlayList.size() == list.length) {
 			newlist = false;
@@ -1316,8 +1454,12 @@ public class MusicPlaybackService extends MediaBrowserServiceCompat implements O
 			mPlayList.clear();
 			for (long trackId : list)
 				mPlayList.add(trackId);
+			mShuffler.reset(mPlayList.size());
 			notifyChange(CHANGED_QUEUE);
+		} else if (mShuffler.size() != mPlayList.size()) {
+			mShuffler.reset(mPlayList.size());
 		}
+		mPlayPos = position >= 0 ? position : mShuffler.next();
 		mHistory.clear();
 		openCurrentAndNext();
 		if (oldId != getAudioId()) {
@@ -1380,6 +1522,7 @@ public class MusicPlaybackService extends MediaBrowserServiceCompat implements O
 		// move track
 		long trackId = mPlayList.remove(from);
 		mPlayList.add(to, trackId);
+		mShuffler.move(from, to);
 		// set current play pos
 		if (mPlayPos == from) {
 			mPlayPos = to;
@@ -1427,13 +1570,68 @@ public class MusicPlaybackService extends MediaBrowserServiceCompat implements O
 	 * @param play true to set play state, false to pause state
 	 */
 	private void setPlaybackState(boolean play) {
+		PlaybackClock clock = updatePlaybackClock();
 		PlaybackStateCompat playbackState = new PlaybackStateCompat.Builder()
-				.setState(play ? PlaybackStateCompat.STATE_PLAYING : PlaybackStateCompat.STATE_PAUSED, position(), 1.0f)
+				.setState(play ? PlaybackStateCompat.STATE_PLAYING : PlaybackStateCompat.STATE_PAUSED, clock.getSnapshotPosition(), clock.getSpeed(), clock.getTimestamp())
 				.setActions(PlaybackStateCompat.ACTION_SEEK_TO | PlaybackStateCompat.ACTION_PLAY_PAUSE | PlaybackStateCompat.ACTION_SKIP_TO_NEXT
 						| PlaybackStateCompat.ACTION_SKIP_TO_PREVIOUS).build();
 		mSession.setPlaybackState(playbackState);
 	}
 
+	/**
+	 * create a new snapshot of the playback position. Clients use it to calculate the current position
+	 *
+	 * @return new playback clock
+	 */
+	private PlaybackClock updatePlaybackClock() {
+		PlaybackClock clock;
+		if (mPlayer.isInitialized()) {
+			clock = new PlaybackClock(mPlayer.position(), mPlayer.duration(), isPlaying());
+		} else {
+			clock = PlaybackClock.EMPTY;
+		}
+		updatePlayEvent(mClock);
+		mClock = clock;
+		return clock;
+	}
+
+	/**
+	 * add the listened time since the last playback clock to the current play event.
+	 * If the track changed, the play event of the previous track is recorded
+	 *
+	 * @param previous last playback clock
+	 */
+	private void updatePlayEvent(PlaybackClock previous) {
+		if (previous.isPlaying()) {
+			mEventListenTime += (long) ((SystemClock.elapsedRealtime() - previous.getTimestamp()) * previous.getSpeed());
+		}
+		long trackId = getAudioId();
+		if (trackId != mEventTrackId) {
+			if (mEventTrackId != -1L && mEventListenTime > 0L && previous.getDuration() > 0L) {
+				mPlayEvents.addEvent(mEventTrackId, System.currentTimeMillis(), mEventListenTime / (float) previous.getDuration());
+			}
+			mEventTrackId = trackId;
+			mEventListenTime = 0L;
+		}
+	}
+
+	/**
+	 * record the play event of the current track, the next update of the playback clock starts a new event.
+	 * Used when the track stops or starts again, where the track ID doesn't change
+	 */
+	private void finishPlayEvent() {
+		PlaybackClock clock = mClock;
+		if (clock.isPlaying()) {
+			mEventListenTime += (long) ((SystemClock.elapsedRealtime() - clock.getTimestamp()) * clock.getSpeed());
+		}
+		if (mEventTrackId != -1L && mEventListenTime > 0L && clock.getDuration() > 0L) {
+			mPlayEvents.addEvent(mEventTrackId, System.currentTimeMillis(), mEventListenTime / (float) clock.getDuration());
+		}
+		// the listened time until the next clock update is not counted twice, the next update resets it
+		mEventTrackId = -1L;
+		mEventListenTime = 0L;
+	}
+
 	/**
 	 *
 	 */
@@ -1477,6 +1675,7 @@ public class MusicPlaybackService extends MediaBrowserServiceCompat implements O
 	 * @param goToIdle True to go to the idle state, false otherwise
 	 */
 	private void stop(boolean goToIdle) {
+		finishPlayEvent();
 		if (mPlayer.isInitialized()) {
 			mPlayer.stop();
 		}
@@ -1515,6 +1714,7 @@ public class MusicPlaybackService extends MediaBrowserServiceCompat implements O
 		}
 		// remove a range of tracks from playlist
 		mPlayList.subList(first, last + 1).clear();
+		mShuffler.remove(first, last);
 		if (gotonext) {
 			if (mPlayList.isEmpty()) {
 				stop(true);
@@ -1551,6 +1751,7 @@ public class MusicPlaybackService extends MediaBrowserServiceCompat implements O
 		if (position > mPlayList.size()) {
 			position = mPlayList.size();
 		}
+		mShuffler.insert(position, list.length);
 		for (long trackId : list) {
 			mPlayList.add(position++, trackId);
 		}
@@ -1645,11 +1846,27 @@ public class MusicPlaybackService extends MediaBrowserServiceCompat implements O
 	 * Called to open a new file as the current track and prepare the next for playback
 	 */
 	private void openCurrentTrack() {
+		finishPlayEvent();
+		long start = PlaybackMetrics.begin(PlaybackMetrics.OPEN_TRACK);
+		try {
+			openCurrentTrackImpl();
+		} finally {
+			PlaybackMetrics.end(PlaybackMetrics.OPEN_TRACK, start);
+		}
+	}
+
+	/**
+	 * open the current track, skip to the next tracks if the file can't be opened
+	 */
+	private void openCurrentTrackImpl() {
 		closeCursor();
 		if (mPlayList.isEmpty()) {
 			return;
 		}
 		stop(false);
+		if (mShuffleMode == SHUFFLE_NORMAL) {
+			mShuffler.markDrawn(mPlayPos);
+		}
 		updateCursor(mPlayList.get(mPlayPos));
 		boolean fileOpenFailed;
 		long id = getTrackId();
@@ -1664,6 +1881,7 @@ public class MusicPlaybackService extends MediaBrowserServiceCompat implements O
 			// we're either going to create a new one next, or stop trying
 			if (mPlayList.size() > 1) {
 				for (int i = 0; i < 10; i++) { // retrying 10 times until failure
+					PlaybackMetrics.count(PlaybackMetrics.OPEN_RETRY);
 					int pos = getNextPosition(false);
 					if (pos < 0) {
 						scheduleDelayedShutdown();
@@ -1675,7 +1893,9 @@ public class MusicPlaybackService extends MediaBrowserServiceCompat implements O
 					}
 					mPlayPos = pos;
 					stop(false);
-					mPlayPos = pos;
+					if (mShuffleMode == SHUFFLE_NORMAL) {
+						mShuffler.markDrawn(mPlayPos);
+					}
 					updateCursor(mPlayList.get(mPlayPos));
 				}
 			}
@@ -1710,16 +1930,13 @@ public class MusicPlaybackService extends MediaBrowserServiceCompat implements O
 				if (mHistory.size() > MAX_HISTORY_SIZE) {
 					mHistory.removeFirst();
 				}
-				// reset shuffle list after reaching the end or refreshing
-				if (mNormalShuffleList.size() != mPlayList.size() || mShuffleIndex < 0 || mShuffleIndex >= mNormalShuffleList.size()) {
-					// create a new shuffle list. if fail, prevent playing
-					mShuffleIndex = 0;
-					if (!makeNormalShuffleList()) {
-						return -1;
-					}
+				// start a new permutation if the queue was replaced
+				if (mShuffler.size() != mPlayList.size()) {
+					mShuffler.reset(mPlayList.size());
+					mShuffler.markDrawn(mPlayPos);
 				}
-				// get index of the new track
-				return mNormalShuffleList.get(mShuffleIndex++);
+				// get index of the new track, drawn when the track starts playing
+				return mShuffler.peek();
 
 			// Party shuffle
 			case SHUFFLE_AUTO:
@@ -1756,47 +1973,12 @@ public class MusicPlaybackService extends MediaBrowserServiceCompat implements O
 	}
 
 	/**
-	 * Creates a shuffled playlist used for party mode
-	 */
-	private boolean makeAutoShuffleList() {
-		try {
-			Cursor cursor = CursorFactory.makeTrackCursor(this);
-			if (cursor != null) {
-				if (cursor.moveToFirst()) {
-					mAutoShuffleList.clear();
-					mAutoShuffleList.ensureCapacity(cursor.getColumnCount());
-					do {
-						long id = cursor.getLong(0);
-						mAutoShuffleList.add(id);
-					} while (cursor.moveToNext());
-					return true;
-				}
-				cursor.close();
-			}
-		} catch (RuntimeException e) {
-			if (BuildConfig.DEBUG) {
-				e.printStackTrace();
-			}
-		}
-		return false;
-	}
-
-	/**
-	 * create a shuffle list of the current queue
+	 * prepare the track pool used for party mode
 	 *
-	 * @return true if success, false if there aren't any tracks
+	 * @return true if there are tracks to play
 	 */
-	private boolean makeNormalShuffleList() {
-		if (!mPlayList.isEmpty()) {
-			mNormalShuffleList.clear();
-			mNormalShuffleList.ensureCapacity(mPlayList.size());
-			for (int index = 0; index < mPlayList.size(); index++) {
-				mNormalShuffleList.add(index);
-			}
-			Collections.shuffle(mNormalShuffleList, mRandom);
-			return true;
-		}
-		return false;
+	private boolean makeAutoShuffleList() {
+		return mShufflePool.load(settings.getShuffleWeighting());
 	}
 
 	/**
@@ -1809,43 +1991,16 @@ public class MusicPlaybackService extends MediaBrowserServiceCompat implements O
 		}
 		int toAdd = 7 - (mPlayList.size() - (mPlayPos < 0 ? -1 : mPlayPos));
 		for (int i = 0; i < toAdd; i++) {
-			int lookback = mHistory.size();
-			int idx;
-			do {
-				idx = nextInt(mAutoShuffleList.size() - 1);
-				lookback /= 2;
-			} while (wasRecentlyUsed(idx, lookback));
-
-			mHistory.add(idx);
-			if (mHistory.size() > MAX_HISTORY_SIZE) {
-				mHistory.removeFirst();
+			long trackId = mShufflePool.next();
+			if (trackId == -1L) {
+				break;
 			}
-			mPlayList.add(mAutoShuffleList.get(idx));
+			mShuffler.insert(mPlayList.size(), 1);
+			mPlayList.add(trackId);
 			notifyChange(CHANGED_QUEUE);
 		}
 	}
 
-	/**
-	 *
-	 */
-	private boolean wasRecentlyUsed(int idx, int lookbacksize) {
-		if (lookbacksize == 0) {
-			return false;
-		}
-		int histsize = mHistory.size();
-		if (histsize < lookbacksize) {
-			lookbacksize = histsize;
-		}
-		int maxidx = histsize - 1;
-		for (int i = 0; i < lookbacksize; i++) {
-			long entry = mHistory.get(maxidx - i);
-			if (entry == idx) {
-				return true;
-			}
-		}
-		return false;
-	}
-
 	/**
 	 *
 	 */
@@ -1873,28 +2028,6 @@ public class MusicPlaybackService extends MediaBrowserServiceCompat implements O
 		return -1L;
 	}
 
-	/**
-	 * @param interval The duration the queue
-	 * @return The position of the next track to play
-	 */
-	private int nextInt(int interval) {
-		int next;
-		do {
-			next = mRandom.nextInt(interval);
-		} while (next == mPrevious && interval > 1 && !mPreviousNumbers.contains(next));
-		mPrevious = next;
-		mHistoryOfNumbers.add(mPrevious);
-		mPreviousNumbers.add(mPrevious);
-		// Removes old tracks and cleans up the history preparing for new tracks
-		// to be added to the mapping
-		if (!mHistoryOfNumbers.isEmpty() && mHistoryOfNumbers.size() >= MusicPlaybackService.MAX_HISTORY_SIZE) {
-			for (int i = 0; i < Math.max(1, MusicPlaybackService.MAX_HISTORY_SIZE / 2); i++) {
-				mPreviousNumbers.remove(mHistoryOfNumbers.removeFirst());
-			}
-		}
-		return next;
-	}
-
 	/**
 	 * open media file using its content ID and prepare for playback
 	 *
@@ -1920,17 +2053,25 @@ public class MusicPlaybackService extends MediaBrowserServiceCompat implements O
 	 */
 	private void saveQueue(boolean full) {
 		if (mQueueIsSaveable) {
+			long start = PlaybackMetrics.begin(PlaybackMetrics.SAVE_QUEUE);
 			if (full) {
+				PlaybackMetrics.gauge(PlaybackMetrics.QUEUE_SIZE, mPlayList.size());
+				mPlayEvents.flush();
 				settings.setPlayList(mPlayList, mCardId);
 				if (mShuffleMode != SHUFFLE_NONE) {
 					settings.setHistory(mHistory);
 				}
 			}
+			// the permutation changes with every track
+			if (mShuffleMode == SHUFFLE_NORMAL) {
+				settings.setShuffleState(mShuffler.saveState());
+			}
 			settings.setCursorPosition(mPlayPos);
 			if (mPlayer.isInitialized()) {
 				settings.setSeekPosition(mPlayer.position());
 			}
 			settings.setRepeatAndShuffleMode(mRepeatMode, mShuffleMode);
+			PlaybackMetrics.end(PlaybackMetrics.SAVE_QUEUE, start);
 		}
 	}
 
@@ -1980,6 +2121,14 @@ public class MusicPlaybackService extends MediaBrowserServiceCompat implements O
 				}
 			}
 			mShuffleMode = shufmode;
+			// continue the shuffle order of the last session
+			if (shufmode == SHUFFLE_NORMAL) {
+				if (!mShuffler.restoreState(settings.getShuffleState(), mPlayList.size())) {
+					mShuffler.reset(mPlayList.size());
+					mShuffler.markDrawn(mPlayPos);
+				}
+				setNextTrack();
+			}
 		}
 	}
 }
\ No newline at end of file
@@ -5,6 +5,9 @@ import android.net.Uri;
 
 import com.andrew.apollo.IApolloService;
 
+import org.nuclearfog.apollo.player.PlaybackClock;
+import org.nuclearfog.apollo.utils.PlaybackMetrics;
+
 import java.lang.ref.WeakReference;
 
 /**
@@ -208,6 +211,17 @@ public class ServiceStub extends IApolloService.Stub {
 		return 0L;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long[] getPlaybackClock() {
+		MusicPlaybackService service = mService.get();
+		if (service != null)
+			return service.getPlaybackClock().toArray();
+		return PlaybackClock.EMPTY.toArray();
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -384,6 +398,17 @@ public class ServiceStub extends IApolloService.Stub {
 		return 0;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int removeTrackList(long[] ids) {
+		MusicPlaybackService service = mService.get();
+		if (service != null)
+			return service.removeTracks(ids);
+		return 0;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -405,4 +430,23 @@ public class ServiceStub extends IApolloService.Stub {
 			return service.getAudioSessionId();
 		return 0;
 	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setMetricsEnabled(boolean enable) {
+		PlaybackMetrics.setEnabled(enable);
+		if (!enable) {
+			PlaybackMetrics.reset();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getMetricsReport() {
+		return PlaybackMetrics.getReport("playback service");
+	}
 }
\ No newline at end of file
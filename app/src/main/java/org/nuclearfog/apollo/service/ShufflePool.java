@@ -0,0 +1,675 @@
+package org.nuclearfog.apollo.service;
+
+import android.content.Context;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.MediaStore.Audio.Media;
+
+import androidx.annotation.Nullable;
+
+import org.nuclearfog.apollo.BuildConfig;
+import org.nuclearfog.apollo.provider.ExcludeStore;
+import org.nuclearfog.apollo.provider.ExcludeStore.Type;
+import org.nuclearfog.apollo.utils.CursorFactory;
+import org.nuclearfog.apollo.utils.GenreIndex;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Pool of all tracks used for party shuffle. Excluded tracks, albums, artists and genres are never drawn.
+ * The pool is loaded once and updated for every changed track after that, so drawing a track needs no query.
+ * The library is scanned without holding the lock of the pool, so drawing a track is not blocked by a scan.
+ * Tracks are drawn with a weight stored in a Fenwick tree, recently drawn tracks are blocked until they leave the recency window.
+ *
+ * @author nuclearfog
+ */
+final class ShufflePool {
+
+	/**
+	 * every track has the same weight
+	 */
+	static final int WEIGHT_NONE = 0;
+
+	/**
+	 * tracks played more often are preferred
+	 */
+	static final int WEIGHT_PLAYCOUNT = 1;
+
+	/**
+	 * tracks of albums which were not played recently are preferred
+	 */
+	static final int WEIGHT_RECENCY = 2;
+
+	/**
+	 * one day in milliseconds
+	 */
+	private static final long DAY = 86400000L;
+
+	/**
+	 * max age of an album in days used as weight
+	 */
+	private static final int MAX_AGE = 30;
+
+	/**
+	 * max play count used as weight
+	 */
+	private static final long MAX_PLAYCOUNT = 100L;
+
+	/**
+	 * max number of recently drawn tracks which are blocked
+	 */
+	private static final int RECENT_WINDOW = 100;
+
+	private final Context context;
+	private final Random random = new Random();
+	private final ContentObserver observer;
+
+	/**
+	 * slot of every track in the pool, mapped by track ID
+	 */
+	private Map<Long, Integer> slots = new HashMap<>();
+
+	/**
+	 * track, album and artist ID of every slot. free slots have a track ID of -1
+	 */
+	private long[] trackIds = new long[0];
+	private long[] albumIds = new long[0];
+	private long[] artistIds = new long[0];
+
+	/**
+	 * weight of every slot, 0 if the track is excluded or the slot is free
+	 */
+	private long[] weights = new long[0];
+
+	/**
+	 * true if the track of a slot was drawn recently
+	 */
+	private boolean[] blocked = new boolean[0];
+
+	/**
+	 * Fenwick tree with the weights of all slots which are not blocked
+	 */
+	private long[] tree = new long[1];
+
+	/**
+	 * free slots
+	 */
+	private int[] freeSlots = new int[0];
+	private int freeCount = 0;
+
+	/**
+	 * number of used slots
+	 */
+	private int size = 0;
+
+	/**
+	 * ring buffer of recently drawn slots
+	 */
+	private final int[] recent = new int[RECENT_WINDOW];
+	private int recentStart = 0;
+	private int recentCount = 0;
+
+	/**
+	 * number of tracks which can be drawn
+	 */
+	private int candidates = 0;
+
+	/**
+	 * sum of all weights in the tree
+	 */
+	private long total = 0L;
+
+	private Set<Long> excludedTracks = new HashSet<>();
+	private Set<Long> excludedAlbums = new HashSet<>();
+	private Set<Long> excludedArtists = new HashSet<>();
+
+	/**
+	 * play count of every track, mapped by track ID
+	 */
+	private Map<Long, Long> playCounts = new HashMap<>();
+
+	/**
+	 * time of the last play of every album, mapped by album ID
+	 */
+	private Map<Long, Long> playTimes = new HashMap<>();
+
+	private int weighting = WEIGHT_NONE;
+
+	/**
+	 * true if the pool is loaded and observes the MediaStore
+	 */
+	private boolean loaded = false;
+
+	/**
+	 * true if the pool must be loaded again
+	 */
+	private volatile boolean invalid = true;
+
+	/**
+	 * number of changes of the pool, used to detect changes while the library is scanned
+	 */
+	private int version = 0;
+
+	/**
+	 * @param context context used to query the tracks
+	 */
+	ShufflePool(Context context) {
+		this.context = context.getApplicationContext();
+		observer = new ContentObserver(null) {
+			@Override
+			public void onChange(boolean selfChange) {
+				onChange(selfChange, null);
+			}
+
+			@Override
+			public void onChange(boolean selfChange, @Nullable Uri uri) {
+				onMediaChange(uri);
+			}
+		};
+	}
+
+	/**
+	 * prepare the pool for party shuffle. The library is only scanned the first time or after a change which couldn't be applied to the pool.
+	 * Exclusions and weights are reloaded every time
+	 *
+	 * @param weighting weighting used to draw tracks, {@link #WEIGHT_NONE}, {@link #WEIGHT_PLAYCOUNT} or {@link #WEIGHT_RECENCY}
+	 * @return true if there are tracks to draw
+	 */
+	boolean load(int weighting) {
+		synchronized (this) {
+			if (!loaded) {
+				context.getContentResolver().registerContentObserver(Media.EXTERNAL_CONTENT_URI, true, observer);
+				loaded = true;
+			}
+		}
+		if (invalid) {
+			scan();
+		}
+		// query exclusions and weights before locking the pool
+		ExcludeStore excludeStore = ExcludeStore.getInstance(context);
+		Set<Long> tracks = excludeStore.getIds(Type.SONG);
+		Set<Long> albums = excludeStore.getIds(Type.ALBUM);
+		Set<Long> artists = excludeStore.getIds(Type.ARTIST);
+		Set<Long> genres = excludeStore.getIds(Type.GENRE);
+		if (!genres.isEmpty()) {
+			long[] genreIds = new long[genres.size()];
+			int i = 0;
+			for (long genreId : genres) {
+				genreIds[i++] = genreId;
+			}
+			for (long trackId : GenreIndex.getInstance(context).getTracks(genreIds)) {
+				tracks.add(trackId);
+			}
+		}
+		Map<Long, Long> counts = new HashMap<>();
+		Map<Long, Long> times = new HashMap<>();
+		loadWeights(weighting, counts, times);
+		synchronized (this) {
+			this.weighting = weighting;
+			excludedTracks = tracks;
+			excludedAlbums = albums;
+			excludedArtists = artists;
+			playCounts = counts;
+			playTimes = times;
+			updateWeights();
+			return candidates > 0;
+		}
+	}
+
+	/**
+	 * draw a random track. Recently drawn tracks are skipped if possible
+	 *
+	 * @return track ID or -1 if there are no tracks
+	 */
+	long next() {
+		if (invalid) {
+			scan();
+		}
+		synchronized (this) {
+			if (candidates == 0) {
+				return -1L;
+			}
+			// keep at least half of the candidates available
+			int window = Math.min(RECENT_WINDOW, candidates / 2);
+			while (recentCount > 0 && (recentCount > window || total <= 0L)) {
+				unblock();
+			}
+			if (total <= 0L) {
+				return -1L;
+			}
+			long value = (long) (random.nextDouble() * total);
+			int slot = find(Math.min(value, total - 1L));
+			if (window > 0) {
+				block(slot);
+			}
+			return trackIds[slot];
+		}
+	}
+
+	/**
+	 * update the weights after a track was played
+	 *
+	 * @param trackId ID of the played track
+	 * @param albumId album ID of the played track
+	 */
+	synchronized void onPlayed(long trackId, long albumId) {
+		if (!loaded)
+			return;
+		Long count = playCounts.get(trackId);
+		playCounts.put(trackId, count != null ? count + 1L : 1L);
+		playTimes.put(albumId, System.currentTimeMillis());
+		if (weighting == WEIGHT_PLAYCOUNT) {
+			Integer slot = slots.get(trackId);
+			if (slot != null) {
+				setWeight(slot, getWeight(slot));
+			}
+		} else if (weighting == WEIGHT_RECENCY) {
+			for (int slot = 0; slot < size; slot++) {
+				if (albumIds[slot] == albumId && trackIds[slot] != -1L) {
+					setWeight(slot, getWeight(slot));
+				}
+			}
+		}
+	}
+
+	/**
+	 * stop observing the MediaStore and clear the pool
+	 */
+	synchronized void release() {
+		if (loaded) {
+			context.getContentResolver().unregisterContentObserver(observer);
+			loaded = false;
+		}
+		invalid = true;
+		version++;
+		clear(0);
+	}
+
+	/**
+	 * apply a MediaStore change. A change of a single track is applied to the pool, all other changes scan the library again
+	 *
+	 * @param uri uri of the changed content or null if unknown
+	 */
+	private void onMediaChange(@Nullable Uri uri) {
+		long trackId = -1L;
+		if (uri != null) {
+			try {
+				String segment = uri.getLastPathSegment();
+				if (segment != null) {
+					trackId = Long.parseLong(segment);
+				}
+			} catch (NumberFormatException exception) {
+				// uri doesn't point on a single track
+			}
+		}
+		if (trackId == -1L) {
+			boolean rescan;
+			synchronized (this) {
+				rescan = loaded;
+				if (!loaded) {
+					invalid = true;
+				}
+			}
+			if (rescan) {
+				// scan the library again
+				scan();
+			}
+			return;
+		}
+		long albumId = 0L;
+		long artistId = 0L;
+		boolean exists = false;
+		Cursor cursor = CursorFactory.makeShuffleCursor(context, trackId);
+		if (cursor != null) {
+			if (cursor.moveToFirst()) {
+				albumId = cursor.getLong(1);
+				artistId = cursor.getLong(2);
+				exists = true;
+			}
+			cursor.close();
+		}
+		synchronized (this) {
+			if (invalid)
+				return;
+			version++;
+			Integer slot = slots.get(trackId);
+			if (slot != null) {
+				remove(slot);
+			}
+			if (exists) {
+				add(trackId, albumId, artistId);
+			}
+		}
+	}
+
+	/**
+	 * scan all tracks of the MediaStore and replace the tracks of the pool. The MediaStore is queried without holding the lock
+	 */
+	private void scan() {
+		int start;
+		synchronized (this) {
+			start = version;
+		}
+		Tracks tracks = query();
+		synchronized (this) {
+			if (version != start) {
+				// the pool was changed while scanning, scan again before the next draw
+				invalid = true;
+				return;
+			}
+			version++;
+			if (tracks != null) {
+				clear(tracks.count);
+				for (int i = 0; i < tracks.count; i++) {
+					add(tracks.trackIds[i], tracks.albumIds[i], tracks.artistIds[i]);
+				}
+				invalid = false;
+			} else {
+				clear(0);
+				invalid = true;
+			}
+			updateWeights();
+		}
+	}
+
+	/**
+	 * query all tracks of the MediaStore
+	 *
+	 * @return tracks or null if an error occured
+	 */
+	@Nullable
+	private Tracks query() {
+		Cursor cursor = null;
+		try {
+			cursor = CursorFactory.makeShuffleCursor(context);
+			if (cursor == null) {
+				return new Tracks(0);
+			}
+			Tracks tracks = new Tracks(cursor.getCount());
+			if (cursor.moveToFirst()) {
+				do {
+					tracks.add(cursor.getLong(0), cursor.getLong(1), cursor.getLong(2));
+				} while (cursor.moveToNext());
+			}
+			return tracks;
+		} catch (RuntimeException exception) {
+			if (BuildConfig.DEBUG) {
+				exception.printStackTrace();
+			}
+			return null;
+		} finally {
+			if (cursor != null) {
+				cursor.close();
+			}
+		}
+	}
+
+	/**
+	 * load play counts or play times used as weight
+	 *
+	 * @param weighting weighting to load the values for
+	 * @param counts    map to add the play count of every track
+	 * @param times     map to add the time of the last play of every album
+	 */
+	private void loadWeights(int weighting, Map<Long, Long> counts, Map<Long, Long> times) {
+		Cursor cursor = null;
+		try {
+			if (weighting == WEIGHT_PLAYCOUNT) {
+				cursor = CursorFactory.makePopularCursor(context);
+				if (cursor != null && cursor.moveToFirst()) {
+					do {
+						counts.put(cursor.getLong(0), cursor.getLong(4));
+					} while (cursor.moveToNext());
+				}
+			} else if (weighting == WEIGHT_RECENCY) {
+				cursor = CursorFactory.makeRecentCursor(context);
+				if (cursor != null && cursor.moveToFirst()) {
+					do {
+						times.put(cursor.getLong(0), cursor.getLong(5));
+					} while (cursor.moveToNext());
+				}
+			}
+		} catch (RuntimeException exception) {
+			if (BuildConfig.DEBUG) {
+				exception.printStackTrace();
+			}
+		} finally {
+			if (cursor != null) {
+				cursor.close();
+			}
+		}
+	}
+
+	/**
+	 * calculate the weight of every slot and rebuild the tree
+	 */
+	private void updateWeights() {
+		candidates = 0;
+		for (int slot = 0; slot < size; slot++) {
+			weights[slot] = getWeight(slot);
+			if (weights[slot] > 0L) {
+				candidates++;
+			}
+		}
+		rebuild();
+	}
+
+	/**
+	 * calculate the weight of a slot
+	 *
+	 * @return weight or 0 if the track can't be drawn
+	 */
+	private long getWeight(int slot) {
+		long trackId = trackIds[slot];
+		if (trackId == -1L || excludedTracks.contains(trackId) || excludedAlbums.contains(albumIds[slot]) || excludedArtists.contains(artistIds[slot])) {
+			return 0L;
+		}
+		if (weighting == WEIGHT_PLAYCOUNT) {
+			Long count = playCounts.get(trackId);
+			return 1L + (count != null ? Math.min(count, MAX_PLAYCOUNT) : 0L);
+		}
+		if (weighting == WEIGHT_RECENCY) {
+			Long time = playTimes.get(albumIds[slot]);
+			if (time == null)
+				return MAX_AGE + 1;
+			long age = (System.currentTimeMillis() - time) / DAY;
+			return 1L + Math.max(Math.min(age, MAX_AGE), 0L);
+		}
+		return 1L;
+	}
+
+	/**
+	 * add a track to a free slot
+	 */
+	private void add(long trackId, long albumId, long artistId) {
+		int slot;
+		if (freeCount > 0) {
+			slot = freeSlots[--freeCount];
+		} else {
+			if (size == trackIds.length) {
+				grow(Math.max(size * 2, 16));
+			}
+			slot = size++;
+		}
+		trackIds[slot] = trackId;
+		albumIds[slot] = albumId;
+		artistIds[slot] = artistId;
+		weights[slot] = 0L;
+		blocked[slot] = false;
+		slots.put(trackId, slot);
+		setWeight(slot, getWeight(slot));
+	}
+
+	/**
+	 * remove a track and free its slot
+	 */
+	private void remove(int slot) {
+		setWeight(slot, 0L);
+		slots.remove(trackIds[slot]);
+		trackIds[slot] = -1L;
+		if (freeCount == freeSlots.length) {
+			freeSlots = Arrays.copyOf(freeSlots, Math.max(freeCount * 2, 16));
+		}
+		freeSlots[freeCount++] = slot;
+	}
+
+	/**
+	 * change the weight of a slot
+	 */
+	private void setWeight(int slot, long weight) {
+		long old = weights[slot];
+		if (old == weight)
+			return;
+		if (old == 0L) {
+			candidates++;
+		} else if (weight == 0L) {
+			candidates--;
+		}
+		weights[slot] = weight;
+		if (!blocked[slot]) {
+			update(slot, weight - old);
+		}
+	}
+
+	/**
+	 * block a drawn slot until it leaves the recency window
+	 */
+	private void block(int slot) {
+		if (recentCount == recent.length) {
+			unblock();
+		}
+		blocked[slot] = true;
+		update(slot, -weights[slot]);
+		recent[(recentStart + recentCount) % recent.length] = slot;
+		recentCount++;
+	}
+
+	/**
+	 * unblock the oldest drawn slot
+	 */
+	private void unblock() {
+		int slot = recent[recentStart];
+		recentStart = (recentStart + 1) % recent.length;
+		recentCount--;
+		if (blocked[slot]) {
+			blocked[slot] = false;
+			update(slot, weights[slot]);
+		}
+	}
+
+	/**
+	 * add a value to the weight of a slot in the tree
+	 */
+	private void update(int slot, long delta) {
+		total += delta;
+		for (int i = slot + 1; i < tree.length; i += i & -i) {
+			tree[i] += delta;
+		}
+	}
+
+	/**
+	 * find the slot containing a value of the cumulative weights
+	 *
+	 * @param value value between 0 and {@link #total}
+	 * @return slot index
+	 */
+	private int find(long value) {
+		int position = 0;
+		for (int step = Integer.highestOneBit(tree.length - 1); step > 0; step >>= 1) {
+			int next = position + step;
+			if (next < tree.length && tree[next] <= value) {
+				position = next;
+				value -= tree[next];
+			}
+		}
+		return position;
+	}
+
+	/**
+	 * rebuild the tree from the weights
+	 */
+	private void rebuild() {
+		Arrays.fill(tree, 0L);
+		total = 0L;
+		for (int i = 1; i < tree.length; i++) {
+			int slot = i - 1;
+			if (slot < size && !blocked[slot]) {
+				tree[i] += weights[slot];
+				total += weights[slot];
+			}
+			int parent = i + (i & -i);
+			if (parent < tree.length) {
+				tree[parent] += tree[i];
+			}
+		}
+	}
+
+	/**
+	 * remove all tracks
+	 *
+	 * @param capacity expected number of tracks
+	 */
+	private void clear(int capacity) {
+		slots = new HashMap<>(capacity * 2);
+		trackIds = new long[capacity];
+		albumIds = new long[capacity];
+		artistIds = new long[capacity];
+		weights = new long[capacity];
+		blocked = new boolean[capacity];
+		tree = new long[capacity + 1];
+		freeCount = 0;
+		size = 0;
+		recentStart = 0;
+		recentCount = 0;
+		candidates = 0;
+		total = 0L;
+	}
+
+	/**
+	 * increase the capacity of the pool
+	 */
+	private void grow(int capacity) {
+		trackIds = Arrays.copyOf(trackIds, capacity);
+		albumIds = Arrays.copyOf(albumIds, capacity);
+		artistIds = Arrays.copyOf(artistIds, capacity);
+		weights = Arrays.copyOf(weights, capacity);
+		blocked = Arrays.copyOf(blocked, capacity);
+		tree = new long[capacity + 1];
+		rebuild();
+	}
+
+	/**
+	 * tracks of a library scan
+	 */
+	private static final class Tracks {
+
+		final long[] trackIds;
+		final long[] albumIds;
+		final long[] artistIds;
+		int count = 0;
+
+		Tracks(int capacity) {
+			trackIds = new long[capacity];
+			albumIds = new long[capacity];
+			artistIds = new long[capacity];
+		}
+
+		/**
+		 * add a track, tracks exceeding the capacity are ignored
+		 */
+		void add(long trackId, long albumId, long artistId) {
+			if (count < trackIds.length) {
+				trackIds[count] = trackId;
+				albumIds[count] = albumId;
+				artistIds[count] = artistId;
+				count++;
+			}
+		}
+	}
+}
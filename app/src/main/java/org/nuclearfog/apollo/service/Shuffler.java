@@ -0,0 +1,407 @@
+package org.nuclearfog.apollo.service;
+
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Generator for random track positions without repeats. Positions are drawn from a Fisher-Yates permutation
+ * which is advanced by one step for every draw, so every position is returned once per cycle.
+ * At the start of a new cycle, recently drawn positions are avoided. Changes of the queue are applied
+ * to the permutation without shuffling it again. The state can be saved with the queue, so the order continues after a restart.
+ *
+ * @author nuclearfog
+ */
+final class Shuffler {
+
+	/**
+	 * max number of tries to find a position outside of the recency window
+	 */
+	private static final int MAX_TRIES = 8;
+
+	/**
+	 * separator of the saved state values
+	 */
+	private static final String SEPARATOR = ";";
+
+	/**
+	 * max number of recently drawn positions to avoid at the start of a new cycle
+	 */
+	private final int recentWindow;
+
+	/**
+	 * permutation of all positions. positions before {@link #cursor} were drawn in the current cycle
+	 */
+	private int[] permutation = new int[0];
+
+	/**
+	 * index of every position in {@link #permutation}
+	 */
+	private int[] indexes = new int[0];
+
+	/**
+	 * draw counter value of the last draw of every position
+	 */
+	private long[] stamps = new long[0];
+
+	/**
+	 * number of positions
+	 */
+	private int size = 0;
+
+	/**
+	 * number of positions drawn in the current cycle
+	 */
+	private int cursor = 0;
+
+	/**
+	 * number of all draws, used to find recently drawn positions
+	 */
+	private long drawCount = 0L;
+
+	/**
+	 * true if the position at {@link #cursor} was selected but not drawn yet
+	 */
+	private boolean peeked = false;
+
+	/**
+	 * state of the random generator
+	 */
+	private long seed;
+
+	/**
+	 * @param seed         seed of the random generator
+	 * @param recentWindow max number of recently drawn positions to avoid at the start of a new cycle
+	 */
+	Shuffler(long seed, int recentWindow) {
+		this.seed = seed;
+		this.recentWindow = recentWindow;
+	}
+
+	/**
+	 * save the permutation, the recently drawn positions and the state of the random generator
+	 *
+	 * @return state used by {@link #restoreState(String, int)}
+	 */
+	String saveState() {
+		// recently drawn positions, the oldest first
+		int[] recent = new int[recentWindow];
+		int recentCount = 0;
+		for (int position = 0; position < size; position++) {
+			if (isRecent(position, recentWindow)) {
+				recent[(int) (drawCount - stamps[position])] = position + 1;
+				recentCount++;
+			}
+		}
+		StringBuilder buffer = new StringBuilder(size * 4 + 32);
+		buffer.append(seed).append(SEPARATOR);
+		buffer.append(Integer.toHexString(cursor)).append(SEPARATOR);
+		buffer.append(peeked ? '1' : '0').append(SEPARATOR);
+		buffer.append(Integer.toHexString(recentCount)).append(SEPARATOR);
+		for (int i = recent.length - 1; i >= 0; i--) {
+			if (recent[i] > 0) {
+				buffer.append(Integer.toHexString(recent[i] - 1)).append(SEPARATOR);
+			}
+		}
+		for (int i = 0; i < size; i++) {
+			buffer.append(Integer.toHexString(permutation[i])).append(SEPARATOR);
+		}
+		return buffer.toString();
+	}
+
+	/**
+	 * restore a saved permutation, so the positions are drawn in the same order as before
+	 *
+	 * @param state saved state
+	 * @param size  current number of positions
+	 * @return true if the state was restored, false if the state is invalid or doesn't match the size
+	 */
+	boolean restoreState(@Nullable String state, int size) {
+		if (state == null || state.isEmpty())
+			return false;
+		String[] items = state.split(SEPARATOR);
+		try {
+			if (items.length < 4)
+				return false;
+			long newSeed = Long.parseLong(items[0]);
+			int newCursor = Integer.parseInt(items[1], 16);
+			boolean newPeeked = items[2].equals("1");
+			int recentCount = Integer.parseInt(items[3], 16);
+			if (newCursor < 0 || newCursor > size || (newPeeked && newCursor == size) || recentCount < 0 || recentCount > size)
+				return false;
+			if (items.length != size + recentCount + 4)
+				return false;
+			int capacity = Math.max(size, 16);
+			int[] newPermutation = new int[capacity];
+			int[] newIndexes = new int[capacity];
+			long[] newStamps = new long[capacity];
+			Arrays.fill(newIndexes, -1);
+			for (int i = 0; i < size; i++) {
+				int position = Integer.parseInt(items[i + recentCount + 4], 16);
+				// every position must be used once
+				if (position < 0 || position >= size || newIndexes[position] >= 0)
+					return false;
+				newPermutation[i] = position;
+				newIndexes[position] = i;
+			}
+			for (int i = 0; i < recentCount; i++) {
+				int position = Integer.parseInt(items[i + 4], 16);
+				if (position < 0 || position >= size)
+					return false;
+				newStamps[position] = i + 1;
+			}
+			permutation = newPermutation;
+			indexes = newIndexes;
+			stamps = newStamps;
+			this.size = size;
+			seed = newSeed;
+			cursor = newCursor;
+			peeked = newPeeked;
+			drawCount = recentCount;
+			return true;
+		} catch (NumberFormatException exception) {
+			return false;
+		}
+	}
+
+	/**
+	 * start a new permutation
+	 *
+	 * @param size number of positions
+	 */
+	void reset(int size) {
+		if (permutation.length < size) {
+			int capacity = Math.max(size, 16);
+			permutation = new int[capacity];
+			indexes = new int[capacity];
+			stamps = new long[capacity];
+		} else {
+			Arrays.fill(stamps, 0, size, 0L);
+		}
+		for (int i = 0; i < size; i++) {
+			permutation[i] = i;
+			indexes[i] = i;
+		}
+		this.size = size;
+		cursor = 0;
+		drawCount = 0L;
+		peeked = false;
+	}
+
+	/**
+	 * @return number of positions
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * draw the next random position
+	 *
+	 * @return random position or -1 if there are no positions
+	 */
+	int next() {
+		int position = peek();
+		if (position >= 0) {
+			cursor++;
+			stamps[position] = ++drawCount;
+			peeked = false;
+		}
+		return position;
+	}
+
+	/**
+	 * get the next random position without drawing it. The same position is returned until {@link #next()} is called
+	 *
+	 * @return random position or -1 if there are no positions
+	 */
+	int peek() {
+		if (size == 0)
+			return -1;
+		if (!peeked) {
+			if (cursor >= size) {
+				// start a new cycle
+				cursor = 0;
+			}
+			int window = Math.min(recentWindow, size / 2);
+			int select = cursor + nextInt(size - cursor);
+			// avoid positions drawn recently at the end of the previous cycle
+			for (int i = 0; i < MAX_TRIES && isRecent(permutation[select], window); i++) {
+				select = cursor + nextInt(size - cursor);
+			}
+			swap(cursor, select);
+			peeked = true;
+		}
+		return permutation[cursor];
+	}
+
+	/**
+	 * mark a position as drawn, if it was selected without this generator
+	 *
+	 * @param position drawn position
+	 */
+	void markDrawn(int position) {
+		if (position < 0 || position >= size)
+			return;
+		int index = indexes[position];
+		if (index >= cursor) {
+			if (cursor >= size) {
+				cursor = 0;
+			}
+			swap(cursor, index);
+			cursor++;
+		}
+		stamps[position] = ++drawCount;
+		peeked = false;
+	}
+
+	/**
+	 * apply inserted positions. New positions were not drawn in the current cycle
+	 *
+	 * @param position first inserted position
+	 * @param count    number of inserted positions
+	 */
+	void insert(int position, int count) {
+		if (count <= 0)
+			return;
+		if (position < 0 || position > size)
+			position = size;
+		ensureCapacity(size + count);
+		// move positions after the inserted positions
+		for (int i = 0; i < size; i++) {
+			if (permutation[i] >= position) {
+				permutation[i] += count;
+			}
+		}
+		System.arraycopy(stamps, position, stamps, position + count, size - position);
+		Arrays.fill(stamps, position, position + count, 0L);
+		// append new positions to the part which was not drawn
+		for (int i = 0; i < count; i++) {
+			permutation[size + i] = position + i;
+		}
+		size += count;
+		rebuildIndexes();
+		peeked = false;
+	}
+
+	/**
+	 * apply a removed range of positions
+	 *
+	 * @param first first removed position
+	 * @param last  last removed position
+	 */
+	void remove(int first, int last) {
+		first = Math.max(first, 0);
+		last = Math.min(last, size - 1);
+		if (last < first)
+			return;
+		int count = last - first + 1;
+		for (int position = first; position <= last; position++) {
+			int index = indexes[position];
+			if (index < cursor) {
+				// move to the end of the drawn part
+				swap(index, cursor - 1);
+				cursor--;
+				index = cursor;
+			}
+			// move to the end and drop
+			swap(index, size - 1);
+			size--;
+		}
+		// move positions after the removed positions
+		for (int i = 0; i < size; i++) {
+			if (permutation[i] > last) {
+				permutation[i] -= count;
+			}
+		}
+		System.arraycopy(stamps, last + 1, stamps, first, size - first);
+		rebuildIndexes();
+		peeked = false;
+	}
+
+	/**
+	 * apply a moved position
+	 *
+	 * @param from old position
+	 * @param to   new position
+	 */
+	void move(int from, int to) {
+		if (from == to || from < 0 || to < 0 || from >= size || to >= size)
+			return;
+		for (int i = 0; i < size; i++) {
+			int position = permutation[i];
+			if (position == from) {
+				permutation[i] = to;
+			} else if (from < to && position > from && position <= to) {
+				permutation[i] = position - 1;
+			} else if (from > to && position >= to && position < from) {
+				permutation[i] = position + 1;
+			}
+		}
+		long stamp = stamps[from];
+		if (from < to) {
+			System.arraycopy(stamps, from + 1, stamps, from, to - from);
+		} else {
+			System.arraycopy(stamps, to, stamps, to + 1, from - to);
+		}
+		stamps[to] = stamp;
+		rebuildIndexes();
+	}
+
+	/**
+	 * check if a position was drawn recently
+	 *
+	 * @param window number of recent draws to check
+	 */
+	private boolean isRecent(int position, int window) {
+		long stamp = stamps[position];
+		return stamp > 0L && drawCount - stamp < window;
+	}
+
+	/**
+	 * get a random number using SplitMix64. Its state is a single value, so it can be saved with the queue
+	 *
+	 * @param bound upper bound (exclusive)
+	 * @return random number between 0 and bound
+	 */
+	private int nextInt(int bound) {
+		seed += 0x9E3779B97F4A7C15L;
+		long z = seed;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		z = z ^ (z >>> 31);
+		return (int) (((z >>> 32) * bound) >>> 32);
+	}
+
+	/**
+	 * swap two entries of the permutation
+	 */
+	private void swap(int i, int j) {
+		int tmp = permutation[i];
+		permutation[i] = permutation[j];
+		permutation[j] = tmp;
+		indexes[permutation[i]] = i;
+		indexes[permutation[j]] = j;
+	}
+
+	/**
+	 * update the index of every position
+	 */
+	private void rebuildIndexes() {
+		for (int i = 0; i < size; i++) {
+			indexes[permutation[i]] = i;
+		}
+	}
+
+	/**
+	 * grow arrays if needed
+	 */
+	private void ensureCapacity(int capacity) {
+		if (permutation.length < capacity) {
+			capacity = Math.max(capacity, permutation.length * 2);
+			permutation = Arrays.copyOf(permutation, capacity);
+			indexes = Arrays.copyOf(indexes, capacity);
+			stamps = Arrays.copyOf(stamps, capacity);
+		}
+	}
+}
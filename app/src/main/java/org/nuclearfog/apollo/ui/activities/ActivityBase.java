@@ -29,7 +29,9 @@ import android.content.ServiceConnection;
 import android.media.AudioManager;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
 import android.os.IBinder;
+import android.os.Looper;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
@@ -78,6 +80,11 @@ public abstract class ActivityBase extends AppCompatActivity implements ServiceC
 	 */
 	private static final String[] PERMISSIONS;
 
+	/**
+	 * time to wait for more refresh broadcasts before reloading the lists
+	 */
+	private static final long REFRESH_DELAY = 250;
+
 	/**
 	 * The service token
 	 */
@@ -110,6 +117,19 @@ public abstract class ActivityBase extends AppCompatActivity implements ServiceC
 	 * Broadcast receiver
 	 */
 	private PlaybackStatus mPlaybackStatus;
+	/**
+	 * handler used to merge multiple refresh broadcasts
+	 */
+	private Handler mRefreshHandler = new Handler(Looper.getMainLooper());
+	/**
+	 * task used to refresh the sub classes
+	 */
+	private Runnable mRefreshTask = new Runnable() {
+		@Override
+		public void run() {
+			onRefresh();
+		}
+	};
 
 	static {
 		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
@@ -297,6 +317,7 @@ public abstract class ActivityBase extends AppCompatActivity implements ServiceC
 	 */
 	@Override
 	protected void onDestroy() {
+		mRefreshHandler.removeCallbacks(mRefreshTask);
 		// Unbind from the service
 		if (mToken != null) {
 			MusicUtils.unbindFromService(mToken);
@@ -369,7 +390,9 @@ public abstract class ActivityBase extends AppCompatActivity implements ServiceC
 
 	@Override
 	public final void refresh() {
-		onRefresh();
+		// reload once after a burst of refresh broadcasts
+		mRefreshHandler.removeCallbacks(mRefreshTask);
+		mRefreshHandler.postDelayed(mRefreshTask, REFRESH_DELAY);
 	}
 
 	/**
@@ -20,6 +20,7 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import org.nuclearfog.apollo.R;
 import org.nuclearfog.apollo.player.AudioEffects;
+import org.nuclearfog.apollo.player.EffectState;
 import org.nuclearfog.apollo.ui.adapters.recyclerview.EqualizerAdapter;
 import org.nuclearfog.apollo.ui.adapters.recyclerview.EqualizerAdapter.BandLevelChangeListener;
 import org.nuclearfog.apollo.utils.MusicUtils;
@@ -77,15 +78,16 @@ public class AudioFxActivity extends AppCompatActivity implements BandLevelChang
 
 		audioEffects = AudioEffects.getInstance(this, MusicUtils.getAudioSessionId());
 		if (audioEffects != null) {
-			adapter = new EqualizerAdapter(this, audioEffects.getBandLevel(), audioEffects.getBandFrequencies(), audioEffects.getBandLevelRange());
+			// bind views to the stored state instead of reading the effects
+			EffectState state = audioEffects.getState();
+			adapter = new EqualizerAdapter(this, state, audioEffects.getBandFrequencies(), audioEffects.getBandLevelRange());
 			eq_bands.setAdapter(adapter);
-			enableFx.setChecked(audioEffects.isAudioFxEnabled());
-			bassBoost.setProgress(audioEffects.getBassLevel() * BASS_STEPS / AudioEffects.MAX_BASSBOOST);
-			reverb.setProgress(audioEffects.getReverbLevel());
+			enableFx.setChecked(state.isEnabled());
+			bassBoost.setProgress(state.getBassLevel() * BASS_STEPS / AudioEffects.MAX_BASSBOOST);
+			reverb.setProgress(state.getReverbLevel());
 			// enable views only if effect is enabled
-			reverb.setEnabled(audioEffects.isAudioFxEnabled());
-			bassBoost.setEnabled(audioEffects.isAudioFxEnabled());
-			adapter.setEnabled(audioEffects.isAudioFxEnabled());
+			reverb.setEnabled(state.isEnabled());
+			bassBoost.setEnabled(state.isEnabled());
 		} else {
 			Toast.makeText(this, R.string.error_audioeffects_not_supported, Toast.LENGTH_SHORT).show();
 			finish();
@@ -56,6 +56,7 @@ import androidx.viewpager.widget.ViewPager;
 import org.nuclearfog.apollo.BuildConfig;
 import org.nuclearfog.apollo.R;
 import org.nuclearfog.apollo.cache.ImageFetcher;
+import org.nuclearfog.apollo.player.PlaybackClock;
 import org.nuclearfog.apollo.receiver.PlaybackStatus;
 import org.nuclearfog.apollo.receiver.PlaybackStatus.PlayStatusListener;
 import org.nuclearfog.apollo.service.MusicPlaybackService;
@@ -271,6 +272,8 @@ public class AudioPlayerActivity extends AppCompatActivity implements ServiceCon
 		filter.addAction(MusicPlaybackService.CHANGED_REPEATMODE);
 		// Track changes
 		filter.addAction(MusicPlaybackService.CHANGED_META);
+		// Seek position changes
+		filter.addAction(MusicPlaybackService.CHANGED_POSITION);
 		// Update a list, probably the playlist fragment's
 		filter.addAction(MusicPlaybackService.ACTION_REFRESH);
 		//
@@ -279,6 +282,8 @@ public class AudioPlayerActivity extends AppCompatActivity implements ServiceCon
 		} else {
 			registerReceiver(mPlaybackStatus, filter);
 		}
+		// changes may be missed while stopped, get a new playback clock
+		MusicUtils.refreshPlaybackClock();
 		// Refresh the current time
 		long next = refreshCurrentTime();
 		queueNextRefresh(next);
@@ -461,7 +466,7 @@ public class AudioPlayerActivity extends AppCompatActivity implements ServiceCon
 			if (now - mLastSeekEventTime > 250L) {
 				mLastSeekEventTime = now;
 				mLastShortSeekEventTime = now;
-				mPosOverride = MusicUtils.duration() * progress / 1000L;
+				mPosOverride = MusicUtils.getPlaybackClock().getDuration() * progress / 1000L;
 				MusicUtils.seek(mPosOverride);
 				if (!mFromTouch) {
 					// refreshCurrentTime();
@@ -469,7 +474,7 @@ public class AudioPlayerActivity extends AppCompatActivity implements ServiceCon
 				}
 			} else if (now - mLastShortSeekEventTime > 5L) {
 				mLastShortSeekEventTime = now;
-				mPosOverride = MusicUtils.duration() * progress / 1000L;
+				mPosOverride = MusicUtils.getPlaybackClock().getDuration() * progress / 1000L;
 				refreshCurrentTimeText(mPosOverride);
 			}
 		}
@@ -611,7 +616,7 @@ public class AudioPlayerActivity extends AppCompatActivity implements ServiceCon
 		// Set the artist name
 		mArtistName.setText(MusicUtils.getArtistName());
 		// Set the total time
-		mTotalTime.setText(StringUtils.makeTimeString(this, (int) MusicUtils.duration() / 1000));
+		mTotalTime.setText(StringUtils.makeTimeString(this, (int) MusicUtils.getPlaybackClock().getDuration() / 1000));
 		// Set the album art
 		mImageFetcher.loadCurrentArtwork(mAlbumArt);
 		// Set the small artwork
@@ -723,7 +728,7 @@ public class AudioPlayerActivity extends AppCompatActivity implements ServiceCon
 			return;
 		}
 		if (repcnt == 0) {
-			mStartSeekPos = MusicUtils.position();
+			mStartSeekPos = MusicUtils.getPlaybackClock().getPosition();
 			mLastSeekEventTime = 0L;
 		} else {
 			if (delta < 5000) {
@@ -737,7 +742,7 @@ public class AudioPlayerActivity extends AppCompatActivity implements ServiceCon
 			if (newpos < 0) {
 				// move to previous track
 				MusicUtils.previous(this);
-				long duration = MusicUtils.duration();
+				long duration = MusicUtils.getPlaybackClock().getDuration();
 				mStartSeekPos += duration;
 				newpos += duration;
 			}
@@ -765,7 +770,7 @@ public class AudioPlayerActivity extends AppCompatActivity implements ServiceCon
 			return;
 		}
 		if (repcnt == 0) {
-			mStartSeekPos = MusicUtils.position();
+			mStartSeekPos = MusicUtils.getPlaybackClock().getPosition();
 			mLastSeekEventTime = 0L;
 		} else {
 			if (delta < 5000) {
@@ -776,7 +781,7 @@ public class AudioPlayerActivity extends AppCompatActivity implements ServiceCon
 				delta = 50000 + (delta - 5000) * 40;
 			}
 			long newpos = mStartSeekPos + delta;
-			long duration = MusicUtils.duration();
+			long duration = MusicUtils.getPlaybackClock().getDuration();
 			if (newpos >= duration) {
 				// move to next track
 				MusicUtils.next(this);
@@ -811,15 +816,18 @@ public class AudioPlayerActivity extends AppCompatActivity implements ServiceCon
 			return 500;
 		}
 		try {
-			long pos = mPosOverride < 0 ? MusicUtils.position() : mPosOverride;
-			if (pos >= 0 && MusicUtils.duration() > 0) {
+			// calculate the position locally, the clock is updated by the service on changes
+			PlaybackClock clock = MusicUtils.getPlaybackClock();
+			long duration = clock.getDuration();
+			long pos = mPosOverride < 0 ? clock.getPosition() : mPosOverride;
+			if (pos >= 0 && duration > 0) {
 				refreshCurrentTimeText(pos);
-				int progress = (int) (1000 * pos / MusicUtils.duration());
+				int progress = (int) (1000 * pos / duration);
 				mProgress.setProgress(progress);
 
 				if (mFromTouch) {
 					return 500;
-				} else if (MusicUtils.isPlaying()) {
+				} else if (clock.isPlaying()) {
 					mCurrentTime.setVisibility(View.VISIBLE);
 				} else {
 					// blink the counter
@@ -841,7 +849,7 @@ public class AudioPlayerActivity extends AppCompatActivity implements ServiceCon
 			if (width == 0) {
 				width = 320;
 			}
-			long smoothrefreshtime = MusicUtils.duration() / width;
+			long smoothrefreshtime = duration / width;
 			if (smoothrefreshtime > remaining) {
 				return remaining;
 			}
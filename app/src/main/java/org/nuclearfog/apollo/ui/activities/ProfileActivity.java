@@ -45,6 +45,7 @@ import org.nuclearfog.apollo.BuildConfig;
 import org.nuclearfog.apollo.Config;
 import org.nuclearfog.apollo.R;
 import org.nuclearfog.apollo.cache.ImageFetcher;
+import org.nuclearfog.apollo.provider.PlayEventStore;
 import org.nuclearfog.apollo.provider.PopularStore;
 import org.nuclearfog.apollo.ui.adapters.viewpager.ProfileAdapter;
 import org.nuclearfog.apollo.ui.dialogs.PhotoSelectionDialog;
@@ -315,6 +316,27 @@ public class ProfileActivity extends ActivityBase implements ActivityResultCallb
 			getMenuInflater().inflate(R.menu.album_song_sort_by, menu);
 		} else if (type == Type.POPULAR) {
 			getMenuInflater().inflate(R.menu.popular_songs_clear, menu);
+			switch (mPreferences.getPopularRanking()) {
+				case PlayEventStore.RANK_WEEK:
+					menu.findItem(R.id.menu_popular_week).setChecked(true);
+					break;
+
+				case PlayEventStore.RANK_MONTH:
+					menu.findItem(R.id.menu_popular_month).setChecked(true);
+					break;
+
+				case PlayEventStore.RANK_YEAR:
+					menu.findItem(R.id.menu_popular_year).setChecked(true);
+					break;
+
+				case PlayEventStore.RANK_TRENDING:
+					menu.findItem(R.id.menu_popular_trending).setChecked(true);
+					break;
+
+				default:
+					menu.findItem(R.id.menu_popular_all_time).setChecked(true);
+					break;
+			}
 		}
 		return true;
 	}
@@ -380,7 +402,7 @@ public class ProfileActivity extends ActivityBase implements ActivityResultCallb
 					break;
 
 				case FOLDER:
-					list = MusicUtils.getSongListForFolder(this, folderName);
+					list = MusicUtils.getSongListForFolder(this, folderName, false);
 					if (list.length > 0) {
 						// play list at random position
 						MusicUtils.playAll(getApplicationContext(), list, r.nextInt(list.length - 1), true);
@@ -478,9 +500,22 @@ public class ProfileActivity extends ActivityBase implements ActivityResultCallb
 		else if (item.getItemId() == R.id.menu_clear_popular) {
 			if (type == Type.POPULAR) {
 				PopularStore.getInstance(this).removeAll();
+				PlayEventStore.getInstance(this).removeAll();
 				viewModel.notify(ProfileFragment.REFRESH);
 			}
 		}
+		// select ranking of the most played tracks
+		else if (item.getItemId() == R.id.menu_popular_all_time) {
+			setPopularRanking(item, PlayEventStore.RANK_ALL_TIME);
+		} else if (item.getItemId() == R.id.menu_popular_week) {
+			setPopularRanking(item, PlayEventStore.RANK_WEEK);
+		} else if (item.getItemId() == R.id.menu_popular_month) {
+			setPopularRanking(item, PlayEventStore.RANK_MONTH);
+		} else if (item.getItemId() == R.id.menu_popular_year) {
+			setPopularRanking(item, PlayEventStore.RANK_YEAR);
+		} else if (item.getItemId() == R.id.menu_popular_trending) {
+			setPopularRanking(item, PlayEventStore.RANK_TRENDING);
+		}
 		// sort by track count
 		else if (item.getItemId() == R.id.menu_sort_by_number_of_songs) {
 			if (type == Type.ARTIST) {
@@ -608,6 +643,7 @@ public class ProfileActivity extends ActivityBase implements ActivityResultCallb
 							mImageFetcher.addBitmapToCache(mProfileName, bitmap);
 							mTabCarousel.getPhoto().setImageBitmap(bitmap);
 						}
+						mTabCarousel.clearHeaderCache();
 					}
 					cursor.close();
 				} else {
@@ -741,10 +777,25 @@ public class ProfileActivity extends ActivityBase implements ActivityResultCallb
 			key = ImageFetcher.generateAlbumCacheKey(mProfileName, mArtistName);
 		}
 		mImageFetcher.removeFromCache(key);
+		mTabCarousel.clearHeaderCache();
 		// Give the disk cache a little time before requesting a new image.
 		SystemClock.sleep(80);
 	}
 
+	/**
+	 * set the ranking of the most played tracks and reload the list
+	 *
+	 * @param item    selected menu item
+	 * @param ranking ranking to use
+	 */
+	private void setPopularRanking(MenuItem item, int ranking) {
+		if (type == Type.POPULAR) {
+			item.setChecked(true);
+			mPreferences.setPopularRanking(ranking);
+			viewModel.notify(ProfileFragment.REFRESH);
+		}
+	}
+
 	/**
 	 * Finishes the activity and overrides the default animation.
 	 */
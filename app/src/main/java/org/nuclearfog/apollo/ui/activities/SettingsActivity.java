@@ -12,12 +12,15 @@
 package org.nuclearfog.apollo.ui.activities;
 
 import android.annotation.SuppressLint;
+import android.content.DialogInterface;
 import android.content.Intent;
+import android.graphics.Typeface;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
 import android.provider.Settings;
 import android.view.MenuItem;
+import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.ActionBar;
@@ -25,6 +28,7 @@ import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
 import androidx.preference.Preference;
+import androidx.preference.Preference.OnPreferenceChangeListener;
 import androidx.preference.Preference.OnPreferenceClickListener;
 import androidx.preference.PreferenceFragmentCompat;
 
@@ -32,6 +36,8 @@ import org.nuclearfog.apollo.BuildConfig;
 import org.nuclearfog.apollo.R;
 import org.nuclearfog.apollo.utils.ApolloUtils;
 import org.nuclearfog.apollo.utils.MusicUtils;
+import org.nuclearfog.apollo.utils.PlaybackMetrics;
+import org.nuclearfog.apollo.utils.StrictModeAudit;
 import org.nuclearfog.apollo.utils.ThemeUtils;
 
 /**
@@ -98,7 +104,7 @@ public class SettingsActivity extends AppCompatActivity {
 	/**
 	 * Preference fragment class
 	 */
-	public static class AppPreference extends PreferenceFragmentCompat implements OnPreferenceClickListener {
+	public static class AppPreference extends PreferenceFragmentCompat implements OnPreferenceClickListener, OnPreferenceChangeListener {
 
 		private static final String LICENSE = "open_source";
 
@@ -114,10 +120,18 @@ public class SettingsActivity extends AppCompatActivity {
 
 		private static final String OLD_NOTIFICATION = "old_notification_layout";
 
+		private static final String IO_AUDIT = "io_audit";
+
+		private static final String IO_AUDIT_REPORT = "io_audit_report";
+
+		private static final String PLAYBACK_METRICS = "playback_metrics";
+
+		private static final String PLAYBACK_METRICS_REPORT = "playback_metrics_report";
+
 		/**
 		 * dialogs to ask the user for actions
 		 */
-		private AlertDialog licenseDialog, cacheClearDialog, colorPicker;
+		private AlertDialog licenseDialog, cacheClearDialog, colorPicker, metricsDialog;
 
 
 		@Override
@@ -130,6 +144,10 @@ public class SettingsActivity extends AppCompatActivity {
 			Preference batteryOpt = findPreference(BAT_OPT);
 			Preference oldNotification = findPreference(OLD_NOTIFICATION);
 			Preference version = findPreference(VERSION);
+			Preference ioAudit = findPreference(IO_AUDIT);
+			Preference ioAuditReport = findPreference(IO_AUDIT_REPORT);
+			Preference playbackMetrics = findPreference(PLAYBACK_METRICS);
+			Preference playbackMetricsReport = findPreference(PLAYBACK_METRICS_REPORT);
 
 			if (version != null)
 				version.setSummary(BuildConfig.VERSION_NAME);
@@ -151,6 +169,17 @@ public class SettingsActivity extends AppCompatActivity {
 			if (oldNotification != null) {
 				oldNotification.setVisible(Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q);
 			}
+			if (ioAudit != null)
+				ioAudit.setOnPreferenceChangeListener(this);
+			if (ioAuditReport != null) {
+				// violations can only be recorded on Android 9 and later
+				ioAuditReport.setVisible(StrictModeAudit.isSupported());
+				ioAuditReport.setOnPreferenceClickListener(this);
+			}
+			if (playbackMetrics != null)
+				playbackMetrics.setOnPreferenceChangeListener(this);
+			if (playbackMetricsReport != null)
+				playbackMetricsReport.setOnPreferenceClickListener(this);
 			licenseDialog = ApolloUtils.createOpenSourceDialog(requireContext());
 			cacheClearDialog = ApolloUtils.createCacheClearDialog(requireContext());
 			colorPicker = ApolloUtils.showColorPicker(requireActivity());
@@ -194,8 +223,77 @@ public class SettingsActivity extends AppCompatActivity {
 						}
 					}
 					return true;
+
+				case IO_AUDIT_REPORT:
+					Intent shareIntent = new Intent(Intent.ACTION_SEND);
+					shareIntent.setType("text/plain");
+					shareIntent.putExtra(Intent.EXTRA_TEXT, StrictModeAudit.getReport());
+					try {
+						startActivity(Intent.createChooser(shareIntent, getString(R.string.settings_io_audit_report)));
+					} catch (Exception exception) {
+						if (BuildConfig.DEBUG) {
+							exception.printStackTrace();
+						}
+					}
+					return true;
+
+				case PLAYBACK_METRICS_REPORT:
+					if (metricsDialog == null || !metricsDialog.isShowing())
+						showMetricsReport();
+					return true;
 			}
 			return false;
 		}
+
+
+		@Override
+		public boolean onPreferenceChange(@NonNull Preference preference, Object newValue) {
+			if (IO_AUDIT.equals(preference.getKey()) && newValue instanceof Boolean) {
+				boolean enable = (Boolean) newValue;
+				StrictModeAudit.setEnabled(enable);
+				if (!enable) {
+					StrictModeAudit.reset();
+				}
+			} else if (PLAYBACK_METRICS.equals(preference.getKey()) && newValue instanceof Boolean) {
+				boolean enable = (Boolean) newValue;
+				PlaybackMetrics.setEnabled(enable);
+				if (!enable) {
+					PlaybackMetrics.reset();
+				}
+				MusicUtils.setMetricsEnabled(enable);
+			}
+			return true;
+		}
+
+		/**
+		 * show the playback metrics of the UI and the playback process, the report can be shared as text
+		 */
+		private void showMetricsReport() {
+			final String report = PlaybackMetrics.getReport("user interface") + '\n' + MusicUtils.getMetricsReport();
+			metricsDialog = new AlertDialog.Builder(requireContext())
+					.setTitle(R.string.settings_playback_metrics)
+					.setMessage(report)
+					.setPositiveButton(android.R.string.ok, null)
+					.setNeutralButton(R.string.settings_playback_metrics_share, new DialogInterface.OnClickListener() {
+						@Override
+						public void onClick(DialogInterface dialog, int which) {
+							Intent metricsIntent = new Intent(Intent.ACTION_SEND);
+							metricsIntent.setType("text/plain");
+							metricsIntent.putExtra(Intent.EXTRA_TEXT, report);
+							try {
+								startActivity(Intent.createChooser(metricsIntent, getString(R.string.settings_playback_metrics_share)));
+							} catch (Exception exception) {
+								if (BuildConfig.DEBUG) {
+									exception.printStackTrace();
+								}
+							}
+						}
+					}).show();
+			// the report is aligned in columns
+			TextView message = metricsDialog.findViewById(android.R.id.message);
+			if (message != null) {
+				message.setTypeface(Typeface.MONOSPACE);
+			}
+		}
 	}
-}
\ No newline at end of file
+}
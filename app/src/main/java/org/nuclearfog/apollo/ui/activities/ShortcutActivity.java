@@ -30,6 +30,7 @@ import org.nuclearfog.apollo.R;
 import org.nuclearfog.apollo.loaders.SearchLoader;
 import org.nuclearfog.apollo.model.Song;
 import org.nuclearfog.apollo.utils.ApolloUtils;
+import org.nuclearfog.apollo.utils.FolderIndex;
 import org.nuclearfog.apollo.utils.MusicUtils;
 import org.nuclearfog.apollo.utils.MusicUtils.ServiceToken;
 import org.nuclearfog.apollo.utils.StringUtils;
@@ -157,9 +158,14 @@ public class ShortcutActivity extends AppCompatActivity implements ServiceConnec
 					// Don't shuffle the folders track list
 					mShouldShuffle = false;
 					// get folder path
-					String folder = "%" + mIntent.getStringExtra(Config.NAME);
+					String folder = mIntent.getStringExtra(Config.NAME);
+					if (folder != null && !folder.startsWith("/")) {
+						folder = FolderIndex.getInstance(getApplicationContext()).findPath(folder);
+					}
 					// Get folder song list
-					mList = MusicUtils.getSongListForFolder(getApplicationContext(), folder);
+					if (folder != null) {
+						mList = MusicUtils.getSongListForFolder(getApplicationContext(), folder, false);
+					}
 					break;
 
 				case ProfileActivity.PAGE_LAST_ADDED:
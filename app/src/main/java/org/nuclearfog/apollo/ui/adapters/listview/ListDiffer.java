@@ -0,0 +1,67 @@
+package org.nuclearfog.apollo.ui.adapters.listview;
+
+import android.widget.ArrayAdapter;
+
+import androidx.annotation.MainThread;
+
+import org.nuclearfog.apollo.model.Music;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Helper used to replace the content of an {@link ArrayAdapter} with a single update.
+ * If the new items equal the current items, the adapter isn't notified at all, so the list keeps
+ * its views and its scroll position.
+ *
+ * @author nuclearfog
+ */
+public final class ListDiffer {
+
+	/* This class is never initiated */
+	private ListDiffer() {
+	}
+
+	/**
+	 * replace the items of an adapter
+	 *
+	 * @param adapter    adapter to update
+	 * @param items      new items
+	 * @param showHidden true to add hidden items
+	 * @return true if the items changed
+	 */
+	@MainThread
+	public static <T extends Music> boolean setItems(ArrayAdapter<T> adapter, List<T> items, boolean showHidden) {
+		List<T> result = new ArrayList<>(items.size());
+		for (T item : items) {
+			if (showHidden || item.isVisible()) {
+				result.add(item);
+			}
+		}
+		if (isSame(adapter, result))
+			return false;
+		// disable notification for every single change
+		adapter.setNotifyOnChange(false);
+		adapter.clear();
+		adapter.addAll(result);
+		// notify once, this also enables notification again
+		adapter.notifyDataSetChanged();
+		return true;
+	}
+
+	/**
+	 * check if the adapter contains the same items
+	 */
+	private static <T extends Music> boolean isSame(ArrayAdapter<T> adapter, List<T> items) {
+		if (adapter.getCount() != items.size())
+			return false;
+		for (int i = 0; i < items.size(); i++) {
+			T current = adapter.getItem(i);
+			T item = items.get(i);
+			if (current == null || !current.equals(item) || current.isVisible() != item.isVisible()) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
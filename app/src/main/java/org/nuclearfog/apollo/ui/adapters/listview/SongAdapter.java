@@ -16,6 +16,7 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ArrayAdapter;
+import android.widget.SectionIndexer;
 
 import androidx.annotation.MainThread;
 import androidx.annotation.NonNull;
@@ -23,7 +24,9 @@ import androidx.annotation.Nullable;
 
 import org.nuclearfog.apollo.Config;
 import org.nuclearfog.apollo.R;
+import org.nuclearfog.apollo.model.SectionIndex;
 import org.nuclearfog.apollo.model.Song;
+import org.nuclearfog.apollo.model.SongList;
 import org.nuclearfog.apollo.ui.adapters.listview.holder.MusicHolder;
 import org.nuclearfog.apollo.utils.PreferenceUtils;
 import org.nuclearfog.apollo.utils.StringUtils;
@@ -35,7 +38,7 @@ import org.nuclearfog.apollo.utils.StringUtils;
  *
  * @author Andrew Neal (andrewdneal@gmail.com)
  */
-public class SongAdapter extends ArrayAdapter<Song> {
+public class SongAdapter extends ArrayAdapter<Song> implements SectionIndexer {
 
 	/**
 	 * item layout
@@ -67,13 +70,32 @@ public class SongAdapter extends ArrayAdapter<Song> {
 	 */
 	private boolean enableDnD;
 
+	/**
+	 * songs of this adapter, stored column by column
+	 */
+	private SongList songs;
+
+	/**
+	 * fast scroll sections of the songs, null if not available
+	 */
+	@Nullable
+	private SectionIndex sections;
+
 	/**
 	 * Constructor of <code>SongAdapter</code>
 	 *
 	 * @param context The {@link Context} to use.
 	 */
 	public SongAdapter(Context context, boolean enableDrag) {
-		super(context, LAYOUT);
+		this(context, enableDrag, new SongList());
+	}
+
+	/**
+	 * @param songs list used to store the songs of this adapter
+	 */
+	private SongAdapter(Context context, boolean enableDrag, SongList songs) {
+		super(context, LAYOUT, songs);
+		this.songs = songs;
 		PreferenceUtils prefs = PreferenceUtils.getInstance(context);
 		selectedColor = prefs.getDefaultThemeColor() & TRANSPARENCY_MASK;
 		inflater = LayoutInflater.from(context);
@@ -128,12 +150,58 @@ public class SongAdapter extends ArrayAdapter<Song> {
 	 */
 	@Override
 	public long getItemId(int position) {
-		Song song = getItem(position);
-		if (song != null)
-			return song.getId();
+		if (position >= 0 && position < songs.size())
+			return songs.getId(position);
 		return super.getItemId(position);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Object[] getSections() {
+		if (sections != null)
+			return sections.getSections();
+		return new Object[0];
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getPositionForSection(int sectionIndex) {
+		if (sections != null)
+			return sections.getPositionForSection(sectionIndex);
+		return 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getSectionForPosition(int position) {
+		if (sections != null)
+			return sections.getSectionForPosition(position);
+		return 0;
+	}
+
+	/**
+	 * get the position of a song
+	 *
+	 * @param id ID of the song
+	 * @return position of the song or -1 if not found
+	 */
+	public int getPositionOfId(long id) {
+		if (sections != null)
+			return sections.getPosition(id);
+		for (int pos = 0; pos < songs.size(); pos++) {
+			if (songs.getId(pos) == id) {
+				return pos;
+			}
+		}
+		return -1;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -190,6 +258,22 @@ public class SongAdapter extends ArrayAdapter<Song> {
 		}
 	}
 
+	/**
+	 * replace all songs of this adapter. The adapter is only notified if the songs changed
+	 *
+	 * @param songs new songs
+	 */
+	@MainThread
+	public void setSongs(SongList songs) {
+		sections = songs.getSectionIndex();
+		if (!this.songs.contentEquals(songs)) {
+			setNotifyOnChange(false);
+			clear();
+			addAll(songs);
+			notifyDataSetChanged();
+		}
+	}
+
 	/**
 	 * set current track ID
 	 *
@@ -12,6 +12,7 @@ import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
 import org.nuclearfog.apollo.R;
+import org.nuclearfog.apollo.player.EffectState;
 import org.nuclearfog.apollo.utils.PreferenceUtils;
 
 import java.text.NumberFormat;
@@ -32,13 +33,14 @@ public class EqualizerAdapter extends RecyclerView.Adapter<EqualizerAdapter.Equa
 
 	/**
 	 * @param listener  listener to call if equalizer level changes
-	 * @param level     array of band levels (mB)
+	 * @param state     state of the audio effects containing the band levels (mB)
 	 * @param frequency array of band frequencies (Hz)
 	 * @param range     min/max limits of the band
 	 */
-	public EqualizerAdapter(BandLevelChangeListener listener, int[] level, int[] frequency, int[] range) {
+	public EqualizerAdapter(BandLevelChangeListener listener, EffectState state, int[] frequency, int[] range) {
 		this.listener = listener;
-		this.level = level;
+		this.level = state.getBandLevels();
+		this.enabled = state.isEnabled();
 		this.frequency = frequency;
 		this.range = range;
 	}
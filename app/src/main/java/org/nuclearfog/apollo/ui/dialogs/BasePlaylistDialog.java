@@ -16,7 +16,6 @@ import static android.content.Context.INPUT_METHOD_SERVICE;
 import android.app.Dialog;
 import android.content.DialogInterface;
 import android.content.DialogInterface.OnClickListener;
-import android.database.Cursor;
 import android.os.Bundle;
 import android.text.Editable;
 import android.text.InputType;
@@ -31,8 +30,8 @@ import androidx.appcompat.app.AlertDialog;
 import androidx.fragment.app.DialogFragment;
 
 import org.nuclearfog.apollo.R;
-import org.nuclearfog.apollo.utils.CursorFactory;
 import org.nuclearfog.apollo.utils.MusicUtils;
+import org.nuclearfog.apollo.utils.PlaylistIndex;
 
 /**
  * A simple base class for the playlist dialogs.
@@ -144,15 +143,7 @@ public abstract class BasePlaylistDialog extends DialogFragment implements TextW
 	 */
 	@Nullable
 	protected String getPlaylistNameFromId(long id) {
-		Cursor cursor = CursorFactory.makePlaylistCursor(requireContext(), id);
-		String playlistName = null;
-		if (cursor != null) {
-			if (cursor.moveToFirst()) {
-				playlistName = cursor.getString(1);
-			}
-			cursor.close();
-		}
-		return playlistName;
+		return PlaylistIndex.getInstance(requireContext()).getName(id);
 	}
 
 	/**
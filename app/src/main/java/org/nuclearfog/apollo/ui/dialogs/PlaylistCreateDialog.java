@@ -13,13 +13,13 @@ package org.nuclearfog.apollo.ui.dialogs;
 
 import android.annotation.SuppressLint;
 import android.app.Dialog;
-import android.database.Cursor;
 import android.os.Bundle;
 import android.widget.Toast;
 
 import org.nuclearfog.apollo.R;
-import org.nuclearfog.apollo.utils.CursorFactory;
+import org.nuclearfog.apollo.model.Playlist;
 import org.nuclearfog.apollo.utils.MusicUtils;
+import org.nuclearfog.apollo.utils.PlaylistIndex;
 import org.nuclearfog.apollo.utils.StringUtils;
 
 /**
@@ -137,33 +137,23 @@ public class PlaylistCreateDialog extends BasePlaylistDialog {
 	 * @return generated playlist name
 	 */
 	private String makePlaylistName() {
-		Cursor cursor = CursorFactory.makePlaylistCursor(requireContext());
-		if (cursor != null) {
-			// get all available playlist names
-			String[] playlists = new String[cursor.getCount()];
-			cursor.moveToFirst();
-			for (int i = 0; i < playlists.length && !cursor.isAfterLast(); i++) {
-				playlists[i] = cursor.getString(1);
-				cursor.moveToNext();
-			}
-			cursor.close();
-			// search for conflicts and increase number suffix
-			int num = 1;
-			boolean conflict;
-			String suggestedname;
-			String template = getString(R.string.new_playlist_name_template);
-			do {
-				conflict = false;
-				suggestedname = String.format(template, num++);
-				for (String playlist : playlists) {
-					if (suggestedname.equals(playlist)) {
-						conflict = true;
-						break;
-					}
+		// get all available playlist names
+		List<Playlist> playlists = PlaylistIndex.getInstance(requireContext()).getPlaylists();
+		// search for conflicts and increase number suffix
+		int num = 1;
+		boolean conflict;
+		String suggestedname;
+		String template = getString(R.string.new_playlist_name_template);
+		do {
+			conflict = false;
+			suggestedname = String.format(template, num++);
+			for (Playlist playlist : playlists) {
+				if (suggestedname.equals(playlist.getName())) {
+					conflict = true;
+					break;
 				}
-			} while (conflict);
-			return suggestedname;
-		}
-		return "";
+			}
+		} while (conflict);
+		return suggestedname;
 	}
 }
\ No newline at end of file
@@ -22,6 +22,7 @@ import android.widget.Toast;
 
 import org.nuclearfog.apollo.R;
 import org.nuclearfog.apollo.utils.MusicUtils;
+import org.nuclearfog.apollo.utils.PlaylistIndex;
 import org.nuclearfog.apollo.utils.StringUtils;
 
 /**
@@ -104,12 +105,15 @@ public class PlaylistRenameDialog extends BasePlaylistDialog {
 			Toast.makeText(requireContext(), R.string.error_duplicate_playlistname, Toast.LENGTH_SHORT).show();
 		} else {
 			// seting new name
+			String name = StringUtils.capitalize(playlistName);
 			ContentValues values = new ContentValues(1);
-			values.put(Playlists.NAME, StringUtils.capitalize(playlistName));
+			values.put(Playlists.NAME, name);
 			// update old playlist
 			Uri uri = ContentUris.withAppendedId(Playlists.EXTERNAL_CONTENT_URI, mRenameId);
 			ContentResolver resolver = requireActivity().getContentResolver();
-			resolver.update(uri, values, null, null);
+			if (resolver.update(uri, values, null, null) > 0) {
+				PlaylistIndex.getInstance(requireContext()).put(mRenameId, name);
+			}
 		}
 	}
 
@@ -40,9 +40,11 @@ import androidx.loader.app.LoaderManager.LoaderCallbacks;
 import androidx.loader.content.Loader;
 
 import org.nuclearfog.apollo.R;
+import org.nuclearfog.apollo.cache.ArtworkScanner;
 import org.nuclearfog.apollo.loaders.AlbumLoader;
 import org.nuclearfog.apollo.model.Album;
 import org.nuclearfog.apollo.ui.adapters.listview.AlbumAdapter;
+import org.nuclearfog.apollo.ui.adapters.listview.ListDiffer;
 import org.nuclearfog.apollo.ui.adapters.listview.holder.RecycleHolder;
 import org.nuclearfog.apollo.ui.dialogs.PlaylistCreateDialog;
 import org.nuclearfog.apollo.ui.fragments.phone.MusicBrowserPhoneFragment;
@@ -310,14 +312,10 @@ public class AlbumFragment extends Fragment implements LoaderCallbacks<List<Albu
 	public void onLoadFinished(@NonNull Loader<List<Album>> loader, @NonNull List<Album> data) {
 		// disable loader
 		LoaderManager.getInstance(this).destroyLoader(LOADER_ID);
-		// Start fresh
-		mAdapter.clear();
-		// Add the data to the adapter
-		for (Album album : data) {
-			if (preference.showExcludedTracks() || album.isVisible()) {
-				mAdapter.add(album);
-			}
-		}
+		// replace the data of the adapter
+		ListDiffer.setItems(mAdapter, data, preference.showExcludedTracks());
+		// extract embedded artwork in the background
+		ArtworkScanner.getInstance(requireContext()).scan(data);
 	}
 
 	/**
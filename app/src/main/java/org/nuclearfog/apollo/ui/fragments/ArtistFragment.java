@@ -43,6 +43,7 @@ import org.nuclearfog.apollo.R;
 import org.nuclearfog.apollo.loaders.ArtistLoader;
 import org.nuclearfog.apollo.model.Artist;
 import org.nuclearfog.apollo.ui.adapters.listview.ArtistAdapter;
+import org.nuclearfog.apollo.ui.adapters.listview.ListDiffer;
 import org.nuclearfog.apollo.ui.adapters.listview.holder.RecycleHolder;
 import org.nuclearfog.apollo.ui.dialogs.PlaylistCreateDialog;
 import org.nuclearfog.apollo.ui.fragments.phone.MusicBrowserPhoneFragment;
@@ -313,14 +314,8 @@ public class ArtistFragment extends Fragment implements LoaderCallbacks<List<Art
 		if (!isRemoving() && !isDetached()) {
 			// disable loader
 			LoaderManager.getInstance(this).destroyLoader(LOADER_ID);
-			// Start fresh
-			mAdapter.clear();
-			// Add the data to the adapter
-			for (Artist artist : data) {
-				if (preference.showExcludedTracks() || artist.isVisible()) {
-					mAdapter.add(artist);
-				}
-			}
+			// replace the data of the adapter
+			ListDiffer.setItems(mAdapter, data, preference.showExcludedTracks());
 		}
 	}
 
@@ -35,6 +35,7 @@ import org.nuclearfog.apollo.loaders.FolderLoader;
 import org.nuclearfog.apollo.model.Folder;
 import org.nuclearfog.apollo.ui.activities.ProfileActivity;
 import org.nuclearfog.apollo.ui.adapters.listview.FolderAdapter;
+import org.nuclearfog.apollo.ui.adapters.listview.ListDiffer;
 import org.nuclearfog.apollo.ui.adapters.listview.holder.RecycleHolder;
 import org.nuclearfog.apollo.ui.fragments.phone.MusicBrowserPhoneFragment;
 import org.nuclearfog.apollo.utils.ContextMenuItems;
@@ -141,6 +142,7 @@ public class FolderFragment extends Fragment implements LoaderCallbacks<List<Fol
 			selectedFolder = mAdapter.getItem(adapterContextMenuInfo.position);
 			if (selectedFolder != null) {
 				menu.add(GROUP_ID, ContextMenuItems.PLAY_FOLDER, Menu.NONE, R.string.context_menu_play_selection);
+				menu.add(GROUP_ID, ContextMenuItems.PLAY_FOLDER_RECURSIVE, Menu.NONE, R.string.context_menu_play_folder_recursive);
 				menu.add(GROUP_ID, ContextMenuItems.ADD_FOLDER_QUEUE, Menu.NONE, R.string.add_to_queue);
 				// hide artist from list
 				if (selectedFolder.isVisible()) {
@@ -163,12 +165,17 @@ public class FolderFragment extends Fragment implements LoaderCallbacks<List<Fol
 		if (item.getGroupId() == GROUP_ID && selectedFolder != null) {
 			switch (item.getItemId()) {
 				case ContextMenuItems.PLAY_FOLDER:
-					long[] selectedFolderSongs = MusicUtils.getSongListForFolder(requireContext(), selectedFolder.getName());
+					long[] selectedFolderSongs = MusicUtils.getSongListForFolder(requireContext(), selectedFolder.getPath(), false);
+					MusicUtils.playAll(requireContext(), selectedFolderSongs, 0, false);
+					return true;
+
+				case ContextMenuItems.PLAY_FOLDER_RECURSIVE:
+					selectedFolderSongs = MusicUtils.getSongListForFolder(requireContext(), selectedFolder.getPath(), true);
 					MusicUtils.playAll(requireContext(), selectedFolderSongs, 0, false);
 					return true;
 
 				case ContextMenuItems.ADD_FOLDER_QUEUE:
-					selectedFolderSongs = MusicUtils.getSongListForFolder(requireContext(), selectedFolder.getName());
+					selectedFolderSongs = MusicUtils.getSongListForFolder(requireContext(), selectedFolder.getPath(), false);
 					MusicUtils.addToQueue(requireActivity(), selectedFolderSongs);
 					return true;
 
@@ -213,14 +220,8 @@ public class FolderFragment extends Fragment implements LoaderCallbacks<List<Fol
 	public void onLoadFinished(@NonNull Loader<List<Folder>> loader, @NonNull List<Folder> data) {
 		// stop loader
 		LoaderManager.getInstance(this).destroyLoader(LOADER_ID);
-		// Clear list
-		mAdapter.clear();
-		// add data to the adapter
-		for (Folder folder : data) {
-			if (preference.showExcludedTracks() || folder.isVisible()) {
-				mAdapter.add(folder);
-			}
-		}
+		// replace the data of the adapter
+		ListDiffer.setItems(mAdapter, data, preference.showExcludedTracks());
 	}
 
 	/**
@@ -42,6 +42,7 @@ import org.nuclearfog.apollo.loaders.GenreLoader;
 import org.nuclearfog.apollo.model.Genre;
 import org.nuclearfog.apollo.ui.activities.ProfileActivity;
 import org.nuclearfog.apollo.ui.adapters.listview.GenreAdapter;
+import org.nuclearfog.apollo.ui.adapters.listview.ListDiffer;
 import org.nuclearfog.apollo.ui.adapters.listview.holder.RecycleHolder;
 import org.nuclearfog.apollo.ui.fragments.phone.MusicBrowserPhoneFragment;
 import org.nuclearfog.apollo.utils.ApolloUtils;
@@ -247,15 +248,8 @@ public class GenreFragment extends Fragment implements LoaderCallbacks<List<Genr
 	public void onLoadFinished(@NonNull Loader<List<Genre>> loader, @NonNull List<Genre> data) {
 		// disable loader
 		LoaderManager.getInstance(this).destroyLoader(LOADER_ID);
-		// Start fresh
-		mAdapter.clear();
-		// Add the data to the adapter
-		for (Genre genre : data) {
-			if (preference.showExcludedTracks() || genre.isVisible()) {
-				mAdapter.add(genre);
-			}
-		}
-
+		// replace the data of the adapter
+		ListDiffer.setItems(mAdapter, data, preference.showExcludedTracks());
 	}
 
 	/**
@@ -50,6 +50,7 @@ import org.nuclearfog.apollo.R;
 import org.nuclearfog.apollo.loaders.PlaylistLoader;
 import org.nuclearfog.apollo.model.Playlist;
 import org.nuclearfog.apollo.ui.activities.ProfileActivity;
+import org.nuclearfog.apollo.ui.adapters.listview.ListDiffer;
 import org.nuclearfog.apollo.ui.adapters.listview.PlaylistAdapter;
 import org.nuclearfog.apollo.ui.adapters.listview.holder.RecycleHolder;
 import org.nuclearfog.apollo.ui.dialogs.PlaylistCopyDialog;
@@ -58,6 +59,7 @@ import org.nuclearfog.apollo.ui.fragments.phone.MusicBrowserPhoneFragment;
 import org.nuclearfog.apollo.utils.ContextMenuItems;
 import org.nuclearfog.apollo.utils.FragmentViewModel;
 import org.nuclearfog.apollo.utils.MusicUtils;
+import org.nuclearfog.apollo.utils.PlaylistIndex;
 
 import java.util.List;
 
@@ -241,7 +243,9 @@ public class PlaylistFragment extends Fragment implements LoaderCallbacks<List<P
 								@Override
 								public void onClick(DialogInterface dialog, int which) {
 									Uri mUri = ContentUris.withAppendedId(Playlists.EXTERNAL_CONTENT_URI, selectedPlaylist.getId());
-									requireActivity().getContentResolver().delete(mUri, null, null);
+									if (requireActivity().getContentResolver().delete(mUri, null, null) > 0) {
+										PlaylistIndex.getInstance(requireContext()).remove(selectedPlaylist.getId());
+									}
 									MusicUtils.refresh();
 								}
 							}).setNegativeButton(R.string.cancel, new OnClickListener() {
@@ -309,12 +313,8 @@ public class PlaylistFragment extends Fragment implements LoaderCallbacks<List<P
 		if (!isRemoving() && !isDetached()) {
 			// disable loader
 			LoaderManager.getInstance(this).destroyLoader(LOADER_ID);
-			// Start fresh
-			mAdapter.clear();
-			// Add the data to the adapter
-			for (Playlist playlist : data) {
-				mAdapter.add(playlist);
-			}
+			// replace the data of the adapter
+			ListDiffer.setItems(mAdapter, data, true);
 		}
 	}
 
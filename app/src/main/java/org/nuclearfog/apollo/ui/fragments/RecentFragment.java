@@ -42,6 +42,7 @@ import org.nuclearfog.apollo.loaders.RecentLoader;
 import org.nuclearfog.apollo.model.Album;
 import org.nuclearfog.apollo.provider.RecentStore;
 import org.nuclearfog.apollo.ui.adapters.listview.AlbumAdapter;
+import org.nuclearfog.apollo.ui.adapters.listview.ListDiffer;
 import org.nuclearfog.apollo.ui.adapters.listview.holder.RecycleHolder;
 import org.nuclearfog.apollo.ui.dialogs.PlaylistCreateDialog;
 import org.nuclearfog.apollo.ui.fragments.phone.MusicBrowserPhoneFragment;
@@ -317,12 +318,8 @@ public class RecentFragment extends Fragment implements LoaderCallbacks<List<Alb
 		if (mAdapter != null) {
 			// disable loader
 			LoaderManager.getInstance(this).destroyLoader(LOADER_ID);
-			// Start fresh
-			mAdapter.clear();
-			// Add the data to the adapter
-			for (Album album : data) {
-				mAdapter.add(album);
-			}
+			// replace the data of the adapter
+			ListDiffer.setItems(mAdapter, data, true);
 		}
 	}
 
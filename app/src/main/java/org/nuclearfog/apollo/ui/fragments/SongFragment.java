@@ -38,6 +38,7 @@ import androidx.loader.content.Loader;
 import org.nuclearfog.apollo.R;
 import org.nuclearfog.apollo.loaders.SongLoader;
 import org.nuclearfog.apollo.model.Song;
+import org.nuclearfog.apollo.model.SongList;
 import org.nuclearfog.apollo.provider.FavoritesStore;
 import org.nuclearfog.apollo.ui.adapters.listview.SongAdapter;
 import org.nuclearfog.apollo.ui.adapters.listview.holder.RecycleHolder;
@@ -47,16 +48,14 @@ import org.nuclearfog.apollo.utils.ContextMenuItems;
 import org.nuclearfog.apollo.utils.FragmentViewModel;
 import org.nuclearfog.apollo.utils.MusicUtils;
 import org.nuclearfog.apollo.utils.NavUtils;
-import org.nuclearfog.apollo.utils.PreferenceUtils;
 
-import java.util.List;
 
 /**
  * This class is used to display all of the songs on a user's device.
  *
  * @author Andrew Neal (andrewdneal@gmail.com)
  */
-public class SongFragment extends Fragment implements LoaderCallbacks<List<Song>>, OnItemClickListener, Observer<String> {
+public class SongFragment extends Fragment implements LoaderCallbacks<SongList>, OnItemClickListener, Observer<String> {
 
 	/**
 	 *
@@ -98,11 +97,6 @@ public class SongFragment extends Fragment implements LoaderCallbacks<List<Song>
 	 */
 	private FragmentViewModel viewModel;
 
-	/**
-	 * app settings
-	 */
-	private PreferenceUtils preference;
-
 	/**
 	 * context menu selection
 	 */
@@ -121,8 +115,6 @@ public class SongFragment extends Fragment implements LoaderCallbacks<List<Song>
 	@Override
 	public void onCreate(Bundle savedInstanceState) {
 		super.onCreate(savedInstanceState);
-		// init preferences
-		preference = PreferenceUtils.getInstance(requireContext());
 		//
 		viewModel = new ViewModelProvider(requireActivity()).get(FragmentViewModel.class);
 		// Create the adapter
@@ -277,7 +269,7 @@ public class SongFragment extends Fragment implements LoaderCallbacks<List<Song>
 	 */
 	@NonNull
 	@Override
-	public Loader<List<Song>> onCreateLoader(int id, Bundle args) {
+	public Loader<SongList> onCreateLoader(int id, Bundle args) {
 		return new SongLoader(requireContext());
 	}
 
@@ -285,18 +277,12 @@ public class SongFragment extends Fragment implements LoaderCallbacks<List<Song>
 	 * {@inheritDoc}
 	 */
 	@Override
-	public void onLoadFinished(@NonNull Loader<List<Song>> loader, @NonNull List<Song> data) {
+	public void onLoadFinished(@NonNull Loader<SongList> loader, @NonNull SongList data) {
 		if (!isRemoving() && !isDetached()) {
 			// disable loader
 			LoaderManager.getInstance(this).destroyLoader(LOADER_ID);
-			// Start fresh
-			mAdapter.clear();
-			// Add the data to the adapter
-			for (Song song : data) {
-				if (preference.showExcludedTracks() || song.isVisible()) {
-					mAdapter.add(song);
-				}
-			}
+			// replace the data of the adapter
+			mAdapter.setSongs(data);
 		}
 	}
 
@@ -304,7 +290,7 @@ public class SongFragment extends Fragment implements LoaderCallbacks<List<Song>
 	 * {@inheritDoc}
 	 */
 	@Override
-	public void onLoaderReset(@NonNull Loader<List<Song>> loader) {
+	public void onLoaderReset(@NonNull Loader<SongList> loader) {
 		// Clear the data in the adapter
 		mAdapter.clear();
 	}
@@ -323,11 +309,9 @@ public class SongFragment extends Fragment implements LoaderCallbacks<List<Song>
 			case MusicBrowserPhoneFragment.META_CHANGED:
 				// current unique track ID
 				long trackId = MusicUtils.getCurrentAudioId();
-				for (int pos = 0; pos < mAdapter.getCount(); pos++) {
-					if (mAdapter.getItemId(pos) == trackId) {
-						mList.setSelection(pos);
-						break;
-					}
+				int position = mAdapter.getPositionOfId(trackId);
+				if (position >= 0) {
+					mList.setSelection(position);
 				}
 				break;
 
@@ -34,6 +34,7 @@ import org.nuclearfog.apollo.R;
 import org.nuclearfog.apollo.loaders.PlaylistSongLoader;
 import org.nuclearfog.apollo.model.Song;
 import org.nuclearfog.apollo.provider.FavoritesStore;
+import org.nuclearfog.apollo.ui.appmsg.AppMsg;
 import org.nuclearfog.apollo.ui.adapters.listview.ProfileSongAdapter;
 import org.nuclearfog.apollo.ui.dialogs.PlaylistCreateDialog;
 import org.nuclearfog.apollo.ui.views.dragdrop.DragSortListView.DropListener;
@@ -41,6 +42,7 @@ import org.nuclearfog.apollo.ui.views.dragdrop.DragSortListView.RemoveListener;
 import org.nuclearfog.apollo.utils.ContextMenuItems;
 import org.nuclearfog.apollo.utils.MusicUtils;
 import org.nuclearfog.apollo.utils.NavUtils;
+import org.nuclearfog.apollo.utils.PlaylistEditor;
 
 import java.util.List;
 
@@ -77,6 +79,11 @@ public class PlaylistSongFragment extends ProfileFragment implements LoaderCallb
 	 */
 	private long mPlaylistId;
 
+	/**
+	 * editing session used to record changes of the playlist
+	 */
+	private PlaylistEditor mEditor;
+
 	/**
 	 * selected playlist is in queue
 	 */
@@ -95,11 +102,25 @@ public class PlaylistSongFragment extends ProfileFragment implements LoaderCallb
 		Bundle arguments = getArguments();
 		if (arguments != null) {
 			mPlaylistId = arguments.getLong(Config.ID);
+			mEditor = new PlaylistEditor(mPlaylistId);
 			LoaderManager.getInstance(this).initLoader(LOADER_ID, arguments, this);
 		}
 	}
 
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void onPause() {
+		// write all changes of the playlist
+		if (mEditor != null && mEditor.hasChanges()) {
+			mEditor.commit(requireActivity(), null);
+		}
+		super.onPause();
+	}
+
+
 	@Override
 	protected void onItemClick(View view, int position, long id) {
 		MusicUtils.playAllFromUserItemClick(requireContext(), mAdapter, position);
@@ -170,11 +191,14 @@ public class PlaylistSongFragment extends ProfileFragment implements LoaderCallb
 
 				case ContextMenuItems.PLAYLIST_SELECTED:
 					long playlistId = item.getIntent().getLongExtra("playlist", -1L);
-					if (playlistId != -1L) {
+					if (playlistId == mPlaylistId) {
+						// append track to this playlist and reload
+						mEditor.insert(mAdapter.getCount() - HEADER_COUNT, mSong.getId());
+						String message = getResources().getQuantityString(R.plurals.NNNtrackstoplaylist, 1, 1);
+						AppMsg.makeText(requireActivity(), message, AppMsg.STYLE_CONFIRM).show();
+						refresh();
+					} else if (playlistId != -1L) {
 						MusicUtils.addToPlaylist(requireActivity(), trackId, playlistId);
-						// reload if track was added to this playlist
-						if (mPlaylistId == playlistId)
-							LoaderManager.getInstance(this).restartLoader(LOADER_ID, getArguments(), this);
 					}
 					return true;
 
@@ -191,8 +215,9 @@ public class PlaylistSongFragment extends ProfileFragment implements LoaderCallb
 					return true;
 
 				case ContextMenuItems.REMOVE_FROM_PLAYLIST:
-					if (MusicUtils.removeFromPlaylist(requireActivity(), mSong.getId(), mPlaylistId)) {
-						mAdapter.remove(mSong);
+					int position = mAdapter.getPosition(mSong);
+					if (position >= HEADER_COUNT) {
+						removeTrack(position);
 					}
 					return true;
 			}
@@ -238,9 +263,8 @@ public class PlaylistSongFragment extends ProfileFragment implements LoaderCallb
 	 */
 	@Override
 	public void remove(int which) {
-		Song song = mAdapter.getItem(which);
-		if (song != null && MusicUtils.removeFromPlaylist(requireActivity(), song.getId(), mPlaylistId)) {
-			mAdapter.remove(song);
+		if (which >= HEADER_COUNT && which < mAdapter.getCount()) {
+			removeTrack(which);
 		} else {
 			// if we end here, nothing changed, revert layout changes
 			mAdapter.notifyDataSetChanged();
@@ -253,15 +277,14 @@ public class PlaylistSongFragment extends ProfileFragment implements LoaderCallb
 	@Override
 	public void drop(int from, int to) {
 		if (from > 0 && to > 0 && from != to) {
-			if (MusicUtils.movePlaylistTrack(requireContext(), mPlaylistId, from, to, HEADER_COUNT)) {
-				// update adapter
-				Song selectedSong = mAdapter.getItem(from);
-				mAdapter.remove(selectedSong);
-				mAdapter.insert(selectedSong, to);
-				// move track item in the current queue
-				if (queueIsPlaylist) {
-					MusicUtils.moveQueueItem(from - HEADER_COUNT, to - HEADER_COUNT);
-				}
+			mEditor.move(from - HEADER_COUNT, to - HEADER_COUNT);
+			// update adapter
+			Song selectedSong = mAdapter.getItem(from);
+			mAdapter.remove(selectedSong);
+			mAdapter.insert(selectedSong, to);
+			// move track item in the current queue
+			if (queueIsPlaylist) {
+				MusicUtils.moveQueueItem(from - HEADER_COUNT, to - HEADER_COUNT);
 			}
 		} else {
 			mAdapter.notifyDataSetChanged();
@@ -287,6 +310,31 @@ public class PlaylistSongFragment extends ProfileFragment implements LoaderCallb
 	 */
 	@Override
 	protected void refresh() {
-		LoaderManager.getInstance(this).restartLoader(LOADER_ID, getArguments(), this);
+		if (mEditor != null && mEditor.hasChanges()) {
+			// write changes first, then reload
+			mEditor.commit(requireActivity(), new Runnable() {
+				@Override
+				public void run() {
+					if (isAdded()) {
+						LoaderManager.getInstance(PlaylistSongFragment.this).restartLoader(LOADER_ID, getArguments(), PlaylistSongFragment.this);
+					}
+				}
+			});
+		} else {
+			LoaderManager.getInstance(this).restartLoader(LOADER_ID, getArguments(), this);
+		}
+	}
+
+	/**
+	 * remove a track from the playlist
+	 *
+	 * @param position adapter position of the track
+	 */
+	private void removeTrack(int position) {
+		Song song = mAdapter.getItem(position);
+		mEditor.remove(position - HEADER_COUNT);
+		mAdapter.remove(song);
+		String message = getResources().getQuantityString(R.plurals.NNNtracksfromplaylist, 1, 1);
+		AppMsg.makeText(requireActivity(), message, AppMsg.STYLE_CONFIRM).show();
 	}
 }
\ No newline at end of file
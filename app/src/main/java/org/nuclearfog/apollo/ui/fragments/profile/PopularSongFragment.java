@@ -20,6 +20,7 @@ import org.nuclearfog.apollo.R;
 import org.nuclearfog.apollo.loaders.PopularSongsLoader;
 import org.nuclearfog.apollo.model.Song;
 import org.nuclearfog.apollo.provider.FavoritesStore;
+import org.nuclearfog.apollo.provider.PlayEventStore;
 import org.nuclearfog.apollo.provider.PopularStore;
 import org.nuclearfog.apollo.ui.adapters.listview.ProfileSongAdapter;
 import org.nuclearfog.apollo.ui.dialogs.PlaylistCreateDialog;
@@ -156,6 +157,7 @@ public class PopularSongFragment extends ProfileFragment implements LoaderCallba
 
 				case ContextMenuItems.REMOVE_FROM_POPULAR:
 					PopularStore.getInstance(requireContext()).removeItem(mSong.getId());
+					PlayEventStore.getInstance(requireContext()).removeItem(mSong.getId());
 					mAdapter.remove(mSong);
 					return true;
 
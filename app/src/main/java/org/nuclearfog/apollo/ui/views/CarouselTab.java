@@ -12,24 +12,25 @@
 package org.nuclearfog.apollo.ui.views;
 
 import android.content.Context;
-import android.graphics.Bitmap;
 import android.text.TextUtils;
 import android.util.AttributeSet;
 import android.view.View;
 import android.widget.ImageView;
 import android.widget.TextView;
 
+import androidx.annotation.Nullable;
 import androidx.core.content.ContextCompat;
 
 import org.nuclearfog.apollo.R;
 import org.nuclearfog.apollo.cache.ImageFetcher;
+import org.nuclearfog.apollo.ui.views.ProfileHeaderLoader.Header;
 import org.nuclearfog.apollo.utils.ApolloUtils;
 import org.nuclearfog.apollo.utils.MusicUtils;
 
 /**
  * @author Andrew Neal (andrewdneal@gmail.com)
  */
-public class CarouselTab extends FrameLayoutWithOverlay {
+public class CarouselTab extends FrameLayoutWithOverlay implements ProfileHeaderLoader.Callback {
 
 	private ImageFetcher mFetcher;
 	private ImageView mPhoto;
@@ -37,6 +38,14 @@ public class CarouselTab extends FrameLayoutWithOverlay {
 	private TextView mLabelView;
 	private View mColorstrip;
 
+	/**
+	 * key of the requested header or null if no header is loading
+	 */
+	@Nullable
+	private String mHeaderKey;
+	private int mHeaderType;
+	private String mArtistName = "";
+
 	/**
 	 * @param context The {@link Context} to use
 	 * @param attrs   The attributes of the XML tag that is inflating the view.
@@ -96,9 +105,12 @@ public class CarouselTab extends FrameLayoutWithOverlay {
 	 */
 	public void setAlbumPhoto(Context context, String album, String artist) {
 		if (!TextUtils.isEmpty(album)) {
-			mFetcher.loadAlbumImage(artist, album, MusicUtils.getIdForAlbum(context, album, artist), mAlbumArt, mPhoto);
+			mAlbumArt.setImageResource(R.drawable.default_artwork);
 			mAlbumArt.setVisibility(View.VISIBLE);
+			mPhoto.setImageResource(0);
+			loadHeader(context, ProfileHeaderLoader.TYPE_ALBUM, album, artist);
 		} else {
+			mHeaderKey = null;
 			setDefault(context);
 		}
 	}
@@ -112,6 +124,8 @@ public class CarouselTab extends FrameLayoutWithOverlay {
 	 */
 	public void fetchAlbumPhoto(Context context, String album, String artist) {
 		if (!TextUtils.isEmpty(album)) {
+			mHeaderKey = null;
+			ProfileHeaderLoader.clear();
 			mFetcher.removeFromCache(ImageFetcher.generateAlbumCacheKey(album, artist));
 			mFetcher.loadAlbumImage(artist, album, -1L, mAlbumArt);
 		} else {
@@ -125,20 +139,12 @@ public class CarouselTab extends FrameLayoutWithOverlay {
 	 * @param context The {@link Context} to use.
 	 * @param artist  The name of the artist in the profile the user is viewing.
 	 */
-	public void setArtistAlbumPhoto(final Context context, final String artist) {
-		final String lastAlbum = MusicUtils.getLastAlbumForArtist(context, artist);
-		if (!TextUtils.isEmpty(lastAlbum)) {
-			// Set the last album the artist played
-			mFetcher.loadAlbumImage(artist, lastAlbum, MusicUtils.getIdForAlbum(context, lastAlbum, artist), mPhoto);
-			// Play the album
-			mPhoto.setOnClickListener(new OnClickListener() {
-				@Override
-				public void onClick(View v) {
-					long[] albumList = MusicUtils.getSongListForAlbum(getContext(), MusicUtils.getIdForAlbum(context, lastAlbum, artist));
-					MusicUtils.playAll(getContext(), albumList, 0, false);
-				}
-			});
+	public void setArtistAlbumPhoto(Context context, String artist) {
+		if (!TextUtils.isEmpty(artist)) {
+			mPhoto.setImageResource(R.drawable.default_artwork);
+			loadHeader(context, ProfileHeaderLoader.TYPE_ARTIST_ALBUM, artist, artist);
 		} else {
+			mHeaderKey = null;
 			setDefault(context);
 		}
 	}
@@ -151,17 +157,64 @@ public class CarouselTab extends FrameLayoutWithOverlay {
 	 */
 	public void setPlaylistOrGenrePhoto(Context context, String profileName) {
 		if (!TextUtils.isEmpty(profileName)) {
-			Bitmap image = mFetcher.getCachedBitmap(profileName);
-			if (image != null) {
-				mPhoto.setImageBitmap(image);
-			} else {
-				setDefault(context);
-			}
+			loadHeader(context, ProfileHeaderLoader.TYPE_IMAGE, profileName, null);
 		} else {
+			mHeaderKey = null;
 			setDefault(context);
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void onHeaderLoaded(Header header) {
+		// ignore results of previous requests
+		if (!header.key.equals(mHeaderKey))
+			return;
+		mHeaderKey = null;
+		switch (mHeaderType) {
+			case ProfileHeaderLoader.TYPE_ALBUM:
+				if (header.artwork != null) {
+					mAlbumArt.setImageBitmap(header.artwork);
+					mPhoto.setImageBitmap(header.blur);
+				} else {
+					// artwork is not cached, try to download
+					mFetcher.loadAlbumImage(mArtistName, header.album, header.albumId, mAlbumArt, mPhoto);
+				}
+				break;
+
+			case ProfileHeaderLoader.TYPE_ARTIST_ALBUM:
+				if (!TextUtils.isEmpty(header.album)) {
+					// Set the last album the artist played
+					if (header.artwork != null) {
+						mPhoto.setImageBitmap(header.artwork);
+					} else {
+						mFetcher.loadAlbumImage(mArtistName, header.album, header.albumId, mPhoto);
+					}
+					// Play the album
+					final long[] songs = header.songs;
+					mPhoto.setOnClickListener(new OnClickListener() {
+						@Override
+						public void onClick(View v) {
+							MusicUtils.playAll(getContext(), songs, 0, false);
+						}
+					});
+				} else {
+					setDefault(getContext());
+				}
+				break;
+
+			case ProfileHeaderLoader.TYPE_IMAGE:
+				if (header.artwork != null) {
+					mPhoto.setImageBitmap(header.artwork);
+				} else {
+					setDefault(getContext());
+				}
+				break;
+		}
+	}
+
 	/**
 	 * @param context The {@link Context} to use.
 	 */
@@ -169,6 +222,20 @@ public class CarouselTab extends FrameLayoutWithOverlay {
 		mPhoto.setImageDrawable(ContextCompat.getDrawable(context, R.drawable.header_temp));
 	}
 
+	/**
+	 * request the header of a profile
+	 *
+	 * @param type   type of the header
+	 * @param name   name of the album, artist or playlist
+	 * @param artist name of the artist or null
+	 */
+	private void loadHeader(Context context, int type, String name, @Nullable String artist) {
+		mHeaderType = type;
+		mArtistName = artist;
+		mHeaderKey = ProfileHeaderLoader.getKey(type, name, artist);
+		ProfileHeaderLoader.load(context, type, name, artist, this);
+	}
+
 	/**
 	 * @param label The string to set as the labe.
 	 */
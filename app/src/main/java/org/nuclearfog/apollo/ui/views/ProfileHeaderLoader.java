@@ -0,0 +1,221 @@
+package org.nuclearfog.apollo.ui.views;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.nuclearfog.apollo.cache.ImageFetcher;
+import org.nuclearfog.apollo.cache.LruCache;
+import org.nuclearfog.apollo.utils.ApolloUtils;
+import org.nuclearfog.apollo.utils.BitmapUtils;
+import org.nuclearfog.apollo.utils.MusicUtils;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Loads everything a profile header needs (album IDs, the last played album, the song list and the artwork)
+ * in a single background job. Results are cached per profile, so returning to a profile doesn't access the storage again.
+ * Artist headers are not cached because the last played album of an artist changes with every played track.
+ *
+ * @author nuclearfog
+ */
+final class ProfileHeaderLoader {
+
+	/**
+	 * header of an album profile, album artwork with a blurred background
+	 */
+	static final int TYPE_ALBUM = 1;
+
+	/**
+	 * header of an artist profile, artwork of the last played album of the artist. This header is loaded every time
+	 */
+	static final int TYPE_ARTIST_ALBUM = 2;
+
+	/**
+	 * header of a playlist or genre profile, image selected by the user
+	 */
+	static final int TYPE_IMAGE = 3;
+
+	/**
+	 * max number of cached headers
+	 */
+	private static final int MAX_HEADERS = 8;
+
+	/**
+	 * executor used to load the headers, one after another
+	 */
+	private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor();
+
+	/**
+	 * handler used to return the headers to the UI thread
+	 */
+	private static final Handler HANDLER = new Handler(Looper.getMainLooper());
+
+	/**
+	 * cached headers, mapped by profile key
+	 */
+	private static final LruCache<String, Header> CACHE = new LruCache<>(MAX_HEADERS);
+
+
+	private ProfileHeaderLoader() {
+	}
+
+	/**
+	 * get the key of a profile header
+	 *
+	 * @param type   type of the header {@link #TYPE_ALBUM,#TYPE_ARTIST_ALBUM,#TYPE_IMAGE}
+	 * @param name   name of the album, artist or playlist
+	 * @param artist name of the album artist or null
+	 * @return key used to identify the header
+	 */
+	static String getKey(int type, @NonNull String name, @Nullable String artist) {
+		return type + ":" + name + ":" + artist;
+	}
+
+	/**
+	 * get the header of a profile. Cached headers are returned directly, other headers are loaded in the background
+	 *
+	 * @param context  context used to access the library
+	 * @param type     type of the header {@link #TYPE_ALBUM,#TYPE_ARTIST_ALBUM,#TYPE_IMAGE}
+	 * @param name     name of the album, artist or playlist
+	 * @param artist   name of the album artist or null
+	 * @param callback callback used to return the header on the UI thread
+	 */
+	static void load(Context context, int type, @NonNull String name, @Nullable String artist, Callback callback) {
+		String key = getKey(type, name, artist);
+		Header header = CACHE.get(key);
+		if (header != null) {
+			callback.onHeaderLoaded(header);
+		} else {
+			EXECUTOR.execute(new Worker(context, key, type, name, artist, callback));
+		}
+	}
+
+	/**
+	 * remove all cached headers, used after the user changed an image
+	 */
+	static void clear() {
+		CACHE.evictAll();
+	}
+
+	/**
+	 * callback used to return a loaded header
+	 */
+	interface Callback {
+
+		/**
+		 * called on the UI thread when a header is loaded
+		 */
+		void onHeaderLoaded(Header header);
+	}
+
+	/**
+	 * information of a profile header
+	 */
+	static final class Header {
+
+		/**
+		 * key of the profile
+		 */
+		final String key;
+
+		/**
+		 * name of the album shown in the header or null if not found
+		 */
+		@Nullable
+		String album;
+
+		/**
+		 * ID of the album shown in the header or -1 if not found
+		 */
+		long albumId = -1L;
+
+		/**
+		 * tracks of the album shown in the header
+		 */
+		long[] songs = {};
+
+		/**
+		 * cached artwork or null if the artwork must be downloaded
+		 */
+		@Nullable
+		Bitmap artwork;
+
+		/**
+		 * blurred version of the artwork or null if not used
+		 */
+		@Nullable
+		Bitmap blur;
+
+		Header(String key) {
+			this.key = key;
+		}
+	}
+
+	/**
+	 * background job used to load a header
+	 */
+	private static class Worker implements Runnable {
+
+		private Context context;
+		private WeakReference<Callback> callback;
+		private String key, name, artist;
+		private int type;
+
+
+		Worker(Context context, String key, int type, String name, String artist, Callback callback) {
+			this.context = context.getApplicationContext();
+			this.callback = new WeakReference<>(callback);
+			this.key = key;
+			this.type = type;
+			this.name = name;
+			this.artist = artist;
+		}
+
+
+		@Override
+		public void run() {
+			ImageFetcher fetcher = ApolloUtils.getImageFetcher(context);
+			final Header header = new Header(key);
+			switch (type) {
+				case TYPE_ALBUM:
+					header.album = name;
+					header.albumId = MusicUtils.getIdForAlbum(context, name, artist);
+					header.artwork = fetcher.getCachedArtwork(name, artist, header.albumId);
+					header.blur = BitmapUtils.createBlurredBitmap(header.artwork);
+					break;
+
+				case TYPE_ARTIST_ALBUM:
+					header.album = MusicUtils.getLastAlbumForArtist(context, name);
+					if (header.album != null && !header.album.isEmpty()) {
+						header.albumId = MusicUtils.getIdForAlbum(context, header.album, name);
+						header.songs = MusicUtils.getSongListForAlbum(context, header.albumId);
+						header.artwork = fetcher.getCachedArtwork(header.album, name, header.albumId);
+					}
+					break;
+
+				case TYPE_IMAGE:
+					header.artwork = fetcher.getCachedBitmap(name);
+					break;
+			}
+			if (type != TYPE_ARTIST_ALBUM) {
+				CACHE.put(key, header);
+			}
+			HANDLER.post(new Runnable() {
+				@Override
+				public void run() {
+					Callback callback = Worker.this.callback.get();
+					if (callback != null) {
+						callback.onHeaderLoaded(header);
+					}
+				}
+			});
+		}
+	}
+}
@@ -17,6 +17,8 @@ import android.animation.ObjectAnimator;
 import android.annotation.SuppressLint;
 import android.content.Context;
 import android.content.res.Resources;
+import android.os.StrictMode;
+import android.os.StrictMode.ThreadPolicy;
 import android.util.AttributeSet;
 import android.util.TypedValue;
 import android.view.MotionEvent;
@@ -29,6 +31,7 @@ import android.widget.ImageView;
 
 import androidx.appcompat.app.AppCompatActivity;
 
+import org.nuclearfog.apollo.BuildConfig;
 import org.nuclearfog.apollo.R;
 import org.nuclearfog.apollo.ui.activities.ProfileActivity;
 
@@ -431,8 +434,10 @@ public class ProfileTabCarousel extends HorizontalScrollView implements OnTouchL
 	public void setArtistProfileHeader(Context context, String artistName) {
 		mFirstTab.setLabel(getResources().getString(R.string.page_songs));
 		mSecondTab.setLabel(getResources().getString(R.string.page_albums));
+		ThreadPolicy policy = beginHeaderCheck();
 		mFirstTab.setArtistPhoto(context, artistName);
 		mSecondTab.setArtistAlbumPhoto(context, artistName);
+		endHeaderCheck(policy);
 		mEnableSwipe = true;
 	}
 
@@ -445,7 +450,9 @@ public class ProfileTabCarousel extends HorizontalScrollView implements OnTouchL
 	 */
 	public void setAlbumProfileHeader(Context context, String albumName, String artistName) {
 		mFirstTab.setLabel(getResources().getString(R.string.page_songs));
+		ThreadPolicy policy = beginHeaderCheck();
 		mFirstTab.setAlbumPhoto(context, albumName, artistName);
+		endHeaderCheck(policy);
 
 		mSecondTab.setVisibility(View.GONE);
 		mEnableSwipe = false;
@@ -461,11 +468,20 @@ public class ProfileTabCarousel extends HorizontalScrollView implements OnTouchL
 	public void setPlaylistOrGenreProfileHeader(Context context, String profileName) {
 		mFirstTab.setDefault(context);
 		mFirstTab.setLabel(getResources().getString(R.string.page_songs));
+		ThreadPolicy policy = beginHeaderCheck();
 		mFirstTab.setPlaylistOrGenrePhoto(context, profileName);
+		endHeaderCheck(policy);
 		mSecondTab.setVisibility(View.GONE);
 		mEnableSwipe = false;
 	}
 
+	/**
+	 * remove all cached profile headers, used after the user changed a header image
+	 */
+	public void clearHeaderCache() {
+		ProfileHeaderLoader.clear();
+	}
+
 	/**
 	 * Used to fetch for the album art via Last.fm.
 	 *
@@ -508,4 +524,29 @@ public class ProfileTabCarousel extends HorizontalScrollView implements OnTouchL
 			mListener.onTabSelected(mTab);
 		}
 	}
+
+	/**
+	 * enable a strict thread policy in debug builds while a header is set.
+	 * Headers are loaded in the background, so any disk access on the UI thread is a bug and crashes debug builds
+	 *
+	 * @return previous thread policy
+	 */
+	private ThreadPolicy beginHeaderCheck() {
+		ThreadPolicy policy = StrictMode.getThreadPolicy();
+		if (BuildConfig.DEBUG) {
+			StrictMode.setThreadPolicy(new ThreadPolicy.Builder().detectDiskReads().detectDiskWrites().penaltyLog().penaltyDeath().build());
+		}
+		return policy;
+	}
+
+	/**
+	 * restore the thread policy after a header was set
+	 *
+	 * @param policy previous thread policy
+	 */
+	private void endHeaderCheck(ThreadPolicy policy) {
+		if (BuildConfig.DEBUG) {
+			StrictMode.setThreadPolicy(policy);
+		}
+	}
 }
\ No newline at end of file
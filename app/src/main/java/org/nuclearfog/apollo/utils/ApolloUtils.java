@@ -45,6 +45,7 @@ import org.nuclearfog.apollo.Config;
 import org.nuclearfog.apollo.R;
 import org.nuclearfog.apollo.cache.ImageCache;
 import org.nuclearfog.apollo.cache.ImageFetcher;
+import org.nuclearfog.apollo.lastfm.MetadataCache;
 import org.nuclearfog.apollo.ui.activities.HomeActivity;
 import org.nuclearfog.apollo.ui.activities.ShortcutActivity;
 import org.nuclearfog.apollo.ui.appmsg.AppMsg;
@@ -187,6 +188,7 @@ public final class ApolloUtils {
 					public void onClick(DialogInterface dialog, int which) {
 						ImageCache mImageCache = ImageCache.getInstance(context);
 						mImageCache.clearCaches();
+						MetadataCache.getInstance(context).clear();
 					}
 				})
 				.setNegativeButton(R.string.cancel, new OnClickListener() {
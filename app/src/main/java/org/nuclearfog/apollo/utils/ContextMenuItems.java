@@ -112,6 +112,11 @@ public final class ContextMenuItems {
 	 */
 	public static final int PLAY_FOLDER = 0x718EDAAE;
 
+	/**
+	 * Used to play a folder including its sub folders
+	 */
+	public static final int PLAY_FOLDER_RECURSIVE = 0x5B3C90D1;
+
 	/**
 	 */
 	public static final int HIDE_ALBUM = 0x60765626;
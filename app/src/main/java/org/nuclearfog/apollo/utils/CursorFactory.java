@@ -12,7 +12,6 @@ import android.database.sqlite.SQLiteDatabase;
 import android.net.Uri;
 import android.os.Build;
 import android.provider.BaseColumns;
-import android.provider.MediaStore;
 import android.provider.MediaStore.Audio.Albums;
 import android.provider.MediaStore.Audio.Artists;
 import android.provider.MediaStore.Audio.AudioColumns;
@@ -31,8 +30,6 @@ import org.nuclearfog.apollo.provider.PopularStore.PopularColumns;
 import org.nuclearfog.apollo.provider.RecentStore;
 import org.nuclearfog.apollo.provider.RecentStore.RecentStoreColumns;
 
-import java.util.List;
-
 /**
  * class to create MediaStore cursor to access all music files
  *
@@ -89,7 +86,8 @@ public class CursorFactory {
 			Media.ALBUM,
 			Media.DURATION,
 			Media.DATA,
-			Media.MIME_TYPE
+			Media.MIME_TYPE,
+			Media.YEAR
 	};
 
 	/**
@@ -157,6 +155,16 @@ public class CursorFactory {
 			Playlists.Members.PLAY_ORDER
 	};
 
+	/**
+	 * projection for playlist member rows
+	 */
+	@SuppressLint("InlinedApi")
+	public static final String[] PLAYLIST_MEMBER_COLUMNS = {
+			Playlists.Members._ID,
+			Playlists.Members.AUDIO_ID,
+			Playlists.Members.PLAY_ORDER
+	};
+
 	/**
 	 * projection for genre columns
 	 */
@@ -165,6 +173,29 @@ public class CursorFactory {
 			Genres.NAME
 	};
 
+	/**
+	 * projection for genre member IDs
+	 */
+	private static final String[] GENRE_MEMBER_COLUMNS = {
+			Genres.Members.AUDIO_ID
+	};
+
+	/**
+	 * projection for tracks with their genre ID, the genre column is only available on newer Android versions
+	 */
+	@SuppressLint("InlinedApi")
+	private static final String[] GENRE_TRACK_COLUMNS = Build.VERSION.SDK_INT >= Build.VERSION_CODES.R ?
+			new String[]{Media._ID, Media.GENRE_ID} : new String[]{Media._ID};
+
+	/**
+	 * projection for the party shuffle candidates
+	 */
+	private static final String[] SHUFFLE_COLUMNS = {
+			Media._ID,
+			Media.ALBUM_ID,
+			Media.ARTIST_ID
+	};
+
 	/**
 	 * projection for track search
 	 */
@@ -178,10 +209,15 @@ public class CursorFactory {
 	};
 
 	/**
-	 * column selection for audio rows
+	 * column selection for track rows resolved by ID
 	 */
-	private static final String[] AUDIO_COLUMNS = {
+	@SuppressLint("InlinedApi")
+	private static final String[] TRACK_LIST_COLUMNS = {
 			AudioColumns._ID,
+			AudioColumns.TITLE,
+			AudioColumns.ARTIST,
+			AudioColumns.ALBUM,
+			AudioColumns.DURATION,
 			AudioColumns.DATA,
 			AudioColumns.ALBUM_ID
 	};
@@ -208,9 +244,13 @@ public class CursorFactory {
 	/**
 	 * projection for music folder
 	 */
+	@SuppressLint("InlinedApi")
 	private static final String[] FOLDER_COLUMNS = {
 			Media.DATA,
-			Media._ID
+			Media._ID,
+			Media.DURATION,
+			Media.TRACK,
+			Media.TITLE
 	};
 
 	/**
@@ -234,11 +274,6 @@ public class CursorFactory {
 	 */
 	public static final String LAST_ADDED_SELECT = TRACK_FILTER_SELECT + " AND " + Media.DATE_ADDED + ">?";
 
-	/**
-	 * folder track selection
-	 */
-	private static final String FOLDER_TRACK_SELECT = TRACK_FILTER_SELECT + " AND " + Media.DATA + " LIKE ?";
-
 	/**
 	 * SQL selection
 	 */
@@ -259,6 +294,11 @@ public class CursorFactory {
 	 */
 	private static final String TRACK_ID_SELECT = MediaColumns._ID + "=?";
 
+	/**
+	 * select a single track matching an audio ID, if the track is music
+	 */
+	private static final String SHUFFLE_TRACK_SELECT = TRACK_FILTER_SELECT + " AND " + Media._ID + "=?";
+
 	/**
 	 * select track matching an audio ID
 	 */
@@ -274,16 +314,6 @@ public class CursorFactory {
 	 */
 	private static final String ARTIST_SELECT = Artists.ARTIST + "=?";
 
-	/**
-	 * select specific artist matching name
-	 */
-	private static final String PLAYLIST_NAME_SELECT = Playlists.NAME + "=?";
-
-	/**
-	 * select playlist by ID
-	 */
-	private static final String PLAYLIST_ID_SELECT = Playlists._ID + "=?";
-
 	/**
 	 * selection to find artist name matching search
 	 */
@@ -310,7 +340,7 @@ public class CursorFactory {
 	private static final String PLAYLIST_ORDER = Playlists.NAME;
 
 	/**
-	 * default track order of a genre
+	 * default track order of a genre, used to rank the tracks of the genre index
 	 */
 	private static final String GENRE_TRACK_ORDER = Media.DEFAULT_SORT_ORDER;
 
@@ -397,45 +427,32 @@ public class CursorFactory {
 	}
 
 	/**
-	 * create a cursor to get all playlists with fixed column order
-	 * {@link #PLAYLIST_COLUMNS}
+	 * create a cursor to get the member rows of a playlist with fixed column order
+	 * {@link #PLAYLIST_MEMBER_COLUMNS}
 	 *
-	 * @return cursor with playlist information
+	 * @param id playlist ID
+	 * @return cursor with the member rows of a playlist, sorted by play order
 	 */
 	@Nullable
-	public static Cursor makePlaylistCursor(Context context) {
+	@SuppressLint("InlinedApi")
+	public static Cursor makePlaylistMemberCursor(Context context, long id) {
 		ContentResolver resolver = context.getContentResolver();
 
-		return resolver.query(Playlists.EXTERNAL_CONTENT_URI, PLAYLIST_COLUMNS, null, null, PLAYLIST_ORDER);
+		Uri content = Playlists.Members.getContentUri(VOLUME_EXTERNAL, id);
+		return resolver.query(content, PLAYLIST_MEMBER_COLUMNS, null, null, PLAYLIST_TRACK_ORDER);
 	}
 
 	/**
-	 * create cursor for a playlist item with fixed column order
+	 * create a cursor to get all playlists with fixed column order
 	 * {@link #PLAYLIST_COLUMNS}
 	 *
-	 * @param name name of the playlist
 	 * @return cursor with playlist information
 	 */
 	@Nullable
-	public static Cursor makePlaylistCursor(Context context, @NonNull String name) {
+	public static Cursor makePlaylistCursor(Context context) {
 		ContentResolver resolver = context.getContentResolver();
 
-		String[] args = {name};
-		return resolver.query(Playlists.EXTERNAL_CONTENT_URI, PLAYLIST_COLUMNS, PLAYLIST_NAME_SELECT, args, null);
-	}
-
-	/**
-	 * create a cursor for a single playlist with fixed column order
-	 * {@link #PLAYLIST_COLUMNS}
-	 *
-	 * @param id ID of the playlist
-	 * @return cursor with playlist information
-	 */
-	@Nullable
-	public static Cursor makePlaylistCursor(Context context, long id) {
-		String[] param = {String.valueOf(id)};
-		ContentResolver resolver = context.getContentResolver();
-		return resolver.query(Playlists.EXTERNAL_CONTENT_URI, PLAYLIST_COLUMNS, PLAYLIST_ID_SELECT, param, Playlists.NAME);
+		return resolver.query(Playlists.EXTERNAL_CONTENT_URI, PLAYLIST_COLUMNS, null, null, PLAYLIST_ORDER);
 	}
 
 	/**
@@ -498,19 +515,60 @@ public class CursorFactory {
 	}
 
 	/**
-	 * create a cursor to get all songs of a genre with fixed column order
-	 * {@link #TRACK_COLUMNS}
+	 * create a cursor to get the IDs of all tracks of a genre
+	 * {@link #GENRE_MEMBER_COLUMNS}
 	 *
 	 * @param genreId genre ID
-	 * @return cursor with song information
+	 * @return cursor with track IDs
 	 */
 	@Nullable
 	@SuppressLint("InlinedApi")
-	public static Cursor makeGenreSongCursor(Context context, long genreId) {
+	public static Cursor makeGenreMemberCursor(Context context, long genreId) {
 		ContentResolver resolver = context.getContentResolver();
 
 		Uri media = Genres.Members.getContentUri(VOLUME_EXTERNAL, genreId);
-		return resolver.query(media, TRACK_COLUMNS, TRACK_FILTER_SELECT, null, GENRE_TRACK_ORDER);
+		return resolver.query(media, GENRE_MEMBER_COLUMNS, TRACK_FILTER_SELECT, null, null);
+	}
+
+	/**
+	 * create a cursor to get all tracks sorted by title with fixed column order
+	 * {@link #GENRE_TRACK_COLUMNS}. The second column (genre ID) is only available on Android R and above
+	 *
+	 * @return cursor with track IDs and genre IDs
+	 */
+	@Nullable
+	public static Cursor makeGenreTrackCursor(Context context) {
+		ContentResolver resolver = context.getContentResolver();
+
+		return resolver.query(Media.EXTERNAL_CONTENT_URI, GENRE_TRACK_COLUMNS, TRACK_FILTER_SELECT, null, GENRE_TRACK_ORDER);
+	}
+
+	/**
+	 * create a cursor to get all tracks used for party shuffle with fixed column order
+	 * {@link #SHUFFLE_COLUMNS}
+	 *
+	 * @return cursor with track, album and artist IDs
+	 */
+	@Nullable
+	public static Cursor makeShuffleCursor(Context context) {
+		ContentResolver resolver = context.getContentResolver();
+
+		return resolver.query(Media.EXTERNAL_CONTENT_URI, SHUFFLE_COLUMNS, TRACK_FILTER_SELECT, null, null);
+	}
+
+	/**
+	 * create a cursor to get a single track used for party shuffle with fixed column order
+	 * {@link #SHUFFLE_COLUMNS}
+	 *
+	 * @param trackId ID of the track
+	 * @return cursor with track, album and artist ID or an empty cursor if the track is not available
+	 */
+	@Nullable
+	public static Cursor makeShuffleCursor(Context context, long trackId) {
+		String[] args = {Long.toString(trackId)};
+		ContentResolver resolver = context.getContentResolver();
+
+		return resolver.query(Media.EXTERNAL_CONTENT_URI, SHUFFLE_COLUMNS, SHUFFLE_TRACK_SELECT, args, null);
 	}
 
 	/**
@@ -527,32 +585,37 @@ public class CursorFactory {
 	}
 
 	/**
-	 * create cursor to pare a specific folder with tracks with fixed column order
-	 * {@link #TRACK_COLUMNS}
+	 * create cursor to get all audio files and their paths with fixed column order
+	 * {@link #FOLDER_COLUMNS}
 	 *
-	 * @param folderName folder where to search tracks. Tracks in Sub-Folders should be ignored
-	 * @return cursor with track information matching the path
+	 * @return cursor with all songs
 	 */
 	@Nullable
-	public static Cursor makeFolderSongCursor(Context context, String folderName) {
+	public static Cursor makeFolderCursor(Context context) {
 		ContentResolver contentResolver = context.getContentResolver();
-
-		String[] args = {folderName + "%"};// todo filter subfolders from results, return only tracks from current folder
-		return contentResolver.query(Media.EXTERNAL_CONTENT_URI, TRACK_COLUMNS, FOLDER_TRACK_SELECT, args, FOLDER_TRACKS_ORDER);
+		return contentResolver.query(Media.EXTERNAL_CONTENT_URI, FOLDER_COLUMNS, TRACK_FILTER_SELECT, null, FOLDER_TRACKS_ORDER);
 	}
 
 	/**
-	 * create cursor to get all audio files and their paths with fixed column order
+	 * create cursor to get the paths of a part of an ID list with fixed column order
 	 * {@link #FOLDER_COLUMNS}
 	 *
-	 * @return cursor with all songs
+	 * @param trackIds list of track IDs
+	 * @param offset   index of the first ID to use
+	 * @param count    number of IDs to use, must not exceed the SQLite host parameter limit
+	 * @return cursor with the songs
 	 */
 	@Nullable
-	public static Cursor makeFolderCursor(Context context) {
+	public static Cursor makeFolderCursor(Context context, long[] trackIds, int offset, int count) {
+		StringBuilder selection = new StringBuilder(TRACK_FILTER_SELECT + " AND " + Media._ID + " IN (");
+		String[] args = new String[count];
+		for (int i = 0; i < count; i++) {
+			args[i] = Long.toString(trackIds[offset + i]);
+			selection.append(i == 0 ? "?" : ",?");
+		}
+		selection.append(")");
 		ContentResolver contentResolver = context.getContentResolver();
-
-		String sortOrder = PreferenceUtils.getInstance(context).getSongSortOrder();
-		return contentResolver.query(Media.EXTERNAL_CONTENT_URI, FOLDER_COLUMNS, TRACK_FILTER_SELECT, null, sortOrder);
+		return contentResolver.query(Media.EXTERNAL_CONTENT_URI, FOLDER_COLUMNS, selection.toString(), args, FOLDER_TRACKS_ORDER);
 	}
 
 	/**
@@ -563,7 +626,10 @@ public class CursorFactory {
 	 */
 	@Nullable
 	public static Cursor makeFavoritesCursor(Context context) {
-		SQLiteDatabase data = FavoritesStore.getInstance(context).getReadableDatabase();
+		FavoritesStore favorites = FavoritesStore.getInstance(context);
+		// include changes not written yet
+		favorites.awaitWrites();
+		SQLiteDatabase data = favorites.getReadableDatabase();
 		return data.query(FavoriteColumns.NAME, FAVORITE_COLUMNS, null, null, null, null, FAV_ORDER);
 	}
 
@@ -771,46 +837,25 @@ public class CursorFactory {
 	}
 
 	/**
-	 * creates a cursor to seach for track information with fixed columns
-	 * {@link #AUDIO_COLUMNS}
+	 * creates a cursor to search for track information of a part of an ID list with fixed columns
+	 * {@link #TRACK_LIST_COLUMNS}
 	 *
-	 * @param trackIds query with track IDs
+	 * @param trackIds list of track IDs
+	 * @param offset   index of the first ID to use
+	 * @param count    number of IDs to use, must not exceed the SQLite host parameter limit
 	 * @return cursor with track information
 	 */
 	@Nullable
-	public static Cursor makeTrackListCursor(Context context, long[] trackIds) {
-		StringBuilder selection = new StringBuilder();
-		selection.append(Media._ID + " IN (");
-		for (int i = 0; i < trackIds.length; i++) {
-			selection.append(trackIds[i]);
-			if (i < trackIds.length - 1) {
-				selection.append(",");
-			}
+	public static Cursor makeTrackListCursor(Context context, long[] trackIds, int offset, int count) {
+		StringBuilder selection = new StringBuilder(Media._ID + " IN (");
+		String[] args = new String[count];
+		for (int i = 0; i < count; i++) {
+			args[i] = Long.toString(trackIds[offset + i]);
+			selection.append(i == 0 ? "?" : ",?");
 		}
 		selection.append(")");
 		ContentResolver resolver = context.getContentResolver();
-		return resolver.query(Media.EXTERNAL_CONTENT_URI, AUDIO_COLUMNS, selection.toString(), null, null);
-	}
-
-	/**
-	 * creates a cursor to get current track queue with fixed columns
-	 * {@link #NP_COLUMNS}
-	 *
-	 * @param ids query with track IDs
-	 * @return cursor with track information
-	 */
-	@Nullable
-	public static Cursor makeNowPlayingCursor(Context context, List<Long> ids) {
-		StringBuilder selection = new StringBuilder();
-		selection.append(MediaStore.Audio.Media._ID + " IN (");
-		for (int i = 0; i < ids.size(); i++) {
-			selection.append(ids.get(i));
-			if (i < ids.size() - 1) {
-				selection.append(",");
-			}
-		}
-		selection.append(")");
-		return context.getContentResolver().query(Media.EXTERNAL_CONTENT_URI, NP_COLUMNS, selection.toString(), null, Media._ID);
+		return resolver.query(Media.EXTERNAL_CONTENT_URI, TRACK_LIST_COLUMNS, selection.toString(), args, null);
 	}
 
 	/**
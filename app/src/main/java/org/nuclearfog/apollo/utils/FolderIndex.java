@@ -0,0 +1,460 @@
+package org.nuclearfog.apollo.utils;
+
+import android.content.Context;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.MediaStore.Audio.Media;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.nuclearfog.apollo.model.Folder;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Folder hierarchy of all music tracks, built from the MediaStore file paths.
+ * Every folder node contains the IDs of its tracks and the aggregated track count and duration of its sub folders.
+ * The index is built once and updated incrementally when the MediaStore reports changes of single tracks.
+ *
+ * @author nuclearfog
+ */
+public class FolderIndex {
+
+	private static final long[] EMPTY = {};
+
+	private static FolderIndex sInstance;
+
+	/**
+	 * root node of the folder tree
+	 */
+	private final Node root = new Node("", null);
+
+	/**
+	 * map used to find the folder of a track
+	 */
+	private final Map<Long, Node> trackNodes = new HashMap<>();
+
+	/**
+	 * pool of interned path segments
+	 */
+	private final Map<String, String> segments = new HashMap<>();
+
+	/**
+	 * IDs of single tracks changed since the last update
+	 */
+	private final Set<Long> changedTracks = new HashSet<>();
+
+	private final Context context;
+
+	/**
+	 * true if the whole index must be compared with the MediaStore
+	 */
+	private boolean invalid = true;
+
+	/**
+	 * @param context application context
+	 */
+	private FolderIndex(Context context) {
+		this.context = context;
+		ContentObserver observer = new ContentObserver(null) {
+			@Override
+			public void onChange(boolean selfChange) {
+				onChange(selfChange, null);
+			}
+
+			@Override
+			public void onChange(boolean selfChange, @Nullable Uri uri) {
+				onMediaChanged(uri);
+			}
+		};
+		context.getContentResolver().registerContentObserver(Media.EXTERNAL_CONTENT_URI, true, observer);
+	}
+
+	/**
+	 * get singleton instance
+	 */
+	public static FolderIndex getInstance(Context context) {
+		if (sInstance == null) {
+			// use application context to avoid memory leak
+			sInstance = new FolderIndex(context.getApplicationContext());
+		}
+		return sInstance;
+	}
+
+	/**
+	 * get all folders containing at least one track, sorted by name
+	 *
+	 * @return list of folders
+	 */
+	@NonNull
+	public synchronized List<Folder> getFolders(Set<Long> excludedIds) {
+		update();
+		List<Folder> result = new LinkedList<>();
+		LinkedList<Node> stack = new LinkedList<>();
+		stack.add(root);
+		while (!stack.isEmpty()) {
+			Node node = stack.removeLast();
+			if (node.trackCount > 0) {
+				boolean visible = true;
+				for (int i = 0; i < node.trackCount; i++) {
+					if (excludedIds.contains(node.tracks[i])) {
+						visible = false;
+						break;
+					}
+				}
+				result.add(new Folder(node.getPath(), node.name, node.trackCount, node.duration, visible));
+			}
+			stack.addAll(node.children.values());
+		}
+		Folder[] folders = result.toArray(new Folder[0]);
+		Arrays.sort(folders);
+		return Arrays.asList(folders);
+	}
+
+	/**
+	 * get all track IDs of a folder
+	 *
+	 * @param path      absolute path of the folder
+	 * @param recursive true to add tracks of the sub folders
+	 * @return array of track IDs
+	 */
+	@NonNull
+	public synchronized long[] getTracks(String path, boolean recursive) {
+		update();
+		Node node = findNode(path);
+		if (node == null) {
+			return EMPTY;
+		}
+		if (!recursive) {
+			return Arrays.copyOf(node.tracks, node.trackCount);
+		}
+		long[] result = new long[node.totalCount];
+		int index = 0;
+		// depth first, tracks of a folder are followed by the tracks of its sub folders
+		LinkedList<Node> stack = new LinkedList<>();
+		stack.add(node);
+		while (!stack.isEmpty()) {
+			Node current = stack.removeFirst();
+			System.arraycopy(current.tracks, 0, result, index, current.trackCount);
+			index += current.trackCount;
+			stack.addAll(0, current.children.values());
+		}
+		return result;
+	}
+
+	/**
+	 * get the number of tracks of a folder
+	 *
+	 * @param path      absolute path of the folder
+	 * @param recursive true to add the tracks of sub folders
+	 * @return track count
+	 */
+	public synchronized int getTrackCount(String path, boolean recursive) {
+		update();
+		Node node = findNode(path);
+		if (node == null) {
+			return 0;
+		}
+		return recursive ? node.totalCount : node.trackCount;
+	}
+
+	/**
+	 * get the duration of all tracks of a folder
+	 *
+	 * @param path      absolute path of the folder
+	 * @param recursive true to add the duration of sub folders
+	 * @return duration in milliseconds
+	 */
+	public synchronized long getDuration(String path, boolean recursive) {
+		update();
+		Node node = findNode(path);
+		if (node == null) {
+			return 0L;
+		}
+		return recursive ? node.totalDuration : node.duration;
+	}
+
+	/**
+	 * find the path of the first folder with a given name
+	 *
+	 * @param name name of the folder
+	 * @return absolute path of the folder or null if not found
+	 */
+	@Nullable
+	public synchronized String findPath(String name) {
+		update();
+		LinkedList<Node> stack = new LinkedList<>();
+		stack.add(root);
+		while (!stack.isEmpty()) {
+			Node node = stack.removeFirst();
+			if (node.trackCount > 0 && node.name.equals(name)) {
+				return node.getPath();
+			}
+			stack.addAll(node.children.values());
+		}
+		return null;
+	}
+
+	/**
+	 * remove tracks from the index, if they were removed from the MediaStore
+	 *
+	 * @param ids IDs of the removed tracks
+	 */
+	public synchronized void removeTracks(long... ids) {
+		for (long id : ids) {
+			removeTrack(id);
+		}
+	}
+
+	/**
+	 * called when the MediaStore changes
+	 *
+	 * @param uri uri of the changed item or null if unknown
+	 */
+	private synchronized void onMediaChanged(@Nullable Uri uri) {
+		String segment = uri != null ? uri.getLastPathSegment() : null;
+		if (segment != null && segment.matches("\\d{1,18}")) {
+			changedTracks.add(Long.parseLong(segment));
+		} else {
+			invalid = true;
+		}
+	}
+
+	/**
+	 * apply all changes of the MediaStore to the index
+	 */
+	private void update() {
+		if (invalid) {
+			// rebuild the whole index
+			root.children.clear();
+			root.clear();
+			trackNodes.clear();
+			segments.clear();
+			changedTracks.clear();
+			TrackResolver.clearCache();
+			Cursor cursor = CursorFactory.makeFolderCursor(context);
+			if (cursor != null) {
+				if (cursor.moveToFirst()) {
+					do {
+						addTrack(cursor.getLong(1), cursor.getString(0), cursor.getLong(2), cursor.getInt(3), cursor.getString(4));
+					} while (cursor.moveToNext());
+				}
+				cursor.close();
+			}
+			invalid = false;
+		} else if (!changedTracks.isEmpty()) {
+			// update single tracks only
+			long[] ids = new long[changedTracks.size()];
+			int index = 0;
+			for (long id : changedTracks) {
+				removeTrack(id);
+				ids[index++] = id;
+			}
+			changedTracks.clear();
+			TrackResolver.invalidate(ids);
+			for (int offset = 0; offset < ids.length; offset += TrackResolver.CHUNK_SIZE) {
+				int count = Math.min(TrackResolver.CHUNK_SIZE, ids.length - offset);
+				Cursor cursor = CursorFactory.makeFolderCursor(context, ids, offset, count);
+				if (cursor != null) {
+					if (cursor.moveToFirst()) {
+						do {
+							addTrack(cursor.getLong(1), cursor.getString(0), cursor.getLong(2), cursor.getInt(3), cursor.getString(4));
+						} while (cursor.moveToNext());
+					}
+					cursor.close();
+				}
+			}
+		}
+	}
+
+	/**
+	 * add a single track to the folder tree
+	 *
+	 * @param id       track ID
+	 * @param path     path of the track file
+	 * @param duration duration of the track
+	 * @param number   track number used to sort the tracks of a folder
+	 * @param title    title used to sort tracks with the same number
+	 */
+	private void addTrack(long id, String path, long duration, int number, String title) {
+		if (path == null)
+			return;
+		Node node = root;
+		int start = 0;
+		int end = path.indexOf('/');
+		// walk through the folder segments, ignore the file name
+		while (end >= 0) {
+			if (end > start) {
+				String name = intern(path.substring(start, end));
+				Node child = node.children.get(name);
+				if (child == null) {
+					child = new Node(name, node);
+					node.children.put(name, child);
+				}
+				node = child;
+			}
+			start = end + 1;
+			end = path.indexOf('/', start);
+		}
+		node.add(id, duration, number, title != null ? title : "");
+		trackNodes.put(id, node);
+	}
+
+	/**
+	 * remove a single track from the folder tree
+	 *
+	 * @param id track ID
+	 */
+	private void removeTrack(long id) {
+		Node node = trackNodes.remove(id);
+		if (node != null) {
+			node.remove(id);
+			// remove empty folders
+			while (node.parent != null && node.totalCount == 0 && node.children.isEmpty()) {
+				node.parent.children.remove(node.name);
+				node = node.parent;
+			}
+		}
+	}
+
+	/**
+	 * find a folder node matching a path
+	 *
+	 * @param path absolute path of the folder
+	 * @return folder node or null if not found
+	 */
+	@Nullable
+	private Node findNode(String path) {
+		Node node = root;
+		for (String name : path.split("/")) {
+			if (!name.isEmpty()) {
+				node = node.children.get(name);
+				if (node == null) {
+					return null;
+				}
+			}
+		}
+		return node;
+	}
+
+	/**
+	 * get a shared instance of a path segment
+	 */
+	private String intern(String segment) {
+		String result = segments.get(segment);
+		if (result == null) {
+			segments.put(segment, segment);
+			result = segment;
+		}
+		return result;
+	}
+
+	/**
+	 * single folder of the tree
+	 */
+	private static final class Node {
+
+		final String name;
+		@Nullable
+		final Node parent;
+		final Map<String, Node> children = new TreeMap<>();
+
+		long[] tracks = new long[4];
+		long[] durations = new long[4];
+		int[] numbers = new int[4];
+		String[] titles = new String[4];
+		int trackCount = 0;
+		long duration = 0L;
+		int totalCount = 0;
+		long totalDuration = 0L;
+
+		Node(String name, @Nullable Node parent) {
+			this.name = name;
+			this.parent = parent;
+		}
+
+		/**
+		 * add track to this folder and update the aggregated values of the parent folders.
+		 * The track is inserted at its sorted position, so an updated track keeps the order of a full rebuild
+		 */
+		void add(long id, long trackDuration, int number, String title) {
+			if (trackCount == tracks.length) {
+				tracks = Arrays.copyOf(tracks, trackCount * 2);
+				durations = Arrays.copyOf(durations, trackCount * 2);
+				numbers = Arrays.copyOf(numbers, trackCount * 2);
+				titles = Arrays.copyOf(titles, trackCount * 2);
+			}
+			// tracks are mostly added in sorted order, so search from the end
+			int index = trackCount;
+			while (index > 0 && (numbers[index - 1] > number || (numbers[index - 1] == number && titles[index - 1].compareTo(title) > 0))) {
+				index--;
+			}
+			System.arraycopy(tracks, index, tracks, index + 1, trackCount - index);
+			System.arraycopy(durations, index, durations, index + 1, trackCount - index);
+			System.arraycopy(numbers, index, numbers, index + 1, trackCount - index);
+			System.arraycopy(titles, index, titles, index + 1, trackCount - index);
+			tracks[index] = id;
+			durations[index] = trackDuration;
+			numbers[index] = number;
+			titles[index] = title;
+			trackCount++;
+			duration += trackDuration;
+			for (Node node = this; node != null; node = node.parent) {
+				node.totalCount++;
+				node.totalDuration += trackDuration;
+			}
+		}
+
+		/**
+		 * remove track from this folder and update the aggregated values of the parent folders
+		 */
+		void remove(long id) {
+			for (int i = 0; i < trackCount; i++) {
+				if (tracks[i] == id) {
+					long trackDuration = durations[i];
+					System.arraycopy(tracks, i + 1, tracks, i, trackCount - i - 1);
+					System.arraycopy(durations, i + 1, durations, i, trackCount - i - 1);
+					System.arraycopy(numbers, i + 1, numbers, i, trackCount - i - 1);
+					System.arraycopy(titles, i + 1, titles, i, trackCount - i - 1);
+					trackCount--;
+					titles[trackCount] = null;
+					duration -= trackDuration;
+					for (Node node = this; node != null; node = node.parent) {
+						node.totalCount--;
+						node.totalDuration -= trackDuration;
+					}
+					return;
+				}
+			}
+		}
+
+		/**
+		 * remove all tracks of this folder
+		 */
+		void clear() {
+			Arrays.fill(titles, 0, trackCount, null);
+			trackCount = 0;
+			duration = 0L;
+			totalCount = 0;
+			totalDuration = 0L;
+		}
+
+		/**
+		 * @return absolute path of this folder
+		 */
+		String getPath() {
+			if (parent == null)
+				return "";
+			return parent.getPath() + "/" + name;
+		}
+	}
+}
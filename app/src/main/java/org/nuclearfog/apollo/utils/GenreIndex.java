@@ -0,0 +1,315 @@
+package org.nuclearfog.apollo.utils;
+
+import android.content.Context;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.provider.MediaStore.Audio.Genres;
+import android.provider.MediaStore.Audio.Media;
+
+import androidx.annotation.NonNull;
+
+import org.nuclearfog.apollo.model.Genre;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * Index of all genres and their tracks. Genre groups like "Rock, Pop" are split into single genre names and
+ * names with the same normalized spelling are merged. Every MediaStore genre contains a sorted and deduplicated array of track IDs.
+ * The index is built once and rebuilt after the MediaStore changes.
+ *
+ * @author nuclearfog
+ */
+public class GenreIndex {
+
+	/**
+	 * regex pattern to split genre group separated by
+	 */
+	private static final Pattern SEPARATOR = Pattern.compile("\\s*[,;|]\\s*");
+
+	private static final long[] EMPTY = {};
+
+	private static GenreIndex sInstance;
+
+	/**
+	 * genre names mapped by the normalized name
+	 */
+	private Map<String, Entry> entries = new HashMap<>();
+
+	/**
+	 * track members mapped by MediaStore genre ID
+	 */
+	private Map<Long, Members> members = new HashMap<>();
+
+	private final Context context;
+
+	/**
+	 * true if the index must be rebuilt
+	 */
+	private volatile boolean invalid = true;
+
+	/**
+	 * @param context application context
+	 */
+	private GenreIndex(Context context) {
+		this.context = context;
+		ContentObserver observer = new ContentObserver(null) {
+			@Override
+			public void onChange(boolean selfChange) {
+				invalid = true;
+			}
+		};
+		context.getContentResolver().registerContentObserver(Media.EXTERNAL_CONTENT_URI, true, observer);
+		context.getContentResolver().registerContentObserver(Genres.EXTERNAL_CONTENT_URI, true, observer);
+	}
+
+	/**
+	 * get singleton instance
+	 */
+	public static GenreIndex getInstance(Context context) {
+		if (sInstance == null) {
+			// use application context to avoid memory leak
+			sInstance = new GenreIndex(context.getApplicationContext());
+		}
+		return sInstance;
+	}
+
+	/**
+	 * get all genres sorted by name
+	 *
+	 * @param excludedIds excluded genre IDs
+	 * @return list of genres
+	 */
+	@NonNull
+	public synchronized List<Genre> getGenres(Set<Long> excludedIds) {
+		update();
+		Set<Genre> result = new TreeSet<>();
+		for (Entry entry : entries.values()) {
+			long[] genreIds = entry.getGenreIds();
+			boolean visibility = true;
+			for (long id : genreIds) {
+				if (excludedIds.contains(id)) {
+					visibility = false;
+					break;
+				}
+			}
+			result.add(new Genre(genreIds, entry.name, visibility));
+		}
+		return new LinkedList<>(result);
+	}
+
+	/**
+	 * get all tracks of a set of genres. Every track is only added once
+	 *
+	 * @param genreIds MediaStore IDs of the genres
+	 * @return array of track IDs sorted by title
+	 */
+	@NonNull
+	public synchronized long[] getTracks(long... genreIds) {
+		update();
+		// merge track IDs of all genres, sorted by ID
+		long[] ids = EMPTY;
+		int[] ranks = new int[0];
+		int size = 0;
+		for (long genreId : genreIds) {
+			Members genre = members.get(genreId);
+			if (genre == null || genre.size == 0)
+				continue;
+			long[] mergedIds = new long[size + genre.size];
+			int[] mergedRanks = new int[size + genre.size];
+			int i = 0, j = 0, k = 0;
+			while (i < size || j < genre.size) {
+				if (j >= genre.size || (i < size && ids[i] < genre.ids[j])) {
+					mergedIds[k] = ids[i];
+					mergedRanks[k++] = ranks[i++];
+				} else if (i >= size || ids[i] > genre.ids[j]) {
+					mergedIds[k] = genre.ids[j];
+					mergedRanks[k++] = genre.ranks[j++];
+				} else {
+					// skip duplicate
+					mergedIds[k] = ids[i];
+					mergedRanks[k++] = ranks[i++];
+					j++;
+				}
+			}
+			ids = mergedIds;
+			ranks = mergedRanks;
+			size = k;
+		}
+		return sortByRank(ids, ranks, size);
+	}
+
+	/**
+	 * rebuild index if the MediaStore was changed
+	 */
+	private void update() {
+		if (!invalid)
+			return;
+		invalid = false;
+		Map<String, Entry> entries = new HashMap<>();
+		Map<Long, Members> members = new HashMap<>();
+		// split genre groups into single genre names
+		Cursor cursor = CursorFactory.makeGenreCursor(context);
+		if (cursor != null) {
+			if (cursor.moveToFirst()) {
+				do {
+					long genreId = cursor.getLong(0);
+					String names = cursor.getString(1);
+					// MediaStore allows genres without name
+					if (names == null)
+						continue;
+					for (String name : SEPARATOR.split(names.trim())) {
+						String key = name.toLowerCase(Locale.getDefault());
+						Entry entry = entries.get(key);
+						if (entry == null) {
+							entry = new Entry(name);
+							entries.put(key, entry);
+						}
+						entry.addGenre(genreId);
+					}
+					members.put(genreId, new Members());
+				} while (cursor.moveToNext());
+			}
+			cursor.close();
+		}
+		// add tracks to the genres, the row position of a track is used to sort by title
+		cursor = CursorFactory.makeGenreTrackCursor(context);
+		if (cursor != null) {
+			if (cursor.moveToFirst()) {
+				boolean hasGenre = cursor.getColumnCount() > 1;
+				Map<Long, Integer> ranks = hasGenre ? null : new HashMap<Long, Integer>(cursor.getCount() * 2);
+				do {
+					long trackId = cursor.getLong(0);
+					int rank = cursor.getPosition();
+					if (hasGenre) {
+						Members genre = members.get(cursor.getLong(1));
+						if (genre != null) {
+							genre.add(trackId, rank);
+						}
+					} else {
+						ranks.put(trackId, rank);
+					}
+				} while (cursor.moveToNext());
+				// no genre column available, query genre members separately
+				if (!hasGenre) {
+					for (Map.Entry<Long, Members> genre : members.entrySet()) {
+						Cursor memberCursor = CursorFactory.makeGenreMemberCursor(context, genre.getKey());
+						if (memberCursor != null) {
+							if (memberCursor.moveToFirst()) {
+								do {
+									long trackId = memberCursor.getLong(0);
+									Integer rank = ranks.get(trackId);
+									if (rank != null) {
+										genre.getValue().add(trackId, rank);
+									}
+								} while (memberCursor.moveToNext());
+							}
+							memberCursor.close();
+						}
+					}
+				}
+			}
+			cursor.close();
+		}
+		for (Members genre : members.values()) {
+			genre.pack();
+		}
+		this.entries = entries;
+		this.members = members;
+	}
+
+	/**
+	 * sort track IDs by their title rank
+	 *
+	 * @param ids   track IDs
+	 * @param ranks title rank of the track IDs
+	 * @param size  number of IDs to sort
+	 * @return sorted track IDs
+	 */
+	private static long[] sortByRank(long[] ids, int[] ranks, int size) {
+		long[] order = new long[size];
+		for (int i = 0; i < size; i++) {
+			order[i] = ((long) ranks[i] << 32) | i;
+		}
+		Arrays.sort(order);
+		long[] result = new long[size];
+		for (int i = 0; i < size; i++) {
+			result[i] = ids[(int) order[i]];
+		}
+		return result;
+	}
+
+	/**
+	 * single genre name with the IDs of all MediaStore genres containing this name
+	 */
+	private static final class Entry {
+
+		final String name;
+		long[] genreIds = new long[2];
+		int genreCount = 0;
+
+		Entry(String name) {
+			this.name = name;
+		}
+
+		void addGenre(long genreId) {
+			if (genreCount == genreIds.length) {
+				genreIds = Arrays.copyOf(genreIds, genreCount * 2);
+			}
+			genreIds[genreCount++] = genreId;
+		}
+
+		long[] getGenreIds() {
+			return Arrays.copyOf(genreIds, genreCount);
+		}
+	}
+
+	/**
+	 * track IDs of a single MediaStore genre, sorted by ID, with the title rank of every track
+	 */
+	private static final class Members {
+
+		long[] ids = new long[16];
+		int[] ranks = new int[16];
+		int size = 0;
+
+		void add(long trackId, int rank) {
+			if (size == ids.length) {
+				ids = Arrays.copyOf(ids, size * 2);
+				ranks = Arrays.copyOf(ranks, size * 2);
+			}
+			ids[size] = trackId;
+			ranks[size++] = rank;
+		}
+
+		/**
+		 * sort track IDs and remove duplicates
+		 */
+		void pack() {
+			Map<Long, Integer> rankMap = new HashMap<>(Math.max(size * 2, 16));
+			for (int i = 0; i < size; i++) {
+				rankMap.put(ids[i], ranks[i]);
+			}
+			long[] sortedIds = Arrays.copyOf(ids, size);
+			Arrays.sort(sortedIds);
+			int count = 0;
+			for (int i = 0; i < size; i++) {
+				if (count == 0 || sortedIds[count - 1] != sortedIds[i]) {
+					sortedIds[count] = sortedIds[i];
+					ranks[count] = rankMap.get(sortedIds[i]);
+					count++;
+				}
+			}
+			ids = Arrays.copyOf(sortedIds, count);
+			ranks = Arrays.copyOf(ranks, count);
+			size = count;
+		}
+	}
+}
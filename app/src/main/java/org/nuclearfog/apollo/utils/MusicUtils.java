@@ -52,17 +52,22 @@ import org.nuclearfog.apollo.model.Album;
 import org.nuclearfog.apollo.model.Artist;
 import org.nuclearfog.apollo.model.Folder;
 import org.nuclearfog.apollo.model.Genre;
+import org.nuclearfog.apollo.model.Playlist;
 import org.nuclearfog.apollo.model.Song;
 import org.nuclearfog.apollo.player.AudioEffects;
+import org.nuclearfog.apollo.player.PlaybackClock;
 import org.nuclearfog.apollo.provider.ExcludeStore;
 import org.nuclearfog.apollo.provider.ExcludeStore.Type;
 import org.nuclearfog.apollo.provider.FavoritesStore;
+import org.nuclearfog.apollo.provider.PlayEventStore;
 import org.nuclearfog.apollo.provider.PopularStore;
 import org.nuclearfog.apollo.provider.RecentStore;
+import org.nuclearfog.apollo.provider.ReplayGainStore;
 import org.nuclearfog.apollo.service.MusicPlaybackService;
 import org.nuclearfog.apollo.ui.appmsg.AppMsg;
 import org.nuclearfog.apollo.ui.dialogs.DeleteDialog;
 import org.nuclearfog.apollo.ui.dialogs.PlaylistCreateDialog;
+import org.nuclearfog.apollo.utils.TrackResolver.Tracks;
 
 import java.io.File;
 import java.lang.ref.WeakReference;
@@ -81,16 +86,6 @@ import java.util.concurrent.Executors;
  */
 public final class MusicUtils {
 
-	/**
-	 * selection to remove track from playlist
-	 */
-	private static final String PLAYLIST_REMOVE_TRACK = Playlists.Members.AUDIO_ID + "=?";
-
-	/**
-	 * selection to remove track from database
-	 */
-	private static final String DATABASE_REMOVE_TRACK = AudioColumns._ID + "=?";
-
 	/**
 	 * code to request file deleting
 	 * only for scoped storage
@@ -114,9 +109,10 @@ public final class MusicUtils {
 	private static volatile IApolloService mService;
 
 	/**
-	 *
+	 * last playback clock received from the service, null if unknown
 	 */
-	private static ContentValues[] mContentValuesCache;
+	@Nullable
+	private static volatile PlaybackClock mClock;
 
 	/**
 	 * random initialization for shuffle
@@ -127,6 +123,11 @@ public final class MusicUtils {
 
 	private static int markedTracks = 0;
 
+	/**
+	 * executor used to delete tracks in the background, one request after another
+	 */
+	private static final ExecutorService DELETE_EXECUTOR = Executors.newSingleThreadExecutor();
+
 
 	/* This class is never initiated */
 	private MusicUtils() {
@@ -176,6 +177,7 @@ public final class MusicUtils {
 			}
 			// destroying instance
 			mService = null;
+			mClock = null;
 		}
 	}
 
@@ -492,6 +494,45 @@ public final class MusicUtils {
 		return -1;
 	}
 
+	/**
+	 * enable or disable the playback metrics of the playback service
+	 *
+	 * @param enable true to record metrics
+	 */
+	public static void setMetricsEnabled(boolean enable) {
+		IApolloService service = mService;
+		if (service != null) {
+			try {
+				service.setMetricsEnabled(enable);
+			} catch (RemoteException err) {
+				if (BuildConfig.DEBUG) {
+					err.printStackTrace();
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return report of the playback metrics recorded by the playback service or an empty string if not available
+	 */
+	@NonNull
+	public static String getMetricsReport() {
+		IApolloService service = mService;
+		if (service != null) {
+			try {
+				String report = service.getMetricsReport();
+				if (report != null) {
+					return report;
+				}
+			} catch (RemoteException err) {
+				if (BuildConfig.DEBUG) {
+					err.printStackTrace();
+				}
+			}
+		}
+		return "";
+	}
+
 	/**
 	 * @return The queue.
 	 */
@@ -528,6 +569,26 @@ public final class MusicUtils {
 		return 0;
 	}
 
+	/**
+	 * remove multiple tracks from the current playlist with a single call
+	 *
+	 * @param ids IDs of the tracks to remove
+	 * @return how many instances of the tracks were removed
+	 */
+	public static int removeTracks(long[] ids) {
+		IApolloService service = mService;
+		if (service != null) {
+			try {
+				return service.removeTrackList(ids);
+			} catch (RemoteException err) {
+				if (BuildConfig.DEBUG) {
+					err.printStackTrace();
+				}
+			}
+		}
+		return 0;
+	}
+
 	/**
 	 * remove track from the current playlist
 	 *
@@ -658,50 +719,15 @@ public final class MusicUtils {
 	}
 
 	/**
-	 * @param context The {@link Context} to use.
-	 * @param id      The ID of the genre.
-	 * @return The song list for an genre.
-	 */
-	@NonNull
-	public static long[] getSongListForGenre(Context context, long id) {
-		Cursor cursor = CursorFactory.makeGenreSongCursor(context, id);
-		long[] ids = EMPTY_LIST;
-		if (cursor != null) {
-			if (cursor.moveToFirst()) {
-				ids = new long[cursor.getCount()];
-				for (int i = 0; i < ids.length; i++) {
-					ids[i] = cursor.getLong(0);
-					cursor.moveToNext();
-				}
-			}
-			cursor.close();
-		}
-		return ids;
-	}
-
-	/**
-	 * get list of songs from multiple genre IDs
+	 * get list of songs from multiple genre IDs. Songs contained in multiple genres are only added once
 	 *
 	 * @param context The {@link Context} to use.
 	 * @param ids     list of genre IDs
-	 * @return song IDs from genres
+	 * @return song IDs from genres sorted by title
 	 */
 	@NonNull
 	public static long[] getSongListForGenres(Context context, long[] ids) {
-		int size = 0;
-		long[][] data = new long[ids.length][];
-		for (int i = 0; i < ids.length; i++) {
-			data[i] = getSongListForGenre(context, ids[i]);
-			size += data[i].length;
-		}
-		int index = 0;
-		long[] result = new long[size];
-		for (long[] array : data) {
-			for (long element : array) {
-				result[index++] = element;
-			}
-		}
-		return result;
+		return GenreIndex.getInstance(context).getTracks(ids);
 	}
 
 	/**
@@ -822,21 +848,7 @@ public final class MusicUtils {
 	 * @return The ID for a playlist.
 	 */
 	public static long getIdForPlaylist(Context context, String name) {
-		Cursor cursor = CursorFactory.makePlaylistCursor(context);
-		long playlistId = -1L;
-		if (cursor != null) {
-			if (cursor.moveToFirst() && name != null) {
-				do {
-					String playlist = cursor.getString(1);
-					if (name.equals(playlist)) {
-						playlistId = cursor.getLong(0);
-						break;
-					}
-				} while (cursor.moveToNext());
-			}
-			cursor.close();
-		}
-		return playlistId;
+		return PlaylistIndex.getInstance(context).getId(name);
 	}
 
 	/**
@@ -861,35 +873,14 @@ public final class MusicUtils {
 	/**
 	 * get all songs in a folder
 	 *
-	 * @param context The {@link Context} to use.
-	 * @param folder  folder containing songs
+	 * @param context   The {@link Context} to use.
+	 * @param folder    absolute path of the folder containing songs
+	 * @param recursive true to add the songs of all sub folders
 	 * @return array of track IDs
 	 */
 	@NonNull
-	public static long[] getSongListForFolder(Context context, String folder) {
-		Cursor cursor = CursorFactory.makeFolderSongCursor(context, folder);
-		long[] result = EMPTY_LIST;
-		if (cursor != null) {
-			if (cursor.moveToFirst()) {
-				// use dynamic array because the result size differs from cursor size
-				List<Long> ids = new LinkedList<>();
-				int idxName = folder.length() + 1;
-				do {
-					String filename = cursor.getString(5);
-					// filter sub folders from results
-					if (filename.indexOf('/', idxName) < 0) {
-						ids.add(cursor.getLong(0));
-					}
-				} while (cursor.moveToNext());
-				// convert to array
-				result = new long[ids.size()];
-				for (int pos = 0; pos < ids.size(); pos++) {
-					result[pos] = ids.get(pos);
-				}
-			}
-			cursor.close();
-		}
-		return result;
+	public static long[] getSongListForFolder(Context context, String folder, boolean recursive) {
+		return FolderIndex.getInstance(context).getTracks(folder, recursive);
 	}
 
 	/**
@@ -927,22 +918,25 @@ public final class MusicUtils {
 	}
 
 	/**
+	 * create rows to insert into a playlist
 	 *
+	 * @param ids    track IDs to insert
+	 * @param offset index of the first track ID
+	 * @param len    max number of rows
+	 * @param base   play order of the first track
+	 * @return rows to insert
 	 */
-	public static void makeInsertItems(long[] ids, int offset, int len, int base) {
+	private static ContentValues[] makeInsertItems(long[] ids, int offset, int len, int base) {
 		if (offset + len > ids.length) {
 			len = ids.length - offset;
 		}
-		if (mContentValuesCache == null || mContentValuesCache.length != len) {
-			mContentValuesCache = new ContentValues[len];
-		}
+		ContentValues[] result = new ContentValues[len];
 		for (int i = 0; i < len; i++) {
-			if (mContentValuesCache[i] == null) {
-				mContentValuesCache[i] = new ContentValues();
-			}
-			mContentValuesCache[i].put(Playlists.Members.PLAY_ORDER, base + offset + i);
-			mContentValuesCache[i].put(Playlists.Members.AUDIO_ID, ids[offset + i]);
+			result[i] = new ContentValues(2);
+			result[i].put(Playlists.Members.PLAY_ORDER, base + offset + i);
+			result[i].put(Playlists.Members.AUDIO_ID, ids[offset + i]);
 		}
+		return result;
 	}
 
 	/**
@@ -951,21 +945,17 @@ public final class MusicUtils {
 	 * @return A new playlist ID.
 	 */
 	public static long createPlaylist(Context context, String name) {
-		if (name != null && name.length() > 0) {
-			Cursor cursor = CursorFactory.makePlaylistCursor(context, name);
-			// check if playlist exists
-			if (cursor != null) {
-				// create only playlist if there isn't any conflict
-				if (!cursor.moveToFirst()) {
-					ContentResolver resolver = context.getContentResolver();
-					ContentValues values = new ContentValues(1);
-					values.put(Playlists.NAME, name);
-					Uri uri = resolver.insert(Playlists.EXTERNAL_CONTENT_URI, values);
-					if (uri != null && uri.getLastPathSegment() != null) {
-						return Long.parseLong(uri.getLastPathSegment());
-					}
-				}
-				cursor.close();
+		PlaylistIndex playlists = PlaylistIndex.getInstance(context);
+		// create only playlist if there isn't any conflict
+		if (name != null && name.length() > 0 && playlists.getId(name) < 0) {
+			ContentResolver resolver = context.getContentResolver();
+			ContentValues values = new ContentValues(1);
+			values.put(Playlists.NAME, name);
+			Uri uri = resolver.insert(Playlists.EXTERNAL_CONTENT_URI, values);
+			if (uri != null && uri.getLastPathSegment() != null) {
+				long id = Long.parseLong(uri.getLastPathSegment());
+				playlists.put(id, name);
+				return id;
 			}
 		}
 		return -1L;
@@ -998,8 +988,7 @@ public final class MusicUtils {
 					int base = cursor.getInt(0);
 					int numinserted = 0;
 					for (int offSet = 0; offSet < size; offSet += 1000) {
-						makeInsertItems(ids, offSet, 1000, base);
-						numinserted += resolver.bulkInsert(uri, mContentValuesCache);
+						numinserted += resolver.bulkInsert(uri, makeInsertItems(ids, offSet, 1000, base));
 					}
 					String message = activity.getResources().getQuantityString(R.plurals.NNNtrackstoplaylist, numinserted, numinserted);
 					AppMsg.makeText(activity, message, AppMsg.STYLE_CONFIRM).show();
@@ -1016,40 +1005,6 @@ public final class MusicUtils {
 		}
 	}
 
-	/**
-	 * move a track of a playlist to a new position
-	 *
-	 * @param playlistId ID of the playlist
-	 * @param from       location of the track
-	 * @param to         new location of the track
-	 * @param off        the offset of the positions, or '0'
-	 * @return true if success
-	 */
-	public static boolean movePlaylistTrack(Context context, long playlistId, int from, int to, int off) {
-		ContentResolver resolver = context.getContentResolver();
-		return Playlists.Members.moveItem(resolver, playlistId, from - off, to - off);
-	}
-
-	/**
-	 * Removes a single track from a given playlist
-	 *
-	 * @param trackId    The id of the song to remove.
-	 * @param playlistId The id of the playlist being removed from.
-	 */
-	@SuppressLint("InlinedApi")
-	public static boolean removeFromPlaylist(Activity activity, long trackId, long playlistId) {
-		String[] args = {Long.toString(trackId)};
-		Uri uri = Playlists.Members.getContentUri(MediaStore.VOLUME_EXTERNAL, playlistId);
-		ContentResolver resolver = activity.getContentResolver();
-		int count = resolver.delete(uri, PLAYLIST_REMOVE_TRACK, args);
-		if (count > 0) {
-			String message = activity.getResources().getQuantityString(R.plurals.NNNtracksfromplaylist, count, count);
-			AppMsg.makeText(activity, message, AppMsg.STYLE_CONFIRM).show();
-			return true;
-		}
-		return false;
-	}
-
 	/**
 	 * @param list The list to enqueue.
 	 */
@@ -1342,19 +1297,10 @@ public final class MusicUtils {
 			subMenu.add(groupId, ContextMenuItems.ADD_TO_FAVORITES, Menu.NONE, R.string.add_to_favorites);
 		}
 		subMenu.add(groupId, ContextMenuItems.NEW_PLAYLIST, Menu.NONE, R.string.new_playlist);
-		Cursor cursor = CursorFactory.makePlaylistCursor(context);
-		if (cursor != null) {
-			if (cursor.moveToFirst()) {
-				do {
-					String name = cursor.getString(1);
-					if (name != null) {
-						Intent intent = new Intent();
-						intent.putExtra("playlist", getIdForPlaylist(context, name));
-						subMenu.add(groupId, ContextMenuItems.PLAYLIST_SELECTED, Menu.NONE, name).setIntent(intent);
-					}
-				} while (cursor.moveToNext());
-			}
-			cursor.close();
+		for (Playlist playlist : PlaylistIndex.getInstance(context).getPlaylists()) {
+			Intent intent = new Intent();
+			intent.putExtra("playlist", playlist.getId());
+			subMenu.add(groupId, ContextMenuItems.PLAYLIST_SELECTED, Menu.NONE, playlist.getName()).setIntent(intent);
 		}
 	}
 
@@ -1395,6 +1341,8 @@ public final class MusicUtils {
 		if (service != null) {
 			try {
 				service.seek(position);
+				// position changed, get a new clock on next access
+				mClock = null;
 			} catch (RemoteException err) {
 				if (BuildConfig.DEBUG) {
 					err.printStackTrace();
@@ -1403,6 +1351,53 @@ public final class MusicUtils {
 		}
 	}
 
+	/**
+	 * get the playback clock used to calculate the current position without calling the service
+	 *
+	 * @return last received playback clock
+	 */
+	@NonNull
+	public static PlaybackClock getPlaybackClock() {
+		PlaybackClock clock = mClock;
+		if (clock == null) {
+			clock = refreshPlaybackClock();
+		}
+		return clock;
+	}
+
+	/**
+	 * get a new playback clock from the service
+	 *
+	 * @return current playback clock
+	 */
+	@NonNull
+	public static PlaybackClock refreshPlaybackClock() {
+		IApolloService service = mService;
+		if (service != null) {
+			try {
+				PlaybackClock clock = PlaybackClock.fromArray(service.getPlaybackClock());
+				mClock = clock;
+				return clock;
+			} catch (RemoteException err) {
+				if (BuildConfig.DEBUG) {
+					err.printStackTrace();
+				}
+			}
+		}
+		return PlaybackClock.EMPTY;
+	}
+
+	/**
+	 * set the playback clock received from a broadcast of the service
+	 *
+	 * @param clock new playback clock or null to ignore
+	 */
+	public static void setPlaybackClock(@Nullable PlaybackClock clock) {
+		if (clock != null) {
+			mClock = clock;
+		}
+	}
+
 	/**
 	 * @return The current position time of the track
 	 */
@@ -1512,45 +1507,12 @@ public final class MusicUtils {
 	 */
 	public static void deleteTracks(Activity activity, long[] list) {
 		markedTracks = list.length;
-		ContentResolver resolver = activity.getContentResolver();
-		String[] paths = removeTracksFromDatabase(activity.getApplicationContext(), list);
-
-		// Use Scoped storage and build in dialog
-		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
-			try {
-				List<Uri> uris = new LinkedList<>();
-				for (long id : list) {
-					uris.add(Media.getContentUri(MediaStore.VOLUME_EXTERNAL, id));
-				}
-				PendingIntent requestRemove = MediaStore.createDeleteRequest(resolver, uris);
-				activity.startIntentSenderForResult(requestRemove.getIntentSender(), REQUEST_DELETE_FILES, null, 0, 0, 0);
-			} catch (Exception err) {
-				// thrown when no audio file were found
-				if (BuildConfig.DEBUG) {
-					err.printStackTrace();
-				}
-			}
-		}
-		// remove tracks directly from storage
-		else {
-			for (String filename : paths) {
-				try {
-					File file = new File(filename);
-					// File.delete can throw a security exception
-					if (!file.delete()) {
-						if (BuildConfig.DEBUG) {
-							Log.e("MusicUtils", "Failed to delete file " + filename);
-						}
-					}
-				} catch (Exception ex) {
-					// catch exception if file was not found
-					if (BuildConfig.DEBUG) {
-						ex.printStackTrace();
-					}
-				}
-			}
-			onPostDelete(activity);
+		if (list.length > TrackResolver.CHUNK_SIZE) {
+			// show progress for large selections
+			String message = makeLabel(activity, R.plurals.NNNtracksdeleting, list.length);
+			AppMsg.makeText(activity, message, AppMsg.STYLE_CONFIRM).show();
 		}
+		DELETE_EXECUTOR.execute(new DeleteWorker(activity, list));
 	}
 
 	/**
@@ -1617,40 +1579,46 @@ public final class MusicUtils {
 	 * @return path to removed entries
 	 */
 	private static String[] removeTracksFromDatabase(Context context, long[] ids) {
-		String[] result = {};
-		// get cursor to fetch track information
-		Cursor cursor = CursorFactory.makeTrackListCursor(context, ids);
-
-		// Step 1: Remove selected tracks from the current playlist, as well
-		// as from the album art cache
-		if (cursor != null) {
-			if (cursor.moveToFirst()) {
-				result = new String[cursor.getCount()];
-				FavoritesStore favStore = FavoritesStore.getInstance(context);
-				RecentStore recents = RecentStore.getInstance(context);
-				PopularStore popular = PopularStore.getInstance(context);
-				ContentResolver resolver = context.getContentResolver();
-				for (int i = 0; i < ids.length; i++) {
-					// Remove from current playlist
-					long trackId = cursor.getLong(0);
-					result[i] = cursor.getString(1);
-					long albumId = cursor.getLong(2);
-					String[] idStr = {Long.toString(trackId)};
-					//
-					removeTrack(trackId);
-					// Remove from the favorites playlist
-					favStore.removeItem(trackId);
-					// Remove any items in the recents database
-					recents.removeItem(albumId);
-					// remove track from most played list
-					popular.removeItem(trackId);
-					// remove track from database
-					resolver.delete(Media.EXTERNAL_CONTENT_URI, DATABASE_REMOVE_TRACK, idStr);
-					// move to next track
-					cursor.moveToNext();
+		// get track information
+		Tracks tracks = TrackResolver.resolve(context, ids);
+		String[] result = new String[tracks.size()];
+		if (tracks.size() > 0) {
+			long[] trackIds = tracks.getIds();
+			long[] albumIds = new long[tracks.size()];
+			for (int i = 0; i < tracks.size(); i++) {
+				result[i] = tracks.getPath(i);
+				albumIds[i] = tracks.getAlbumId(i);
+			}
+			// Step 1: Remove selected tracks from the current playlist
+			removeTracks(trackIds);
+			// Step 2: Remove tracks from the local databases, one transaction per database
+			FavoritesStore.getInstance(context).removeItems(trackIds);
+			RecentStore.getInstance(context).removeItems(albumIds);
+			PopularStore.getInstance(context).removeItems(trackIds);
+			PlayEventStore.getInstance(context).removeItems(trackIds);
+			ReplayGainStore.getInstance(context).removeItems(trackIds);
+			// Step 3: remove tracks from media database, chunk by chunk
+			ContentResolver resolver = context.getContentResolver();
+			for (int offset = 0; offset < trackIds.length; offset += TrackResolver.CHUNK_SIZE) {
+				int count = Math.min(TrackResolver.CHUNK_SIZE, trackIds.length - offset);
+				StringBuilder selection = new StringBuilder(AudioColumns._ID + " IN (");
+				String[] args = new String[count];
+				for (int i = 0; i < count; i++) {
+					args[i] = Long.toString(trackIds[offset + i]);
+					selection.append(i == 0 ? "?" : ",?");
+				}
+				selection.append(")");
+				try {
+					resolver.delete(Media.EXTERNAL_CONTENT_URI, selection.toString(), args);
+				} catch (RuntimeException err) {
+					// thrown if access to the entries is denied
+					if (BuildConfig.DEBUG) {
+						err.printStackTrace();
+					}
 				}
 			}
-			cursor.close();
+			TrackResolver.invalidate(trackIds);
+			FolderIndex.getInstance(context).removeTracks(trackIds);
 		}
 		// return path to the files
 		return result;
@@ -1710,7 +1678,7 @@ public final class MusicUtils {
 	 */
 	public static void excludeFolder(Context context, Folder folder) {
 		ExcludeStore exclude = ExcludeStore.getInstance(context);
-		long[] songs = MusicUtils.getSongListForFolder(context, folder.getPath());
+		long[] songs = getSongListForFolder(context, folder.getPath(), false);
 		if (folder.isVisible()) {
 			exclude.addIds(Type.SONG, songs);
 		} else {
@@ -1767,6 +1735,7 @@ public final class MusicUtils {
 				mCallback.onServiceDisconnected(className);
 			}
 			mService = null;
+			mClock = null;
 		}
 	}
 
@@ -1809,4 +1778,93 @@ public final class MusicUtils {
 			}
 		}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * background worker to remove tracks from the databases and the storage
+	 */
+	private static class DeleteWorker implements Runnable {
+
+		private WeakReference<Activity> activity;
+		private Context context;
+		private long[] ids;
+
+
+		DeleteWorker(Activity activity, long[] ids) {
+			this.activity = new WeakReference<>(activity);
+			this.context = activity.getApplicationContext();
+			this.ids = ids;
+		}
+
+
+		@Override
+		public void run() {
+			String[] paths = removeTracksFromDatabase(context, ids);
+			// Use Scoped storage and build in dialog
+			if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+				List<Uri> uris = new LinkedList<>();
+				for (long id : ids) {
+					uris.add(Media.getContentUri(MediaStore.VOLUME_EXTERNAL, id));
+				}
+				final PendingIntent requestRemove;
+				try {
+					requestRemove = MediaStore.createDeleteRequest(context.getContentResolver(), uris);
+				} catch (Exception err) {
+					// thrown when no audio file were found
+					if (BuildConfig.DEBUG) {
+						err.printStackTrace();
+					}
+					return;
+				}
+				Activity activity = this.activity.get();
+				if (activity != null) {
+					activity.runOnUiThread(new Runnable() {
+						@Override
+						public void run() {
+							Activity activity = DeleteWorker.this.activity.get();
+							if (activity != null) {
+								try {
+									activity.startIntentSenderForResult(requestRemove.getIntentSender(), REQUEST_DELETE_FILES, null, 0, 0, 0);
+								} catch (Exception err) {
+									if (BuildConfig.DEBUG) {
+										err.printStackTrace();
+									}
+								}
+							}
+						}
+					});
+				}
+			}
+			// remove tracks directly from storage
+			else {
+				for (String filename : paths) {
+					try {
+						File file = new File(filename);
+						// File.delete can throw a security exception
+						if (!file.delete()) {
+							if (BuildConfig.DEBUG) {
+								Log.e("MusicUtils", "Failed to delete file " + filename);
+							}
+						}
+					} catch (Exception ex) {
+						// catch exception if file was not found
+						if (BuildConfig.DEBUG) {
+							ex.printStackTrace();
+						}
+					}
+				}
+				Activity activity = this.activity.get();
+				if (activity != null) {
+					activity.runOnUiThread(new Runnable() {
+						@Override
+						public void run() {
+							Activity activity = DeleteWorker.this.activity.get();
+							if (activity != null && !activity.isFinishing()) {
+								onPostDelete(activity);
+							}
+						}
+					});
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,318 @@
+package org.nuclearfog.apollo.utils;
+
+import android.os.Build;
+import android.os.Trace;
+
+import androidx.annotation.NonNull;
+
+import org.nuclearfog.apollo.BuildConfig;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Diagnostics mode to measure the playback path. Records counters, gauges and latency histograms of the current process
+ * and marks the measured sections with {@link Trace}, so they are visible in systrace and Perfetto.
+ * If disabled, a measurement only reads a volatile flag.
+ *
+ * @author nuclearfog
+ */
+public final class PlaybackMetrics {
+
+	/**
+	 * time to open the current track including retries
+	 */
+	public static final String OPEN_TRACK = "service.openCurrentTrack";
+
+	/**
+	 * number of tracks skipped because they couldn't be opened
+	 */
+	public static final String OPEN_RETRY = "service.openCurrentTrack.retry";
+
+	/**
+	 * time to prepare a track in the player
+	 */
+	public static final String PREPARE = "player.prepare";
+
+	/**
+	 * number of tracks the player couldn't prepare
+	 */
+	public static final String PREPARE_FAILED = "player.prepare.failed";
+
+	/**
+	 * time to send a change to the clients
+	 */
+	public static final String NOTIFY_CHANGE = "service.notifyChange";
+
+	/**
+	 * time to save the queue
+	 */
+	public static final String SAVE_QUEUE = "service.saveQueue";
+
+	/**
+	 * number of tracks in the queue
+	 */
+	public static final String QUEUE_SIZE = "service.queueSize";
+
+	/**
+	 * time to decode artwork from an audio file or the MediaStore
+	 */
+	public static final String ARTWORK_DECODE = "artwork.decode";
+
+	/**
+	 * time to decode artwork from the disk cache
+	 */
+	public static final String ARTWORK_DISK_CACHE = "artwork.diskCache";
+
+	/**
+	 * number of linear sub buckets of a histogram magnitude, limits the error of a value to 1/16
+	 */
+	private static final int SUB_BITS = 4;
+	private static final int SUB_COUNT = 1 << SUB_BITS;
+
+	/**
+	 * magnitude of the max recorded latency in microseconds (about 35 minutes)
+	 */
+	private static final int MAX_MAGNITUDE = 30;
+
+	/**
+	 * recorded metrics, mapped by name
+	 */
+	private static final Map<String, Metric> METRICS = new HashMap<>();
+
+	private static volatile boolean enabled = false;
+
+
+	private PlaybackMetrics() {
+	}
+
+	/**
+	 * enable or disable recording, recorded values are kept until {@link #reset()} is called
+	 *
+	 * @param enable true to record metrics
+	 */
+	public static void setEnabled(boolean enable) {
+		enabled = enable;
+	}
+
+	/**
+	 * @return true if metrics are recorded
+	 */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * start a measured section, must be closed by {@link #end(String, long)} on the same thread
+	 *
+	 * @param name name of the section
+	 * @return start time or 0 if recording is disabled
+	 */
+	public static long begin(String name) {
+		if (!enabled)
+			return 0L;
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+			Trace.beginSection(name);
+		}
+		return Math.max(System.nanoTime(), 1L);
+	}
+
+	/**
+	 * end a measured section and record its duration
+	 *
+	 * @param name  name of the section
+	 * @param start start time returned by {@link #begin(String)}
+	 */
+	public static void end(String name, long start) {
+		if (start == 0L)
+			return;
+		long duration = System.nanoTime() - start;
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+			Trace.endSection();
+		}
+		getMetric(name).record(duration / 1000L);
+	}
+
+	/**
+	 * increase a counter by one
+	 *
+	 * @param name name of the counter
+	 */
+	public static void count(String name) {
+		if (enabled) {
+			getMetric(name).add();
+		}
+	}
+
+	/**
+	 * set the current value of a gauge
+	 *
+	 * @param name  name of the gauge
+	 * @param value current value
+	 */
+	public static void gauge(String name, long value) {
+		if (enabled) {
+			getMetric(name).set(value);
+		}
+	}
+
+	/**
+	 * remove all recorded values
+	 */
+	public static void reset() {
+		synchronized (METRICS) {
+			METRICS.clear();
+		}
+	}
+
+	/**
+	 * create a text report of all recorded values
+	 *
+	 * @param source name of the process or component the values are recorded in
+	 * @return report text
+	 */
+	@NonNull
+	public static String getReport(String source) {
+		List<Metric> metrics;
+		synchronized (METRICS) {
+			metrics = new ArrayList<>(METRICS.values());
+		}
+		Collections.sort(metrics, new Comparator<Metric>() {
+			@Override
+			public int compare(Metric m1, Metric m2) {
+				return m1.name.compareTo(m2.name);
+			}
+		});
+		StringBuilder report = new StringBuilder();
+		report.append("Apollo ").append(BuildConfig.VERSION_NAME).append(" playback metrics (").append(source).append(")\n");
+		report.append("recording ").append(enabled ? "enabled" : "disabled").append(", ").append(metrics.size()).append(" metrics\n");
+		for (Metric metric : metrics) {
+			report.append(metric.format()).append('\n');
+		}
+		return report.toString();
+	}
+
+	/**
+	 * get a metric or create a new one
+	 */
+	private static Metric getMetric(String name) {
+		synchronized (METRICS) {
+			Metric metric = METRICS.get(name);
+			if (metric == null) {
+				metric = new Metric(name);
+				METRICS.put(name, metric);
+			}
+			return metric;
+		}
+	}
+
+	/**
+	 * get the histogram bucket of a value. Values below {@link #SUB_COUNT} have their own bucket,
+	 * larger values are grouped by magnitude and split into {@link #SUB_COUNT} linear buckets
+	 */
+	private static int getBucket(long value) {
+		if (value < SUB_COUNT)
+			return (int) value;
+		int magnitude = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int) (value >>> (magnitude - SUB_BITS)) & (SUB_COUNT - 1);
+		return (magnitude - SUB_BITS + 1) * SUB_COUNT + sub;
+	}
+
+	/**
+	 * get the highest value of a histogram bucket
+	 */
+	private static long getBucketValue(int bucket) {
+		if (bucket < SUB_COUNT)
+			return bucket;
+		int shift = bucket / SUB_COUNT - 1;
+		long lower = (long) (SUB_COUNT + bucket % SUB_COUNT) << shift;
+		return lower + (1L << shift) - 1L;
+	}
+
+	/**
+	 * counter, gauge or latency histogram, the type is set by the first recorded value
+	 */
+	private static final class Metric {
+
+		final String name;
+
+		private long[] buckets;
+		private long count = 0;
+		private long value = 0;
+		private long sum = 0;
+		private long max = 0;
+		private boolean isGauge = false;
+
+		Metric(String name) {
+			this.name = name;
+		}
+
+		/**
+		 * increase the counter
+		 */
+		synchronized void add() {
+			count++;
+		}
+
+		/**
+		 * set the gauge value
+		 */
+		synchronized void set(long value) {
+			this.value = value;
+			isGauge = true;
+			count++;
+		}
+
+		/**
+		 * record a latency
+		 *
+		 * @param micros latency in microseconds
+		 */
+		synchronized void record(long micros) {
+			if (buckets == null) {
+				buckets = new long[(MAX_MAGNITUDE - SUB_BITS + 2) * SUB_COUNT];
+			}
+			micros = Math.max(Math.min(micros, (1L << (MAX_MAGNITUDE + 1)) - 1L), 0L);
+			buckets[getBucket(micros)]++;
+			count++;
+			sum += micros;
+			max = Math.max(max, micros);
+		}
+
+		/**
+		 * @return text of the recorded values
+		 */
+		synchronized String format() {
+			if (buckets != null) {
+				return String.format(Locale.US, "%s: count=%d mean=%.2fms p50=%.2fms p90=%.2fms p99=%.2fms max=%.2fms",
+						name, count, sum / 1000.0 / count, getPercentile(0.5) / 1000.0, getPercentile(0.9) / 1000.0,
+						getPercentile(0.99) / 1000.0, max / 1000.0);
+			}
+			if (isGauge) {
+				return name + ": value=" + value + " updates=" + count;
+			}
+			return name + ": count=" + count;
+		}
+
+		/**
+		 * @param percentile percentile between 0 and 1
+		 * @return highest value of the bucket containing the percentile
+		 */
+		private long getPercentile(double percentile) {
+			long target = Math.max((long) Math.ceil(percentile * count), 1L);
+			long total = 0;
+			for (int i = 0; i < buckets.length; i++) {
+				total += buckets[i];
+				if (total >= target) {
+					return Math.min(getBucketValue(i), max);
+				}
+			}
+			return max;
+		}
+	}
+}
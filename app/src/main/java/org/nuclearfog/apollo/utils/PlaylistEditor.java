@@ -0,0 +1,357 @@
+package org.nuclearfog.apollo.utils;
+
+import android.annotation.SuppressLint;
+import android.app.Activity;
+import android.content.ContentProviderOperation;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.MediaStore;
+import android.provider.MediaStore.Audio.Playlists;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import org.nuclearfog.apollo.BuildConfig;
+import org.nuclearfog.apollo.R;
+import org.nuclearfog.apollo.ui.appmsg.AppMsg;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Editing session of a playlist. Inserts, moves and removes are recorded in memory, so the UI can be
+ * updated immediately. All changes are written to the MediaStore as a single batch when the session is committed.
+ * Only the tracks which changed their position are moved.
+ *
+ * @author nuclearfog
+ */
+public class PlaylistEditor {
+
+	private static final String TAG = "PlaylistEditor";
+
+	/**
+	 * executor used to write changes, one session after another
+	 */
+	private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor();
+
+	private static final int INSERT = 1;
+	private static final int MOVE = 2;
+	private static final int REMOVE = 3;
+
+	/**
+	 * ID of the playlist to edit
+	 */
+	private final long playlistId;
+
+	/**
+	 * recorded changes, in order of their creation
+	 */
+	private List<Edit> edits = new ArrayList<>();
+
+	/**
+	 * @param playlistId ID of the playlist to edit
+	 */
+	public PlaylistEditor(long playlistId) {
+		this.playlistId = playlistId;
+	}
+
+	/**
+	 * insert a track into the playlist
+	 *
+	 * @param position position of the new track
+	 * @param trackId  ID of the track to insert
+	 */
+	public void insert(int position, long trackId) {
+		edits.add(new Edit(INSERT, position, position, trackId));
+	}
+
+	/**
+	 * move a track of the playlist to a new position
+	 *
+	 * @param from current position of the track
+	 * @param to   new position of the track
+	 */
+	public void move(int from, int to) {
+		if (from != to) {
+			edits.add(new Edit(MOVE, from, to, 0L));
+		}
+	}
+
+	/**
+	 * remove a track from the playlist
+	 *
+	 * @param position position of the track to remove
+	 */
+	public void remove(int position) {
+		edits.add(new Edit(REMOVE, position, position, 0L));
+	}
+
+	/**
+	 * @return true if there are changes which are not committed
+	 */
+	public boolean hasChanges() {
+		return !edits.isEmpty();
+	}
+
+	/**
+	 * discard all changes which are not committed
+	 */
+	public void discard() {
+		edits = new ArrayList<>();
+	}
+
+	/**
+	 * write all recorded changes to the MediaStore in the background
+	 *
+	 * @param activity activity used to show an error message
+	 * @param callback optional callback, called on the UI thread after the changes were written
+	 */
+	public void commit(Activity activity, @Nullable Runnable callback) {
+		EXECUTOR.execute(new CommitWorker(activity, playlistId, edits, callback));
+		edits = new ArrayList<>();
+	}
+
+	/**
+	 * apply changes to the member rows of a playlist
+	 *
+	 * @param context    context used to access the MediaStore
+	 * @param playlistId ID of the playlist
+	 * @param edits      recorded changes
+	 * @return true if the changes were written
+	 */
+	@SuppressLint("InlinedApi")
+	private static boolean apply(Context context, long playlistId, List<Edit> edits) {
+		// load the current member rows of the playlist
+		List<Member> members = new ArrayList<>();
+		int playOrder = 0;
+		Cursor cursor = CursorFactory.makePlaylistMemberCursor(context, playlistId);
+		if (cursor == null)
+			return false;
+		if (cursor.moveToFirst()) {
+			do {
+				members.add(new Member(cursor.getLong(0), cursor.getLong(1), members.size()));
+				playOrder = Math.max(playOrder, cursor.getInt(2) + 1);
+			} while (cursor.moveToNext());
+		}
+		cursor.close();
+		// replay changes on the member rows
+		List<Member> target = new ArrayList<>(members);
+		List<Member> removed = new LinkedList<>();
+		List<Member> inserted = new LinkedList<>();
+		for (Edit edit : edits) {
+			if (edit.from < 0 || edit.to < 0 || edit.from > target.size() || edit.to > target.size()) {
+				// playlist was changed by another app
+				return false;
+			}
+			if (edit.type == INSERT) {
+				Member member = new Member(-1L, edit.trackId, members.size() + inserted.size());
+				target.add(edit.from, member);
+				inserted.add(member);
+			} else if (edit.from == target.size() || edit.to == target.size()) {
+				return false;
+			} else if (edit.type == MOVE) {
+				target.add(edit.to, target.remove(edit.from));
+			} else if (edit.type == REMOVE) {
+				Member member = target.remove(edit.from);
+				if (member.rowId >= 0L) {
+					removed.add(member);
+				}
+			}
+		}
+		Uri uri = Playlists.Members.getContentUri(MediaStore.VOLUME_EXTERNAL, playlistId);
+		ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+		// Step 1: remove member rows, chunk by chunk
+		long[] rowIds = new long[removed.size()];
+		int pos = 0;
+		for (Member member : removed) {
+			rowIds[pos++] = member.rowId;
+		}
+		for (int offset = 0; offset < rowIds.length; offset += TrackResolver.CHUNK_SIZE) {
+			int count = Math.min(TrackResolver.CHUNK_SIZE, rowIds.length - offset);
+			StringBuilder selection = new StringBuilder(Playlists.Members._ID + " IN (");
+			String[] args = new String[count];
+			for (int i = 0; i < count; i++) {
+				args[i] = Long.toString(rowIds[offset + i]);
+				selection.append(i == 0 ? "?" : ",?");
+			}
+			selection.append(")");
+			operations.add(ContentProviderOperation.newDelete(uri).withSelection(selection.toString(), args).build());
+		}
+		// Step 2: append new tracks to the end of the playlist
+		for (Member member : inserted) {
+			operations.add(ContentProviderOperation.newInsert(uri)
+					.withValue(Playlists.Members.AUDIO_ID, member.trackId)
+					.withValue(Playlists.Members.PLAY_ORDER, playOrder++).build());
+		}
+		// Step 3: move tracks which are not part of the longest sequence in the original order
+		boolean[] stable = findStable(target);
+		// order of the tracks after step 1 and 2
+		List<Member> current = new ArrayList<>(target);
+		Collections.sort(current, new Comparator<Member>() {
+			@Override
+			public int compare(Member m1, Member m2) {
+				return m1.index - m2.index;
+			}
+		});
+		for (int i = 0; i < target.size(); i++) {
+			if (!stable[i]) {
+				Member member = target.get(i);
+				int from = current.indexOf(member);
+				current.remove(from);
+				// tracks before this position are already in the final order
+				int to = i > 0 ? current.indexOf(target.get(i - 1)) + 1 : 0;
+				current.add(to, member);
+				if (from != to) {
+					Uri moveUri = uri.buildUpon().appendEncodedPath(Integer.toString(from)).appendQueryParameter("move", "true").build();
+					operations.add(ContentProviderOperation.newUpdate(moveUri).withValue(Playlists.Members.PLAY_ORDER, to).build());
+				}
+			}
+		}
+		if (operations.isEmpty())
+			return true;
+		try {
+			context.getContentResolver().applyBatch(MediaStore.AUTHORITY, operations);
+			if (BuildConfig.DEBUG) {
+				Log.d(TAG, "playlist " + playlistId + ": " + operations.size() + " operations");
+			}
+			return true;
+		} catch (Exception exception) {
+			// thrown when the app does not own the playlist
+			if (BuildConfig.DEBUG) {
+				exception.printStackTrace();
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * find the longest sequence of tracks which kept their original order
+	 *
+	 * @param target new order of the tracks
+	 * @return array with 'true' for every track which doesn't need to be moved
+	 */
+	private static boolean[] findStable(List<Member> target) {
+		int size = target.size();
+		int[] tails = new int[size];
+		int[] parents = new int[size];
+		int length = 0;
+		for (int i = 0; i < size; i++) {
+			int index = target.get(i).index;
+			// binary search for the longest sequence which can be continued
+			int low = 0;
+			int high = length;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (target.get(tails[mid]).index < index) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			parents[i] = low > 0 ? tails[low - 1] : -1;
+			tails[low] = i;
+			if (low == length) {
+				length++;
+			}
+		}
+		boolean[] result = new boolean[size];
+		for (int i = length > 0 ? tails[length - 1] : -1; i >= 0; i = parents[i]) {
+			result[i] = true;
+		}
+		return result;
+	}
+
+	/**
+	 * recorded change of the playlist
+	 */
+	private static final class Edit {
+
+		final int type;
+		final int from;
+		final int to;
+		final long trackId;
+
+		Edit(int type, int from, int to, long trackId) {
+			this.type = type;
+			this.from = from;
+			this.to = to;
+			this.trackId = trackId;
+		}
+	}
+
+	/**
+	 * member row of a playlist
+	 */
+	private static final class Member {
+
+		/**
+		 * ID of the member row or -1 if not inserted yet
+		 */
+		final long rowId;
+		final long trackId;
+
+		/**
+		 * position before the changes were applied
+		 */
+		final int index;
+
+		Member(long rowId, long trackId, int index) {
+			this.rowId = rowId;
+			this.trackId = trackId;
+			this.index = index;
+		}
+	}
+
+	/**
+	 * background worker used to write the changes of a session
+	 */
+	private static class CommitWorker implements Runnable {
+
+		private WeakReference<Activity> activity;
+		private Context context;
+		private long playlistId;
+		private List<Edit> edits;
+		@Nullable
+		private Runnable callback;
+
+
+		CommitWorker(Activity activity, long playlistId, List<Edit> edits, @Nullable Runnable callback) {
+			this.activity = new WeakReference<>(activity);
+			this.context = activity.getApplicationContext();
+			this.playlistId = playlistId;
+			this.edits = edits;
+			this.callback = callback;
+		}
+
+
+		@Override
+		public void run() {
+			final boolean success = edits.isEmpty() || apply(context, playlistId, edits);
+			Activity activity = this.activity.get();
+			if (activity != null && (!success || callback != null)) {
+				activity.runOnUiThread(new Runnable() {
+					@Override
+					public void run() {
+						Activity activity = CommitWorker.this.activity.get();
+						if (activity != null && !activity.isFinishing()) {
+							if (!success) {
+								String message = activity.getString(R.string.error_edit_playlist);
+								AppMsg.makeText(activity, message, AppMsg.STYLE_ALERT).show();
+							}
+							if (callback != null) {
+								callback.run();
+							}
+						}
+					}
+				});
+			}
+		}
+	}
+}
@@ -0,0 +1,266 @@
+package org.nuclearfog.apollo.utils;
+
+import android.content.Context;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.provider.MediaStore.Audio.Playlists;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.nuclearfog.apollo.BuildConfig;
+import org.nuclearfog.apollo.model.Playlist;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * In-memory directory of all playlists with their names and IDs.
+ * The directory is loaded in the background and reloaded whenever the MediaStore reports a change of the playlists,
+ * so menus and dialogs can look up playlists without a query on the UI thread.
+ *
+ * @author nuclearfog
+ */
+public class PlaylistIndex {
+
+	private static PlaylistIndex sInstance;
+
+	/**
+	 * executor used to reload the directory
+	 */
+	private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+	/**
+	 * true if a reload is scheduled but not started yet
+	 */
+	private final AtomicBoolean reloadPending = new AtomicBoolean(false);
+
+	private final Context context;
+
+	/**
+	 * current content of the directory, replaced on every change. null if not loaded yet
+	 */
+	@Nullable
+	private volatile Snapshot snapshot;
+
+	/**
+	 * @param context application context
+	 */
+	private PlaylistIndex(Context context) {
+		this.context = context;
+		ContentObserver observer = new ContentObserver(null) {
+			@Override
+			public void onChange(boolean selfChange) {
+				reload();
+			}
+		};
+		context.getContentResolver().registerContentObserver(Playlists.EXTERNAL_CONTENT_URI, true, observer);
+		reload();
+	}
+
+	/**
+	 * get singleton instance. The directory is loaded in the background when the instance is created
+	 */
+	public static PlaylistIndex getInstance(Context context) {
+		if (sInstance == null) {
+			// use application context to avoid memory leak
+			sInstance = new PlaylistIndex(context.getApplicationContext());
+		}
+		return sInstance;
+	}
+
+	/**
+	 * get all playlists in the order of the MediaStore
+	 *
+	 * @return list of playlists
+	 */
+	@NonNull
+	public List<Playlist> getPlaylists() {
+		Snapshot snapshot = getSnapshot();
+		List<Playlist> result = new ArrayList<>(snapshot.ids.length);
+		for (int i = 0; i < snapshot.ids.length; i++) {
+			result.add(new Playlist(snapshot.ids[i], snapshot.names[i]));
+		}
+		return result;
+	}
+
+	/**
+	 * get the ID of a playlist
+	 *
+	 * @param name name of the playlist
+	 * @return playlist ID or -1 if not found
+	 */
+	public long getId(@Nullable String name) {
+		if (name != null) {
+			Snapshot snapshot = getSnapshot();
+			Integer index = snapshot.nameIndex.get(name);
+			if (index != null) {
+				return snapshot.ids[index];
+			}
+		}
+		return -1L;
+	}
+
+	/**
+	 * get the name of a playlist
+	 *
+	 * @param id ID of the playlist
+	 * @return name of the playlist or null if not found
+	 */
+	@Nullable
+	public String getName(long id) {
+		Snapshot snapshot = getSnapshot();
+		Integer index = snapshot.idIndex.get(id);
+		return index != null ? snapshot.names[index] : null;
+	}
+
+	/**
+	 * update a playlist immediately after it was created or renamed by this app.
+	 * The directory is reloaded anyway when the MediaStore reports the change
+	 *
+	 * @param id   ID of the playlist
+	 * @param name new name of the playlist
+	 */
+	public synchronized void put(long id, @NonNull String name) {
+		Snapshot snapshot = getSnapshot();
+		Integer index = snapshot.idIndex.get(id);
+		long[] ids = snapshot.ids;
+		String[] names = snapshot.names;
+		if (index != null) {
+			names = names.clone();
+			names[index] = name;
+		} else {
+			int size = ids.length;
+			ids = Arrays.copyOf(ids, size + 1);
+			names = Arrays.copyOf(names, size + 1);
+			ids[size] = id;
+			names[size] = name;
+		}
+		this.snapshot = new Snapshot(ids, names);
+	}
+
+	/**
+	 * remove a playlist immediately after it was deleted by this app
+	 *
+	 * @param id ID of the playlist
+	 */
+	public synchronized void remove(long id) {
+		Snapshot snapshot = getSnapshot();
+		Integer index = snapshot.idIndex.get(id);
+		if (index != null) {
+			int size = snapshot.ids.length - 1;
+			long[] ids = new long[size];
+			String[] names = new String[size];
+			for (int i = 0, pos = 0; i <= size; i++) {
+				if (i != index) {
+					ids[pos] = snapshot.ids[i];
+					names[pos] = snapshot.names[i];
+					pos++;
+				}
+			}
+			this.snapshot = new Snapshot(ids, names);
+		}
+	}
+
+	/**
+	 * get the current content, loads the directory if this is the first access
+	 */
+	private Snapshot getSnapshot() {
+		Snapshot snapshot = this.snapshot;
+		if (snapshot == null) {
+			// only blocks if the first load is not finished yet
+			snapshot = load(false);
+		}
+		return snapshot;
+	}
+
+	/**
+	 * schedule a reload of the directory. Multiple changes reported while the reload is pending are merged
+	 */
+	private void reload() {
+		if (reloadPending.compareAndSet(false, true)) {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					reloadPending.set(false);
+					load(true);
+				}
+			});
+		}
+	}
+
+	/**
+	 * load all playlists from the MediaStore
+	 *
+	 * @param force true to reload an existing directory
+	 * @return new content
+	 */
+	private synchronized Snapshot load(boolean force) {
+		Snapshot snapshot = this.snapshot;
+		if (snapshot != null && !force) {
+			return snapshot;
+		}
+		long[] ids = {};
+		String[] names = {};
+		try {
+			Cursor cursor = CursorFactory.makePlaylistCursor(context);
+			if (cursor != null) {
+				ids = new long[cursor.getCount()];
+				names = new String[cursor.getCount()];
+				int size = 0;
+				if (cursor.moveToFirst()) {
+					do {
+						String name = cursor.getString(1);
+						if (name != null) {
+							ids[size] = cursor.getLong(0);
+							names[size] = name;
+							size++;
+						}
+					} while (cursor.moveToNext() && size < ids.length);
+				}
+				cursor.close();
+				ids = Arrays.copyOf(ids, size);
+				names = Arrays.copyOf(names, size);
+			}
+		} catch (RuntimeException exception) {
+			// thrown if the MediaStore is not accessible, e.g. missing permission. try again on next access
+			if (BuildConfig.DEBUG) {
+				exception.printStackTrace();
+			}
+			return new Snapshot(new long[0], new String[0]);
+		}
+		snapshot = new Snapshot(ids, names);
+		this.snapshot = snapshot;
+		return snapshot;
+	}
+
+	/**
+	 * immutable content of the directory
+	 */
+	private static final class Snapshot {
+
+		final long[] ids;
+		final String[] names;
+		final Map<String, Integer> nameIndex;
+		final Map<Long, Integer> idIndex;
+
+		Snapshot(long[] ids, String[] names) {
+			this.ids = ids;
+			this.names = names;
+			nameIndex = new HashMap<>(Math.max(ids.length * 2, 16));
+			idIndex = new HashMap<>(Math.max(ids.length * 2, 16));
+			for (int i = 0; i < ids.length; i++) {
+				if (!nameIndex.containsKey(names[i])) {
+					nameIndex.put(names[i], i);
+				}
+				idIndex.put(ids[i], i);
+			}
+		}
+	}
+}
@@ -75,6 +75,7 @@ public final class PreferenceUtils {
 	private static final String POS_SEEK = "seekpos";
 	private static final String POS_CURSOR = "curpos";
 	private static final String HISTORY = "history";
+	private static final String SHUFFLE_STATE = "shuffle_state";
 	private static final String QUEUE = "queue";
 	private static final String ID_CARD = "cardid";
 	// equalizer settings
@@ -86,6 +87,13 @@ public final class PreferenceUtils {
 	private static final String NOTIFICATION_LAYOUT = "prefer_old_notification_layout";
 	private static final String LASTFM_API_KEY = "api_key";
 	private static final String SHOW_HIDDEN = "view_hidden_items";
+	private static final String SHUFFLE_WEIGHTING = "shuffle_weighting";
+	private static final String POPULAR_RANKING = "popular_ranking";
+	private static final String IO_AUDIT = "io_audit";
+	private static final String PLAYBACK_METRICS = "playback_metrics";
+	private static final String REPLAYGAIN = "replaygain";
+	private static final String PLAYER_BACKEND = "player_backend";
+	private static final String PLAYER_BUFFER = "player_buffer";
 
 	private static volatile PreferenceUtils sInstance;
 
@@ -324,6 +332,15 @@ public final class PreferenceUtils {
 		return history;
 	}
 
+	/**
+	 * get the saved state of the queue shuffle
+	 *
+	 * @return shuffle order and state of the random generator
+	 */
+	public String getShuffleState() {
+		return mPreferences.getString(SHUFFLE_STATE, "");
+	}
+
 	/**
 	 * get current card ID
 	 *
@@ -467,6 +484,17 @@ public final class PreferenceUtils {
 		editor.apply();
 	}
 
+	/**
+	 * save the state of the queue shuffle
+	 *
+	 * @param state shuffle order and state of the random generator
+	 */
+	public void setShuffleState(String state) {
+		SharedPreferences.Editor editor = mPreferences.edit();
+		editor.putString(SHUFFLE_STATE, state);
+		editor.apply();
+	}
+
 	/**
 	 * set current ursor position
 	 *
@@ -637,6 +665,96 @@ public final class PreferenceUtils {
 		return mPreferences.getBoolean(NOTIFICATION_LAYOUT, false);
 	}
 
+	/**
+	 * check if the main thread I/O audit is enabled
+	 *
+	 * @return true to record storage access on the UI thread
+	 */
+	public boolean ioAuditEnabled() {
+		return mPreferences.getBoolean(IO_AUDIT, false);
+	}
+
+	/**
+	 * check if the playback metrics are enabled
+	 *
+	 * @return true to record the playback metrics
+	 */
+	public boolean playbackMetricsEnabled() {
+		return mPreferences.getBoolean(PLAYBACK_METRICS, false);
+	}
+
+	/**
+	 * get the ranking used for the most played tracks
+	 *
+	 * @return ranking {@link org.nuclearfog.apollo.provider.PlayEventStore#RANK_ALL_TIME}
+	 */
+	public int getPopularRanking() {
+		return mPreferences.getInt(POPULAR_RANKING, 0);
+	}
+
+	/**
+	 * set the ranking used for the most played tracks
+	 *
+	 * @param ranking ranking {@link org.nuclearfog.apollo.provider.PlayEventStore#RANK_ALL_TIME}
+	 */
+	public void setPopularRanking(int ranking) {
+		SharedPreferences.Editor editor = mPreferences.edit();
+		editor.putInt(POPULAR_RANKING, ranking);
+		editor.apply();
+	}
+
+	/**
+	 * get the weighting used to select tracks for party shuffle
+	 *
+	 * @return 0 for equal weights, 1 to prefer tracks played most, 2 to prefer albums not played recently
+	 */
+	public int getShuffleWeighting() {
+		try {
+			return Integer.parseInt(mPreferences.getString(SHUFFLE_WEIGHTING, "0"));
+		} catch (NumberFormatException exception) {
+			return 0;
+		}
+	}
+
+	/**
+	 * get the mode of the loudness normalization
+	 *
+	 * @return mode {@link org.nuclearfog.apollo.provider.ReplayGainStore#MODE_OFF}
+	 */
+	public int getReplayGainMode() {
+		try {
+			return Integer.parseInt(mPreferences.getString(REPLAYGAIN, "0"));
+		} catch (NumberFormatException exception) {
+			return 0;
+		}
+	}
+
+	/**
+	 * get the backend used for playback, changes are applied when the playback service is restarted
+	 *
+	 * @return backend type {@link org.nuclearfog.apollo.player.MultiPlayer#BACKEND_MEDIAPLAYER}
+	 */
+	public int getPlayerBackend() {
+		try {
+			return Integer.parseInt(mPreferences.getString(PLAYER_BACKEND, "0"));
+		} catch (NumberFormatException exception) {
+			return 0;
+		}
+	}
+
+	/**
+	 * get the size of the decoder buffer used by the MediaCodec backend
+	 *
+	 * @return buffer size in milliseconds
+	 */
+	public int getPlayerBufferSize() {
+		try {
+			return Integer.parseInt(mPreferences.getString(PLAYER_BUFFER, "500"));
+		} catch (NumberFormatException exception) {
+			return 500;
+		}
+	}
+
 	/**
 	 *
 	 */
@@ -0,0 +1,239 @@
+package org.nuclearfog.apollo.utils;
+
+import android.os.Build;
+import android.os.StrictMode;
+import android.os.StrictMode.ThreadPolicy;
+import android.os.strictmode.Violation;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.RequiresApi;
+import androidx.annotation.VisibleForTesting;
+
+import org.nuclearfog.apollo.BuildConfig;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Diagnostics mode to find disk and provider access on the UI thread. A StrictMode thread policy is set on the main thread,
+ * violations are grouped by the first call site inside the app and can be exported as a text report.
+ * Collecting violations requires Android 9, older versions only write the violations to the log.
+ *
+ * @author nuclearfog
+ */
+public final class StrictModeAudit {
+
+	/**
+	 * package name used to find the call site of a violation
+	 */
+	private static final String APP_PACKAGE = "org.nuclearfog.apollo.";
+
+	/**
+	 * max number of recorded call sites
+	 */
+	private static final int MAX_SITES = 200;
+
+	/**
+	 * max number of stack frames stored for a call site
+	 */
+	private static final int MAX_FRAMES = 12;
+
+	/**
+	 * executor used to record violations
+	 */
+	private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor();
+
+	/**
+	 * recorded call sites, mapped by call site
+	 */
+	private static final Map<String, Site> SITES = new LinkedHashMap<>();
+
+	/**
+	 * thread policy used before the audit was enabled or null if the audit is disabled
+	 */
+	private static ThreadPolicy previousPolicy;
+
+
+	private StrictModeAudit() {
+	}
+
+	/**
+	 * enable or disable the audit on the main thread
+	 *
+	 * @param enable true to record violations
+	 */
+	@MainThread
+	public static void setEnabled(boolean enable) {
+		if (enable && previousPolicy == null) {
+			previousPolicy = StrictMode.getThreadPolicy();
+			ThreadPolicy.Builder builder = new ThreadPolicy.Builder().detectDiskReads().detectDiskWrites().detectCustomSlowCalls();
+			if (isSupported()) {
+				builder.penaltyListener(EXECUTOR, new Listener());
+			} else {
+				builder.penaltyLog();
+			}
+			StrictMode.setThreadPolicy(builder.build());
+		} else if (!enable && previousPolicy != null) {
+			StrictMode.setThreadPolicy(previousPolicy);
+			previousPolicy = null;
+		}
+	}
+
+	/**
+	 * @return true if violations can be recorded on this device
+	 */
+	public static boolean isSupported() {
+		return Build.VERSION.SDK_INT >= Build.VERSION_CODES.P;
+	}
+
+	/**
+	 * remove all recorded violations
+	 */
+	public static void reset() {
+		synchronized (SITES) {
+			SITES.clear();
+		}
+	}
+
+	/**
+	 * get the number of recorded violations. Violations already passed to the listener are recorded first
+	 *
+	 * @return number of violations
+	 */
+	@VisibleForTesting
+	public static int getViolationCount() {
+		try {
+			EXECUTOR.submit(new Runnable() {
+				@Override
+				public void run() {
+				}
+			}).get();
+		} catch (InterruptedException exception) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException exception) {
+			// not thrown by an empty task
+		}
+		int count = 0;
+		synchronized (SITES) {
+			for (Site site : SITES.values()) {
+				count += site.count;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * create a text report of all recorded violations, call sites with the most violations first
+	 *
+	 * @return report text
+	 */
+	@NonNull
+	public static String getReport() {
+		List<Site> sites;
+		synchronized (SITES) {
+			sites = new ArrayList<>(SITES.size());
+			for (Site site : SITES.values()) {
+				sites.add(site.copy());
+			}
+		}
+		Collections.sort(sites, new Comparator<Site>() {
+			@Override
+			public int compare(Site s1, Site s2) {
+				return s2.count - s1.count;
+			}
+		});
+		int total = 0;
+		for (Site site : sites) {
+			total += site.count;
+		}
+		StringBuilder report = new StringBuilder();
+		report.append("Apollo ").append(BuildConfig.VERSION_NAME).append(" main thread I/O audit\n");
+		report.append("Android ").append(Build.VERSION.RELEASE).append(" (API ").append(Build.VERSION.SDK_INT).append("), ");
+		report.append(Build.MANUFACTURER).append(' ').append(Build.MODEL).append('\n');
+		if (!isSupported()) {
+			report.append("violations are only written to the log on this Android version\n");
+		}
+		report.append(total).append(" violations at ").append(sites.size()).append(" call sites\n");
+		for (Site site : sites) {
+			report.append('\n').append(site.count).append("x ").append(site.type).append(" at ").append(site.location).append('\n');
+			report.append(site.trace);
+		}
+		return report.toString();
+	}
+
+	/**
+	 * record a violation
+	 *
+	 * @param type  type of the violation
+	 * @param stack stack trace of the violation
+	 */
+	private static void record(String type, StackTraceElement[] stack) {
+		// use the first frame of the app as call site, skipping this class
+		StackTraceElement callSite = stack.length > 0 ? stack[0] : null;
+		for (StackTraceElement element : stack) {
+			if (element.getClassName().startsWith(APP_PACKAGE) && !element.getClassName().startsWith(StrictModeAudit.class.getName())) {
+				callSite = element;
+				break;
+			}
+		}
+		String location = callSite != null ? callSite.toString() : "unknown";
+		String key = type + '@' + location;
+		synchronized (SITES) {
+			Site site = SITES.get(key);
+			if (site != null) {
+				site.count++;
+			} else if (SITES.size() < MAX_SITES) {
+				StringBuilder trace = new StringBuilder();
+				for (int i = 0; i < stack.length && i < MAX_FRAMES; i++) {
+					trace.append("\tat ").append(stack[i]).append('\n');
+				}
+				SITES.put(key, new Site(type, location, trace.toString(), 1));
+			}
+		}
+	}
+
+	/**
+	 * violations recorded at a call site
+	 */
+	private static final class Site {
+
+		final String type;
+		final String location;
+		final String trace;
+		int count;
+
+		Site(String type, String location, String trace, int count) {
+			this.type = type;
+			this.location = location;
+			this.trace = trace;
+			this.count = count;
+		}
+
+		/**
+		 * copy the site, so the report can be created outside of the lock
+		 */
+		Site copy() {
+			return new Site(type, location, trace, count);
+		}
+	}
+
+	/**
+	 * penalty listener used to record the violations
+	 */
+	@RequiresApi(api = Build.VERSION_CODES.P)
+	private static final class Listener implements StrictMode.OnThreadViolationListener {
+
+		@Override
+		public void onThreadViolation(Violation violation) {
+			record(violation.getClass().getSimpleName(), violation.getStackTrace());
+		}
+	}
+}
@@ -0,0 +1,802 @@
+package org.nuclearfog.apollo.utils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Locale;
+
+/**
+ * Reader for embedded tags of audio files. Supports ID3v2 (MP3), FLAC metadata blocks with Vorbis comments and MP4/M4A atoms.
+ * Only the tag region of a file is read with positional reads, the audio data is skipped.
+ * Embedded pictures can be skipped without reading them if only the text values are needed.
+ *
+ * @author nuclearfog
+ */
+public final class TagReader {
+
+	/**
+	 * max size of a tag region or a single tag entry
+	 */
+	private static final int MAX_TAG_SIZE = 10 * 1024 * 1024;
+
+	/**
+	 * max depth of nested MP4 atoms
+	 */
+	private static final int MAX_ATOM_DEPTH = 6;
+
+	/**
+	 * ID3v2 picture type of a front cover
+	 */
+	private static final int PICTURE_FRONT_COVER = 3;
+
+	private static final Charset LATIN_1 = Charset.forName("ISO-8859-1");
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final Charset UTF_16 = Charset.forName("UTF-16");
+	private static final Charset UTF_16BE = Charset.forName("UTF-16BE");
+
+	/**
+	 * tag names used by Vorbis comments, ID3v2 TXXX frames and MP4 freeform atoms
+	 */
+	private static final String TRACK_GAIN = "REPLAYGAIN_TRACK_GAIN";
+	private static final String ALBUM_GAIN = "REPLAYGAIN_ALBUM_GAIN";
+	private static final String TRACK_PEAK = "REPLAYGAIN_TRACK_PEAK";
+	private static final String ALBUM_PEAK = "REPLAYGAIN_ALBUM_PEAK";
+	private static final String ARTIST_SORT = "ARTISTSORT";
+	private static final String ALBUM_ARTIST_SORT = "ALBUMARTISTSORT";
+	private static final String ALBUM_SORT = "ALBUMSORT";
+	private static final String TITLE_SORT = "TITLESORT";
+
+
+	private TagReader() {
+	}
+
+	/**
+	 * read the tags of an audio file including the artwork. Malformed tags are ignored, everything found until then is returned
+	 *
+	 * @param channel channel of the audio file, the position of the channel is not changed
+	 * @return tags of the file
+	 * @throws IOException if the file can't be read
+	 */
+	@NonNull
+	public static Tags read(FileChannel channel) throws IOException {
+		return read(channel, true);
+	}
+
+	/**
+	 * read the tags of an audio file. Malformed tags are ignored, everything found until then is returned
+	 *
+	 * @param channel channel of the audio file, the position of the channel is not changed
+	 * @param artwork true to read the embedded artwork, false to skip all pictures
+	 * @return tags of the file
+	 * @throws IOException if the file can't be read
+	 */
+	@NonNull
+	public static Tags read(FileChannel channel, boolean artwork) throws IOException {
+		Tags tags = new Tags(artwork);
+		try {
+			ByteBuffer head = read(channel, 0, 12);
+			long offset = 0;
+			if (startsWith(head, 0, "ID3")) {
+				offset = readId3(channel, 0, tags);
+				if (offset + 4 <= channel.size()) {
+					head = read(channel, offset, 4);
+				}
+			}
+			if (startsWith(head, 0, "fLaC")) {
+				readFlac(channel, offset + 4, tags);
+			} else if (offset == 0 && startsWith(head, 4, "ftyp")) {
+				readMp4(channel, 0, channel.size(), tags, 0);
+			}
+		} catch (EOFException exception) {
+			// file is shorter than the tag sizes say
+		} catch (RuntimeException exception) {
+			// malformed tag data
+		}
+		return tags;
+	}
+
+	/**
+	 * read an ID3v2 tag
+	 *
+	 * @param position position of the tag header
+	 * @return position after the tag
+	 */
+	private static long readId3(FileChannel channel, long position, Tags tags) throws IOException {
+		ByteBuffer header = read(channel, position, 10);
+		int version = header.get(3) & 0xff;
+		int flags = header.get(5) & 0xff;
+		int size = syncsafe(header.getInt(6));
+		long end = position + 10 + size + ((flags & 0x10) != 0 ? 10 : 0);
+		if (version < 2 || version > 4 || size > MAX_TAG_SIZE) {
+			return end;
+		}
+		int headerSize = version == 2 ? 6 : 10;
+		if (version < 4 && (flags & 0x80) != 0) {
+			// frame sizes of an unsynchronized tag refer to the decoded tag, so the whole tag is read
+			byte[] data = new byte[size];
+			read(channel, position + 10, size).get(data);
+			data = removeUnsynchronization(data, 0, data.length);
+			int pos = 0;
+			if (version == 3 && (flags & 0x40) != 0) {
+				// skip extended header
+				pos = getInt(data, 0) + 4;
+			}
+			while (pos >= 0 && pos + headerSize <= data.length && data[pos] != 0) {
+				String id = getFrameId(data, pos, version);
+				int frameSize = getFrameSize(data, pos, version);
+				int frameFlags = version == 2 ? 0 : data[pos + 9] & 0xff;
+				pos += headerSize;
+				if (frameSize <= 0 || frameSize > data.length - pos)
+					break;
+				if (isSupportedFrame(id, tags.readArtwork)) {
+					readId3Frame(id, version, frameFlags, data, pos, frameSize, tags);
+				}
+				pos += frameSize;
+			}
+		} else {
+			// read the supported frames only, other frames and the padding are skipped
+			long tagEnd = position + 10 + size;
+			long pos = position + 10;
+			if (version >= 3 && (flags & 0x40) != 0) {
+				// skip extended header
+				int extSize = read(channel, pos, 4).getInt(0);
+				pos += version == 4 ? syncsafe(extSize) : extSize + 4L;
+			}
+			byte[] frameHeader = new byte[headerSize];
+			while (pos >= position + 10 && pos + headerSize <= tagEnd) {
+				read(channel, pos, headerSize).get(frameHeader);
+				if (frameHeader[0] == 0)
+					break;
+				String id = getFrameId(frameHeader, 0, version);
+				int frameSize = getFrameSize(frameHeader, 0, version);
+				int frameFlags = version == 2 ? 0 : frameHeader[9] & 0xff;
+				pos += headerSize;
+				if (frameSize <= 0 || frameSize > tagEnd - pos)
+					break;
+				if (isSupportedFrame(id, tags.readArtwork)) {
+					byte[] frame = new byte[frameSize];
+					read(channel, pos, frameSize).get(frame);
+					readId3Frame(id, version, frameFlags, frame, 0, frameSize, tags);
+				}
+				pos += frameSize;
+			}
+		}
+		return end;
+	}
+
+	/**
+	 * read a single ID3v2 frame, compressed and encrypted frames are skipped
+	 *
+	 * @param id         frame ID
+	 * @param version    major version of the tag
+	 * @param frameFlags flags of the frame header
+	 * @param data       tag data
+	 * @param start      start of the frame content
+	 * @param length     length of the frame content
+	 */
+	private static void readId3Frame(String id, int version, int frameFlags, byte[] data, int start, int length, Tags tags) {
+		if (version == 3) {
+			if ((frameFlags & 0xC0) != 0)
+				return;
+			if ((frameFlags & 0x20) != 0) {
+				// skip grouping identity
+				start++;
+				length--;
+			}
+		} else if (version == 4) {
+			if ((frameFlags & 0x0C) != 0)
+				return;
+			if ((frameFlags & 0x40) != 0) {
+				// skip grouping identity
+				start++;
+				length--;
+			}
+			if ((frameFlags & 0x01) != 0) {
+				// skip data length indicator
+				start += 4;
+				length -= 4;
+			}
+			if ((frameFlags & 0x02) != 0 && length > 0) {
+				byte[] frame = removeUnsynchronization(data, start, length);
+				readId3Frame(id, frame, 0, frame.length, tags);
+				return;
+			}
+		}
+		if (length > 0) {
+			readId3Frame(id, data, start, length, tags);
+		}
+	}
+
+	/**
+	 * check if a frame contains a value used by {@link Tags}
+	 *
+	 * @param id      frame ID
+	 * @param artwork true if pictures are read
+	 */
+	private static boolean isSupportedFrame(String id, boolean artwork) {
+		switch (id) {
+			case "APIC":
+			case "PIC":
+				return artwork;
+
+			case "TXXX":
+			case "TXX":
+			case "TSOP":
+			case "TSP":
+			case "TSO2":
+			case "TS2":
+			case "TSOA":
+			case "TSA":
+			case "TSOT":
+			case "TST":
+				return true;
+
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * get the ID of an ID3v2 frame
+	 *
+	 * @param pos position of the frame header
+	 */
+	private static String getFrameId(byte[] data, int pos, int version) {
+		return new String(data, pos, version == 2 ? 3 : 4, LATIN_1);
+	}
+
+	/**
+	 * get the content size of an ID3v2 frame
+	 *
+	 * @param pos position of the frame header
+	 */
+	private static int getFrameSize(byte[] data, int pos, int version) {
+		if (version == 2)
+			return ((data[pos + 3] & 0xff) << 16) | ((data[pos + 4] & 0xff) << 8) | (data[pos + 5] & 0xff);
+		int frameSize = getInt(data, pos + 4);
+		return version == 4 ? syncsafe(frameSize) : frameSize;
+	}
+
+	/**
+	 * read a single ID3v2 frame
+	 *
+	 * @param id     frame ID
+	 * @param data   tag data
+	 * @param start  start of the frame content
+	 * @param length length of the frame content
+	 */
+	private static void readId3Frame(String id, byte[] data, int start, int length, Tags tags) {
+		int end = start + length;
+		int encoding = data[start];
+		switch (id) {
+			case "APIC":
+			case "PIC":
+				int pos = start + 1;
+				if (id.equals("PIC")) {
+					// 3 character image format
+					pos += 3;
+				} else {
+					pos = findTerminator(data, pos, end, 0) + 1;
+				}
+				if (pos >= end)
+					break;
+				int type = data[pos++] & 0xff;
+				pos = findTerminator(data, pos, end, encoding) + terminatorLength(encoding);
+				if (pos < end) {
+					byte[] image = new byte[end - pos];
+					System.arraycopy(data, pos, image, 0, image.length);
+					tags.setArtwork(image, type == PICTURE_FRONT_COVER);
+				}
+				break;
+
+			case "TXXX":
+			case "TXX":
+				int separator = findTerminator(data, start + 1, end, encoding);
+				String name = decode(data, start + 1, separator, encoding);
+				String value = decode(data, separator + terminatorLength(encoding), end, encoding);
+				tags.setValue(name, value);
+				break;
+
+			case "TSOP":
+			case "TSP":
+				tags.setValue(ARTIST_SORT, decode(data, start + 1, end, encoding));
+				break;
+
+			case "TSO2":
+			case "TS2":
+				tags.setValue(ALBUM_ARTIST_SORT, decode(data, start + 1, end, encoding));
+				break;
+
+			case "TSOA":
+			case "TSA":
+				tags.setValue(ALBUM_SORT, decode(data, start + 1, end, encoding));
+				break;
+
+			case "TSOT":
+			case "TST":
+				tags.setValue(TITLE_SORT, decode(data, start + 1, end, encoding));
+				break;
+		}
+	}
+
+	/**
+	 * read the metadata blocks of a FLAC file
+	 *
+	 * @param position position of the first metadata block
+	 */
+	private static void readFlac(FileChannel channel, long position, Tags tags) throws IOException {
+		boolean last = false;
+		while (!last) {
+			ByteBuffer header = read(channel, position, 4);
+			int type = header.get(0) & 0x7f;
+			int length = header.getInt(0) & 0xffffff;
+			last = (header.get(0) & 0x80) != 0;
+			position += 4;
+			if (type == 127)
+				break;
+			if (type == 4 && length <= MAX_TAG_SIZE) {
+				readVorbisComments(read(channel, position, length), tags);
+			} else if (type == 6 && length <= MAX_TAG_SIZE && tags.readArtwork) {
+				readFlacPicture(read(channel, position, length), tags);
+			}
+			position += length;
+		}
+	}
+
+	/**
+	 * read a Vorbis comment block
+	 */
+	private static void readVorbisComments(ByteBuffer data, Tags tags) {
+		data.order(ByteOrder.LITTLE_ENDIAN);
+		int vendorLength = data.getInt();
+		data.position(data.position() + vendorLength);
+		int count = data.getInt();
+		for (int i = 0; i < count; i++) {
+			int length = data.getInt();
+			if (length < 0 || length > data.remaining())
+				break;
+			byte[] comment = new byte[length];
+			data.get(comment);
+			String entry = new String(comment, UTF_8);
+			int separator = entry.indexOf('=');
+			if (separator > 0) {
+				tags.setValue(entry.substring(0, separator), entry.substring(separator + 1));
+			}
+		}
+	}
+
+	/**
+	 * read a FLAC picture block
+	 */
+	private static void readFlacPicture(ByteBuffer data, Tags tags) {
+		int type = data.getInt();
+		int mimeLength = data.getInt();
+		data.position(data.position() + mimeLength);
+		int descriptionLength = data.getInt();
+		// skip description, width, height, color depth and number of colors
+		data.position(data.position() + descriptionLength + 16);
+		int length = data.getInt();
+		if (length > 0 && length <= data.remaining()) {
+			byte[] image = new byte[length];
+			data.get(image);
+			tags.setArtwork(image, type == PICTURE_FRONT_COVER);
+		}
+	}
+
+	/**
+	 * read MP4 atoms and descend into the atoms containing the metadata, all other atoms are skipped
+	 *
+	 * @param start start of the first atom
+	 * @param end   end of the parent atom
+	 * @param depth depth of the atoms
+	 */
+	private static void readMp4(FileChannel channel, long start, long end, Tags tags, int depth) throws IOException {
+		long position = start;
+		while (position + 8 <= end && depth < MAX_ATOM_DEPTH) {
+			ByteBuffer header = read(channel, position, 8);
+			long size = header.getInt(0) & 0xffffffffL;
+			int headerSize = 8;
+			if (size == 1) {
+				size = read(channel, position + 8, 8).getLong(0);
+				headerSize = 16;
+			} else if (size == 0) {
+				size = end - position;
+			}
+			if (size < headerSize || size > end - position)
+				break;
+			long body = position + headerSize;
+			long next = position + size;
+			if (startsWith(header, 4, "moov") || startsWith(header, 4, "udta")) {
+				readMp4(channel, body, next, tags, depth + 1);
+			} else if (startsWith(header, 4, "meta") && body + 8 <= next) {
+				// meta is a full atom with version and flags, except in some QuickTime files
+				boolean fullAtom = !startsWith(read(channel, body, 8), 4, "hdlr");
+				readMp4(channel, fullAtom ? body + 4 : body, next, tags, depth + 1);
+			} else if (startsWith(header, 4, "ilst")) {
+				readIlst(channel, body, next, tags);
+			}
+			position = next;
+		}
+	}
+
+	/**
+	 * read the items of an MP4 metadata list
+	 *
+	 * @param start start of the first item
+	 * @param end   end of the list
+	 */
+	private static void readIlst(FileChannel channel, long start, long end, Tags tags) throws IOException {
+		long position = start;
+		while (position + 8 <= end) {
+			ByteBuffer header = read(channel, position, 8);
+			long size = header.getInt(0) & 0xffffffffL;
+			if (size < 8 || size > end - position)
+				break;
+			String type = new String(new byte[]{header.get(4), header.get(5), header.get(6), header.get(7)}, LATIN_1);
+			if (size <= MAX_TAG_SIZE && ((type.equals("covr") && tags.readArtwork) || type.equals("soar") || type.equals("soaa")
+					|| type.equals("soal") || type.equals("sonm") || type.equals("----"))) {
+				readIlstItem(type, read(channel, position + 8, (int) size - 8), tags);
+			}
+			position += size;
+		}
+	}
+
+	/**
+	 * read the content of an MP4 metadata item
+	 *
+	 * @param type type of the item
+	 * @param data content of the item
+	 */
+	private static void readIlstItem(String type, ByteBuffer data, Tags tags) {
+		String name = null;
+		while (data.remaining() >= 8) {
+			int start = data.position();
+			int size = data.getInt();
+			if (size < 8 || size > data.remaining() + 4)
+				break;
+			byte[] atom = new byte[4];
+			data.get(atom);
+			String atomType = new String(atom, LATIN_1);
+			// mean, name and data atoms have version and flags
+			int length = size - 12;
+			data.position(start + 12);
+			if (length >= 0 && atomType.equals("name")) {
+				name = new String(data.array(), data.arrayOffset() + data.position(), length, UTF_8);
+			} else if (length >= 4 && atomType.equals("data")) {
+				// skip locale
+				int offset = data.arrayOffset() + data.position() + 4;
+				length -= 4;
+				switch (type) {
+					case "covr":
+						byte[] image = new byte[length];
+						System.arraycopy(data.array(), offset, image, 0, length);
+						tags.setArtwork(image, true);
+						return;
+
+					case "soar":
+						tags.setValue(ARTIST_SORT, new String(data.array(), offset, length, UTF_8));
+						return;
+
+					case "soaa":
+						tags.setValue(ALBUM_ARTIST_SORT, new String(data.array(), offset, length, UTF_8));
+						return;
+
+					case "soal":
+						tags.setValue(ALBUM_SORT, new String(data.array(), offset, length, UTF_8));
+						return;
+
+					case "sonm":
+						tags.setValue(TITLE_SORT, new String(data.array(), offset, length, UTF_8));
+						return;
+
+					case "----":
+						if (name != null) {
+							tags.setValue(name, new String(data.array(), offset, length, UTF_8));
+						}
+						return;
+				}
+			}
+			data.position(start + size);
+		}
+	}
+
+	/**
+	 * read a part of a file
+	 *
+	 * @param position position to read from
+	 * @param length   number of bytes to read
+	 * @return buffer containing the bytes
+	 * @throws EOFException if the file ends before
+	 */
+	private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		while (buffer.hasRemaining()) {
+			int count = channel.read(buffer, position + buffer.position());
+			if (count < 0) {
+				throw new EOFException();
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * check if a buffer contains an ASCII string at a position
+	 */
+	private static boolean startsWith(ByteBuffer buffer, int position, String value) {
+		if (buffer.limit() < position + value.length())
+			return false;
+		for (int i = 0; i < value.length(); i++) {
+			if (buffer.get(position + i) != value.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * decode a syncsafe integer used by ID3v2
+	 */
+	private static int syncsafe(int value) {
+		return (value & 0x7f) | ((value & 0x7f00) >> 1) | ((value & 0x7f0000) >> 2) | ((value & 0x7f000000) >> 3);
+	}
+
+	/**
+	 * read a big endian integer
+	 */
+	private static int getInt(byte[] data, int pos) {
+		return ((data[pos] & 0xff) << 24) | ((data[pos + 1] & 0xff) << 16) | ((data[pos + 2] & 0xff) << 8) | (data[pos + 3] & 0xff);
+	}
+
+	/**
+	 * remove the ID3v2 unsynchronization, every 0xFF 0x00 sequence is replaced by 0xFF
+	 */
+	private static byte[] removeUnsynchronization(byte[] data, int start, int length) {
+		byte[] result = new byte[length];
+		int count = 0;
+		for (int i = start; i < start + length; i++) {
+			result[count++] = data[i];
+			if (data[i] == (byte) 0xff && i + 1 < start + length && data[i + 1] == 0) {
+				i++;
+			}
+		}
+		if (count < length) {
+			byte[] copy = new byte[count];
+			System.arraycopy(result, 0, copy, 0, count);
+			return copy;
+		}
+		return result;
+	}
+
+	/**
+	 * find the end of a null terminated ID3v2 string
+	 *
+	 * @return position of the terminator or the end if not found
+	 */
+	private static int findTerminator(byte[] data, int start, int end, int encoding) {
+		if (encoding == 1 || encoding == 2) {
+			for (int i = start; i + 1 < end; i += 2) {
+				if (data[i] == 0 && data[i + 1] == 0) {
+					return i;
+				}
+			}
+		} else {
+			for (int i = start; i < end; i++) {
+				if (data[i] == 0) {
+					return i;
+				}
+			}
+		}
+		return end;
+	}
+
+	/**
+	 * @return length of a string terminator of an ID3v2 text encoding
+	 */
+	private static int terminatorLength(int encoding) {
+		return encoding == 1 || encoding == 2 ? 2 : 1;
+	}
+
+	/**
+	 * decode an ID3v2 string, only the first value is used if the string contains multiple values
+	 */
+	private static String decode(byte[] data, int start, int end, int encoding) {
+		if (end <= start)
+			return "";
+		Charset charset;
+		switch (encoding) {
+			case 1:
+				charset = UTF_16;
+				break;
+
+			case 2:
+				charset = UTF_16BE;
+				break;
+
+			case 3:
+				charset = UTF_8;
+				break;
+
+			default:
+				charset = LATIN_1;
+				break;
+		}
+		String value = new String(data, start, end - start, charset);
+		int terminator = value.indexOf('\0');
+		if (terminator >= 0) {
+			value = value.substring(0, terminator);
+		}
+		return value;
+	}
+
+	/**
+	 * parse a ReplayGain value like "-6.50 dB"
+	 *
+	 * @return parsed value or NaN if invalid
+	 */
+	private static float parseGain(String value) {
+		String number = value.trim().replace(',', '.');
+		if (number.toLowerCase(Locale.ROOT).endsWith("db")) {
+			number = number.substring(0, number.length() - 2).trim();
+		}
+		try {
+			return Float.parseFloat(number);
+		} catch (NumberFormatException exception) {
+			return Float.NaN;
+		}
+	}
+
+	/**
+	 * tags read from an audio file
+	 */
+	public static final class Tags {
+
+		/**
+		 * true if embedded pictures are read
+		 */
+		private final boolean readArtwork;
+
+		@Nullable
+		private byte[] artwork;
+		private boolean frontCover;
+		private float trackGain = Float.NaN;
+		private float albumGain = Float.NaN;
+		private float trackPeak = Float.NaN;
+		private float albumPeak = Float.NaN;
+		@Nullable
+		private String artistSort, albumArtistSort, albumSort, titleSort;
+
+		/**
+		 * @param readArtwork true if embedded pictures are read
+		 */
+		private Tags(boolean readArtwork) {
+			this.readArtwork = readArtwork;
+		}
+
+		/**
+		 * @return encoded image data of the embedded artwork or null if not found or not read
+		 */
+		@Nullable
+		public byte[] getArtwork() {
+			return artwork;
+		}
+
+		/**
+		 * @return ReplayGain of the track in dB or NaN if not found
+		 */
+		public float getTrackGain() {
+			return trackGain;
+		}
+
+		/**
+		 * @return ReplayGain of the album in dB or NaN if not found
+		 */
+		public float getAlbumGain() {
+			return albumGain;
+		}
+
+		/**
+		 * @return peak amplitude of the track or NaN if not found
+		 */
+		public float getTrackPeak() {
+			return trackPeak;
+		}
+
+		/**
+		 * @return peak amplitude of the album or NaN if not found
+		 */
+		public float getAlbumPeak() {
+			return albumPeak;
+		}
+
+		/**
+		 * @return artist name used for sorting or null if not found
+		 */
+		@Nullable
+		public String getArtistSort() {
+			return artistSort;
+		}
+
+		/**
+		 * @return album artist name used for sorting or null if not found
+		 */
+		@Nullable
+		public String getAlbumArtistSort() {
+			return albumArtistSort;
+		}
+
+		/**
+		 * @return album name used for sorting or null if not found
+		 */
+		@Nullable
+		public String getAlbumSort() {
+			return albumSort;
+		}
+
+		/**
+		 * @return track name used for sorting or null if not found
+		 */
+		@Nullable
+		public String getTitleSort() {
+			return titleSort;
+		}
+
+		/**
+		 * set the artwork, a front cover replaces other pictures
+		 */
+		private void setArtwork(byte[] image, boolean frontCover) {
+			if (image.length > 0 && (artwork == null || (frontCover && !this.frontCover))) {
+				artwork = image;
+				this.frontCover = frontCover;
+			}
+		}
+
+		/**
+		 * set a value by its tag name
+		 */
+		private void setValue(String name, String value) {
+			value = value.trim();
+			if (value.isEmpty())
+				return;
+			switch (name.toUpperCase(Locale.ROOT)) {
+				case TRACK_GAIN:
+					trackGain = parseGain(value);
+					break;
+
+				case ALBUM_GAIN:
+					albumGain = parseGain(value);
+					break;
+
+				case TRACK_PEAK:
+					trackPeak = parseGain(value);
+					break;
+
+				case ALBUM_PEAK:
+					albumPeak = parseGain(value);
+					break;
+
+				case ARTIST_SORT:
+					artistSort = value;
+					break;
+
+				case ALBUM_ARTIST_SORT:
+					albumArtistSort = value;
+					break;
+
+				case ALBUM_SORT:
+					albumSort = value;
+					break;
+
+				case TITLE_SORT:
+					titleSort = value;
+					break;
+			}
+		}
+	}
+}
@@ -0,0 +1,309 @@
+package org.nuclearfog.apollo.utils;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import org.nuclearfog.apollo.BuildConfig;
+import org.nuclearfog.apollo.cache.LruCache;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves track information for large lists of track IDs. The ID list is split into chunks
+ * of a bounded size, so the query never exceeds the SQLite limits, and the chunks are queried in parallel.
+ * Recently resolved tracks are cached, so resolving the same tracks again does not need a query
+ *
+ * @author nuclearfog
+ */
+public final class TrackResolver {
+
+	private static final String TAG = "TrackResolver";
+
+	/**
+	 * max number of track IDs used for a single query.
+	 * this value must be lower than the SQLite host parameter limit (999)
+	 */
+	public static final int CHUNK_SIZE = 500;
+
+	/**
+	 * max number of threads used to query the chunks
+	 */
+	private static final int MAX_THREADS = 3;
+
+	/**
+	 * max number of cached tracks
+	 */
+	private static final int CACHE_SIZE = 2000;
+
+	/**
+	 * small thread pool used to query multiple chunks at once. threads are released when idle
+	 */
+	private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 30L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+
+	/**
+	 * cache of recently resolved tracks
+	 */
+	private static final LruCache<Long, Row> CACHE = new LruCache<>(CACHE_SIZE);
+
+	static {
+		EXECUTOR.allowCoreThreadTimeOut(true);
+	}
+
+
+	private TrackResolver() {
+	}
+
+	/**
+	 * resolve track information for a list of track IDs
+	 *
+	 * @param ids list of track IDs
+	 * @return track information in the same order as the ID list. IDs not found in the MediaStore are skipped
+	 */
+	@NonNull
+	public static Tracks resolve(Context context, long[] ids) {
+		Map<Long, Row> rows = new HashMap<>(Math.max(ids.length * 2, 16));
+		// collect all IDs which are not cached
+		long[] missing = new long[ids.length];
+		int missingCount = 0;
+		for (long id : ids) {
+			if (!rows.containsKey(id)) {
+				Row row = CACHE.get(id);
+				rows.put(id, row);
+				if (row == null) {
+					missing[missingCount++] = id;
+				}
+			}
+		}
+		// query missing tracks chunk by chunk
+		if (missingCount > 0) {
+			Arrays.sort(missing, 0, missingCount);
+			Context appContext = context.getApplicationContext();
+			if (missingCount <= CHUNK_SIZE) {
+				// single chunk, no need to switch threads
+				addRows(rows, new ChunkQuery(appContext, missing, 0, missingCount).call());
+			} else {
+				List<Future<List<Row>>> results = new LinkedList<>();
+				for (int offset = 0; offset < missingCount; offset += CHUNK_SIZE) {
+					int count = Math.min(CHUNK_SIZE, missingCount - offset);
+					results.add(EXECUTOR.submit(new ChunkQuery(appContext, missing, offset, count)));
+				}
+				for (Future<List<Row>> result : results) {
+					try {
+						addRows(rows, result.get());
+					} catch (Exception exception) {
+						if (BuildConfig.DEBUG) {
+							Log.w(TAG, "failed to resolve tracks", exception);
+						}
+					}
+				}
+			}
+		}
+		// merge results using the order of the ID list
+		Tracks result = new Tracks(ids.length);
+		for (long id : ids) {
+			Row row = rows.get(id);
+			if (row != null) {
+				result.add(row);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * remove tracks from the cache, if they were changed or removed from the MediaStore
+	 *
+	 * @param ids IDs of the tracks to remove
+	 */
+	public static void invalidate(long... ids) {
+		for (long id : ids) {
+			CACHE.remove(id);
+		}
+	}
+
+	/**
+	 * remove all tracks from the cache
+	 */
+	public static void clearCache() {
+		CACHE.evictAll();
+	}
+
+	/**
+	 * add resolved rows to the cache and the result map
+	 */
+	private static void addRows(Map<Long, Row> rows, List<Row> result) {
+		for (Row row : result) {
+			rows.put(row.id, row);
+			CACHE.put(row.id, row);
+		}
+	}
+
+	/**
+	 * compact columnar table of resolved tracks
+	 */
+	public static final class Tracks {
+
+		private long[] ids;
+		private long[] albumIds;
+		private long[] durations;
+		private String[] titles;
+		private String[] artists;
+		private String[] albums;
+		private String[] paths;
+		private int size = 0;
+
+		/**
+		 * @param capacity max number of tracks
+		 */
+		private Tracks(int capacity) {
+			ids = new long[capacity];
+			albumIds = new long[capacity];
+			durations = new long[capacity];
+			titles = new String[capacity];
+			artists = new String[capacity];
+			albums = new String[capacity];
+			paths = new String[capacity];
+		}
+
+		/**
+		 * append a row to the end of the table
+		 */
+		private void add(Row row) {
+			ids[size] = row.id;
+			albumIds[size] = row.albumId;
+			durations[size] = row.duration;
+			titles[size] = row.title;
+			artists[size] = row.artist;
+			albums[size] = row.album;
+			paths[size] = row.path;
+			size++;
+		}
+
+		/**
+		 * @return number of resolved tracks
+		 */
+		public int size() {
+			return size;
+		}
+
+		/**
+		 * @return track ID at the given position
+		 */
+		public long getId(int index) {
+			return ids[index];
+		}
+
+		/**
+		 * @return album ID of the track at the given position
+		 */
+		public long getAlbumId(int index) {
+			return albumIds[index];
+		}
+
+		/**
+		 * @return duration in milliseconds of the track at the given position
+		 */
+		public long getDuration(int index) {
+			return durations[index];
+		}
+
+		/**
+		 * @return title of the track at the given position
+		 */
+		public String getTitle(int index) {
+			return titles[index];
+		}
+
+		/**
+		 * @return artist name of the track at the given position
+		 */
+		public String getArtist(int index) {
+			return artists[index];
+		}
+
+		/**
+		 * @return album name of the track at the given position
+		 */
+		public String getAlbum(int index) {
+			return albums[index];
+		}
+
+		/**
+		 * @return file path of the track at the given position
+		 */
+		public String getPath(int index) {
+			return paths[index];
+		}
+
+		/**
+		 * @return IDs of all resolved tracks
+		 */
+		public long[] getIds() {
+			return Arrays.copyOf(ids, size);
+		}
+	}
+
+	/**
+	 * single row of track information
+	 */
+	private static final class Row {
+
+		final long id, albumId, duration;
+		final String title, artist, album, path;
+
+		Row(Cursor cursor) {
+			id = cursor.getLong(0);
+			title = cursor.getString(1);
+			artist = cursor.getString(2);
+			album = cursor.getString(3);
+			duration = cursor.getLong(4);
+			path = cursor.getString(5);
+			albumId = cursor.getLong(6);
+		}
+	}
+
+	/**
+	 * query a single chunk of track IDs
+	 */
+	private static final class ChunkQuery implements Callable<List<Row>> {
+
+		private final Context context;
+		private final long[] ids;
+		private final int offset, count;
+
+		ChunkQuery(Context context, long[] ids, int offset, int count) {
+			this.context = context;
+			this.ids = ids;
+			this.offset = offset;
+			this.count = count;
+		}
+
+
+		@Override
+		public List<Row> call() {
+			List<Row> result = new LinkedList<>();
+			Cursor cursor = CursorFactory.makeTrackListCursor(context, ids, offset, count);
+			if (cursor != null) {
+				if (cursor.moveToFirst()) {
+					do {
+						result.add(new Row(cursor));
+					} while (cursor.moveToNext());
+				}
+				cursor.close();
+			}
+			return result;
+		}
+	}
+}
@@ -0,0 +1,161 @@
+package org.nuclearfog.apollo.lastfm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+/**
+ * tests of {@link MetadataCache} against a local Last.fm server
+ *
+ * @author nuclearfog
+ */
+@RunWith(RobolectricTestRunner.class)
+public class MetadataCacheTest {
+
+	private static final String ARTIST_IMAGE = "https://lastfm.example/artist.png";
+	private static final String ALBUM_IMAGE = "https://lastfm.example/album.png";
+
+	private static final String ARTIST_INFO = "<?xml version=\"1.0\" encoding=\"utf-8\"?>"
+			+ "<lfm status=\"ok\"><artist><name>Artist</name><url>https://lastfm.example/artist</url>"
+			+ "<image size=\"small\">https://lastfm.example/small.png</image>"
+			+ "<image size=\"mega\">" + ARTIST_IMAGE + "</image>"
+			+ "<bio><summary>not parsed</summary></bio></artist></lfm>";
+
+	private static final String ARTIST_CORRECTION = "<?xml version=\"1.0\" encoding=\"utf-8\"?>"
+			+ "<lfm status=\"ok\"><corrections><correction index=\"0\"><artist><name>Corrected</name>"
+			+ "<url>https://lastfm.example/corrected</url></artist></correction></corrections></lfm>";
+
+	private static final String ALBUM_INFO = "<?xml version=\"1.0\" encoding=\"utf-8\"?>"
+			+ "<lfm status=\"ok\"><album><name>Album</name><artist>Corrected</artist><url>https://lastfm.example/album</url>"
+			+ "<image size=\"extralarge\">" + ALBUM_IMAGE + "</image></album></lfm>";
+
+	private static final String NOT_FOUND = "<?xml version=\"1.0\" encoding=\"utf-8\"?>"
+			+ "<lfm status=\"failed\"><error code=\"6\">The artist you supplied could not be found</error></lfm>";
+
+	private MockWebServer server;
+	private MetadataCache cache;
+
+
+	@Before
+	public void setUp() throws Exception {
+		server = new MockWebServer();
+		server.start();
+		Caller.setApiRoot(server.url("/2.0/").toString());
+		cache = MetadataCache.getInstance(ApplicationProvider.getApplicationContext());
+		cache.clear().get();
+	}
+
+
+	@After
+	public void tearDown() throws Exception {
+		Caller.setApiRoot(null);
+		server.shutdown();
+	}
+
+
+	@Test
+	public void cachesImageUrl() throws Exception {
+		server.enqueue(xml(ARTIST_INFO));
+		assertEquals(ARTIST_IMAGE, cache.getArtistImageUrl("Artist"));
+		// keys are not case sensitive
+		assertEquals(ARTIST_IMAGE, cache.getArtistImageUrl(" artist "));
+		assertEquals(1, server.getRequestCount());
+		RecordedRequest request = server.takeRequest();
+		assertEquals("POST", request.getMethod());
+		assertTrue(request.getBody().readUtf8().startsWith("method=artist.getInfo&"));
+	}
+
+
+	@Test
+	public void cachesMissingInformation() {
+		server.enqueue(xml(NOT_FOUND));
+		assertNull(cache.getArtistImageUrl("Unknown"));
+		assertNull(cache.getArtistImageUrl("Unknown"));
+		assertEquals(1, server.getRequestCount());
+	}
+
+
+	@Test
+	public void cachesServerErrors() {
+		server.enqueue(new MockResponse().setResponseCode(503));
+		assertNull(cache.getArtistImageUrl("Offline"));
+		// retried after a delay only
+		assertNull(cache.getArtistImageUrl("Offline"));
+		assertEquals(1, server.getRequestCount());
+	}
+
+
+	@Test
+	public void correctsArtistOfAlbum() throws Exception {
+		server.enqueue(xml(ARTIST_CORRECTION));
+		server.enqueue(xml(ALBUM_INFO));
+		assertEquals(ALBUM_IMAGE, cache.getAlbumImageUrl("the artist", "Album"));
+		assertEquals(2, server.getRequestCount());
+		assertTrue(server.takeRequest().getBody().readUtf8().startsWith("method=artist.getCorrection&"));
+		String body = server.takeRequest().getBody().readUtf8();
+		assertTrue(body.startsWith("method=album.getInfo&"));
+		assertTrue(body.contains("artist=Corrected"));
+	}
+
+
+	@Test
+	public void mergesConcurrentRequests() throws Exception {
+		server.enqueue(xml(ARTIST_INFO).setBodyDelay(200, TimeUnit.MILLISECONDS));
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<String>> results = new ArrayList<>();
+			for (int i = 0; i < 4; i++) {
+				results.add(executor.submit(new Callable<String>() {
+					@Override
+					public String call() {
+						return cache.getArtistImageUrl("Merged");
+					}
+				}));
+			}
+			for (Future<String> result : results) {
+				assertEquals(ARTIST_IMAGE, result.get(5, TimeUnit.SECONDS));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		assertEquals(1, server.getRequestCount());
+	}
+
+
+	@Test
+	public void clearRemovesEntries() throws Exception {
+		server.enqueue(xml(ARTIST_INFO));
+		server.enqueue(xml(ARTIST_INFO));
+		assertEquals(ARTIST_IMAGE, cache.getArtistImageUrl("Cleared"));
+		cache.clear().get();
+		assertEquals(ARTIST_IMAGE, cache.getArtistImageUrl("Cleared"));
+		assertEquals(2, server.getRequestCount());
+	}
+
+	/**
+	 * create a successful response with XML content
+	 */
+	private static MockResponse xml(String body) {
+		return new MockResponse().setHeader("Content-Type", "text/xml; charset=utf-8").setBody(body);
+	}
+}
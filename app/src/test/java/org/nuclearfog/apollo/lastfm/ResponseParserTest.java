@@ -0,0 +1,194 @@
+package org.nuclearfog.apollo.lastfm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.util.Xml;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+/**
+ * compares the fields extracted by the streaming {@link ResponseParser} with a full DOM parse of the same response
+ *
+ * @author nuclearfog
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ResponseParserTest {
+
+	@Test
+	public void artistInfoMatchesDom() throws Exception {
+		Result result = parse("artist_getinfo.xml", Artist.FIELDS);
+		Artist artist = ResponseBuilder.buildItem(result, Artist.class);
+		Element content = getDomContent("artist_getinfo.xml");
+		assertNotNull(artist);
+		assertEquals(getDomText(content, "name"), artist.getName());
+		assertEquals(getDomText(content, "url"), artist.url);
+		assertEquals(getDomImages(content), artist.imageUrls);
+		assertEquals(6, artist.imageUrls.size());
+	}
+
+
+	@Test
+	public void albumInfoMatchesDom() throws Exception {
+		Result result = parse("album_getinfo.xml", Album.FIELDS);
+		Album album = ResponseBuilder.buildItem(result, Album.class);
+		Element content = getDomContent("album_getinfo.xml");
+		assertNotNull(album);
+		assertEquals(getDomText(content, "name"), album.getName());
+		assertEquals(getDomText(content, "url"), album.url);
+		assertEquals(getDomImages(content), album.imageUrls);
+		// the album artist is a text element, the name of the first track artist must not be used
+		assertEquals("The Example Quartet", getDomText(content, "artist"));
+		assertEquals(getDomText(content, "artist"), result.getContentElement().getChildText("artist"));
+	}
+
+
+	@Test
+	public void correctionMatchesDom() throws Exception {
+		Result result = parse("artist_getcorrection.xml", Artist.CORRECTION_FIELDS);
+		Artist correction = Artist.buildCorrection(result, "the example quartet");
+		Element artist = getDomChild(getDomChild(getDomContent("artist_getcorrection.xml"), "correction"), "artist");
+		assertNotNull(correction);
+		assertEquals(getDomText(artist, "name"), correction.getName());
+		assertEquals(getDomText(artist, "url"), correction.url);
+	}
+
+
+	@Test
+	public void errorMatchesDom() throws Exception {
+		Result result = parse("error_not_found.xml", Artist.FIELDS);
+		Element error = getDomChild(getDomRoot("error_not_found.xml"), "error");
+		assertFalse(result.isSuccessful());
+		assertNull(result.getContentElement());
+		assertEquals(Integer.parseInt(error.getAttribute("code")), result.errorCode);
+		assertEquals(error.getTextContent(), result.errorMessage);
+	}
+
+
+	@Test
+	public void invalidErrorCode() throws Exception {
+		String[] names = {"error_invalid_code.xml", "error_missing_code.xml"};
+		for (String name : names) {
+			Result result = parse(name, Artist.FIELDS);
+			assertFalse(name, result.isSuccessful());
+			assertEquals(name, -1, result.errorCode);
+			assertEquals(name, "Operation failed - Most likely the backend service failed", result.errorMessage);
+		}
+	}
+
+
+	@Test
+	public void skipsUnselectedFields() throws Exception {
+		DomElement content = parse("artist_getinfo.xml", Artist.FIELDS).getContentElement();
+		assertNotNull(content);
+		assertEquals("artist", content.getName());
+		assertFalse(content.hasChild("bio"));
+		assertFalse(content.hasChild("similar"));
+		assertFalse(content.hasChild("mbid"));
+		// without a selection, the complete response is parsed
+		content = parse("artist_getinfo.xml", null).getContentElement();
+		assertNotNull(content);
+		assertTrue(content.hasChild("bio"));
+		assertEquals(5, content.getChild("similar").getChildren("artist").size());
+	}
+
+	/**
+	 * parse a test response with the streaming parser
+	 */
+	private static Result parse(String name, String[] fields) throws Exception {
+		InputStream stream = open(name);
+		try {
+			return new ResponseParser(fields).parse(Xml.newPullParser(), stream);
+		} finally {
+			stream.close();
+		}
+	}
+
+	/**
+	 * parse a test response into a DOM document and return the root element
+	 */
+	private static Element getDomRoot(String name) throws Exception {
+		InputStream stream = open(name);
+		try {
+			Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(stream);
+			return document.getDocumentElement();
+		} finally {
+			stream.close();
+		}
+	}
+
+	/**
+	 * @return first child element of the root element
+	 */
+	private static Element getDomContent(String name) throws Exception {
+		NodeList nodes = getDomRoot(name).getChildNodes();
+		for (int i = 0; i < nodes.getLength(); i++) {
+			if (nodes.item(i).getNodeType() == Node.ELEMENT_NODE) {
+				return (Element) nodes.item(i);
+			}
+		}
+		throw new AssertionError("no content element");
+	}
+
+	/**
+	 * @return direct child element with the given name
+	 */
+	private static Element getDomChild(Element element, String name) {
+		NodeList nodes = element.getChildNodes();
+		for (int i = 0; i < nodes.getLength(); i++) {
+			Node node = nodes.item(i);
+			if (node.getNodeType() == Node.ELEMENT_NODE && node.getNodeName().equals(name)) {
+				return (Element) node;
+			}
+		}
+		throw new AssertionError("missing element " + name);
+	}
+
+	/**
+	 * @return text of a direct child element
+	 */
+	private static String getDomText(Element element, String name) {
+		return getDomChild(element, name).getTextContent();
+	}
+
+	/**
+	 * @return image URLs of the direct image child elements, mapped by size
+	 */
+	private static Map<ImageSize, String> getDomImages(Element element) {
+		Map<ImageSize, String> result = new HashMap<>();
+		NodeList nodes = element.getChildNodes();
+		for (int i = 0; i < nodes.getLength(); i++) {
+			Node node = nodes.item(i);
+			if (node.getNodeType() == Node.ELEMENT_NODE && node.getNodeName().equals("image")) {
+				String size = ((Element) node).getAttribute("size");
+				result.put(size.isEmpty() ? ImageSize.UNKNOWN : ImageSize.valueOf(size.toUpperCase(Locale.ENGLISH)), node.getTextContent());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * open a test response
+	 */
+	private static InputStream open(String name) {
+		InputStream stream = ResponseParserTest.class.getResourceAsStream("/lastfm/" + name);
+		assertNotNull(name, stream);
+		return stream;
+	}
+}
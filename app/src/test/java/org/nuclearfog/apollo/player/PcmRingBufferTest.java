@@ -0,0 +1,196 @@
+package org.nuclearfog.apollo.player;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * tests of {@link PcmRingBuffer}
+ *
+ * @author nuclearfog
+ */
+public class PcmRingBufferTest {
+
+	/**
+	 * max time to wait for a reader or writer thread in milliseconds
+	 */
+	private static final long TIMEOUT_MS = 5000L;
+
+
+	@Test
+	public void readsNeverSplitFrames() throws Exception {
+		PcmRingBuffer buffer = new PcmRingBuffer(7, 2);
+		int generation = buffer.getGeneration();
+		short[] samples = new short[10];
+		// one sample of an incomplete frame
+		assertTrue(buffer.write(sequence(0, 3), 0, 3, generation));
+		assertEquals(2, buffer.read(samples, 0, samples.length, generation));
+		// read length smaller than the available samples and not a multiple of the channels
+		assertTrue(buffer.write(sequence(3, 7), 0, 7, generation));
+		assertEquals(6, buffer.read(samples, 0, 7, generation));
+		assertEquals(2, samples[0]);
+		assertEquals(7, samples[5]);
+		// an incomplete frame at the end of the stream is dropped
+		assertTrue(buffer.write(sequence(10, 1), 0, 1, generation));
+		buffer.setEndOfStream();
+		assertEquals(2, buffer.read(samples, 0, samples.length, generation));
+		assertEquals(8, samples[0]);
+		assertEquals(9, samples[1]);
+		assertEquals(-1, buffer.read(samples, 0, samples.length, generation));
+	}
+
+
+	@Test
+	public void keepsOrderAcrossThreads() throws Exception {
+		final PcmRingBuffer buffer = new PcmRingBuffer(5, 2);
+		final int generation = buffer.getGeneration();
+		final int total = 2 * 1000;
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			// odd block sizes, so the writes wrap around and end inside frames
+			Future<Boolean> writer = executor.submit(new Callable<Boolean>() {
+				@Override
+				public Boolean call() throws Exception {
+					short[] samples = sequence(0, total);
+					for (int offset = 0; offset < total; offset += 7) {
+						if (!buffer.write(samples, offset, Math.min(7, total - offset), generation))
+							return false;
+					}
+					buffer.setEndOfStream();
+					return true;
+				}
+			});
+			short[] chunk = new short[9];
+			int expected = 0;
+			int count;
+			while ((count = buffer.read(chunk, 0, chunk.length, generation)) > 0) {
+				assertEquals(0, count % 2);
+				for (int i = 0; i < count; i++) {
+					assertEquals((short) expected++, chunk[i]);
+				}
+			}
+			assertEquals(-1, count);
+			assertEquals(total, expected);
+			assertTrue(writer.get(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+
+	@Test
+	public void clearStartsNewGeneration() throws Exception {
+		PcmRingBuffer buffer = new PcmRingBuffer(8, 2);
+		int generation = buffer.getGeneration();
+		assertTrue(buffer.write(sequence(0, 6), 0, 6, generation));
+		buffer.setEndOfStream();
+		assertEquals(6, buffer.getWritten());
+
+		int next = buffer.clear();
+		assertEquals(next, buffer.getGeneration());
+		assertTrue(next != generation);
+		assertEquals(0, buffer.getWritten());
+		// readers and writers of the old generation return immediately
+		short[] samples = new short[8];
+		assertEquals(0, buffer.read(samples, 0, samples.length, generation));
+		assertFalse(buffer.write(sequence(0, 2), 0, 2, generation));
+		// old samples and the end of the stream are removed
+		assertTrue(buffer.write(sequence(100, 4), 0, 4, next));
+		assertEquals(4, buffer.getWritten());
+		assertEquals(4, buffer.read(samples, 0, samples.length, next));
+		assertEquals(100, samples[0]);
+	}
+
+
+	@Test
+	public void truncateRemovesUnreadSamples() throws Exception {
+		PcmRingBuffer buffer = new PcmRingBuffer(8, 2);
+		int generation = buffer.getGeneration();
+		short[] samples = new short[16];
+		assertTrue(buffer.write(sequence(0, 10), 0, 10, generation));
+		buffer.setEndOfStream();
+		assertEquals(4, buffer.read(samples, 0, 4, generation));
+		// samples already read can't be removed
+		assertEquals(-1, buffer.truncate(2));
+		assertEquals(10, buffer.getWritten());
+
+		int next = buffer.truncate(6);
+		assertTrue(next != generation);
+		assertEquals(6, buffer.getWritten());
+		// the writer of the removed samples returns immediately
+		assertFalse(buffer.write(sequence(10, 2), 0, 2, generation));
+		// new samples continue after the position, the end of the stream is removed
+		assertTrue(buffer.write(sequence(100, 2), 0, 2, next));
+		assertEquals(4, buffer.read(samples, 0, samples.length, next));
+		assertEquals(4, samples[0]);
+		assertEquals(5, samples[1]);
+		assertEquals(100, samples[2]);
+		assertEquals(101, samples[3]);
+	}
+
+
+	@Test
+	public void clearWakesUpWaitingThreads() throws Exception {
+		final PcmRingBuffer buffer = new PcmRingBuffer(2, 2);
+		final int generation = buffer.getGeneration();
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			// empty buffer, the reader waits for samples
+			Future<Integer> reader = executor.submit(new Callable<Integer>() {
+				@Override
+				public Integer call() throws Exception {
+					return buffer.read(new short[4], 0, 4, generation);
+				}
+			});
+			// more samples than the buffer can hold, the writer waits for space after the reader got the first samples
+			Future<Boolean> writer = executor.submit(new Callable<Boolean>() {
+				@Override
+				public Boolean call() throws Exception {
+					return buffer.write(sequence(0, 16), 0, 16, generation);
+				}
+			});
+			assertEquals(4, (int) reader.get(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+			Thread.sleep(50L);
+			assertFalse(writer.isDone());
+			buffer.clear();
+			assertFalse(writer.get(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+
+			// a reader of an empty buffer returns after clearing
+			final int current = buffer.getGeneration();
+			reader = executor.submit(new Callable<Integer>() {
+				@Override
+				public Integer call() throws Exception {
+					return buffer.read(new short[4], 0, 4, current);
+				}
+			});
+			Thread.sleep(50L);
+			assertFalse(reader.isDone());
+			buffer.clear();
+			assertEquals(0, (int) reader.get(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * create ascending samples
+	 *
+	 * @param start value of the first sample
+	 * @param count number of samples
+	 */
+	private static short[] sequence(int start, int count) {
+		short[] samples = new short[count];
+		for (int i = 0; i < count; i++) {
+			samples[i] = (short) (start + i);
+		}
+		return samples;
+	}
+}
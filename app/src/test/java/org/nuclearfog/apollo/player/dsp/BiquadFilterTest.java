@@ -0,0 +1,164 @@
+package org.nuclearfog.apollo.player.dsp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * tests of {@link BiquadFilter}
+ *
+ * @author nuclearfog
+ */
+public class BiquadFilterTest {
+
+	private static final int SAMPLE_RATE = 44100;
+
+	/**
+	 * frames processed before measuring, so the filter reached its steady state
+	 */
+	private static final int SETTLE_FRAMES = 8192;
+
+
+	@Test
+	public void impulseResponse() {
+		BiquadFilter filter = new BiquadFilter(BiquadFilter.PEAKING, 1000.0, 6.0, 0.9);
+		filter.configure(SAMPLE_RATE, 1);
+		float[] buffer = new float[SAMPLE_RATE];
+		buffer[0] = 1.0f;
+		filter.process(buffer, 0, buffer.length);
+		// the sum of the impulse response is the gain at 0 Hz, a peaking filter doesn't change it
+		double sum = 0.0;
+		for (float sample : buffer) {
+			sum += sample;
+		}
+		assertEquals(1.0, sum, 0.001);
+		// the response decays
+		for (int i = 4096; i < buffer.length; i++) {
+			assertEquals(0.0f, buffer[i], 1.0e-6f);
+		}
+	}
+
+
+	@Test
+	public void shelfImpulseResponse() {
+		BiquadFilter filter = new BiquadFilter(BiquadFilter.LOW_SHELF, 200.0, -6.0, 0.9);
+		filter.configure(SAMPLE_RATE, 1);
+		float[] buffer = new float[SAMPLE_RATE];
+		buffer[0] = 1.0f;
+		filter.process(buffer, 0, buffer.length);
+		double sum = 0.0;
+		for (float sample : buffer) {
+			sum += sample;
+		}
+		assertEquals(Math.pow(10.0, -6.0 / 20.0), sum, 0.001);
+	}
+
+
+	@Test
+	public void frequencyResponse() {
+		// boost at the center frequency
+		assertEquals(6.0, measureGain(BiquadFilter.PEAKING, 1000.0, 6.0, 1000.0), 0.1);
+		assertEquals(-9.0, measureGain(BiquadFilter.PEAKING, 1000.0, -9.0, 1000.0), 0.1);
+		// frequencies far from the band are not changed
+		assertEquals(0.0, measureGain(BiquadFilter.PEAKING, 1000.0, 6.0, 40.0), 0.2);
+		assertEquals(0.0, measureGain(BiquadFilter.PEAKING, 1000.0, 6.0, 18000.0), 0.2);
+		// shelves change the frequencies below or above the corner
+		assertEquals(6.0, measureGain(BiquadFilter.LOW_SHELF, 200.0, 6.0, 30.0), 0.2);
+		assertEquals(0.0, measureGain(BiquadFilter.LOW_SHELF, 200.0, 6.0, 10000.0), 0.2);
+		assertEquals(-6.0, measureGain(BiquadFilter.HIGH_SHELF, 4000.0, -6.0, 16000.0), 0.2);
+		assertEquals(0.0, measureGain(BiquadFilter.HIGH_SHELF, 4000.0, -6.0, 100.0), 0.2);
+	}
+
+
+	@Test
+	public void stereoChannelsAreIndependent() {
+		BiquadFilter filter = new BiquadFilter(BiquadFilter.PEAKING, 1000.0, 6.0, 0.9);
+		filter.configure(SAMPLE_RATE, 2);
+		float[] buffer = new float[2 * SAMPLE_RATE];
+		buffer[0] = 1.0f;
+		filter.process(buffer, 0, SAMPLE_RATE);
+		for (int i = 1; i < buffer.length; i += 2) {
+			assertEquals(0.0f, buffer[i], 0.0f);
+		}
+	}
+
+
+	@Test
+	public void flatFilterIsBypassed() {
+		BiquadFilter filter = new BiquadFilter(BiquadFilter.PEAKING, 1000.0, 0.0, 0.9);
+		filter.configure(SAMPLE_RATE, 1);
+		float[] buffer = sine(1000.0, 0.5f, 4096);
+		float[] expected = buffer.clone();
+		filter.process(buffer, 0, buffer.length);
+		assertArrayEquals(expected, buffer, 0.0f);
+	}
+
+
+	@Test
+	public void gainChangesWithoutClicks() {
+		float amplitude = 0.2f;
+		float[] buffer = sine(1000.0, amplitude, 2 * SAMPLE_RATE);
+		float[] input = buffer.clone();
+		BiquadFilter filter = new BiquadFilter(BiquadFilter.PEAKING, 1000.0, 0.0, 0.9);
+		filter.configure(SAMPLE_RATE, 1);
+		// max difference between two samples of the sine with the boost applied
+		double maxStep = 4.0 * amplitude * 2.0 * Math.PI * 1000.0 / SAMPLE_RATE;
+		int block = 512;
+		for (int offset = 0; offset < buffer.length; offset += block) {
+			if (offset == 16 * block) {
+				// enable the filter
+				filter.setGain(12.0);
+			} else if (offset == 48 * block) {
+				// disable the filter again
+				filter.setGain(0.0);
+			}
+			filter.process(buffer, offset, block);
+		}
+		for (int i = 1; i < buffer.length; i++) {
+			assertTrue("step at " + i, Math.abs(buffer[i] - buffer[i - 1]) < maxStep * 1.1);
+		}
+		// the filter is bypassed after the crossfade
+		for (int i = 64 * block; i < buffer.length; i++) {
+			assertEquals(input[i], buffer[i], 0.0f);
+		}
+	}
+
+	/**
+	 * measure the gain of a filter at a frequency
+	 *
+	 * @return gain in dB
+	 */
+	private static double measureGain(int type, double frequency, double gain, double testFrequency) {
+		BiquadFilter filter = new BiquadFilter(type, frequency, gain, 0.9);
+		filter.configure(SAMPLE_RATE, 1);
+		float[] buffer = sine(testFrequency, 0.25f, SAMPLE_RATE);
+		filter.process(buffer, 0, buffer.length);
+		return 20.0 * Math.log10(rms(buffer, SETTLE_FRAMES) / rms(sine(testFrequency, 0.25f, SAMPLE_RATE), SETTLE_FRAMES));
+	}
+
+	/**
+	 * create a mono sine signal
+	 */
+	static float[] sine(double frequency, float amplitude, int frames) {
+		float[] buffer = new float[frames];
+		for (int i = 0; i < frames; i++) {
+			buffer[i] = (float) (amplitude * Math.sin(2.0 * Math.PI * frequency * i / SAMPLE_RATE));
+		}
+		return buffer;
+	}
+
+	/**
+	 * calculate the RMS of a signal
+	 *
+	 * @param start index of the first sample to use
+	 */
+	static double rms(float[] buffer, int start) {
+		double sum = 0.0;
+		for (int i = start; i < buffer.length; i++) {
+			sum += buffer[i] * buffer[i];
+		}
+		return Math.sqrt(sum / (buffer.length - start));
+	}
+}
@@ -0,0 +1,83 @@
+package org.nuclearfog.apollo.player.dsp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * tests of {@link Crossfader}
+ *
+ * @author nuclearfog
+ */
+public class CrossfaderTest {
+
+
+	@Test
+	public void equalPowerFade() {
+		Crossfader crossfader = new Crossfader();
+		// 1000 frames fade
+		crossfader.configure(1000, 1);
+		crossfader.start(1000);
+		assertTrue(crossfader.isActive());
+		float[] outgoing = new float[1000];
+		float[] incoming = new float[1000];
+		float[] gainOut = new float[1000];
+		float[] gainIn = new float[1000];
+		Arrays.fill(outgoing, 1.0f);
+		crossfader.mix(outgoing, incoming, gainOut, 0, 1000);
+		crossfader.start(1000);
+		Arrays.fill(outgoing, 0.0f);
+		Arrays.fill(incoming, 1.0f);
+		crossfader.mix(outgoing, incoming, gainIn, 0, 1000);
+		assertEquals(1.0f, gainOut[0], 1.0e-6f);
+		assertEquals(0.0f, gainIn[0], 1.0e-6f);
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(1.0f, gainOut[i] * gainOut[i] + gainIn[i] * gainIn[i], 1.0e-5f);
+			if (i > 0) {
+				assertTrue(gainOut[i] <= gainOut[i - 1]);
+				assertTrue(gainIn[i] >= gainIn[i - 1]);
+			}
+		}
+		assertTrue(gainOut[999] < 0.01f);
+		assertFalse(crossfader.isActive());
+		assertTrue(crossfader.isFinished());
+	}
+
+
+	@Test
+	public void copiesIncomingAfterFade() {
+		Crossfader crossfader = new Crossfader();
+		crossfader.configure(1000, 2);
+		crossfader.start(10);
+		float[] outgoing = new float[2 * 30];
+		float[] incoming = new float[2 * 30];
+		Arrays.fill(outgoing, 0.5f);
+		Arrays.fill(incoming, -0.25f);
+		// mix in place into the incoming buffer, in blocks
+		crossfader.mix(outgoing, incoming, incoming, 0, 4);
+		crossfader.mix(outgoing, incoming, incoming, 8, 26);
+		assertTrue(crossfader.isFinished());
+		for (int i = 2 * 10; i < incoming.length; i++) {
+			assertEquals(-0.25f, incoming[i], 0.0f);
+		}
+		// both channels use the same gain
+		for (int i = 0; i < incoming.length; i += 2) {
+			assertEquals(incoming[i], incoming[i + 1], 0.0f);
+		}
+	}
+
+
+	@Test
+	public void stop() {
+		Crossfader crossfader = new Crossfader();
+		crossfader.configure(44100, 2);
+		crossfader.start(500);
+		crossfader.stop();
+		assertFalse(crossfader.isActive());
+		assertFalse(crossfader.isFinished());
+	}
+}
@@ -0,0 +1,66 @@
+package org.nuclearfog.apollo.player.dsp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * tests of {@link GainProcessor}
+ *
+ * @author nuclearfog
+ */
+public class GainProcessorTest {
+
+
+	@Test
+	public void rampsGainChange() {
+		GainProcessor processor = new GainProcessor();
+		// 20 frames ramp at 1 kHz
+		processor.configure(1000, 2);
+		processor.setGain(0.0f);
+		float[] buffer = new float[2 * 40];
+		Arrays.fill(buffer, 1.0f);
+		processor.process(buffer, 0, 40);
+		assertEquals(0.95f, buffer[0], 1.0e-4f);
+		for (int frame = 1; frame < 40; frame++) {
+			// both channels use the same gain
+			assertEquals(buffer[2 * frame], buffer[2 * frame + 1], 0.0f);
+			assertTrue(buffer[2 * frame] <= buffer[2 * frame - 2]);
+		}
+		assertEquals(0.05f, buffer[2 * 18], 1.0e-4f);
+		assertEquals(0.0f, buffer[2 * 19], 0.0f);
+		assertEquals(0.0f, buffer[2 * 39], 0.0f);
+	}
+
+
+	@Test
+	public void rampContinuesOverBlocks() {
+		GainProcessor processor = new GainProcessor();
+		processor.configure(1000, 1);
+		processor.setGain(0.0f);
+		float[] buffer = new float[40];
+		Arrays.fill(buffer, 1.0f);
+		for (int offset = 0; offset < buffer.length; offset += 8) {
+			processor.process(buffer, offset, 8);
+		}
+		for (int i = 0; i < 20; i++) {
+			assertEquals(1.0f - (i + 1) * 0.05f, buffer[i], 1.0e-4f);
+		}
+	}
+
+
+	@Test
+	public void decibel() {
+		GainProcessor processor = new GainProcessor();
+		processor.setGainDecibel(-6.0206f);
+		// the initial gain is applied without a ramp
+		processor.configure(44100, 1);
+		float[] buffer = {1.0f, -0.5f};
+		processor.process(buffer, 0, 2);
+		assertEquals(0.5f, buffer[0], 1.0e-4f);
+		assertEquals(-0.25f, buffer[1], 1.0e-4f);
+	}
+}
@@ -0,0 +1,67 @@
+package org.nuclearfog.apollo.player.dsp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * tests of {@link Limiter}
+ *
+ * @author nuclearfog
+ */
+public class LimiterTest {
+
+	private static final int SAMPLE_RATE = 44100;
+
+
+	@Test
+	public void keepsCeiling() {
+		Limiter limiter = new Limiter(0.5f);
+		limiter.configure(SAMPLE_RATE, 2);
+		Random random = new Random(3L);
+		float[] buffer = new float[2 * SAMPLE_RATE];
+		for (int i = 0; i < buffer.length; i++) {
+			// bursts up to four times louder than the threshold
+			float level = (i / 4410) % 2 == 0 ? 4.0f : 0.6f;
+			buffer[i] = (random.nextFloat() * 2.0f - 1.0f) * level;
+		}
+		for (int offset = 0; offset < buffer.length; offset += 2 * 441) {
+			limiter.process(buffer, offset, 441);
+		}
+		for (float sample : buffer) {
+			assertTrue(Math.abs(sample) <= 0.5f + 1.0e-6f);
+		}
+	}
+
+
+	@Test
+	public void quietSignalIsUnchanged() {
+		Limiter limiter = new Limiter(0.5f);
+		limiter.configure(SAMPLE_RATE, 1);
+		float[] buffer = BiquadFilterTest.sine(1000.0, 0.45f, 4096);
+		float[] expected = buffer.clone();
+		limiter.process(buffer, 0, buffer.length);
+		assertArrayEquals(expected, buffer, 0.0f);
+	}
+
+
+	@Test
+	public void gainRecovers() {
+		Limiter limiter = new Limiter(0.5f);
+		limiter.configure(SAMPLE_RATE, 1);
+		float[] peak = {1.0f};
+		limiter.process(peak, 0, 1);
+		assertEquals(0.5f, peak[0], 1.0e-6f);
+		// the gain is reduced after the peak and recovers after the release time
+		float[] buffer = new float[SAMPLE_RATE];
+		Arrays.fill(buffer, 0.25f);
+		limiter.process(buffer, 0, buffer.length);
+		assertTrue(buffer[0] < 0.2f);
+		assertEquals(0.25f, buffer[buffer.length - 1], 0.0f);
+	}
+}
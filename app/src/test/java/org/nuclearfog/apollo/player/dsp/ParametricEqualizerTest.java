@@ -0,0 +1,59 @@
+package org.nuclearfog.apollo.player.dsp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * tests of {@link ParametricEqualizer}
+ *
+ * @author nuclearfog
+ */
+public class ParametricEqualizerTest {
+
+	private static final int SAMPLE_RATE = 44100;
+
+	/**
+	 * center frequencies of the platform equalizer
+	 */
+	private static final int[] BANDS = {60, 230, 910, 3600, 14000};
+
+
+	@Test
+	public void flatLevelsDontChangeSignal() {
+		ParametricEqualizer equalizer = new ParametricEqualizer(BANDS);
+		equalizer.configure(SAMPLE_RATE, 1);
+		float[] buffer = BiquadFilterTest.sine(440.0, 0.5f, 4096);
+		float[] expected = buffer.clone();
+		equalizer.process(buffer, 0, buffer.length);
+		assertArrayEquals(expected, buffer, 0.0f);
+	}
+
+
+	@Test
+	public void bandLevel() {
+		assertEquals(BANDS.length, new ParametricEqualizer(BANDS).getBandCount());
+		// 600 mB at the center band
+		assertEquals(6.0, measureGain(new int[]{0, 0, 600, 0, 0}, 910.0), 0.3);
+		// bands far away don't change the center band much
+		assertEquals(0.0, measureGain(new int[]{600, 0, 0, 0, 600}, 910.0), 0.5);
+		assertEquals(6.0, measureGain(new int[]{600}, 30.0), 0.5);
+	}
+
+	/**
+	 * measure the gain of an equalizer at a frequency
+	 *
+	 * @param levels band levels in mB
+	 * @return gain in dB
+	 */
+	private static double measureGain(int[] levels, double frequency) {
+		ParametricEqualizer equalizer = new ParametricEqualizer(BANDS);
+		equalizer.setBandLevels(levels);
+		equalizer.configure(SAMPLE_RATE, 1);
+		float[] buffer = BiquadFilterTest.sine(frequency, 0.25f, SAMPLE_RATE);
+		equalizer.process(buffer, 0, buffer.length);
+		double input = BiquadFilterTest.rms(BiquadFilterTest.sine(frequency, 0.25f, SAMPLE_RATE), 8192);
+		return 20.0 * Math.log10(BiquadFilterTest.rms(buffer, 8192) / input);
+	}
+}
@@ -0,0 +1,84 @@
+package org.nuclearfog.apollo.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * tests of {@link Shuffler}
+ *
+ * @author nuclearfog
+ */
+public class ShufflerTest {
+
+	@Test
+	public void drawsEveryPositionOncePerCycle() {
+		Shuffler shuffler = new Shuffler(42L, 4);
+		shuffler.reset(50);
+		for (int cycle = 0; cycle < 3; cycle++) {
+			Set<Integer> drawn = new HashSet<>();
+			for (int i = 0; i < 50; i++) {
+				assertTrue(drawn.add(shuffler.next()));
+			}
+		}
+	}
+
+
+	@Test
+	public void sameSeedSameOrder() {
+		Shuffler first = new Shuffler(7L, 4);
+		Shuffler second = new Shuffler(7L, 4);
+		first.reset(100);
+		second.reset(100);
+		for (int i = 0; i < 250; i++) {
+			assertEquals(first.next(), second.next());
+		}
+	}
+
+
+	@Test
+	public void restoredStateContinuesOrder() {
+		// small queues, so the recency window is used at every cycle boundary
+		for (long seed = 0; seed < 20; seed++) {
+			Shuffler shuffler = new Shuffler(seed, 4);
+			shuffler.reset(10);
+			for (int i = 0; i < 7 + seed; i++) {
+				shuffler.next();
+			}
+			// the next position is selected but not played yet
+			int next = shuffler.peek();
+			String state = shuffler.saveState();
+
+			Shuffler restored = new Shuffler(-1L, 4);
+			assertTrue(restored.restoreState(state, 10));
+			assertEquals(10, restored.size());
+			assertEquals(next, restored.peek());
+			for (int i = 0; i < 100; i++) {
+				assertEquals(shuffler.next(), restored.next());
+			}
+		}
+	}
+
+
+	@Test
+	public void rejectsInvalidState() {
+		Shuffler shuffler = new Shuffler(5L, 4);
+		shuffler.reset(10);
+		shuffler.next();
+		String state = shuffler.saveState();
+		Shuffler restored = new Shuffler(5L, 4);
+		// queue size changed
+		assertFalse(restored.restoreState(state, 11));
+		assertFalse(restored.restoreState("", 10));
+		assertFalse(restored.restoreState(null, 10));
+		// position used twice
+		assertFalse(restored.restoreState("1;0;0;0;0;0;", 2));
+		assertFalse(restored.restoreState("x;0;0;0;0;1;", 2));
+		assertEquals(0, restored.size());
+	}
+}
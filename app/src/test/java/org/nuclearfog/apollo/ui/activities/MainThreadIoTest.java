@@ -0,0 +1,410 @@
+package org.nuclearfog.apollo.ui.activities;
+
+import static android.Manifest.permission.ACCESS_MEDIA_LOCATION;
+import static android.Manifest.permission.READ_EXTERNAL_STORAGE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+import static org.robolectric.util.reflector.Reflector.reflector;
+
+import android.app.Activity;
+import android.app.Application;
+import android.app.SearchManager;
+import android.content.ContentProvider;
+import android.content.ContentValues;
+import android.content.Intent;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Looper;
+import android.provider.MediaStore;
+import android.provider.MediaStore.Audio;
+import android.view.View;
+import android.view.View.MeasureSpec;
+import android.widget.ListView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
+import androidx.fragment.app.FragmentActivity;
+import androidx.fragment.app.FragmentManager;
+import androidx.loader.app.LoaderManager;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.viewpager.widget.ViewPager;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuclearfog.apollo.Config;
+import org.nuclearfog.apollo.R;
+import org.nuclearfog.apollo.ui.fragments.SongFragment;
+import org.nuclearfog.apollo.utils.ContextMenuItems;
+import org.nuclearfog.apollo.utils.CursorFactory;
+import org.nuclearfog.apollo.utils.StrictModeAudit;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.annotation.LooperMode;
+import org.robolectric.annotation.RealObject;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.util.reflector.Direct;
+import org.robolectric.util.reflector.ForType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * drives the major screens and fails if the MediaStore, an app database or the storage is accessed on the main thread.
+ * MediaStore and database access is detected directly, other storage access is detected by {@link StrictModeAudit}
+ *
+ * @author nuclearfog
+ */
+@RunWith(RobolectricTestRunner.class)
+@org.robolectric.annotation.Config(sdk = Build.VERSION_CODES.P, shadows = MainThreadIoTest.ShadowDatabaseHelper.class)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class MainThreadIoTest {
+
+	/**
+	 * storage access on the main thread, recorded by the fake MediaStore and the database shadow
+	 */
+	private static final List<String> ACCESSES = Collections.synchronizedList(new ArrayList<String>());
+
+	/**
+	 * max time to wait for background loaders in milliseconds
+	 */
+	private static final long SETTLE_TIMEOUT = 10000L;
+
+	/**
+	 * size of the list used to show the context menu
+	 */
+	private static final int LIST_WIDTH = 480, LIST_HEIGHT = 800;
+
+	private MediaProvider mediaProvider;
+
+
+	@Before
+	public void setUp() {
+		Application application = ApplicationProvider.getApplicationContext();
+		shadowOf(application).grantPermissions(READ_EXTERNAL_STORAGE, ACCESS_MEDIA_LOCATION);
+		mediaProvider = Robolectric.buildContentProvider(MediaProvider.class).create(MediaStore.AUTHORITY).get();
+		settle(null);
+		ACCESSES.clear();
+		StrictModeAudit.reset();
+		StrictModeAudit.setEnabled(true);
+	}
+
+
+	@After
+	public void tearDown() {
+		StrictModeAudit.setEnabled(false);
+	}
+
+
+	@Test
+	public void homeScreen() {
+		ActivityController<HomeActivity> controller = Robolectric.buildActivity(HomeActivity.class).setup();
+		ViewPager pager = controller.get().findViewById(R.id.fragment_home_phone_pager);
+		for (int i = 0; i < pager.getAdapter().getCount(); i++) {
+			pager.setCurrentItem(i, false);
+			assertNoMainThreadIo(controller.get());
+		}
+		close(controller);
+	}
+
+
+	@Test
+	public void songContextMenu() {
+		mediaProvider.setTrackCount(1);
+		ActivityController<HomeActivity> controller = Robolectric.buildActivity(HomeActivity.class).setup();
+		HomeActivity activity = controller.get();
+		assertNoMainThreadIo(activity);
+		SongFragment fragment = findFragment(activity.getSupportFragmentManager(), SongFragment.class);
+		assertNotNull("song page not found", fragment);
+		ListView list = fragment.requireView().findViewById(R.id.list_base);
+		// lay out the list, the page may not be shown yet
+		list.measure(MeasureSpec.makeMeasureSpec(LIST_WIDTH, MeasureSpec.EXACTLY), MeasureSpec.makeMeasureSpec(LIST_HEIGHT, MeasureSpec.EXACTLY));
+		list.layout(0, 0, LIST_WIDTH, LIST_HEIGHT);
+		assertTrue("song list is empty", list.getChildCount() > 0);
+		// long press the first song and select an item of the context menu
+		View item = list.getChildAt(0);
+		assertTrue("no context menu shown", item.performLongClick());
+		assertNoMainThreadIo(activity);
+		assertTrue(activity.getWindow().performContextMenuIdentifierAction(ContextMenuItems.ADD_TO_FAVORITES, 0));
+		assertNoMainThreadIo(activity);
+		close(controller);
+	}
+
+
+	@Test
+	public void artistProfile() {
+		Intent intent = new Intent(ApplicationProvider.getApplicationContext(), ProfileActivity.class);
+		intent.putExtra(Config.MIME_TYPE, Audio.Artists.CONTENT_TYPE);
+		intent.putExtra(Config.ID, 1L);
+		intent.putExtra(Config.ARTIST_NAME, "Artist");
+		open(ProfileActivity.class, intent);
+	}
+
+
+	@Test
+	public void albumProfile() {
+		Intent intent = new Intent(ApplicationProvider.getApplicationContext(), ProfileActivity.class);
+		intent.putExtra(Config.MIME_TYPE, Audio.Albums.CONTENT_TYPE);
+		intent.putExtra(Config.ID, 1L);
+		intent.putExtra(Config.NAME, "Album");
+		intent.putExtra(Config.ARTIST_NAME, "Artist");
+		intent.putExtra(Config.ALBUM_YEAR, "2000");
+		open(ProfileActivity.class, intent);
+	}
+
+
+	@Test
+	public void playlistProfiles() {
+		String[] types = {Audio.Playlists.CONTENT_TYPE, Audio.Genres.CONTENT_TYPE, ProfileActivity.PAGE_FAVORIT,
+				ProfileActivity.PAGE_LAST_ADDED, ProfileActivity.PAGE_MOST_PLAYED};
+		for (String type : types) {
+			Intent intent = new Intent(ApplicationProvider.getApplicationContext(), ProfileActivity.class);
+			intent.putExtra(Config.MIME_TYPE, type);
+			intent.putExtra(Config.ID, 1L);
+			intent.putExtra(Config.NAME, "Name");
+			open(ProfileActivity.class, intent);
+		}
+	}
+
+
+	@Test
+	public void nowPlayingScreen() {
+		open(AudioPlayerActivity.class, new Intent(ApplicationProvider.getApplicationContext(), AudioPlayerActivity.class));
+	}
+
+
+	@Test
+	public void searchScreen() {
+		Intent intent = new Intent(ApplicationProvider.getApplicationContext(), SearchActivity.class);
+		intent.putExtra(SearchManager.QUERY, "search");
+		open(SearchActivity.class, intent);
+	}
+
+
+	@Test
+	public void settingsScreen() {
+		open(SettingsActivity.class, new Intent(ApplicationProvider.getApplicationContext(), SettingsActivity.class));
+	}
+
+	/**
+	 * start an activity, wait for its loaders and close it again
+	 */
+	private static <T extends Activity> void open(Class<T> activityClass, Intent intent) {
+		ActivityController<T> controller = Robolectric.buildActivity(activityClass, intent).setup();
+		assertNoMainThreadIo(controller.get());
+		close(controller);
+	}
+
+	/**
+	 * close an activity and check the storage access while closing
+	 */
+	private static void close(ActivityController<? extends Activity> controller) {
+		controller.pause().stop().destroy();
+		assertNoMainThreadIo(null);
+	}
+
+	/**
+	 * wait for background loaders and fail if the storage was accessed on the main thread
+	 *
+	 * @param activity activity with the loaders to wait for or null to only run the main looper
+	 */
+	private static void assertNoMainThreadIo(@Nullable Activity activity) {
+		settle(activity);
+		assertTrue("storage access on the main thread: " + ACCESSES, ACCESSES.isEmpty());
+		assertEquals(StrictModeAudit.getReport(), 0, StrictModeAudit.getViolationCount());
+	}
+
+	/**
+	 * run the main looper until the results of all background loaders are delivered and no message is left
+	 *
+	 * @param activity activity with the loaders to wait for or null to only run the main looper
+	 */
+	private static void settle(@Nullable Activity activity) {
+		ShadowLooper looper = shadowOf(Looper.getMainLooper());
+		long deadline = System.currentTimeMillis() + SETTLE_TIMEOUT;
+		looper.idle();
+		while (hasRunningLoaders(activity) || !looper.isIdle()) {
+			assertTrue("loaders not finished after " + SETTLE_TIMEOUT + "ms", System.currentTimeMillis() < deadline);
+			// let the loader threads post their results
+			Thread.yield();
+			looper.idle();
+		}
+	}
+
+	/**
+	 * check if loaders of an activity or its fragments didn't deliver their result yet
+	 */
+	private static boolean hasRunningLoaders(@Nullable Activity activity) {
+		if (activity instanceof FragmentActivity && !activity.isDestroyed()) {
+			FragmentActivity fragmentActivity = (FragmentActivity) activity;
+			return LoaderManager.getInstance(fragmentActivity).hasRunningLoaders() || hasRunningLoaders(fragmentActivity.getSupportFragmentManager());
+		}
+		return false;
+	}
+
+	/**
+	 * check if loaders of the fragments or their child fragments didn't deliver their result yet
+	 */
+	private static boolean hasRunningLoaders(FragmentManager manager) {
+		for (Fragment fragment : manager.getFragments()) {
+			if (fragment.isAdded() && (LoaderManager.getInstance(fragment).hasRunningLoaders() || hasRunningLoaders(fragment.getChildFragmentManager()))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * search a fragment and its child fragments
+	 *
+	 * @return the first fragment of the type or null if not found
+	 */
+	@Nullable
+	private static <T extends Fragment> T findFragment(FragmentManager manager, Class<T> type) {
+		for (Fragment fragment : manager.getFragments()) {
+			if (type.isInstance(fragment)) {
+				return type.cast(fragment);
+			}
+			if (fragment.isAdded()) {
+				T result = findFragment(fragment.getChildFragmentManager(), type);
+				if (result != null) {
+					return result;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * record a storage access if called on the main thread
+	 *
+	 * @param what description of the access
+	 */
+	private static void record(String what) {
+		if (Looper.getMainLooper().getThread() == Thread.currentThread()) {
+			// use the first frame of the app outside of this test as call site
+			String callSite = "unknown";
+			for (StackTraceElement element : new Throwable().getStackTrace()) {
+				if (element.getClassName().startsWith("org.nuclearfog.apollo.") && !element.getClassName().startsWith(MainThreadIoTest.class.getName())) {
+					callSite = element.toString();
+					break;
+				}
+			}
+			ACCESSES.add(what + " at " + callSite);
+		}
+	}
+
+	/**
+	 * MediaStore without content which records every access on the main thread. Tracks can be added to the song list
+	 */
+	public static class MediaProvider extends ContentProvider {
+
+		private volatile int trackCount = 0;
+
+
+		@Override
+		public boolean onCreate() {
+			return true;
+		}
+
+
+		@Nullable
+		@Override
+		public Cursor query(@NonNull Uri uri, @Nullable String[] projection, @Nullable String selection, @Nullable String[] selectionArgs, @Nullable String sortOrder) {
+			record("query " + uri);
+			MatrixCursor cursor = new MatrixCursor(projection != null ? projection : new String[]{Audio.Media._ID});
+			if (Arrays.equals(projection, CursorFactory.TRACK_COLUMNS)) {
+				for (int i = 1; i <= trackCount; i++) {
+					cursor.addRow(new Object[]{i, "Title " + i, "Artist", "Album", 180000L, "/storage/emulated/0/Music/" + i + ".mp3", "audio/mpeg", 2000});
+				}
+			}
+			return cursor;
+		}
+
+
+		@Nullable
+		@Override
+		public String getType(@NonNull Uri uri) {
+			return null;
+		}
+
+
+		@Nullable
+		@Override
+		public Uri insert(@NonNull Uri uri, @Nullable ContentValues values) {
+			record("insert " + uri);
+			return null;
+		}
+
+
+		@Override
+		public int delete(@NonNull Uri uri, @Nullable String selection, @Nullable String[] selectionArgs) {
+			record("delete " + uri);
+			return 0;
+		}
+
+
+		@Override
+		public int update(@NonNull Uri uri, @Nullable ContentValues values, @Nullable String selection, @Nullable String[] selectionArgs) {
+			record("update " + uri);
+			return 0;
+		}
+
+		/**
+		 * set the number of tracks returned for the song list
+		 */
+		void setTrackCount(int trackCount) {
+			this.trackCount = trackCount;
+		}
+	}
+
+	/**
+	 * records every database opened on the main thread
+	 */
+	@Implements(SQLiteOpenHelper.class)
+	public static class ShadowDatabaseHelper {
+
+		@RealObject
+		private SQLiteOpenHelper helper;
+
+
+		@Implementation
+		protected SQLiteDatabase getReadableDatabase() {
+			record("read " + helper.getDatabaseName());
+			return reflector(DatabaseHelperReflector.class, helper).getReadableDatabase();
+		}
+
+
+		@Implementation
+		protected SQLiteDatabase getWritableDatabase() {
+			record("write " + helper.getDatabaseName());
+			return reflector(DatabaseHelperReflector.class, helper).getWritableDatabase();
+		}
+	}
+
+	/**
+	 * calls the real methods of a database helper
+	 */
+	@ForType(SQLiteOpenHelper.class)
+	interface DatabaseHelperReflector {
+
+		@Direct
+		SQLiteDatabase getReadableDatabase();
+
+		@Direct
+		SQLiteDatabase getWritableDatabase();
+	}
+}
@@ -0,0 +1,230 @@
+package org.nuclearfog.apollo.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.nuclearfog.apollo.utils.TagReader.Tags;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+
+/**
+ * tests of {@link TagReader} with small audio files containing only the tags
+ *
+ * @author nuclearfog
+ */
+public class TagReaderTest {
+
+	private static final Charset LATIN_1 = Charset.forName("ISO-8859-1");
+
+	/**
+	 * front cover embedded in the test files
+	 */
+	private static final byte[] FRONT_COVER = concat(new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'}, "front-cover".getBytes(LATIN_1));
+
+	private static final float DELTA = 0.001f;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+
+	@Test
+	public void readsId3v23() throws IOException {
+		Tags tags = read("id3v23.mp3");
+		// the front cover replaces the back cover found before
+		assertArrayEquals(FRONT_COVER, tags.getArtwork());
+		// UTF-16 with byte order mark
+		assertEquals(-6.5f, tags.getTrackGain(), DELTA);
+		// lower case name and decimal comma
+		assertEquals(-7.25f, tags.getAlbumGain(), DELTA);
+		assertEquals(0.988f, tags.getTrackPeak(), DELTA);
+		assertTrue(Float.isNaN(tags.getAlbumPeak()));
+		assertEquals("Artist, The", tags.getArtistSort());
+		assertEquals("Album, The", tags.getAlbumSort());
+		assertNull(tags.getTitleSort());
+	}
+
+
+	@Test
+	public void readsId3v24() throws IOException {
+		Tags tags = read("id3v24.mp3");
+		assertEquals(1.0f, tags.getAlbumPeak(), DELTA);
+		assertEquals("Various Artists", tags.getAlbumArtistSort());
+		// frame with data length indicator
+		assertEquals("Title Sort", tags.getTitleSort());
+		// unsynchronized frame, 0xFF 0x00 is replaced by 0xFF
+		assertArrayEquals(concat(new byte[]{(byte) 0xff, 0x00, (byte) 0xd8}, "unsync".getBytes(LATIN_1)), tags.getArtwork());
+	}
+
+
+	@Test
+	public void readsId3v22() throws IOException {
+		Tags tags = read("id3v22.mp3");
+		assertEquals(1.5f, tags.getTrackGain(), DELTA);
+		assertEquals("Sort Artist", tags.getArtistSort());
+		assertArrayEquals(FRONT_COVER, tags.getArtwork());
+	}
+
+
+	@Test
+	public void readsUnsynchronizedTag() throws IOException {
+		Tags tags = read("unsync_id3v23.mp3");
+		assertArrayEquals(concat(new byte[]{(byte) 0xff, (byte) 0xe0}, FRONT_COVER), tags.getArtwork());
+		assertEquals("Unsync Artist", tags.getArtistSort());
+	}
+
+
+	@Test
+	public void skipsArtwork() throws IOException {
+		String[] names = {"id3v22.mp3", "id3v23.mp3", "id3v24.mp3", "unsync_id3v23.mp3", "vorbis.flac", "id3.flac", "ilst.m4a"};
+		for (String name : names) {
+			Tags full = read(name);
+			Tags tags = read(name, false);
+			assertNull(name, tags.getArtwork());
+			assertEquals(name, full.getTrackGain(), tags.getTrackGain(), DELTA);
+			assertEquals(name, full.getAlbumGain(), tags.getAlbumGain(), DELTA);
+			assertEquals(name, full.getTrackPeak(), tags.getTrackPeak(), DELTA);
+			assertEquals(name, full.getAlbumPeak(), tags.getAlbumPeak(), DELTA);
+			assertEquals(name, full.getArtistSort(), tags.getArtistSort());
+			assertEquals(name, full.getAlbumArtistSort(), tags.getAlbumArtistSort());
+			assertEquals(name, full.getAlbumSort(), tags.getAlbumSort());
+			assertEquals(name, full.getTitleSort(), tags.getTitleSort());
+		}
+	}
+
+
+	@Test
+	public void readsFlac() throws IOException {
+		Tags tags = read("vorbis.flac");
+		assertEquals(-3.2f, tags.getTrackGain(), DELTA);
+		assertEquals(-4.0f, tags.getAlbumGain(), DELTA);
+		assertEquals("Band, The", tags.getAlbumArtistSort());
+		assertEquals("Ålbum", tags.getAlbumSort());
+		assertArrayEquals(FRONT_COVER, tags.getArtwork());
+	}
+
+
+	@Test
+	public void readsFlacAfterId3() throws IOException {
+		Tags tags = read("id3.flac");
+		assertEquals("Id3 Artist", tags.getArtistSort());
+		assertEquals(-3.2f, tags.getTrackGain(), DELTA);
+		assertArrayEquals(FRONT_COVER, tags.getArtwork());
+	}
+
+
+	@Test
+	public void readsMp4() throws IOException {
+		Tags tags = read("ilst.m4a");
+		assertEquals("Sorted Artist", tags.getArtistSort());
+		// freeform atom
+		assertEquals(-2.0f, tags.getTrackGain(), DELTA);
+		assertArrayEquals(FRONT_COVER, tags.getArtwork());
+	}
+
+
+	@Test
+	public void ignoresTruncatedId3() throws IOException {
+		// the tag size is larger than the file
+		assertEmpty(read("truncated_id3.mp3"));
+	}
+
+
+	@Test
+	public void keepsFramesBeforeCorruptFrame() throws IOException {
+		// the size of the second frame exceeds the tag
+		Tags tags = read("corrupt_frame.mp3");
+		assertEquals("Before", tags.getArtistSort());
+		assertTrue(Float.isNaN(tags.getTrackGain()));
+	}
+
+
+	@Test
+	public void keepsBlocksBeforeTruncatedFlacBlock() throws IOException {
+		// the file ends inside the picture block
+		Tags tags = read("truncated_flac.flac");
+		assertEquals(-3.2f, tags.getTrackGain(), DELTA);
+		assertNull(tags.getArtwork());
+	}
+
+
+	@Test
+	public void keepsCommentsBeforeCorruptComment() throws IOException {
+		// the comment count and the length of the second comment exceed the block
+		Tags tags = read("corrupt_vorbis.flac");
+		assertEquals("Sorted", tags.getArtistSort());
+	}
+
+
+	@Test
+	public void ignoresTruncatedMp4() throws IOException {
+		assertEmpty(read("truncated.m4a"));
+		// atom size larger than the file
+		assertEmpty(read("corrupt_atom.m4a"));
+	}
+
+	/**
+	 * read the tags of a test file including the artwork
+	 */
+	private Tags read(String name) throws IOException {
+		return read(name, true);
+	}
+
+	/**
+	 * read the tags of a test file
+	 */
+	private Tags read(String name, boolean artwork) throws IOException {
+		File file = new File(folder.getRoot(), name);
+		InputStream input = TagReaderTest.class.getResourceAsStream("/tags/" + name);
+		assertNotNull(name, input);
+		OutputStream output = new FileOutputStream(file);
+		try {
+			byte[] buffer = new byte[4096];
+			int count;
+			while ((count = input.read(buffer)) > 0) {
+				output.write(buffer, 0, count);
+			}
+		} finally {
+			output.close();
+			input.close();
+		}
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		try {
+			return TagReader.read(randomAccessFile.getChannel(), artwork);
+		} finally {
+			randomAccessFile.close();
+		}
+	}
+
+	/**
+	 * check that no tag was found
+	 */
+	private static void assertEmpty(Tags tags) {
+		assertNull(tags.getArtwork());
+		assertTrue(Float.isNaN(tags.getTrackGain()));
+		assertTrue(Float.isNaN(tags.getAlbumGain()));
+		assertNull(tags.getArtistSort());
+		assertNull(tags.getAlbumSort());
+	}
+
+	/**
+	 * concatenate two arrays
+	 */
+	private static byte[] concat(byte[] first, byte[] second) {
+		byte[] result = new byte[first.length + second.length];
+		System.arraycopy(first, 0, result, 0, first.length);
+		System.arraycopy(second, 0, result, first.length, second.length);
+		return result;
+	}
+}
@@ -0,0 +1,107 @@
+package org.nuclearfog.apollo.lastfm;
+
+import org.kxml2.io.KXmlParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+/**
+ * compares the streaming {@link ResponseParser} with the DOM parser used before to read the fields of a Last.fm response
+ *
+ * @author nuclearfog
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ResponseParserBenchmark {
+
+	/**
+	 * fields of an artist, same as Artist.FIELDS
+	 */
+	private static final String[] ARTIST_FIELDS = {"name", "url", "image"};
+
+	/**
+	 * fields of an album, same as Album.FIELDS
+	 */
+	private static final String[] ALBUM_FIELDS = {"name", "url", "image", "artist/name"};
+
+	@Param({"artist_getinfo.xml", "album_getinfo.xml"})
+	public String response;
+
+	private byte[] data;
+	private String[] fields;
+	private DocumentBuilder builder;
+
+
+	@Setup
+	public void setup() throws Exception {
+		InputStream stream = ResponseParserBenchmark.class.getResourceAsStream("/lastfm/" + response);
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		int count;
+		while ((count = stream.read(buffer)) > 0) {
+			output.write(buffer, 0, count);
+		}
+		stream.close();
+		data = output.toByteArray();
+		fields = response.startsWith("album") ? ALBUM_FIELDS : ARTIST_FIELDS;
+		builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+	}
+
+
+	@Benchmark
+	public void streaming(Blackhole blackhole) throws Exception {
+		Result result = new ResponseParser(fields).parse(new KXmlParser(), new ByteArrayInputStream(data));
+		DomElement content = result.getContentElement();
+		blackhole.consume(content.getChildText("name"));
+		blackhole.consume(content.getChildText("url"));
+		for (DomElement image : content.getChildren("image")) {
+			blackhole.consume(image.getAttribute("size"));
+			blackhole.consume(image.getText());
+		}
+	}
+
+
+	@Benchmark
+	public void dom(Blackhole blackhole) throws Exception {
+		Document document = builder.parse(new ByteArrayInputStream(data));
+		Element content = null;
+		NodeList nodes = document.getDocumentElement().getChildNodes();
+		for (int i = 0; i < nodes.getLength() && content == null; i++) {
+			if (nodes.item(i).getNodeType() == Node.ELEMENT_NODE) {
+				content = (Element) nodes.item(i);
+			}
+		}
+		nodes = content.getChildNodes();
+		for (int i = 0; i < nodes.getLength(); i++) {
+			Node node = nodes.item(i);
+			if (node.getNodeType() == Node.ELEMENT_NODE) {
+				String name = node.getNodeName();
+				if (name.equals("name") || name.equals("url")) {
+					blackhole.consume(node.getTextContent());
+				} else if (name.equals("image")) {
+					blackhole.consume(((Element) node).getAttribute("size"));
+					blackhole.consume(node.getTextContent());
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,118 @@
+package org.nuclearfog.apollo.player.dsp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * measures the processors of the {@link DspChain} with a block of 16 bit stereo PCM as written by the decoder
+ *
+ * @author nuclearfog
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DspChainBenchmark {
+
+	private static final int SAMPLE_RATE = 44100;
+
+	private static final int CHANNELS = 2;
+
+	/**
+	 * center frequencies of the platform equalizer
+	 */
+	private static final int[] BANDS = {60, 230, 910, 3600, 14000};
+
+	/**
+	 * band levels in mB
+	 */
+	private static final int[] LEVELS = {300, -200, 0, 400, 600};
+
+	@Param({"1024", "4096"})
+	public int frames;
+
+	private short[] input;
+	private short[] pcm;
+	private float[] samples;
+	private float[] incoming;
+	private DspChain gain;
+	private DspChain equalizer;
+	private DspChain chain;
+	private Crossfader crossfader;
+
+
+	@Setup
+	public void setup() {
+		Random random = new Random(1L);
+		input = new short[frames * CHANNELS];
+		for (int i = 0; i < input.length; i++) {
+			input[i] = (short) (random.nextGaussian() * 4096.0);
+		}
+		pcm = new short[input.length];
+		samples = new float[input.length];
+		incoming = new float[input.length];
+		for (int i = 0; i < input.length; i++) {
+			incoming[i] = input[i] / 32768.0f;
+		}
+		GainProcessor preamp = new GainProcessor();
+		preamp.setGainDecibel(-3.0f);
+		gain = new DspChain(preamp);
+		gain.configure(SAMPLE_RATE, CHANNELS, frames);
+
+		ParametricEqualizer bands = new ParametricEqualizer(BANDS);
+		bands.setBandLevels(LEVELS);
+		equalizer = new DspChain(bands);
+		equalizer.configure(SAMPLE_RATE, CHANNELS, frames);
+
+		ParametricEqualizer chainBands = new ParametricEqualizer(BANDS);
+		chainBands.setBandLevels(LEVELS);
+		GainProcessor chainGain = new GainProcessor();
+		chainGain.setGainDecibel(-3.0f);
+		chain = new DspChain(chainGain, chainBands, new Limiter(0.98f));
+		chain.configure(SAMPLE_RATE, CHANNELS, frames);
+
+		crossfader = new Crossfader();
+		crossfader.configure(SAMPLE_RATE, CHANNELS);
+	}
+
+
+	@Benchmark
+	public short[] gain() {
+		System.arraycopy(input, 0, pcm, 0, input.length);
+		gain.process(pcm, 0, frames);
+		return pcm;
+	}
+
+
+	@Benchmark
+	public short[] equalizer() {
+		System.arraycopy(input, 0, pcm, 0, input.length);
+		equalizer.process(pcm, 0, frames);
+		return pcm;
+	}
+
+
+	@Benchmark
+	public short[] chain() {
+		System.arraycopy(input, 0, pcm, 0, input.length);
+		chain.process(pcm, 0, frames);
+		return pcm;
+	}
+
+
+	@Benchmark
+	public float[] crossfade() {
+		// a long fade, so every block is mixed with the fade curve
+		crossfader.start(60000);
+		crossfader.mix(incoming, incoming, samples, 0, frames);
+		return samples;
+	}
+}